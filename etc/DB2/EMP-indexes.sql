@@ -0,0 +1,15 @@
+--------------------------------------------------------------------------
+-- Optional indexes used by the employee search.
+--
+-- Run with CURRENT SCHEMA set to the schema of the sample EMP table,
+-- for example SET CURRENT SCHEMA = 'DSN81210', and adjust the index
+-- names and storage clauses to suit your site.
+--------------------------------------------------------------------------
+
+-- Exact and prefix searches, and the ORDER BY LASTNAME, EMPNO paging
+CREATE INDEX XEMPLNAME
+       ON EMP (LASTNAME ASC, EMPNO ASC);
+
+-- Phonetic searches, which compare SOUNDEX(LASTNAME)
+CREATE INDEX XEMPSNDX
+       ON EMP (SOUNDEX(LASTNAME) ASC, LASTNAME ASC, EMPNO ASC);
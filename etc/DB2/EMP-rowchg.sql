@@ -0,0 +1,18 @@
+--------------------------------------------------------------------------
+-- Adds a row change timestamp column to the sample EMP table.
+--
+-- The application detects concurrent changes with ROW CHANGE TOKEN FOR
+-- EMP. Without a row change timestamp column Db2 derives the token from
+-- the page, so a change to any employee on the same page makes the token
+-- of every other employee on it change too, and their edits and deletes
+-- are refused as conflicts. With the column, each row has its own token.
+--
+-- Run with CURRENT SCHEMA set to the schema of the sample EMP table,
+-- for example SET CURRENT SCHEMA = 'DSN81210'. Adding the column places
+-- the table space in advisory REORG-pending status, so reorganize it
+-- afterwards.
+--------------------------------------------------------------------------
+
+ALTER TABLE EMP
+      ADD COLUMN ROWCHG TIMESTAMP NOT NULL
+          GENERATED ALWAYS FOR EACH ROW ON UPDATE AS ROW CHANGE TIMESTAMP;
@@ -0,0 +1,131 @@
+/* Licensed Materials - Property of IBM                                   */
+/*                                                                        */
+/* SAMPLE                                                                 */
+/*                                                                        */
+/* (c) Copyright IBM Corp. 2018 All Rights Reserved                       */
+/*                                                                        */
+/* US Government Users Restricted Rights - Use, duplication or disclosure */
+/* restricted by GSA ADP Schedule Contract with IBM Corp                  */
+/*                                                                        */
+package com.ibm.cicsdev.employee.benchmarks;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.ibm.cicsdev.employee.jdbc.beans.Employee;
+import com.ibm.cicsdev.employee.jdbc.beans.EmployeePage;
+import com.ibm.cicsdev.employee.jdbc.beans.SearchMode;
+import com.ibm.cicsdev.employee.jdbc.faces.EmployeeRowHandler;
+import com.ibm.cicsdev.employee.jdbc.faces.EmployeeRowMapper;
+
+/**
+ * Measures each operation of the data access layer against the embedded EMP table.
+ * 
+ * Run with the GC profiler, as {@link BenchmarkMain} does by default, to report the
+ * bytes allocated by each operation as well as its throughput. Changes are made
+ * without JTA, committing through the connection, as no transaction manager is
+ * available outside Liberty.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class DataAccessBenchmark
+{
+    /**
+     * Rows in each page of search results, as shown by the list page.
+     */
+    private static final int PAGE_SIZE = 10;
+    
+    /**
+     * Employees added by the create benchmark are numbered from here, after the generated employees.
+     */
+    private static final String CREATED_PREFIX = "B";
+    
+    /**
+     * Counts the employees this thread has added, to give each a new number.
+     */
+    private int created;
+    
+    /**
+     * Chooses an employee that exists.
+     */
+    private static int anyEmployee(DatabaseState db) {
+        return ThreadLocalRandom.current().nextInt(db.rows);
+    }
+    
+    @Benchmark
+    public EmployeePage searchExact(DatabaseState db) throws Exception {
+        return db.manager.findEmployeePage(SearchMode.EXACT, EmployeeGenerator.lastName(anyEmployee(db)), null, true, PAGE_SIZE);
+    }
+    
+    @Benchmark
+    public EmployeePage searchPrefix(DatabaseState db) throws Exception {
+        String name = EmployeeGenerator.LAST_NAMES[ThreadLocalRandom.current().nextInt(EmployeeGenerator.LAST_NAMES.length)];
+        return db.manager.findEmployeePage(SearchMode.PREFIX, name.substring(0, 3), null, true, PAGE_SIZE);
+    }
+    
+    @Benchmark
+    public EmployeePage searchNextPage(DatabaseState db) throws Exception {
+        String name = EmployeeGenerator.lastName(anyEmployee(db));
+        EmployeePage first = db.manager.findEmployeePage(SearchMode.PREFIX, name.substring(0, 4), null, true, PAGE_SIZE);
+        return db.manager.findEmployeePage(SearchMode.PREFIX, name.substring(0, 4), first.getLastKey(), true, PAGE_SIZE);
+    }
+    
+    @Benchmark
+    public Employee find(DatabaseState db) throws SQLException {
+        return db.manager.findEmployee(EmployeeGenerator.empNo(anyEmployee(db)));
+    }
+    
+    /**
+     * Reads a page of full employees, building an {@link Employee} from each row.
+     */
+    @Benchmark
+    public boolean mapEmployees(DatabaseState db, final Blackhole bh) throws Exception {
+        String name = EmployeeGenerator.LAST_NAMES[ThreadLocalRandom.current().nextInt(EmployeeGenerator.LAST_NAMES.length)];
+        return db.manager.scanEmployeePage(SearchMode.PREFIX, name, null, 100, new EmployeeRowHandler() {
+            @Override
+            public void row(EmployeeRowMapper row) throws SQLException, IOException {
+                bh.consume(row.toEmployee());
+            }
+        });
+    }
+    
+    /**
+     * Adds an employee and deletes it again, so the table stays the same size.
+     */
+    @Benchmark
+    public void createDelete(DatabaseState db) throws Exception {
+        int n = anyEmployee(db);
+        String empNo = CREATED_PREFIX + String.format("%05d", (Thread.currentThread().getId() * 1000 + this.created++) % 100_000);
+        Employee employee = EmployeeGenerator.employee(n, empNo);
+        db.manager.createEmployee(employee, false);
+        db.manager.deleteEmployee(employee, false);
+    }
+    
+    /**
+     * Reads an employee and changes its salary, checking its row change token.
+     */
+    @Benchmark
+    public void update(DatabaseState db) throws Exception {
+        Employee employee = db.manager.findEmployee(EmployeeGenerator.empNo(anyEmployee(db)));
+        employee.setSalary(employee.getSalary().add(BigDecimal.ONE));
+        db.manager.updateEmployee(employee, false);
+    }
+}
@@ -0,0 +1,74 @@
+/* Licensed Materials - Property of IBM                                   */
+/*                                                                        */
+/* SAMPLE                                                                 */
+/*                                                                        */
+/* (c) Copyright IBM Corp. 2018 All Rights Reserved                       */
+/*                                                                        */
+/* US Government Users Restricted Rights - Use, duplication or disclosure */
+/* restricted by GSA ADP Schedule Contract with IBM Corp                  */
+/*                                                                        */
+package com.ibm.cicsdev.employee.benchmarks;
+
+import java.sql.SQLException;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.ibm.cicsdev.employee.jdbc.audit.TransactionalAuditSink;
+import com.ibm.cicsdev.employee.jdbc.cache.EmployeeCache;
+import com.ibm.cicsdev.employee.jdbc.exec.DatabaseExecutor;
+import com.ibm.cicsdev.employee.jdbc.faces.DatabaseOperationsManager;
+import com.ibm.cicsdev.employee.jdbc.search.LastNameIndex;
+
+/**
+ * A {@link DatabaseOperationsManager} over an embedded EMP table of
+ * <code>rows</code> employees, shared by every thread of a benchmark.
+ * 
+ * The cache holds no entries, so every call reaches the database, and audit
+ * records are written in each unit of work to a {@link MemoryAuditWriter}.
+ */
+@State(Scope.Benchmark)
+public class DatabaseState
+{
+    /**
+     * The number of employees in the table.
+     */
+    @Param({"10000", "100000", "1000000"})
+    public int rows;
+    
+    /**
+     * The database.
+     */
+    public EmbeddedDatabase db;
+    
+    /**
+     * The data access layer under test.
+     */
+    public DatabaseOperationsManager manager;
+    
+    /**
+     * Receives the audit records.
+     */
+    public MemoryAuditWriter audit;
+    
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException
+    {
+        this.db = EmbeddedDatabase.create(this.rows, 64);
+        this.audit = new MemoryAuditWriter();
+        this.manager = new DatabaseOperationsManager(this.db.getDataSource(), new EmployeeCache(0, 30),
+                new TransactionalAuditSink(this.audit), new DatabaseExecutor(64, 30), new LastNameIndex(300));
+        this.manager.validateSchema();
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown()
+    {
+        this.manager.destroy();
+        this.db.close();
+    }
+}
@@ -0,0 +1,233 @@
+/* Licensed Materials - Property of IBM                                   */
+/*                                                                        */
+/* SAMPLE                                                                 */
+/*                                                                        */
+/* (c) Copyright IBM Corp. 2018 All Rights Reserved                       */
+/*                                                                        */
+/* US Government Users Restricted Rights - Use, duplication or disclosure */
+/* restricted by GSA ADP Schedule Contract with IBM Corp                  */
+/*                                                                        */
+package com.ibm.cicsdev.employee.benchmarks;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Scanner;
+
+import javax.sql.DataSource;
+
+import org.h2.jdbcx.JdbcConnectionPool;
+
+import com.ibm.cicsdev.employee.jdbc.beans.Employee;
+import com.ibm.cicsdev.employee.jdbc.sql.EmployeeStatements;
+
+/**
+ * An embedded H2 database holding the EMP table, filled with employees from the
+ * {@link EmployeeGenerator}.
+ * 
+ * The database is held in files in a temporary directory, rather than in the heap,
+ * so that a large table does not add to the garbage collection the benchmarks measure.
+ * The table is created from <code>EMP-h2.sql</code>. As H2 has no
+ * <code>ROW CHANGE TOKEN</code>, loading this class sets the
+ * {@link EmployeeStatements#ROW_CHANGE_TOKEN_PROPERTY} system property to the
+ * ROWCHG column, unless it is already set. It must therefore be loaded before
+ * anything uses {@link EmployeeStatements}, which reads the property once.
+ */
+public final class EmbeddedDatabase implements AutoCloseable
+{
+    static {
+        if ( System.getProperty(EmployeeStatements.ROW_CHANGE_TOKEN_PROPERTY) == null ) {
+            System.setProperty(EmployeeStatements.ROW_CHANGE_TOKEN_PROPERTY, "ROWCHG");
+        }
+    }
+    
+    /**
+     * Rows inserted in each JDBC batch while the table is loaded.
+     */
+    private static final int LOAD_BATCH_SIZE = 1000;
+    
+    /**
+     * The directory holding the database files.
+     */
+    private final Path directory;
+    
+    /**
+     * Pooled connections to the database.
+     */
+    private final JdbcConnectionPool pool;
+    
+    private EmbeddedDatabase(Path directory, JdbcConnectionPool pool) {
+        this.directory = directory;
+        this.pool = pool;
+    }
+    
+    /**
+     * Creates a database and loads employees 0 to <code>rows</code> - 1.
+     * 
+     * @param rows - the number of employees, at most {@link EmployeeGenerator#MAX_EMPLOYEES}
+     * @param maxConnections - the size of the connection pool
+     * 
+     * @return the database, which must be closed to delete its files
+     * 
+     * @throws SQLException if the database cannot be created
+     */
+    public static EmbeddedDatabase create(int rows, int maxConnections) throws SQLException {
+        return create(rows, maxConnections, "");
+    }
+    
+    /**
+     * Creates a database with H2 settings, and loads employees 0 to <code>rows</code> - 1.
+     * 
+     * @param rows - the number of employees, at most {@link EmployeeGenerator#MAX_EMPLOYEES}
+     * @param maxConnections - the size of the connection pool
+     * @param settings - settings added to the database URL, each starting with a semicolon
+     * 
+     * @return the database, which must be closed to delete its files
+     * 
+     * @throws SQLException if the database cannot be created
+     */
+    public static EmbeddedDatabase create(int rows, int maxConnections, String settings) throws SQLException
+    {
+        if ( rows > EmployeeGenerator.MAX_EMPLOYEES ) {
+            throw new IllegalArgumentException("At most " + EmployeeGenerator.MAX_EMPLOYEES + " employees can be generated");
+        }
+        
+        Path directory;
+        try {
+            directory = Files.createTempDirectory("employee-db");
+        }
+        catch (IOException e) {
+            throw new SQLException("Unable to create a directory for the database", e);
+        }
+        
+        String url = "jdbc:h2:" + directory.resolve("emp").toAbsolutePath() + settings;
+        JdbcConnectionPool pool = JdbcConnectionPool.create(url, "sa", "");
+        pool.setMaxConnections(maxConnections);
+        EmbeddedDatabase db = new EmbeddedDatabase(directory, pool);
+        
+        try ( Connection conn = pool.getConnection() ) {
+            try ( Statement statement = conn.createStatement() ) {
+                for (String ddl : readDdl()) {
+                    statement.execute(ddl);
+                }
+            }
+            load(conn, rows);
+        }
+        catch (SQLException | RuntimeException e) {
+            db.close();
+            throw e;
+        }
+        return db;
+    }
+    
+    /**
+     * @return a pooled DataSource for the database
+     */
+    public DataSource getDataSource() {
+        return this.pool;
+    }
+    
+    /**
+     * Closes the database and deletes its files.
+     */
+    @Override
+    public void close()
+    {
+        try ( Connection conn = this.pool.getConnection();
+              Statement statement = conn.createStatement() ) {
+            statement.execute("SHUTDOWN");
+        }
+        catch (SQLException e) {
+            // Already closed
+        }
+        this.pool.dispose();
+        
+        try ( DirectoryStream<Path> files = Files.newDirectoryStream(this.directory) ) {
+            for (Path file : files) {
+                Files.deleteIfExists(file);
+            }
+            Files.deleteIfExists(this.directory);
+        }
+        catch (IOException e) {
+            System.out.println("Unable to delete " + this.directory + ": " + e.getMessage());
+        }
+    }
+    
+    /**
+     * @return the number of rows in the EMP table
+     * 
+     * @throws SQLException if the table cannot be read
+     */
+    public int count() throws SQLException
+    {
+        try ( Connection conn = this.pool.getConnection();
+              Statement statement = conn.createStatement() ) {
+            ResultSet rs = statement.executeQuery("SELECT COUNT(*) FROM EMP");
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+    
+    /**
+     * Inserts employees 0 to <code>rows</code> - 1, committing each batch.
+     */
+    private static void load(Connection conn, int rows) throws SQLException
+    {
+        conn.setAutoCommit(false);
+        try ( PreparedStatement statement = conn.prepareStatement(EmployeeStatements.INSERT_EMPLOYEE) ) {
+            for (int n = 0; n < rows; n++) {
+                Employee employee = EmployeeGenerator.employee(n, EmployeeGenerator.empNo(n));
+                statement.setDate(1, new Date(employee.getBirthDate().getTime()));
+                statement.setBigDecimal(2, employee.getBonus());
+                statement.setBigDecimal(3, employee.getComm());
+                statement.setShort(4, employee.getEdLevel());
+                statement.setString(5, employee.getEmpNo());
+                statement.setString(6, employee.getFirstName());
+                statement.setDate(7, new Date(employee.getHireDate().getTime()));
+                statement.setString(8, employee.getJob());
+                statement.setString(9, employee.getLastName());
+                statement.setString(10, employee.getMidInit());
+                statement.setString(11, employee.getPhoneNo());
+                statement.setBigDecimal(12, employee.getSalary());
+                statement.setString(13, employee.getGender());
+                statement.setString(14, null);
+                statement.addBatch();
+                if ( (n + 1) % LOAD_BATCH_SIZE == 0 || n == rows - 1 ) {
+                    statement.executeBatch();
+                    conn.commit();
+                }
+            }
+        }
+        conn.setAutoCommit(true);
+    }
+    
+    /**
+     * Reads the statements of the DDL script, which are separated by semicolons.
+     */
+    private static String[] readDdl() throws SQLException
+    {
+        try ( InputStream in = EmbeddedDatabase.class.getResourceAsStream("EMP-h2.sql");
+              Scanner scanner = new Scanner(in, StandardCharsets.UTF_8.name()) ) {
+            StringBuilder sb = new StringBuilder();
+            while ( scanner.hasNextLine() ) {
+                String line = scanner.nextLine();
+                if ( ! line.trim().startsWith("--") ) {
+                    sb.append(line).append('\n');
+                }
+            }
+            return sb.toString().trim().split("\\s*;\\s*");
+        }
+        catch (IOException e) {
+            throw new SQLException("Unable to read EMP-h2.sql", e);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+/* Licensed Materials - Property of IBM                                   */
+/*                                                                        */
+/* SAMPLE                                                                 */
+/*                                                                        */
+/* (c) Copyright IBM Corp. 2018 All Rights Reserved                       */
+/*                                                                        */
+/* US Government Users Restricted Rights - Use, duplication or disclosure */
+/* restricted by GSA ADP Schedule Contract with IBM Corp                  */
+/*                                                                        */
+package com.ibm.cicsdev.employee.benchmarks;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.util.GregorianCalendar;
+
+import com.ibm.cicsdev.employee.jdbc.beans.Employee;
+
+/**
+ * Builds synthetic employees for the EMP table.
+ * 
+ * Employee number <code>n</code> is always the same employee, so a table of any
+ * size can be rebuilt, and a benchmark can choose an employee that exists by
+ * choosing a number below the size of the table. Numbers are six digits, so up
+ * to a million employees can be generated. Last names are taken from a list of
+ * common names with a two letter suffix: in a table of a million rows about 30
+ * employees share each last name, and about 20,000 start with each name of the list.
+ */
+public final class EmployeeGenerator
+{
+    /**
+     * Largest number of employees that can be generated.
+     */
+    public static final int MAX_EMPLOYEES = 1_000_000;
+    
+    /**
+     * The last names, before a suffix is added.
+     */
+    public static final String[] LAST_NAMES = {
+        "SMITH", "JONES", "TAYLOR", "BROWN", "WILLIAMS", "WILSON", "JOHNSON", "DAVIES",
+        "ROBINSON", "WRIGHT", "THOMPSON", "EVANS", "WALKER", "WHITE", "ROBERTS", "GREEN",
+        "HALL", "WOOD", "JACKSON", "CLARKE", "HAAS", "THORNTON", "KWAN", "GEYER",
+        "STERN", "PULASKI", "HENDERSON", "SPENSER", "LUCCHESSI", "OCONNELL", "QUINTANA", "NICHOLLS",
+        "ADAMSON", "PIANKA", "YOSHIMURA", "SCOUTTEN", "WALTERS", "BROWNING", "JONAS", "LUTZ",
+        "JEFFERSON", "MARINO", "SMYTHE", "JOHANSSON", "PEREZ", "SCHNEIDER", "PARKER", "SETRIGHT"
+    };
+    
+    private static final String[] FIRST_NAMES = {
+        "CHRISTINE", "MICHAEL", "SALLY", "JOHN", "IRVING", "EVA", "EILEEN", "THEODORE",
+        "VINCENZO", "SEAN", "DELORES", "HEATHER", "BRUCE", "ELIZABETH", "MASATOSHI", "MARILYN",
+        "JAMES", "DAVID", "WILLIAM", "JENNIFER", "JASON", "HELENA", "ROY", "KIM"
+    };
+    
+    private static final String[] JOBS = {
+        "PRES", "MANAGER", "SALESREP", "CLERK", "ANALYST", "DESIGNER", "OPERATOR", "FIELDREP"
+    };
+    
+    private EmployeeGenerator() {
+    }
+    
+    /**
+     * @param n - the employee's index, from 0 to {@link #MAX_EMPLOYEES} - 1
+     * 
+     * @return the employee number of the employee
+     */
+    public static String empNo(int n) {
+        return String.format("%06d", n);
+    }
+    
+    /**
+     * @param n - the employee's index
+     * 
+     * @return the last name of the employee
+     */
+    public static String lastName(int n) {
+        int name = n % LAST_NAMES.length;
+        int suffix = (n / LAST_NAMES.length) % (26 * 26);
+        return LAST_NAMES[name] + (char) ('A' + suffix / 26) + (char) ('A' + suffix % 26);
+    }
+    
+    /**
+     * Builds an employee, with the number given and fields derived from it.
+     * 
+     * @param n - the employee's index
+     * @param empNo - the employee number, normally {@link #empNo(int)}
+     * 
+     * @return the employee, with no changed columns
+     */
+    public static Employee employee(int n, String empNo)
+    {
+        Employee employee = new Employee();
+        employee.setEmpNo(empNo);
+        employee.setFirstName(FIRST_NAMES[n % FIRST_NAMES.length]);
+        employee.setMidInit(String.valueOf((char) ('A' + n % 26)));
+        employee.setLastName(lastName(n));
+        employee.setPhoneNo(String.format("%04d", n % 10_000));
+        employee.setHireDate(date(1965 + n % 50, n % 12, 1 + n % 28));
+        employee.setJob(JOBS[n % JOBS.length]);
+        employee.setEdLevel((short) (12 + n % 9));
+        employee.setGender(n % 2 == 0 ? "F" : "M");
+        employee.setBirthDate(date(1930 + n % 60, (n + 5) % 12, 1 + (n * 7) % 28));
+        employee.setSalary(BigDecimal.valueOf(20_000_00L + (n * 7919L) % 150_000_00L, 2));
+        employee.setBonus(BigDecimal.valueOf(200_00L + (n * 31L) % 1_000_00L, 2));
+        employee.setComm(BigDecimal.valueOf(1_000_00L + (n * 131L) % 4_000_00L, 2));
+        employee.clearDirty();
+        return employee;
+    }
+    
+    /**
+     * @return midnight at the start of the day in the default time zone, as JDBC reads a DATE column
+     */
+    private static Date date(int year, int month, int day) {
+        return new Date(new GregorianCalendar(year, month, day).getTimeInMillis());
+    }
+}
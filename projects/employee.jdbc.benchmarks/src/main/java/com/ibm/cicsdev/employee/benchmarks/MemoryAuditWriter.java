@@ -0,0 +1,43 @@
+/* Licensed Materials - Property of IBM                                   */
+/*                                                                        */
+/* SAMPLE                                                                 */
+/*                                                                        */
+/* (c) Copyright IBM Corp. 2018 All Rights Reserved                       */
+/*                                                                        */
+/* US Government Users Restricted Rights - Use, duplication or disclosure */
+/* restricted by GSA ADP Schedule Contract with IBM Corp                  */
+/*                                                                        */
+package com.ibm.cicsdev.employee.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.ibm.cicsdev.employee.jdbc.audit.AuditWriter;
+
+/**
+ * Counts audit records in place of writing them to the CICS TSQ, keeping only the
+ * most recent, so that a long benchmark run does not fill the heap with them.
+ */
+public class MemoryAuditWriter implements AuditWriter
+{
+    private final AtomicLong written = new AtomicLong();
+    
+    private volatile String last;
+    
+    @Override
+    public void write(List<String> records)
+    {
+        if ( ! records.isEmpty() ) {
+            this.written.addAndGet(records.size());
+            this.last = records.get(records.size() - 1);
+        }
+    }
+    
+    public long getWritten() {
+        return this.written.get();
+    }
+    
+    public String getLast() {
+        return this.last;
+    }
+}
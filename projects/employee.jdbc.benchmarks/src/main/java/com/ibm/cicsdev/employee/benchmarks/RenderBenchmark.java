@@ -0,0 +1,215 @@
+/* Licensed Materials - Property of IBM                                   */
+/*                                                                        */
+/* SAMPLE                                                                 */
+/*                                                                        */
+/* (c) Copyright IBM Corp. 2018 All Rights Reserved                       */
+/*                                                                        */
+/* US Government Users Restricted Rights - Use, duplication or disclosure */
+/* restricted by GSA ADP Schedule Contract with IBM Corp                  */
+/*                                                                        */
+package com.ibm.cicsdev.employee.benchmarks;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.el.ELContext;
+import javax.el.ELManager;
+import javax.el.ExpressionFactory;
+import javax.el.ValueExpression;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.ibm.cicsdev.employee.jdbc.beans.Employee;
+import com.ibm.cicsdev.employee.jdbc.beans.EmployeePage;
+import com.ibm.cicsdev.employee.jdbc.beans.EmployeeSummary;
+import com.ibm.cicsdev.employee.jdbc.faces.EmployeeListManager;
+
+/**
+ * Measures the expressions main.xhtml evaluates against {@link EmployeeListManager}
+ * in a postback that shows a page of results.
+ * 
+ * The expressions are evaluated through EL as Facelets would, without the rest
+ * of JSF. The results table is walked in each of the four phases that visit it,
+ * decoding, validation, updating the model and rendering, and each walk evaluates
+ * the table's value, the rendered conditions and the row expressions. The
+ * <code>copying</code> benchmark uses a bean whose <code>getallResults</code>
+ * copies the list on each evaluation, as it once did, for comparison. Run with
+ * the GC profiler to see the bytes each postback allocates.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RenderBenchmark
+{
+    /**
+     * Phases of a postback that walk the rows of the table.
+     */
+    private static final int WALKS = 4;
+    
+    /**
+     * Evaluated once for each walk of the table: its rendered condition and value.
+     */
+    private static final String RENDERED = "#{not empty employeeList.allResults}";
+    
+    private static final String VALUE = "#{employeeList.allResults}";
+    
+    /**
+     * Evaluated for each row in each walk, when no row is being edited or deleted.
+     */
+    private static final String[] ROW = {
+        "#{employeeList.checked[emp.empNo]}",
+        "#{emp.empNo}",
+        "#{emp.empNo eq employeeList.editingEmpNo}",
+        "#{emp.empNo ne employeeList.editingEmpNo}",
+        "#{emp.firstName}",
+        "#{emp.empNo eq employeeList.editingEmpNo}",
+        "#{emp.empNo ne employeeList.editingEmpNo}",
+        "#{emp.lastName}",
+        "#{emp.empNo eq employeeList.editingEmpNo}",
+        "#{emp.empNo ne employeeList.editingEmpNo}",
+        "#{emp.gender}",
+        "#{emp.empNo eq employeeList.editingEmpNo}",
+        "#{emp.empNo ne employeeList.editingEmpNo}",
+        "#{emp.phoneNo}",
+        "#{emp.empNo eq employeeList.editingEmpNo}",
+        "#{emp.empNo ne employeeList.editingEmpNo}",
+        "#{emp.job}",
+        "#{emp.empNo ne employeeList.editingEmpNo}",
+        "#{emp.empNo eq employeeList.editingEmpNo}",
+        "#{emp.empNo ne employeeList.deletingEmpNo}",
+        "#{emp.empNo eq employeeList.deletingEmpNo}",
+    };
+    
+    /**
+     * Controls shown below the table, each with the same rendered condition.
+     */
+    private static final int FOOTER_CONTROLS = 4;
+    
+    /**
+     * Rows in the page of results.
+     */
+    @Param({"15", "100"})
+    public int pageSize;
+    
+    private Page current;
+    
+    private Page copying;
+    
+    @Setup
+    public void setUp() throws ReflectiveOperationException
+    {
+        List<EmployeeSummary> summaries = new ArrayList<>(this.pageSize);
+        for (int n = 0; n < this.pageSize; n++) {
+            Employee employee = EmployeeGenerator.employee(n, EmployeeGenerator.empNo(n));
+            summaries.add(new EmployeeSummary(employee.getEmpNo(), employee.getFirstName(), employee.getLastName(),
+                    employee.getGender(), employee.getPhoneNo(), employee.getJob()));
+        }
+        EmployeePage page = new EmployeePage(summaries, false, true);
+        
+        this.current = new Page(new EmployeeListManager(), page);
+        this.copying = new Page(new CopyingEmployeeListManager(), page);
+    }
+    
+    @Benchmark
+    public int current() {
+        return this.current.postback();
+    }
+    
+    @Benchmark
+    public int copying() {
+        return this.copying.postback();
+    }
+    
+    
+    /**
+     * The compiled expressions of the list page, bound to one bean.
+     */
+    private static class Page
+    {
+        private final ELManager manager = new ELManager();
+        
+        private final ELContext context;
+        
+        private final ValueExpression rendered;
+        
+        private final ValueExpression value;
+        
+        private final ValueExpression[] row;
+        
+        Page(EmployeeListManager bean, EmployeePage page) throws ReflectiveOperationException
+        {
+            // The page is normally set by a search
+            Field field = EmployeeListManager.class.getDeclaredField("page");
+            field.setAccessible(true);
+            field.set(bean, page);
+            
+            this.manager.defineBean("employeeList", bean);
+            this.context = this.manager.getELContext();
+            ExpressionFactory factory = ELManager.getExpressionFactory();
+            this.rendered = factory.createValueExpression(this.context, RENDERED, Boolean.class);
+            this.value = factory.createValueExpression(this.context, VALUE, List.class);
+            this.row = new ValueExpression[ROW.length];
+            for (int i = 0; i < ROW.length; i++) {
+                this.row[i] = factory.createValueExpression(this.context, ROW[i], Object.class);
+            }
+        }
+        
+        /**
+         * Evaluates the expressions of one postback.
+         * 
+         * @return a count of the values that were not null, to be consumed by JMH
+         */
+        int postback()
+        {
+            int count = 0;
+            for (int walk = 0; walk < WALKS; walk++) {
+                if ( ! (Boolean) this.rendered.getValue(this.context) ) {
+                    continue;
+                }
+                List<?> rows = (List<?>) this.value.getValue(this.context);
+                for (Object emp : rows) {
+                    this.manager.defineBean("emp", emp);
+                    for (ValueExpression expression : this.row) {
+                        if ( expression.getValue(this.context) != null ) {
+                            count++;
+                        }
+                    }
+                }
+                for (int i = 0; i < FOOTER_CONTROLS; i++) {
+                    if ( (Boolean) this.rendered.getValue(this.context) ) {
+                        count++;
+                    }
+                }
+            }
+            return count;
+        }
+    }
+    
+    /**
+     * Returns a new copy of the results for each evaluation, as getallResults once did.
+     */
+    public static class CopyingEmployeeListManager extends EmployeeListManager
+    {
+        private static final long serialVersionUID = 1L;
+        
+        @Override
+        public List<EmployeeSummary> getallResults() {
+            return new ArrayList<>(super.getallResults());
+        }
+    }
+}
@@ -0,0 +1,149 @@
+/* Licensed Materials - Property of IBM                                   */
+/*                                                                        */
+/* SAMPLE                                                                 */
+/*                                                                        */
+/* (c) Copyright IBM Corp. 2018 All Rights Reserved                       */
+/*                                                                        */
+/* US Government Users Restricted Rights - Use, duplication or disclosure */
+/* restricted by GSA ADP Schedule Contract with IBM Corp                  */
+/*                                                                        */
+package com.ibm.cicsdev.employee.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.ibm.cicsdev.employee.jdbc.beans.Employee;
+import com.ibm.cicsdev.employee.jdbc.beans.EmployeeColumn;
+
+/**
+ * Compares the compact form written by {@link Employee} with default serialization
+ * of the same fields, as used before the bean was Externalizable.
+ * 
+ * Each benchmark writes or reads one employee with its own object stream, as a
+ * session attribute is written when Liberty passivates or replicates a session.
+ * The sizes of the two forms are printed when the benchmark starts.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBenchmark
+{
+    private Employee employee;
+    
+    private DefaultEmployee defaultEmployee;
+    
+    private byte[] compactBytes;
+    
+    private byte[] defaultBytes;
+    
+    @Setup
+    public void setUp() throws IOException
+    {
+        this.employee = EmployeeGenerator.employee(10, EmployeeGenerator.empNo(10));
+        this.defaultEmployee = new DefaultEmployee(this.employee);
+        this.compactBytes = write(this.employee);
+        this.defaultBytes = write(this.defaultEmployee);
+        System.out.println("Compact form " + this.compactBytes.length + " bytes, default form " + this.defaultBytes.length + " bytes");
+    }
+    
+    @Benchmark
+    public byte[] writeCompact() throws IOException {
+        return write(this.employee);
+    }
+    
+    @Benchmark
+    public byte[] writeDefault() throws IOException {
+        return write(this.defaultEmployee);
+    }
+    
+    @Benchmark
+    public Object readCompact() throws IOException, ClassNotFoundException {
+        return read(this.compactBytes);
+    }
+    
+    @Benchmark
+    public Object readDefault() throws IOException, ClassNotFoundException {
+        return read(this.defaultBytes);
+    }
+    
+    private static byte[] write(Object value) throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(512);
+        try ( ObjectOutputStream out = new ObjectOutputStream(bytes) ) {
+            out.writeObject(value);
+        }
+        return bytes.toByteArray();
+    }
+    
+    private static Object read(byte[] bytes) throws IOException, ClassNotFoundException
+    {
+        try ( ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes)) ) {
+            return in.readObject();
+        }
+    }
+    
+    
+    /**
+     * The fields of Employee, written with default serialization.
+     */
+    public static class DefaultEmployee implements Serializable
+    {
+        private static final long serialVersionUID = 1L;
+        
+        String empNo;
+        Date birthDate;
+        BigDecimal bonus;
+        BigDecimal comm;
+        short edLevel;
+        String firstName;
+        Date hireDate;
+        String job;
+        String lastName;
+        String midInit;
+        String phoneNo;
+        BigDecimal salary;
+        String gender;
+        long rowChangeToken;
+        Set<EmployeeColumn> dirty;
+        
+        DefaultEmployee(Employee employee) {
+            this.empNo = employee.getEmpNo();
+            this.birthDate = new Date(employee.getBirthDate().getTime());
+            this.bonus = employee.getBonus();
+            this.comm = employee.getComm();
+            this.edLevel = employee.getEdLevel();
+            this.firstName = employee.getFirstName();
+            this.hireDate = new Date(employee.getHireDate().getTime());
+            this.job = employee.getJob();
+            this.lastName = employee.getLastName();
+            this.midInit = employee.getMidInit();
+            this.phoneNo = employee.getPhoneNo();
+            this.salary = employee.getSalary();
+            this.gender = employee.getGender();
+            this.rowChangeToken = employee.getRowChangeToken();
+            this.dirty = employee.getDirtyColumns();
+        }
+    }
+}
@@ -0,0 +1,178 @@
+/* Licensed Materials - Property of IBM                                   */
+/*                                                                        */
+/* SAMPLE                                                                 */
+/*                                                                        */
+/* (c) Copyright IBM Corp. 2018 All Rights Reserved                       */
+/*                                                                        */
+/* US Government Users Restricted Rights - Use, duplication or disclosure */
+/* restricted by GSA ADP Schedule Contract with IBM Corp                  */
+/*                                                                        */
+package com.ibm.cicsdev.employee.benchmarks;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.ibm.cicsdev.employee.jdbc.search.SearchPlanner;
+import com.ibm.cicsdev.employee.jdbc.sql.EmployeeStatements;
+import com.ibm.cicsdev.employee.jdbc.sql.EmployeeStatements.Position;
+import com.ibm.cicsdev.employee.jdbc.sql.EmployeeStatements.Projection;
+
+/**
+ * Compares preparing each statement on every call with reusing the prepared
+ * statement, as the Liberty data source's statement cache does for the fixed
+ * texts in {@link EmployeeStatements}.
+ * 
+ * Each thread has its own connection. The <code>cached</code> benchmarks look up
+ * the statement by its text in a map held for the connection, as the statement
+ * cache does, and leave it open. The <code>prepared</code> benchmarks prepare and
+ * close it each time. H2 keeps its own cache of parsed commands for each
+ * connection, so with the default <code>queryCacheSize</code> of 8 a new prepare
+ * is cheaper than it would be in Db2; a size of 0 turns that off.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StatementBenchmark
+{
+    /**
+     * Employees in the table. The cost of preparing a statement does not depend on it.
+     */
+    private static final int ROWS = 10000;
+    
+    /**
+     * Rows in each page of search results.
+     */
+    private static final int PAGE_SIZE = 10;
+    
+    /**
+     * The size of H2's cache of parsed commands for each connection.
+     */
+    @Param({"0", "8"})
+    public int queryCacheSize;
+    
+    private EmbeddedDatabase db;
+    
+    private Connection conn;
+    
+    /**
+     * The query for the first page of employees with a last name. It is built once
+     * the database is created, as that sets the row change token SQL that H2 accepts.
+     */
+    private String pageQuery;
+    
+    /**
+     * Prepared statements held open for the connection, by SQL text.
+     */
+    private final Map<String, PreparedStatement> statements = new HashMap<>();
+    
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException
+    {
+        this.db = EmbeddedDatabase.create(ROWS, 1, ";QUERY_CACHE_SIZE=" + this.queryCacheSize);
+        this.conn = this.db.getDataSource().getConnection();
+        this.pageQuery = EmployeeStatements.page(Projection.SUMMARY, SearchPlanner.EXACT_PREDICATE, Position.FIRST);
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException
+    {
+        for (PreparedStatement statement : this.statements.values()) {
+            statement.close();
+        }
+        this.conn.close();
+        this.db.close();
+    }
+    
+    @Benchmark
+    public int findPrepared() throws SQLException
+    {
+        try ( PreparedStatement statement = this.conn.prepareStatement(EmployeeStatements.FIND_EMPLOYEE) ) {
+            return find(statement);
+        }
+    }
+    
+    @Benchmark
+    public int findCached() throws SQLException {
+        return find(cached(EmployeeStatements.FIND_EMPLOYEE));
+    }
+    
+    @Benchmark
+    public int pagePrepared() throws SQLException
+    {
+        try ( PreparedStatement statement = this.conn.prepareStatement(this.pageQuery) ) {
+            return page(statement);
+        }
+    }
+    
+    @Benchmark
+    public int pageCached() throws SQLException {
+        return page(cached(this.pageQuery));
+    }
+    
+    /**
+     * Returns the open statement for an SQL text, preparing it on first use.
+     */
+    private PreparedStatement cached(String sql) throws SQLException
+    {
+        PreparedStatement statement = this.statements.get(sql);
+        if ( statement == null ) {
+            statement = this.conn.prepareStatement(sql);
+            this.statements.put(sql, statement);
+        }
+        return statement;
+    }
+    
+    /**
+     * Reads an employee chosen at random.
+     * 
+     * @return the length of the employee number read, to be consumed by JMH
+     */
+    private static int find(PreparedStatement statement) throws SQLException
+    {
+        statement.setString(1, EmployeeGenerator.empNo(ThreadLocalRandom.current().nextInt(ROWS)));
+        try ( ResultSet rs = statement.executeQuery() ) {
+            return rs.next() ? rs.getString("EMPNO").length() : 0;
+        }
+    }
+    
+    /**
+     * Reads the first page of employees with a last name chosen at random.
+     * 
+     * @return the number of rows read, to be consumed by JMH
+     */
+    private static int page(PreparedStatement statement) throws SQLException
+    {
+        statement.setMaxRows(PAGE_SIZE + 1);
+        statement.setString(1, EmployeeGenerator.lastName(ThreadLocalRandom.current().nextInt(ROWS)));
+        int count = 0;
+        try ( ResultSet rs = statement.executeQuery() ) {
+            while ( rs.next() ) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,33 @@
+--------------------------------------------------------------------------
+-- The Db2 sample EMP table (DSN8xx0.EMP), defined for the embedded H2
+-- database used by the benchmarks and the in-JVM load test.
+--
+-- H2 has no ROW CHANGE TOKEN, so ROWCHG is set from a sequence whenever a
+-- row is inserted or updated, and the application is told to use it with
+-- the com.ibm.cicsdev.employee.ROW_CHANGE_TOKEN system property.
+--------------------------------------------------------------------------
+
+CREATE SEQUENCE EMP_ROWCHG;
+
+CREATE TABLE EMP (
+       EMPNO     CHAR(6)      NOT NULL,
+       FIRSTNME  VARCHAR(12)  NOT NULL,
+       MIDINIT   CHAR(1)      NOT NULL,
+       LASTNAME  VARCHAR(15)  NOT NULL,
+       WORKDEPT  CHAR(3),
+       PHONENO   CHAR(4),
+       HIREDATE  DATE,
+       JOB       CHAR(8),
+       EDLEVEL   SMALLINT     NOT NULL,
+       SEX       CHAR(1),
+       BIRTHDATE DATE,
+       SALARY    DECIMAL(9,2),
+       BONUS     DECIMAL(9,2),
+       COMM      DECIMAL(9,2),
+       ROWCHG    BIGINT       DEFAULT NEXT VALUE FOR EMP_ROWCHG
+                              ON UPDATE NEXT VALUE FOR EMP_ROWCHG NOT NULL,
+       PRIMARY KEY (EMPNO)
+);
+
+-- Exact and prefix searches, and the ORDER BY LASTNAME, EMPNO paging
+CREATE INDEX XEMPLNAME ON EMP (LASTNAME ASC, EMPNO ASC);
@@ -0,0 +1,30 @@
+/* Licensed Materials - Property of IBM                                   */
+/*                                                                        */
+/* SAMPLE                                                                 */
+/*                                                                        */
+/* (c) Copyright IBM Corp. 2018 All Rights Reserved                       */
+/*                                                                        */
+/* US Government Users Restricted Rights - Use, duplication or disclosure */
+/* restricted by GSA ADP Schedule Contract with IBM Corp                  */
+/*                                                                        */
+package com.ibm.cics.server;
+
+/**
+ * Stand-in for the JCICS exception raised when a CICS command returns an
+ * abnormal condition.
+ * 
+ * Only the parts of the JCICS API used by the sample are provided, so that the
+ * sample can be compiled and tested outside CICS. A build for CICS uses the
+ * JCICS library instead, see the <code>jcics</code> profile in the parent pom.
+ */
+public class CicsConditionException extends Exception
+{
+    private static final long serialVersionUID = 1L;
+    
+    /**
+     * @param message - describes the condition
+     */
+    public CicsConditionException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,26 @@
+/* Licensed Materials - Property of IBM                                   */
+/*                                                                        */
+/* SAMPLE                                                                 */
+/*                                                                        */
+/* (c) Copyright IBM Corp. 2018 All Rights Reserved                       */
+/*                                                                        */
+/* US Government Users Restricted Rights - Use, duplication or disclosure */
+/* restricted by GSA ADP Schedule Contract with IBM Corp                  */
+/*                                                                        */
+package com.ibm.cics.server;
+
+/**
+ * Stand-in for the JCICS exception raised when a CICS command returns the
+ * INVREQ condition.
+ */
+public class InvalidRequestException extends CicsConditionException
+{
+    private static final long serialVersionUID = 1L;
+    
+    /**
+     * @param message - describes the condition
+     */
+    public InvalidRequestException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,123 @@
+/* Licensed Materials - Property of IBM                                   */
+/*                                                                        */
+/* SAMPLE                                                                 */
+/*                                                                        */
+/* (c) Copyright IBM Corp. 2018 All Rights Reserved                       */
+/*                                                                        */
+/* US Government Users Restricted Rights - Use, duplication or disclosure */
+/* restricted by GSA ADP Schedule Contract with IBM Corp                  */
+/*                                                                        */
+package com.ibm.cics.server;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * In-memory stand-in for the JCICS temporary storage queue.
+ * 
+ * Queues are held in a map shared by every instance in the JVM, and each item is
+ * kept as the bytes written. There is no unit of work, so items are never backed
+ * out. {@link #getItems(String)} and {@link #deleteAll()} are not part of JCICS,
+ * and let tests and benchmarks read and discard what the application wrote.
+ */
+public class TSQ
+{
+    /**
+     * The items of every queue, by queue name.
+     */
+    private static final ConcurrentMap<String, List<byte[]>> QUEUES = new ConcurrentHashMap<>();
+    
+    private String name;
+    
+    public String getName() {
+        return this.name;
+    }
+    
+    public void setName(String name) {
+        this.name = name;
+    }
+    
+    /**
+     * Adds an item to the end of the queue.
+     * 
+     * @param item - the data of the item
+     * 
+     * @return the item number, starting at 1
+     * 
+     * @throws CicsConditionException if no queue name has been set
+     */
+    public int writeItem(byte[] item) throws CicsConditionException
+    {
+        if ( this.name == null ) {
+            throw new CicsConditionException("INVREQ: no queue name");
+        }
+        List<byte[]> items = QUEUES.get(this.name);
+        if ( items == null ) {
+            List<byte[]> created = new ArrayList<>();
+            items = QUEUES.putIfAbsent(this.name, created);
+            if ( items == null ) {
+                items = created;
+            }
+        }
+        synchronized (items) {
+            items.add(item.clone());
+            return items.size();
+        }
+    }
+    
+    /**
+     * Adds a string to the end of the queue, encoded as UTF-8.
+     * 
+     * @param item - the text of the item
+     * 
+     * @return the item number, starting at 1
+     * 
+     * @throws CicsConditionException if no queue name has been set
+     */
+    public int writeString(String item) throws CicsConditionException {
+        return writeItem(item.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    /**
+     * Deletes the queue and all its items.
+     */
+    public void delete() {
+        QUEUES.remove(this.name);
+    }
+    
+    
+    /*
+     * Access for tests, not part of JCICS.
+     */
+    
+    /**
+     * @param name - the queue name
+     * 
+     * @return the items written to the queue, decoded as UTF-8, in order
+     */
+    public static List<String> getItems(String name)
+    {
+        List<byte[]> items = QUEUES.get(name);
+        if ( items == null ) {
+            return Collections.emptyList();
+        }
+        List<String> strings = new ArrayList<>();
+        synchronized (items) {
+            for (byte[] item : items) {
+                strings.add(new String(item, StandardCharsets.UTF_8));
+            }
+        }
+        return strings;
+    }
+    
+    /**
+     * Deletes every queue.
+     */
+    public static void deleteAll() {
+        QUEUES.clear();
+    }
+}
@@ -0,0 +1,47 @@
+/* Licensed Materials - Property of IBM                                   */
+/*                                                                        */
+/* SAMPLE                                                                 */
+/*                                                                        */
+/* (c) Copyright IBM Corp. 2018 All Rights Reserved                       */
+/*                                                                        */
+/* US Government Users Restricted Rights - Use, duplication or disclosure */
+/* restricted by GSA ADP Schedule Contract with IBM Corp                  */
+/*                                                                        */
+package com.ibm.cics.server;
+
+/**
+ * Stand-in for the JCICS class representing the CICS task of the current thread.
+ * 
+ * As with {@link TSQ}, there is no unit of work, so {@link #commit()} and
+ * {@link #rollback()} have nothing to do.
+ */
+public class Task
+{
+    private static final Task TASK = new Task();
+    
+    private Task() {
+    }
+    
+    /**
+     * @return the task of the current thread
+     */
+    public static Task getTask() {
+        return TASK;
+    }
+    
+    /**
+     * Takes a syncpoint, committing the task's unit of work.
+     * 
+     * @throws InvalidRequestException if the unit of work cannot be committed
+     */
+    public void commit() throws InvalidRequestException {
+    }
+    
+    /**
+     * Takes a syncpoint with rollback, backing out the task's unit of work.
+     * 
+     * @throws InvalidRequestException if the unit of work cannot be backed out
+     */
+    public void rollback() throws InvalidRequestException {
+    }
+}
@@ -0,0 +1,79 @@
+/* Licensed Materials - Property of IBM                                   */
+/*                                                                        */
+/* SAMPLE                                                                 */
+/*                                                                        */
+/* (c) Copyright IBM Corp. 2018 All Rights Reserved                       */
+/*                                                                        */
+/* US Government Users Restricted Rights - Use, duplication or disclosure */
+/* restricted by GSA ADP Schedule Contract with IBM Corp                  */
+/*                                                                        */
+package com.ibm.cicsdev.employee.loadtest;
+
+import java.util.Arrays;
+
+/**
+ * Response times and errors recorded for one kind of action.
+ * 
+ * Every response time is kept, so that exact percentiles can be reported at the
+ * end of the run. A run of a few minutes with tens of users records at most a
+ * few hundred thousand values.
+ */
+public class ActionStats
+{
+    private final String name;
+    
+    private long[] nanos = new long[1024];
+    
+    private int count;
+    
+    private int errors;
+    
+    public ActionStats(String name) {
+        this.name = name;
+    }
+    
+    /**
+     * Records one completed action.
+     * 
+     * @param elapsedNanos - the response time
+     * @param failed - true if the action returned an error
+     */
+    public synchronized void record(long elapsedNanos, boolean failed) {
+        if ( this.count == this.nanos.length ) {
+            this.nanos = Arrays.copyOf(this.nanos, this.count * 2);
+        }
+        this.nanos[this.count++] = elapsedNanos;
+        if ( failed ) {
+            this.errors++;
+        }
+    }
+    
+    public String getName() {
+        return this.name;
+    }
+    
+    public synchronized int getCount() {
+        return this.count;
+    }
+    
+    public synchronized int getErrors() {
+        return this.errors;
+    }
+    
+    /**
+     * Returns the response time below which a fraction of the actions completed.
+     * 
+     * @param fraction - for example 0.95 for the 95th percentile
+     * 
+     * @return the response time in milliseconds, or 0 if nothing has been recorded
+     */
+    public synchronized double percentileMillis(double fraction) {
+        if ( this.count == 0 ) {
+            return 0;
+        }
+        long[] sorted = Arrays.copyOf(this.nanos, this.count);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(fraction * this.count) - 1;
+        return sorted[Math.max(0, Math.min(index, this.count - 1))] / 1_000_000.0;
+    }
+}
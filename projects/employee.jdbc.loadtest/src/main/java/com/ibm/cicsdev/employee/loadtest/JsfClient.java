@@ -0,0 +1,176 @@
+/* Licensed Materials - Property of IBM                                   */
+/*                                                                        */
+/* SAMPLE                                                                 */
+/*                                                                        */
+/* (c) Copyright IBM Corp. 2018 All Rights Reserved                       */
+/*                                                                        */
+/* US Government Users Restricted Rights - Use, duplication or disclosure */
+/* restricted by GSA ADP Schedule Contract with IBM Corp                  */
+/*                                                                        */
+package com.ibm.cicsdev.employee.loadtest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A minimal browser for the JSF pages, used by one virtual user.
+ * 
+ * Each client holds its own cookies, and so its own HTTP session and JSF view
+ * state, and follows the redirects the application sends after an action.
+ * Nothing is shared between clients, so a client is used by one thread only.
+ */
+public class JsfClient
+{
+    /**
+     * The most redirects followed for one request.
+     */
+    private static final int MAX_REDIRECTS = 5;
+    
+    private final URL base;
+    
+    private final int timeoutMillis;
+    
+    private final Map<String, String> cookies = new LinkedHashMap<>();
+    
+    
+    /**
+     * @param base - the URL of the application, such as http://host:port/employee.jdbc.web/
+     * @param timeoutMillis - the connect and read timeout for each request
+     */
+    public JsfClient(URL base, int timeoutMillis) {
+        this.base = base;
+        this.timeoutMillis = timeoutMillis;
+    }
+    
+    /**
+     * Reads a page of the application.
+     * 
+     * @param path - the page, relative to the application URL
+     * 
+     * @return the page
+     */
+    public JsfPage get(String path) throws IOException {
+        return request(new URL(this.base, path), null);
+    }
+    
+    /**
+     * Presses a button on a page.
+     * 
+     * @param page - the page holding the form
+     * @param button - the name of the button
+     * @param values - values typed into the form before pressing the button
+     * 
+     * @return the page returned
+     */
+    public JsfPage submit(JsfPage page, String button, Map<String, String> values) throws IOException {
+        if ( page.getAction() == null ) {
+            throw new IOException("No form on " + page.getUrl() + ": " + page.getMessage());
+        }
+        return request(page.getAction(), page.formData(button, values));
+    }
+    
+    
+    /*
+     * Utility methods.
+     */
+    
+    /**
+     * Sends a request, following redirects with a GET as a browser does. Each
+     * response is read in full, so that the connection can be kept alive.
+     */
+    private JsfPage request(URL url, String form) throws IOException {
+        for (int redirects = 0; ; redirects++) {
+            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+            conn.setInstanceFollowRedirects(false);
+            conn.setUseCaches(false);
+            conn.setConnectTimeout(this.timeoutMillis);
+            conn.setReadTimeout(this.timeoutMillis);
+            if ( ! this.cookies.isEmpty() ) {
+                conn.setRequestProperty("Cookie", cookieHeader());
+            }
+            
+            if ( form != null ) {
+                byte[] body = form.getBytes(StandardCharsets.UTF_8);
+                conn.setRequestMethod("POST");
+                conn.setDoOutput(true);
+                conn.setRequestProperty("Content-Type", "application/x-www-form-urlencoded; charset=UTF-8");
+                conn.setFixedLengthStreamingMode(body.length);
+                try (OutputStream out = conn.getOutputStream()) {
+                    out.write(body);
+                }
+            }
+            
+            int status = conn.getResponseCode();
+            storeCookies(conn.getHeaderFields().get("Set-Cookie"));
+            
+            String location = conn.getHeaderField("Location");
+            if ( status >= 300 && status < 400 && location != null ) {
+                drain(conn.getInputStream());
+                if ( redirects == MAX_REDIRECTS ) {
+                    throw new IOException("Too many redirects from " + url);
+                }
+                url = new URL(url, location);
+                form = null;
+                continue;
+            }
+            
+            InputStream in = status >= 400 ? conn.getErrorStream() : conn.getInputStream();
+            return new JsfPage(url, status, read(in));
+        }
+    }
+    
+    private String cookieHeader() {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, String> cookie : this.cookies.entrySet()) {
+            if ( sb.length() > 0 ) {
+                sb.append("; ");
+            }
+            sb.append(cookie.getKey()).append('=').append(cookie.getValue());
+        }
+        return sb.toString();
+    }
+    
+    /**
+     * Keeps the name and value of each cookie set. The attributes are ignored, as
+     * every request goes to the same application.
+     */
+    private void storeCookies(List<String> headers) {
+        if ( headers == null ) {
+            return;
+        }
+        for (String header : headers) {
+            String pair = header.split(";", 2)[0];
+            int equals = pair.indexOf('=');
+            if ( equals > 0 ) {
+                this.cookies.put(pair.substring(0, equals).trim(), pair.substring(equals + 1).trim());
+            }
+        }
+    }
+    
+    private static String read(InputStream in) throws IOException {
+        if ( in == null ) {
+            return "";
+        }
+        try (InputStream is = in) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int n;
+            while ( (n = is.read(buffer)) != -1 ) {
+                out.write(buffer, 0, n);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+    
+    private static void drain(InputStream in) throws IOException {
+        read(in);
+    }
+}
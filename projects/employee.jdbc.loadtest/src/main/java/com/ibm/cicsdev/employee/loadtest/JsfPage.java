@@ -0,0 +1,280 @@
+/* Licensed Materials - Property of IBM                                   */
+/*                                                                        */
+/* SAMPLE                                                                 */
+/*                                                                        */
+/* (c) Copyright IBM Corp. 2018 All Rights Reserved                       */
+/*                                                                        */
+/* US Government Users Restricted Rights - Use, duplication or disclosure */
+/* restricted by GSA ADP Schedule Contract with IBM Corp                  */
+/*                                                                        */
+package com.ibm.cicsdev.employee.loadtest;
+
+import java.io.UnsupportedEncodingException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A page returned by the application, with the first form on it parsed so that
+ * it can be submitted as a browser would.
+ * 
+ * The JSF pages are simple enough to be read with regular expressions: the
+ * form's fields are the input and select elements, in document order. Buttons
+ * and fields are found by their labels and the JSF client IDs, rather than by
+ * generated IDs that change when the pages are edited.
+ */
+public class JsfPage
+{
+    private static final Pattern FORM = Pattern.compile("<form\\b([^>]*)>(.*?)</form>", Pattern.DOTALL);
+    
+    private static final Pattern ELEMENT = Pattern.compile("<select\\b([^>]*)>(.*?)</select>|<input\\b([^>]*)>", Pattern.DOTALL);
+    
+    private static final Pattern OPTION = Pattern.compile("<option\\b([^>]*)>", Pattern.DOTALL);
+    
+    private static final Pattern ATTRIBUTE = Pattern.compile("([\\w:-]+)=\"([^\"]*)\"");
+    
+    /**
+     * The message the pages show in red, used to report errors.
+     */
+    private static final Pattern MESSAGE = Pattern.compile("<span style=\"color: red;\">(.*?)</span>", Pattern.DOTALL);
+    
+    private final URL url;
+    
+    private final int status;
+    
+    private final String html;
+    
+    /**
+     * The URL the form is posted to, or null if the page has no form.
+     */
+    private final URL action;
+    
+    private final List<Field> fields = new ArrayList<>();
+    
+    
+    /**
+     * Parses a page.
+     * 
+     * @param url - the URL the page was read from
+     * @param status - the HTTP status of the response
+     * @param html - the body of the response
+     */
+    public JsfPage(URL url, int status, String html) throws MalformedURLException {
+        this.url = url;
+        this.status = status;
+        this.html = html;
+        
+        Matcher form = FORM.matcher(html);
+        if ( ! form.find() ) {
+            this.action = null;
+            return;
+        }
+        this.action = new URL(url, unescape(attributes(form.group(1)).get("action")));
+        
+        Matcher element = ELEMENT.matcher(form.group(2));
+        while ( element.find() ) {
+            boolean select = element.group(1) != null;
+            Map<String, String> attributes = attributes(select ? element.group(1) : element.group(3));
+            String name = attributes.get("name");
+            if ( name == null ) {
+                continue;
+            }
+            if ( select ) {
+                this.fields.add(new Field("select", name, selected(element.group(2)), false));
+            }
+            else {
+                String type = attributes.containsKey("type") ? attributes.get("type") : "text";
+                this.fields.add(new Field(type, name, unescape(attributes.get("value")), attributes.containsKey("checked")));
+            }
+        }
+    }
+    
+    public URL getUrl() {
+        return this.url;
+    }
+    
+    public int getStatus() {
+        return this.status;
+    }
+    
+    /**
+     * @return true if the response is a page without an error message
+     */
+    public boolean isOk() {
+        if ( this.status != 200 ) {
+            return false;
+        }
+        String message = getMessage().toLowerCase();
+        return ! (message.contains("error") || message.contains("unavailable") || message.contains("busy"));
+    }
+    
+    /**
+     * @return true if the page reports that another user changed or deleted the employee
+     */
+    public boolean isConflict() {
+        return getMessage().endsWith("The latest values are shown.");
+    }
+    
+    /**
+     * @return the message shown in red at the top of the page, or an empty string
+     */
+    public String getMessage() {
+        Matcher message = MESSAGE.matcher(this.html);
+        return message.find() ? unescape(message.group(1).trim()) : "";
+    }
+    
+    /**
+     * Finds the submit buttons with a label.
+     * 
+     * @param label - the text on the button
+     * 
+     * @return the names of the buttons, in page order
+     */
+    public List<String> buttons(String label) {
+        List<String> names = new ArrayList<>();
+        for (Field field : this.fields) {
+            if ( field.type.equals("submit") && label.equals(field.value) ) {
+                names.add(field.name);
+            }
+        }
+        return names;
+    }
+    
+    /**
+     * Finds the text fields whose names start with a prefix, such as the client ID of a table row.
+     * 
+     * @param prefix - the start of the field names
+     * 
+     * @return the names of the fields, in page order
+     */
+    public List<String> textFields(String prefix) {
+        List<String> names = new ArrayList<>();
+        for (Field field : this.fields) {
+            if ( field.type.equals("text") && field.name.startsWith(prefix) ) {
+                names.add(field.name);
+            }
+        }
+        return names;
+    }
+    
+    /**
+     * @return the URL the form is posted to, or null if the page has no form
+     */
+    public URL getAction() {
+        return this.action;
+    }
+    
+    /**
+     * Builds the body a browser would post when a button is pressed.
+     * 
+     * @param button - the name of the button pressed
+     * @param values - values typed into fields, replacing those on the page
+     * 
+     * @return the URL-encoded form data
+     */
+    public String formData(String button, Map<String, String> values) {
+        StringBuilder sb = new StringBuilder();
+        for (Field field : this.fields) {
+            
+            // Only the pressed button, and ticked check boxes, are sent
+            if ( field.type.equals("submit") && ! field.name.equals(button) ) {
+                continue;
+            }
+            if ( field.type.equals("checkbox") && ! field.checked ) {
+                continue;
+            }
+            if ( field.type.equals("file") ) {
+                continue;
+            }
+            
+            String value = values.containsKey(field.name) ? values.get(field.name) : field.value;
+            if ( sb.length() > 0 ) {
+                sb.append('&');
+            }
+            sb.append(encode(field.name)).append('=').append(encode(value == null ? "" : value));
+        }
+        return sb.toString();
+    }
+    
+    
+    /*
+     * Utility methods.
+     */
+    
+    private static Map<String, String> attributes(String tag) {
+        Map<String, String> attributes = new HashMap<>();
+        Matcher attribute = ATTRIBUTE.matcher(tag);
+        while ( attribute.find() ) {
+            attributes.put(attribute.group(1), attribute.group(2));
+        }
+        
+        // Boolean attributes may be written without a value
+        if ( tag.matches("(?s).*\\schecked(\\s.*|/?)$") ) {
+            attributes.put("checked", "checked");
+        }
+        return attributes;
+    }
+    
+    /**
+     * Returns the value of the selected option, or of the first option if none is selected.
+     */
+    private static String selected(String options) {
+        String first = null;
+        Matcher option = OPTION.matcher(options == null ? "" : options);
+        while ( option.find() ) {
+            Map<String, String> attributes = attributes(option.group(1));
+            String value = unescape(attributes.get("value"));
+            if ( first == null ) {
+                first = value;
+            }
+            if ( attributes.containsKey("selected") || option.group(1).contains(" selected") ) {
+                return value;
+            }
+        }
+        return first;
+    }
+    
+    private static String unescape(String value) {
+        if ( value == null ) {
+            return null;
+        }
+        return value.replace("&lt;", "<").replace("&gt;", ">").replace("&quot;", "\"")
+                .replace("&#39;", "'").replace("&amp;", "&");
+    }
+    
+    private static String encode(String value) {
+        try {
+            return URLEncoder.encode(value, "UTF-8");
+        }
+        catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    /**
+     * A named field of the form, with the value the page holds for it.
+     */
+    private static class Field
+    {
+        final String type;
+        
+        final String name;
+        
+        final String value;
+        
+        final boolean checked;
+        
+        Field(String type, String name, String value, boolean checked) {
+            this.type = type;
+            this.name = name;
+            this.value = value;
+            this.checked = checked;
+        }
+    }
+}
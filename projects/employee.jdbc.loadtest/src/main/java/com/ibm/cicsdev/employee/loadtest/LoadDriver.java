@@ -0,0 +1,289 @@
+/* Licensed Materials - Property of IBM                                   */
+/*                                                                        */
+/* SAMPLE                                                                 */
+/*                                                                        */
+/* (c) Copyright IBM Corp. 2018 All Rights Reserved                       */
+/*                                                                        */
+/* US Government Users Restricted Rights - Use, duplication or disclosure */
+/* restricted by GSA ADP Schedule Contract with IBM Corp                  */
+/*                                                                        */
+package com.ibm.cicsdev.employee.loadtest;
+
+import java.net.CookieHandler;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Drives a number of virtual users through the JSF pages of a running instance
+ * of the application, and reports throughput and response times per action.
+ * 
+ * The driver uses only the JDK, so it can be compiled and run on a developer
+ * machine with no network access beyond the application under test:
+ * 
+ * <pre>
+ * javac -d bin $(find src -name '*.java')
+ * java -cp bin com.ibm.cicsdev.employee.loadtest.LoadDriver \
+ *     --url=http://localhost:9080/employee.jdbc.web/ --users=20 --duration=120
+ * </pre>
+ * 
+ * Options are given as <code>--name=value</code>:
+ * <ul>
+ * <li>url - the application, ending in a slash (required)</li>
+ * <li>users - the number of virtual users (10)</li>
+ * <li>duration - seconds measured, after the warm up (60)</li>
+ * <li>rampup - seconds over which the users are started (10)</li>
+ * <li>warmup - seconds after the last user starts before measuring (10)</li>
+ * <li>think - mean pause between actions, in milliseconds (2000)</li>
+ * <li>mix - relative weight of each action (search:60,edit:20,add:10,delete:10)</li>
+ * <li>prefixes - last name prefixes searched for (A,B,H,J,L,S)</li>
+ * <li>lastName - last name given to the employees added (LOADTEST)</li>
+ * <li>timeout - request timeout, in milliseconds (30000)</li>
+ * </ul>
+ */
+public class LoadDriver
+{
+    private static final String[] ACTIONS = { VirtualUser.OPEN, VirtualUser.SEARCH, VirtualUser.EDIT, VirtualUser.ADD, VirtualUser.DELETE };
+    
+    private static final Map<String, String> DEFAULTS = new LinkedHashMap<>();
+    
+    static {
+        DEFAULTS.put("url", null);
+        DEFAULTS.put("users", "10");
+        DEFAULTS.put("duration", "60");
+        DEFAULTS.put("rampup", "10");
+        DEFAULTS.put("warmup", "10");
+        DEFAULTS.put("think", "2000");
+        DEFAULTS.put("mix", "search:60,edit:20,add:10,delete:10");
+        DEFAULTS.put("prefixes", "A,B,H,J,L,S");
+        DEFAULTS.put("lastName", "LOADTEST");
+        DEFAULTS.put("timeout", "30000");
+    }
+    
+    private final Map<String, ActionStats> stats = new LinkedHashMap<>();
+    
+    /**
+     * Actions and their cumulative weights, for choosing an action at random.
+     */
+    private final List<String> mixActions = new ArrayList<>();
+    
+    private final List<Integer> mixWeights = new ArrayList<>();
+    
+    private final String[] prefixes;
+    
+    private final String lastName;
+    
+    private final long thinkMillis;
+    
+    /*
+     * Phases of the run, as System.nanoTime() values.
+     */
+    
+    private volatile long measureFrom = Long.MAX_VALUE;
+    
+    private volatile long measureTo = Long.MAX_VALUE;
+    
+    private volatile boolean running = true;
+    
+    
+    LoadDriver(Map<String, String> options) {
+        for (String action : ACTIONS) {
+            this.stats.put(action, new ActionStats(action));
+        }
+        
+        int total = 0;
+        for (String entry : options.get("mix").split(",")) {
+            String[] parts = entry.split(":");
+            String action = parts[0].trim();
+            if ( ! this.stats.containsKey(action) || action.equals(VirtualUser.OPEN) ) {
+                throw new IllegalArgumentException("Unknown action in mix: " + action);
+            }
+            total += Integer.parseInt(parts[1].trim());
+            this.mixActions.add(action);
+            this.mixWeights.add(total);
+        }
+        if ( total <= 0 ) {
+            throw new IllegalArgumentException("The mix has no weight");
+        }
+        
+        this.prefixes = options.get("prefixes").split(",");
+        this.lastName = options.get("lastName");
+        this.thinkMillis = Long.parseLong(options.get("think"));
+    }
+    
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parse(args);
+        if ( options == null ) {
+            usage();
+            System.exit(2);
+        }
+        run(options);
+    }
+    
+    /**
+     * Runs the virtual users for the ramp up, warm up and measured period, then prints the report.
+     * 
+     * @param options - every option, with defaults filled in by {@link #parse(String[])}
+     * 
+     * @return the driver, holding the statistics of each action
+     * 
+     * @throws Exception if the run is interrupted or the URL is not valid
+     */
+    static LoadDriver run(Map<String, String> options) throws Exception {
+        
+        // Each virtual user keeps its own cookies, so there must be no shared cookie store
+        CookieHandler.setDefault(null);
+        
+        URL url = new URL(options.get("url"));
+        int users = Integer.parseInt(options.get("users"));
+        long durationMillis = Long.parseLong(options.get("duration")) * 1000;
+        long rampMillis = Long.parseLong(options.get("rampup")) * 1000;
+        long warmMillis = Long.parseLong(options.get("warmup")) * 1000;
+        int timeout = Integer.parseInt(options.get("timeout"));
+        
+        LoadDriver driver = new LoadDriver(options);
+        System.out.println("Running " + users + " users against " + url + " for " + durationMillis / 1000 + " seconds, mix " + options.get("mix"));
+        
+        // Start the users evenly across the ramp up
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < users; i++) {
+            Thread thread = new Thread(new VirtualUser(driver, new JsfClient(url, timeout)), "user-" + i);
+            thread.setDaemon(true);
+            thread.start();
+            threads.add(thread);
+            if ( i < users - 1 ) {
+                Thread.sleep(rampMillis / Math.max(1, users - 1));
+            }
+        }
+        
+        // Measure once every user is running and has warmed up
+        Thread.sleep(warmMillis);
+        long from = System.nanoTime();
+        driver.measureFrom = from;
+        driver.measureTo = from + durationMillis * 1_000_000L;
+        Thread.sleep(durationMillis);
+        
+        // Actions in progress at the end are not counted, so the users are not waited for long
+        driver.running = false;
+        for (Thread thread : threads) {
+            thread.join(timeout);
+        }
+        
+        driver.report(durationMillis / 1000.0);
+        return driver;
+    }
+    
+    /**
+     * @return the statistics of each action, in the order they are reported
+     */
+    Map<String, ActionStats> getStats() {
+        return this.stats;
+    }
+    
+    
+    /*
+     * Methods used by the virtual users.
+     */
+    
+    boolean isRunning() {
+        return this.running;
+    }
+    
+    /**
+     * Records a completed action, if it started and ended while measuring.
+     * 
+     * @param action - the action
+     * @param start - the System.nanoTime() when the action started
+     * @param ok - false if the action failed
+     */
+    void record(String action, long start, boolean ok) {
+        long end = System.nanoTime();
+        if ( start - this.measureFrom >= 0 && this.measureTo - end >= 0 ) {
+            this.stats.get(action).record(end - start, ! ok);
+        }
+    }
+    
+    /**
+     * @return an action chosen at random according to the mix
+     */
+    String nextAction() {
+        int total = this.mixWeights.get(this.mixWeights.size() - 1);
+        int pick = ThreadLocalRandom.current().nextInt(total);
+        for (int i = 0; i < this.mixWeights.size(); i++) {
+            if ( pick < this.mixWeights.get(i) ) {
+                return this.mixActions.get(i);
+            }
+        }
+        throw new IllegalStateException();
+    }
+    
+    String randomPrefix() {
+        return this.prefixes[ThreadLocalRandom.current().nextInt(this.prefixes.length)].trim();
+    }
+    
+    String getLastName() {
+        return this.lastName;
+    }
+    
+    long getThinkMillis() {
+        return this.thinkMillis;
+    }
+    
+    
+    /*
+     * Utility methods.
+     */
+    
+    /**
+     * Prints a line for each action that was measured.
+     */
+    private void report(double seconds) {
+        System.out.println();
+        System.out.println(String.format("%-8s %8s %8s %10s %10s %10s %10s", "action", "count", "errors", "per sec", "p50 ms", "p95 ms", "p99 ms"));
+        for (ActionStats action : this.stats.values()) {
+            if ( action.getCount() == 0 ) {
+                continue;
+            }
+            System.out.println(String.format("%-8s %8d %8d %10.2f %10.1f %10.1f %10.1f",
+                    action.getName(), action.getCount(), action.getErrors(), action.getCount() / seconds,
+                    action.percentileMillis(0.50), action.percentileMillis(0.95), action.percentileMillis(0.99)));
+        }
+    }
+    
+    /**
+     * @return the options with defaults filled in, or null if the arguments are not valid
+     */
+    static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new HashMap<>(DEFAULTS);
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            if ( ! arg.startsWith("--") || equals < 0 || ! DEFAULTS.containsKey(arg.substring(2, equals)) ) {
+                System.out.println("Unknown option: " + arg);
+                return null;
+            }
+            options.put(arg.substring(2, equals), arg.substring(equals + 1));
+        }
+        if ( options.get("url") == null ) {
+            System.out.println("The --url option is required");
+            return null;
+        }
+        
+        // Page names are resolved against the URL, so it must name a directory
+        if ( ! options.get("url").endsWith("/") ) {
+            options.put("url", options.get("url") + "/");
+        }
+        return options;
+    }
+    
+    private static void usage() {
+        StringBuilder sb = new StringBuilder("Usage: LoadDriver");
+        for (Map.Entry<String, String> option : DEFAULTS.entrySet()) {
+            sb.append(" --").append(option.getKey()).append('=').append(option.getValue() == null ? "..." : option.getValue());
+        }
+        System.out.println(sb);
+    }
+}
@@ -0,0 +1,296 @@
+/* Licensed Materials - Property of IBM                                   */
+/*                                                                        */
+/* SAMPLE                                                                 */
+/*                                                                        */
+/* (c) Copyright IBM Corp. 2018 All Rights Reserved                       */
+/*                                                                        */
+/* US Government Users Restricted Rights - Use, duplication or disclosure */
+/* restricted by GSA ADP Schedule Contract with IBM Corp                  */
+/*                                                                        */
+package com.ibm.cicsdev.employee.loadtest;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * One simulated user of the application, working through the JSF pages as a
+ * person with a browser would.
+ * 
+ * The user opens the list page, then repeatedly picks an action from the mix,
+ * carries it out, and pauses to think. Each action is made up of the requests a
+ * browser would send, and is timed from the first request to the last response.
+ * 
+ * Employees are only changed or deleted if they were added by a virtual user,
+ * which is recognised by the last name they are given, so a run can be made
+ * against a database holding other data.
+ */
+public class VirtualUser implements Runnable
+{
+    /*
+     * The actions a user can take.
+     */
+    
+    public static final String OPEN = "open";
+    
+    public static final String SEARCH = "search";
+    
+    public static final String EDIT = "edit";
+    
+    public static final String ADD = "add";
+    
+    public static final String DELETE = "delete";
+    
+    /*
+     * Client IDs and labels on the pages.
+     */
+    
+    private static final String MAIN_PAGE = "main.xhtml";
+    
+    private static final String SEARCH_FIELD = "frm:inputSearchTxt";
+    
+    private static final String SEARCH_MODE_FIELD = "frm:searchMode";
+    
+    private static final String TABLE_ROW = "frm:tbl:";
+    
+    /**
+     * Position of the phone number among the text fields of the row being edited.
+     */
+    private static final int PHONE_FIELD = 3;
+    
+    private static final String[] GENDERS = { "M", "F" };
+    
+    private static final String[] FIRST_NAMES = { "ALEX", "SAM", "JO", "CHRIS", "PAT", "ROBIN" };
+    
+    private final LoadDriver driver;
+    
+    private final JsfClient client;
+    
+    /**
+     * The page the user is looking at.
+     */
+    private JsfPage page;
+    
+    
+    /**
+     * @param driver - the run this user takes part in
+     * @param client - the browser this user works with
+     */
+    public VirtualUser(LoadDriver driver, JsfClient client) {
+        this.driver = driver;
+        this.client = client;
+    }
+    
+    @Override
+    public void run() {
+        
+        // The first request creates the session
+        long start = System.nanoTime();
+        try {
+            this.page = this.client.get(MAIN_PAGE);
+            this.driver.record(OPEN, start, this.page.isOk());
+        }
+        catch (IOException e) {
+            this.driver.record(OPEN, start, false);
+            e.printStackTrace(System.out);
+            return;
+        }
+        
+        while ( this.driver.isRunning() ) {
+            think();
+            if ( ! this.driver.isRunning() ) {
+                break;
+            }
+            
+            String action = this.driver.nextAction();
+            start = System.nanoTime();
+            boolean ok;
+            try {
+                ok = perform(action);
+                if ( ! ok ) {
+                    System.out.println(action + " failed: HTTP " + this.page.getStatus() + " " + this.page.getMessage());
+                }
+            }
+            catch (IOException e) {
+                System.out.println(action + " failed: " + e);
+                ok = false;
+                
+                // Start again from the list page
+                try {
+                    this.page = this.client.get(MAIN_PAGE);
+                }
+                catch (IOException e2) {
+                    // Tried again after the next pause
+                }
+            }
+            this.driver.record(action, start, ok);
+        }
+    }
+    
+    
+    /*
+     * Actions.
+     */
+    
+    private boolean perform(String action) throws IOException {
+        switch (action) {
+        case SEARCH:
+            return search(this.driver.randomPrefix(), "PREFIX");
+        case EDIT:
+            return edit();
+        case ADD:
+            return add();
+        case DELETE:
+            return delete();
+        default:
+            throw new IllegalArgumentException(action);
+        }
+    }
+    
+    /**
+     * Runs a search from the list page.
+     */
+    private boolean search(String text, String mode) throws IOException {
+        Map<String, String> values = new HashMap<>();
+        values.put(SEARCH_FIELD, text);
+        values.put(SEARCH_MODE_FIELD, mode);
+        return press("Search", 0, values);
+    }
+    
+    /**
+     * Finds the employees added by virtual users, and changes the phone number of one.
+     */
+    private boolean edit() throws IOException {
+        if ( ! search(this.driver.getLastName(), "EXACT") ) {
+            return false;
+        }
+        int row = randomRow("Edit");
+        if ( row < 0 ) {
+            return true;
+        }
+        if ( ! press("Edit", row, Collections.<String, String>emptyMap()) ) {
+            return false;
+        }
+        
+        // Another user deleted the employee since the search, which the page reports correctly
+        if ( this.page.isConflict() ) {
+            return true;
+        }
+        
+        List<String> fields = this.page.textFields(TABLE_ROW);
+        if ( fields.size() <= PHONE_FIELD ) {
+            return false;
+        }
+        Map<String, String> values = new HashMap<>();
+        values.put(fields.get(PHONE_FIELD), digits(4));
+        return press("Save", 0, values);
+    }
+    
+    /**
+     * Adds an employee from the add page, then returns to the list.
+     */
+    private boolean add() throws IOException {
+        if ( ! press("Add new employee", 0, Collections.<String, String>emptyMap()) ) {
+            return false;
+        }
+        
+        // Number, first name, last name, gender and job, in page order
+        List<String> fields = this.page.textFields("");
+        if ( fields.size() < 5 ) {
+            return false;
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Map<String, String> values = new HashMap<>();
+        values.put(fields.get(0), "Z" + digits(5));
+        values.put(fields.get(1), FIRST_NAMES[random.nextInt(FIRST_NAMES.length)]);
+        values.put(fields.get(2), this.driver.getLastName());
+        values.put(fields.get(3), GENDERS[random.nextInt(GENDERS.length)]);
+        values.put(fields.get(4), "LOADTEST");
+        boolean added = press("Add employee", 0, values);
+        
+        return press("Go back", 0, Collections.<String, String>emptyMap()) && added;
+    }
+    
+    /**
+     * Finds the employees added by virtual users, and deletes one.
+     */
+    private boolean delete() throws IOException {
+        if ( ! search(this.driver.getLastName(), "EXACT") ) {
+            return false;
+        }
+        int row = randomRow("Delete");
+        if ( row < 0 ) {
+            return true;
+        }
+        if ( ! press("Delete", row, Collections.<String, String>emptyMap()) ) {
+            return false;
+        }
+        if ( this.page.isConflict() ) {
+            return true;
+        }
+        return press("Confirm", 0, Collections.<String, String>emptyMap());
+    }
+    
+    
+    /*
+     * Utility methods.
+     */
+    
+    /**
+     * Presses a button on the current page.
+     * 
+     * @param label - the text on the button
+     * @param index - which of the buttons with that text to press
+     * @param values - values to type into the form first
+     * 
+     * @return true if the page returned shows no error
+     */
+    private boolean press(String label, int index, Map<String, String> values) throws IOException {
+        List<String> buttons = this.page.buttons(label);
+        if ( buttons.size() <= index ) {
+            throw new IOException("No '" + label + "' button on " + this.page.getUrl() + ": " + this.page.getMessage());
+        }
+        this.page = this.client.submit(this.page, buttons.get(index), values);
+        return this.page.isOk();
+    }
+    
+    /**
+     * Picks one of the rows on the page at random.
+     * 
+     * @return the row, or -1 if the page has no rows, as when no employees have been added yet
+     */
+    private int randomRow(String label) {
+        int rows = this.page.buttons(label).size();
+        return rows == 0 ? -1 : ThreadLocalRandom.current().nextInt(rows);
+    }
+    
+    /**
+     * Pauses for a time drawn from an exponential distribution around the mean
+     * think time, as users act independently of each other. The longest pause is
+     * limited so that one user cannot sit out most of a short run.
+     */
+    private void think() {
+        long mean = this.driver.getThinkMillis();
+        if ( mean <= 0 ) {
+            return;
+        }
+        double sample = -Math.log(1.0 - ThreadLocalRandom.current().nextDouble()) * mean;
+        try {
+            Thread.sleep((long) Math.min(sample, 5.0 * mean));
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private static String digits(int length) {
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            sb.append((char) ('0' + ThreadLocalRandom.current().nextInt(10)));
+        }
+        return sb.toString();
+    }
+}
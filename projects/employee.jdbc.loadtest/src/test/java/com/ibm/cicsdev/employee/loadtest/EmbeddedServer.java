@@ -0,0 +1,118 @@
+/* Licensed Materials - Property of IBM                                   */
+/*                                                                        */
+/* SAMPLE                                                                 */
+/*                                                                        */
+/* (c) Copyright IBM Corp. 2018 All Rights Reserved                       */
+/*                                                                        */
+/* US Government Users Restricted Rights - Use, duplication or disclosure */
+/* restricted by GSA ADP Schedule Contract with IBM Corp                  */
+/*                                                                        */
+package com.ibm.cicsdev.employee.loadtest;
+
+import java.io.File;
+
+import javax.naming.NamingException;
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+import javax.sql.DataSource;
+import javax.transaction.UserTransaction;
+
+import org.eclipse.jetty.annotations.AnnotationConfiguration;
+import org.eclipse.jetty.plus.jndi.Resource;
+import org.eclipse.jetty.plus.jndi.Transaction;
+import org.eclipse.jetty.plus.webapp.EnvConfiguration;
+import org.eclipse.jetty.plus.webapp.PlusConfiguration;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.webapp.Configuration;
+import org.eclipse.jetty.webapp.JettyWebXmlConfiguration;
+import org.eclipse.jetty.webapp.WebAppContext;
+import org.eclipse.jetty.webapp.WebInfConfiguration;
+import org.eclipse.jetty.webapp.WebXmlConfiguration;
+
+import com.sun.faces.config.ConfigureListener;
+
+/**
+ * Runs the web module's WAR in Jetty with Mojarra, in place of Liberty in CICS.
+ * 
+ * The application finds its DataSource as <code>jdbc/sample</code> and the
+ * UserTransaction in JNDI as it does in Liberty. The JCICS classes, the database
+ * driver and the application's own classes come from the class path, so the
+ * harness and the application share the in-memory TSQ and the database.
+ */
+class EmbeddedServer
+{
+    /**
+     * The context root the application has in the sample server.xml.
+     */
+    private static final String CONTEXT_ROOT = "/employee.jdbc.web";
+    
+    /**
+     * The name the application injects its DataSource by.
+     */
+    private static final String DATA_SOURCE = "jdbc/sample";
+    
+    private final Server server = new Server(0);
+    
+    /**
+     * @param war - the web module's WAR file
+     * @param ds - the DataSource bound as jdbc/sample
+     * @param utx - the UserTransaction bound as java:comp/UserTransaction
+     * 
+     * @throws NamingException if the resources cannot be bound
+     */
+    EmbeddedServer(File war, DataSource ds, UserTransaction utx) throws NamingException
+    {
+        WebAppContext webapp = new WebAppContext();
+        webapp.setContextPath(CONTEXT_ROOT);
+        webapp.setWar(war.getAbsolutePath());
+        webapp.setParentLoaderPriority(true);
+        webapp.setConfigurations(new Configuration[] {
+            new WebInfConfiguration(), new WebXmlConfiguration(), new EnvConfiguration(),
+            new PlusConfiguration(), new AnnotationConfiguration(), new JettyWebXmlConfiguration()
+        });
+        
+        // Mojarra's initializer finds the managed beans in WEB-INF/classes. Its listener is
+        // declared in a TLD, which Jetty does not read without JSP support, so is added here
+        webapp.setAttribute(WebInfConfiguration.CONTAINER_JAR_PATTERN, ".*/javax\\.faces-[^/]*\\.jar$");
+        webapp.setInitParameter("com.sun.faces.injectionProvider", ResourceInjectionProvider.class.getName());
+        // Jetty links resources into java:comp/env only for the servlets, filters and listeners
+        // that refer to them, so the data source is linked before the managed beans are created
+        final Resource resource = new Resource(webapp, DATA_SOURCE, ds);
+        webapp.addEventListener(new ServletContextListener() {
+            @Override
+            public void contextInitialized(ServletContextEvent event) {
+                try {
+                    resource.bindToENC(DATA_SOURCE);
+                }
+                catch (NamingException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+            
+            @Override
+            public void contextDestroyed(ServletContextEvent event) {
+            }
+        });
+        webapp.addEventListener(new ConfigureListener());
+        
+        new Transaction(utx);
+        this.server.setHandler(webapp);
+    }
+    
+    void start() throws Exception {
+        this.server.start();
+    }
+    
+    void stop() throws Exception {
+        this.server.stop();
+    }
+    
+    /**
+     * @return the URL of the application, ending in a slash
+     */
+    String getUrl() {
+        int port = ((ServerConnector) this.server.getConnectors()[0]).getLocalPort();
+        return "http://localhost:" + port + CONTEXT_ROOT + "/";
+    }
+}
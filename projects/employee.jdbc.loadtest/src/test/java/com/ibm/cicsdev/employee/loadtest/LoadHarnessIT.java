@@ -0,0 +1,81 @@
+/* Licensed Materials - Property of IBM                                   */
+/*                                                                        */
+/* SAMPLE                                                                 */
+/*                                                                        */
+/* (c) Copyright IBM Corp. 2018 All Rights Reserved                       */
+/*                                                                        */
+/* US Government Users Restricted Rights - Use, duplication or disclosure */
+/* restricted by GSA ADP Schedule Contract with IBM Corp                  */
+/*                                                                        */
+package com.ibm.cicsdev.employee.loadtest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.ibm.cicsdev.employee.benchmarks.EmbeddedDatabase;
+
+/**
+ * Runs the load driver against the application in the same JVM, with no CICS region
+ * or Db2.
+ * 
+ * The web module's WAR runs in an {@link EmbeddedServer}, against an embedded EMP
+ * table and the in-memory TSQ. The run is short by default, so that it can be part
+ * of the build. The number of users, the length of the run and the other options of
+ * the {@link LoadDriver} can be changed with system properties prefixed by
+ * <code>loadtest.</code>, and the number of employees in the table with
+ * <code>loadtest.rows</code>.
+ */
+public class LoadHarnessIT
+{
+    private static final String[] OPTIONS = { "users", "duration", "rampup", "warmup", "think", "mix", "prefixes", "lastName", "timeout" };
+    
+    @Test
+    public void everyActionSucceeds() throws Exception
+    {
+        File war = new File(System.getProperty("loadtest.war"));
+        int rows = Integer.getInteger("loadtest.rows", 10000);
+        
+        try ( EmbeddedDatabase db = EmbeddedDatabase.create(rows, 50) ) {
+            LocalUserTransaction utx = new LocalUserTransaction();
+            EmbeddedServer server = new EmbeddedServer(war, utx.wrap(db.getDataSource()), utx);
+            server.start();
+            try {
+                LoadDriver driver = LoadDriver.run(options(server.getUrl()));
+                
+                for (ActionStats action : driver.getStats().values()) {
+                    
+                    // Users open the list page before measuring starts
+                    if ( ! action.getName().equals(VirtualUser.OPEN) ) {
+                        assertTrue(action.getName() + " was not measured", action.getCount() > 0);
+                    }
+                    assertEquals(action.getName() + " failed", 0, action.getErrors());
+                }
+            }
+            finally {
+                server.stop();
+            }
+        }
+    }
+    
+    /**
+     * @return the load driver options, short by default, and as set by any system properties
+     */
+    private static Map<String, String> options(String url)
+    {
+        Map<String, String> options = LoadDriver.parse(new String[] {
+            "--url=" + url, "--users=5", "--duration=10", "--rampup=1", "--warmup=3", "--think=100"
+        });
+        for (String option : OPTIONS) {
+            String value = System.getProperty("loadtest." + option);
+            if ( value != null ) {
+                options.put(option, value);
+            }
+        }
+        return options;
+    }
+}
@@ -0,0 +1,222 @@
+/* Licensed Materials - Property of IBM                                   */
+/*                                                                        */
+/* SAMPLE                                                                 */
+/*                                                                        */
+/* (c) Copyright IBM Corp. 2018 All Rights Reserved                       */
+/*                                                                        */
+/* US Government Users Restricted Rights - Use, duplication or disclosure */
+/* restricted by GSA ADP Schedule Contract with IBM Corp                  */
+/*                                                                        */
+package com.ibm.cicsdev.employee.loadtest;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sql.DataSource;
+import javax.transaction.NotSupportedException;
+import javax.transaction.RollbackException;
+import javax.transaction.Status;
+import javax.transaction.SystemException;
+import javax.transaction.UserTransaction;
+
+/**
+ * A stand-in for the Liberty transaction manager, enough to run the application's
+ * JTA paths against one embedded database.
+ * 
+ * Connections from a DataSource returned by {@link #wrap(DataSource)} join the
+ * transaction begun on the current thread when they are placed in manual commit
+ * mode, as UnitOfWork.enlist does, and are committed or rolled back with it. A
+ * connection closed during the transaction is closed when it ends. There is no
+ * two-phase commit or recovery, and the in-memory TSQ is not part of the transaction.
+ */
+class LocalUserTransaction implements UserTransaction
+{
+    /**
+     * The transaction begun on each thread.
+     */
+    private final ThreadLocal<Transaction> current = new ThreadLocal<>();
+    
+    @Override
+    public void begin() throws NotSupportedException {
+        if ( this.current.get() != null ) {
+            throw new NotSupportedException("Nested transactions are not supported");
+        }
+        this.current.set(new Transaction());
+    }
+    
+    @Override
+    public void commit() throws RollbackException {
+        Transaction tx = end();
+        boolean rollbackOnly = tx.rollbackOnly;
+        SQLException failure = tx.complete(! rollbackOnly);
+        if ( rollbackOnly || failure != null ) {
+            RollbackException e = new RollbackException(rollbackOnly ? "Transaction marked for rollback" : failure.getMessage());
+            e.initCause(failure);
+            throw e;
+        }
+    }
+    
+    @Override
+    public void rollback() throws SystemException {
+        SQLException failure = end().complete(false);
+        if ( failure != null ) {
+            SystemException e = new SystemException(failure.getMessage());
+            e.initCause(failure);
+            throw e;
+        }
+    }
+    
+    @Override
+    public void setRollbackOnly() throws SystemException {
+        active().rollbackOnly = true;
+    }
+    
+    @Override
+    public int getStatus() {
+        Transaction tx = this.current.get();
+        if ( tx == null ) {
+            return Status.STATUS_NO_TRANSACTION;
+        }
+        return tx.rollbackOnly ? Status.STATUS_MARKED_ROLLBACK : Status.STATUS_ACTIVE;
+    }
+    
+    @Override
+    public void setTransactionTimeout(int seconds) {
+        // Transactions are not timed out
+    }
+    
+    /**
+     * Returns a DataSource whose connections take part in the transactions.
+     * 
+     * @param ds - the DataSource of the database
+     * 
+     * @return the DataSource for the application
+     */
+    DataSource wrap(final DataSource ds)
+    {
+        return (DataSource) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { DataSource.class },
+                new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                        Object result = forward(ds, method, args);
+                        return method.getName().equals("getConnection") ? enlisting((Connection) result) : result;
+                    }
+                });
+    }
+    
+    /**
+     * Returns a connection that joins the current transaction when auto-commit is turned off.
+     */
+    private Connection enlisting(final Connection conn)
+    {
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { Connection.class },
+                new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                        Transaction tx = LocalUserTransaction.this.current.get();
+                        if ( tx != null ) {
+                            if ( method.getName().equals("setAutoCommit") && ! (Boolean) args[0] ) {
+                                tx.enlist(conn);
+                            }
+                            else if ( method.getName().equals("close") && tx.isEnlisted(conn) ) {
+                                tx.closing.add(conn);
+                                return null;
+                            }
+                        }
+                        return forward(conn, method, args);
+                    }
+                });
+    }
+    
+    private Transaction active() {
+        Transaction tx = this.current.get();
+        if ( tx == null ) {
+            throw new IllegalStateException("No transaction");
+        }
+        return tx;
+    }
+    
+    private Transaction end() {
+        Transaction tx = active();
+        this.current.remove();
+        return tx;
+    }
+    
+    private static Object forward(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        }
+        catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+    
+    
+    /**
+     * The connections taking part in one transaction.
+     */
+    private static class Transaction
+    {
+        final List<Connection> enlisted = new ArrayList<>();
+        
+        final List<Connection> closing = new ArrayList<>();
+        
+        boolean rollbackOnly;
+        
+        void enlist(Connection conn) {
+            if ( ! isEnlisted(conn) ) {
+                this.enlisted.add(conn);
+            }
+        }
+        
+        boolean isEnlisted(Connection conn) {
+            for (Connection c : this.enlisted) {
+                if ( c == conn ) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        
+        /**
+         * Commits or rolls back each connection, returns it to auto-commit and closes
+         * those the application has finished with. If a commit fails the remaining
+         * connections are rolled back.
+         * 
+         * @return the first failure, or null
+         */
+        SQLException complete(boolean commit)
+        {
+            SQLException failure = null;
+            for (Connection conn : this.enlisted) {
+                try {
+                    if ( commit && failure == null ) {
+                        conn.commit();
+                    }
+                    else {
+                        conn.rollback();
+                    }
+                    conn.setAutoCommit(true);
+                }
+                catch (SQLException e) {
+                    failure = failure == null ? e : failure;
+                }
+            }
+            for (Connection conn : this.closing) {
+                try {
+                    conn.close();
+                }
+                catch (SQLException e) {
+                    failure = failure == null ? e : failure;
+                }
+            }
+            return failure;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+/* Licensed Materials - Property of IBM                                   */
+/*                                                                        */
+/* SAMPLE                                                                 */
+/*                                                                        */
+/* (c) Copyright IBM Corp. 2018 All Rights Reserved                       */
+/*                                                                        */
+/* US Government Users Restricted Rights - Use, duplication or disclosure */
+/* restricted by GSA ADP Schedule Contract with IBM Corp                  */
+/*                                                                        */
+package com.ibm.cicsdev.employee.loadtest;
+
+import java.lang.reflect.Field;
+
+import javax.annotation.Resource;
+import javax.naming.InitialContext;
+import javax.naming.NamingException;
+
+import com.sun.faces.spi.InjectionProviderException;
+import com.sun.faces.vendor.WebContainerInjectionProvider;
+
+/**
+ * Injects the <code>@Resource</code> fields of JSF managed beans from
+ * <code>java:comp/env</code>, as Liberty does. Mojarra only does this itself in a
+ * full Java EE server, so this is set as its injection provider in Jetty.
+ */
+public class ResourceInjectionProvider extends WebContainerInjectionProvider
+{
+    @Override
+    public void inject(Object managedBean) throws InjectionProviderException
+    {
+        for (Class<?> c = managedBean.getClass(); c != Object.class; c = c.getSuperclass()) {
+            for (Field field : c.getDeclaredFields()) {
+                Resource resource = field.getAnnotation(Resource.class);
+                if ( resource == null ) {
+                    continue;
+                }
+                String name = resource.name().isEmpty() ? c.getName() + "/" + field.getName() : resource.name();
+                try {
+                    field.setAccessible(true);
+                    field.set(managedBean, InitialContext.doLookup("java:comp/env/" + name));
+                }
+                catch (NamingException | IllegalAccessException e) {
+                    throw new InjectionProviderException("Unable to inject " + name, e);
+                }
+            }
+        }
+    }
+}
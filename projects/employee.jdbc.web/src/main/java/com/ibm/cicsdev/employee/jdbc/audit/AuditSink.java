@@ -0,0 +1,47 @@
+/* Licensed Materials - Property of IBM                                   */
+/*                                                                        */
+/* SAMPLE                                                                 */
+/*                                                                        */
+/* (c) Copyright IBM Corp. 2018 All Rights Reserved                       */
+/*                                                                        */
+/* US Government Users Restricted Rights - Use, duplication or disclosure */
+/* restricted by GSA ADP Schedule Contract with IBM Corp                  */
+/*                                                                        */
+package com.ibm.cicsdev.employee.jdbc.audit;
+
+import com.ibm.cics.server.CicsConditionException;
+
+/**
+ * Receives a record of each change made to the database by the application.
+ * 
+ * The update methods call {@link #beforeCommit(String)} inside their unit of work,
+ * and {@link #afterCommit(String)} with the same record once the unit of work has
+ * committed. An implementation acts on one or the other, depending on whether the
+ * record must be part of the unit of work or may be written separately.
+ */
+public interface AuditSink
+{
+    /**
+     * Called inside the unit of work that changes the database.
+     * 
+     * @param record - the text of the audit record
+     * 
+     * @throws CicsConditionException if the record could not be written, which
+     * will roll back the unit of work
+     */
+    void beforeCommit(String record) throws CicsConditionException;
+    
+    /**
+     * Called once the unit of work that changed the database has committed.
+     * 
+     * This method must not throw an exception, as the change cannot now be backed out.
+     * 
+     * @param record - the text of the audit record
+     */
+    void afterCommit(String record);
+    
+    /**
+     * Releases any resources held, writing any records not yet written.
+     */
+    void close();
+}
@@ -0,0 +1,33 @@
+/* Licensed Materials - Property of IBM                                   */
+/*                                                                        */
+/* SAMPLE                                                                 */
+/*                                                                        */
+/* (c) Copyright IBM Corp. 2018 All Rights Reserved                       */
+/*                                                                        */
+/* US Government Users Restricted Rights - Use, duplication or disclosure */
+/* restricted by GSA ADP Schedule Contract with IBM Corp                  */
+/*                                                                        */
+package com.ibm.cicsdev.employee.jdbc.audit;
+
+import java.util.List;
+
+import com.ibm.cics.server.CicsConditionException;
+
+/**
+ * Writes audit records to their final destination.
+ * 
+ * Separating the destination from the {@link AuditSink} allows the CICS
+ * temporary storage queue to be replaced, for example by an in-memory list
+ * when the sinks are exercised outside CICS.
+ */
+public interface AuditWriter
+{
+    /**
+     * Writes a group of records, in order.
+     * 
+     * @param records - the records to write
+     * 
+     * @throws CicsConditionException if a CICS error occurs
+     */
+    void write(List<String> records) throws CicsConditionException;
+}
@@ -0,0 +1,267 @@
+/* Licensed Materials - Property of IBM                                   */
+/*                                                                        */
+/* SAMPLE                                                                 */
+/*                                                                        */
+/* (c) Copyright IBM Corp. 2018 All Rights Reserved                       */
+/*                                                                        */
+/* US Government Users Restricted Rights - Use, duplication or disclosure */
+/* restricted by GSA ADP Schedule Contract with IBM Corp                  */
+/*                                                                        */
+package com.ibm.cicsdev.employee.jdbc.audit;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.ibm.cics.server.CicsConditionException;
+
+/**
+ * Queues audit records once their unit of work has committed, and writes them
+ * in groups on a separate thread.
+ * 
+ * This removes the write to the recoverable queue from the unit of work that
+ * changes the database. Records are written in the order they were committed,
+ * with each flush writing all the records queued while the previous flush was
+ * running, up to a maximum group size.
+ * 
+ * The queue is bounded. When it is full a caller waits for a short time for
+ * space, and if there is still none the record is dropped and counted, rather
+ * than holding up the user. Records still queued are lost if the JVM server
+ * ends abnormally, so this mode should only be chosen where that is acceptable.
+ */
+public class BufferedAuditSink implements AuditSink
+{
+    /**
+     * The destination of the records.
+     */
+    private final AuditWriter writer;
+    
+    /**
+     * Runs the flush task. In CICS this must supply CICS-enabled threads.
+     */
+    private final Executor executor;
+    
+    /**
+     * Records waiting to be written.
+     */
+    private final BlockingQueue<Pending> queue;
+    
+    /**
+     * Maximum number of records written by one flush.
+     */
+    private final int maxGroupSize;
+    
+    /**
+     * Time to wait for space in a full queue, in milliseconds.
+     */
+    private final long offerTimeoutMillis;
+    
+    /**
+     * Set while a flush task is scheduled or running.
+     */
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    
+    /*
+     * Statistics.
+     */
+    
+    private final AtomicLong written = new AtomicLong();
+    
+    private final AtomicLong dropped = new AtomicLong();
+    
+    private final AtomicLong failed = new AtomicLong();
+    
+    private final AtomicLong flushes = new AtomicLong();
+    
+    private final AtomicLong totalLatencyNanos = new AtomicLong();
+    
+    private final AtomicLong maxLatencyNanos = new AtomicLong();
+    
+    
+    /**
+     * Creates a sink with an empty queue.
+     * 
+     * @param writer - the destination of the records
+     * @param executor - used to run the flush task
+     * @param capacity - the maximum number of records queued
+     * @param maxGroupSize - the maximum number of records written by one flush
+     * @param offerTimeoutMillis - how long a caller waits for space in a full queue
+     */
+    public BufferedAuditSink(AuditWriter writer, Executor executor, int capacity, int maxGroupSize, long offerTimeoutMillis) {
+        this.writer = writer;
+        this.executor = executor;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.maxGroupSize = maxGroupSize;
+        this.offerTimeoutMillis = offerTimeoutMillis;
+    }
+    
+    @Override
+    public void beforeCommit(String record) {
+        // Not written as part of the unit of work
+    }
+    
+    @Override
+    public void afterCommit(String record) {
+        
+        try {
+            // Wait a short time for space if the queue is full
+            if ( ! this.queue.offer(new Pending(record), this.offerTimeoutMillis, TimeUnit.MILLISECONDS) ) {
+                this.dropped.incrementAndGet();
+                System.out.println("Audit queue full, record dropped: " + record);
+                return;
+            }
+        }
+        catch (InterruptedException e) {
+            this.dropped.incrementAndGet();
+            Thread.currentThread().interrupt();
+            return;
+        }
+        
+        scheduleFlush();
+    }
+    
+    @Override
+    public void close() {
+        
+        // Write anything left on this thread
+        flush();
+    }
+    
+    /**
+     * Schedules a flush, unless one is already scheduled or running.
+     */
+    private void scheduleFlush() {
+        
+        if ( this.flushScheduled.compareAndSet(false, true) ) {
+            try {
+                this.executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        flush();
+                    }
+                });
+            }
+            catch (RuntimeException e) {
+                // Rejected by the executor - the next record will try again
+                this.flushScheduled.set(false);
+                e.printStackTrace(System.out);
+            }
+        }
+    }
+    
+    /**
+     * Writes all queued records, in groups of up to the maximum group size.
+     */
+    private void flush() {
+        
+        try {
+            List<Pending> group = new ArrayList<>(this.maxGroupSize);
+            while ( this.queue.drainTo(group, this.maxGroupSize) > 0 ) {
+                writeGroup(group);
+                group.clear();
+            }
+        }
+        finally {
+            this.flushScheduled.set(false);
+        }
+        
+        // A record may have been queued after the last drain, but before the flag was cleared
+        if ( ! this.queue.isEmpty() ) {
+            scheduleFlush();
+        }
+    }
+    
+    /**
+     * Writes one group of records, recording the time each spent in the queue.
+     */
+    private void writeGroup(List<Pending> group) {
+        
+        List<String> records = new ArrayList<>(group.size());
+        for (Pending pending : group) {
+            records.add(pending.record);
+        }
+        
+        try {
+            this.writer.write(records);
+        }
+        catch (CicsConditionException | RuntimeException e) {
+            // Nothing more can be done with the records other than report them
+            this.failed.addAndGet(group.size());
+            System.out.println("Audit records could not be written: " + records);
+            e.printStackTrace(System.out);
+            return;
+        }
+        
+        long now = System.nanoTime();
+        for (Pending pending : group) {
+            long latency = now - pending.queued;
+            this.totalLatencyNanos.addAndGet(latency);
+            long max = this.maxLatencyNanos.get();
+            while ( latency > max && ! this.maxLatencyNanos.compareAndSet(max, latency) ) {
+                max = this.maxLatencyNanos.get();
+            }
+        }
+        this.written.addAndGet(group.size());
+        this.flushes.incrementAndGet();
+    }
+    
+    
+    /*
+     * Statistics, exposed for monitoring.
+     */
+    
+    public long getWritten() {
+        return this.written.get();
+    }
+    
+    public long getDropped() {
+        return this.dropped.get();
+    }
+    
+    public long getFailed() {
+        return this.failed.get();
+    }
+    
+    public long getFlushes() {
+        return this.flushes.get();
+    }
+    
+    public int getQueueDepth() {
+        return this.queue.size();
+    }
+    
+    /**
+     * @return the mean time between a record being queued and written, in milliseconds
+     */
+    public double getMeanLatencyMillis() {
+        long count = this.written.get();
+        return count == 0 ? 0 : this.totalLatencyNanos.get() / 1e6 / count;
+    }
+    
+    /**
+     * @return the longest time between a record being queued and written, in milliseconds
+     */
+    public double getMaxLatencyMillis() {
+        return this.maxLatencyNanos.get() / 1e6;
+    }
+    
+    
+    /**
+     * A queued record and the time it was queued.
+     */
+    private static class Pending
+    {
+        final String record;
+        
+        final long queued = System.nanoTime();
+        
+        Pending(String record) {
+            this.record = record;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+/* Licensed Materials - Property of IBM                                   */
+/*                                                                        */
+/* SAMPLE                                                                 */
+/*                                                                        */
+/* (c) Copyright IBM Corp. 2018 All Rights Reserved                       */
+/*                                                                        */
+/* US Government Users Restricted Rights - Use, duplication or disclosure */
+/* restricted by GSA ADP Schedule Contract with IBM Corp                  */
+/*                                                                        */
+package com.ibm.cicsdev.employee.jdbc.audit;
+
+import java.util.Collections;
+
+import com.ibm.cics.server.CicsConditionException;
+
+/**
+ * Writes each audit record inside the unit of work that changes the database.
+ * 
+ * The record and the database change are committed or backed out together, at
+ * the cost of a write to the recoverable queue on every update.
+ */
+public class TransactionalAuditSink implements AuditSink
+{
+    private final AuditWriter writer;
+    
+    public TransactionalAuditSink(AuditWriter writer) {
+        this.writer = writer;
+    }
+    
+    @Override
+    public void beforeCommit(String record) throws CicsConditionException {
+        this.writer.write(Collections.singletonList(record));
+    }
+    
+    @Override
+    public void afterCommit(String record) {
+        // Already written as part of the unit of work
+    }
+    
+    @Override
+    public void close() {
+        // Nothing held
+    }
+}
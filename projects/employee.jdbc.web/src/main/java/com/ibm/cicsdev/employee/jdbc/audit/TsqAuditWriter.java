@@ -0,0 +1,39 @@
+/* Licensed Materials - Property of IBM                                   */
+/*                                                                        */
+/* SAMPLE                                                                 */
+/*                                                                        */
+/* (c) Copyright IBM Corp. 2018 All Rights Reserved                       */
+/*                                                                        */
+/* US Government Users Restricted Rights - Use, duplication or disclosure */
+/* restricted by GSA ADP Schedule Contract with IBM Corp                  */
+/*                                                                        */
+package com.ibm.cicsdev.employee.jdbc.audit;
+
+import java.util.List;
+
+import com.ibm.cics.server.CicsConditionException;
+import com.ibm.cics.server.TSQ;
+
+/**
+ * Writes audit records to a CICS temporary storage queue, one item per record.
+ * 
+ * The queue is defined as recoverable by the DB2LOG TSMODEL, so the items are
+ * part of the CICS unit of work of the task that writes them.
+ */
+public class TsqAuditWriter implements AuditWriter
+{
+    /**
+     * Name of CICS TSQ used to log activity.
+     */
+    public static final String TSQ_NAME = "DB2LOG";
+    
+    @Override
+    public void write(List<String> records) throws CicsConditionException
+    {
+        TSQ tsq = new TSQ();
+        tsq.setName(TSQ_NAME);
+        for (String record : records) {
+            tsq.writeString(record);
+        }
+    }
+}
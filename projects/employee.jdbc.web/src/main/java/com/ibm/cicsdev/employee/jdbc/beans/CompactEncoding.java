@@ -0,0 +1,155 @@
+/* Licensed Materials - Property of IBM                                   */
+/*                                                                        */
+/* SAMPLE                                                                 */
+/*                                                                        */
+/* (c) Copyright IBM Corp. 2018 All Rights Reserved                       */
+/*                                                                        */
+/* US Government Users Restricted Rights - Use, duplication or disclosure */
+/* restricted by GSA ADP Schedule Contract with IBM Corp                  */
+/*                                                                        */
+package com.ibm.cicsdev.employee.jdbc.beans;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.TimeZone;
+
+
+/**
+ * Compact binary encodings of the column types of the EMP table, used by
+ * {@link Employee} in place of default serialization.
+ *
+ * Strings of ASCII characters are written one byte per character, without a
+ * length if they fill a CHAR column. Dates are written as a count of days, as
+ * they come from DATE columns, and decimals as a scale and an unscaled long of
+ * variable length. Values that do not fit these forms are written in full.
+ */
+final class CompactEncoding
+{
+    private static final long DAY_MILLIS = 86_400_000L;
+
+    /**
+     * Length byte marking a string written with {@link DataOutput#writeUTF(String)}.
+     */
+    private static final int UTF = 0xFF;
+
+    /**
+     * Scale byte marking a decimal written as a string.
+     */
+    private static final int DECIMAL_STRING = Byte.MIN_VALUE;
+
+    private CompactEncoding() {
+    }
+
+    /**
+     * @return true if the value can be written with {@link #writeFixed(DataOutput, String)}
+     * and read back with {@link #readFixed(DataInput, int)} for a CHAR column of the width
+     */
+    static boolean isFixed(String value, int width) {
+        return value != null && value.length() == width && isAscii(value);
+    }
+
+    static void writeFixed(DataOutput out, String value) throws IOException {
+        out.writeBytes(value);
+    }
+
+    static String readFixed(DataInput in, int width) throws IOException {
+        byte[] bytes = new byte[width];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.US_ASCII);
+    }
+
+    static void writeString(DataOutput out, String value) throws IOException {
+        if ( value.length() < UTF && isAscii(value) ) {
+            out.writeByte(value.length());
+            out.writeBytes(value);
+        }
+        else {
+            out.writeByte(UTF);
+            out.writeUTF(value);
+        }
+    }
+
+    static String readString(DataInput in) throws IOException {
+        int length = in.readUnsignedByte();
+        return length == UTF ? in.readUTF() : readFixed(in, length);
+    }
+
+    /**
+     * Writes the day of a date in the default time zone, which is how DATE columns are read by JDBC.
+     */
+    static void writeDate(DataOutput out, java.util.Date value) throws IOException {
+        long millis = value.getTime();
+        long local = millis + TimeZone.getDefault().getOffset(millis);
+        long day = local / DAY_MILLIS;
+        if ( local % DAY_MILLIS < 0 ) {
+            day--;
+        }
+        out.writeInt((int) day);
+    }
+
+    /**
+     * Reads a day as the start of the day in the default time zone, built the same way
+     * as JDBC builds a DATE column, so that days on which the zone's offset changes at
+     * midnight are also read back unchanged.
+     */
+    static Date readDate(DataInput in) throws IOException {
+        return Date.valueOf(LocalDate.ofEpochDay(in.readInt()));
+    }
+
+    static void writeDecimal(DataOutput out, BigDecimal value) throws IOException {
+        BigInteger unscaled = value.unscaledValue();
+        if ( value.scale() >= 0 && value.scale() <= Byte.MAX_VALUE && unscaled.bitLength() < Long.SIZE ) {
+            out.writeByte(value.scale());
+            writeVarLong(out, unscaled.longValue());
+        }
+        else {
+            out.writeByte(DECIMAL_STRING);
+            out.writeUTF(value.toString());
+        }
+    }
+
+    static BigDecimal readDecimal(DataInput in) throws IOException {
+        int scale = in.readByte();
+        return scale == DECIMAL_STRING ? new BigDecimal(in.readUTF()) : BigDecimal.valueOf(readVarLong(in), scale);
+    }
+
+    /**
+     * Writes a long in seven bit groups, least significant first, after moving the sign
+     * to the lowest bit so that small negative values are also short.
+     */
+    static void writeVarLong(DataOutput out, long value) throws IOException {
+        long bits = (value << 1) ^ (value >> 63);
+        while ( (bits & ~0x7FL) != 0 ) {
+            out.writeByte((int) (bits & 0x7F) | 0x80);
+            bits >>>= 7;
+        }
+        out.writeByte((int) bits);
+    }
+
+    static long readVarLong(DataInput in) throws IOException {
+        long bits = 0;
+        int shift = 0;
+        int b;
+        do {
+            b = in.readUnsignedByte();
+            bits |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ( (b & 0x80) != 0 );
+        return (bits >>> 1) ^ -(bits & 1);
+    }
+
+    private static boolean isAscii(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if ( value.charAt(i) >= 0x80 ) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,425 @@
+/* Licensed Materials - Property of IBM                                   */
+/*                                                                        */
+/* SAMPLE                                                                 */
+/*                                                                        */
+/* (c) Copyright IBM Corp. 2018 All Rights Reserved                       */
+/*                                                                        */
+/* US Government Users Restricted Rights - Use, duplication or disclosure */
+/* restricted by GSA ADP Schedule Contract with IBM Corp                  */
+/*                                                                        */
+package com.ibm.cicsdev.employee.jdbc.beans;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.Set;
+
+
+/**
+ * A bean class used to store all of the data fields associated with the
+ * sample Db2 EMP table.
+ * 
+ * The fields will be populated by reading on-screen values, or from the
+ * database, before being used as the basis of displays or SQL commands.
+ * 
+ * The bean records which columns have been changed since it was read from the
+ * database, so that an update only needs to write those columns, and the row
+ * change token read with it, so that an update or delete can detect that
+ * another user has changed the row in the meantime.
+ * 
+ * The bean is held in sessions, so it is written in a compact, versioned binary
+ * form when a session is persisted or replicated, rather than with default
+ * serialization. See {@link #writeExternal(ObjectOutput)}.
+ *
+ * @author Michael Jones
+ * 
+ */
+public class Employee implements Externalizable
+{
+    private static final long serialVersionUID = -5094938829089545370L;
+    
+    /**
+     * Version of the form written by {@link #writeExternal(ObjectOutput)}.
+     */
+    private static final int VERSION = 1;
+    
+    /*
+     * Width of the CHAR columns, which are written without a length when full.
+     */
+    
+    private static final int EMPNO_WIDTH = 6;
+    private static final int JOB_WIDTH = 8;
+    private static final int MIDINIT_WIDTH = 1;
+    private static final int PHONENO_WIDTH = 4;
+    private static final int SEX_WIDTH = 1;
+    
+    private String empNo;
+
+    private Date birthDate;
+
+    private BigDecimal bonus;
+
+    private BigDecimal comm;
+
+    private short edLevel;
+
+    private String firstName;
+
+    private Date hireDate;
+
+    private String job;
+
+    private String lastName;
+
+    private String midInit;
+
+    private String phoneNo;
+
+    private BigDecimal salary;
+
+    private String gender;
+
+    private long rowChangeToken;
+    
+    private EnumSet<EmployeeColumn> dirty = EnumSet.noneOf(EmployeeColumn.class);
+    
+    public Employee() {
+    }
+    
+    /**
+     * Copy constructor, used where a shared instance must not be modified
+     * by the caller.
+     * 
+     * @param other - the employee to copy
+     */
+    public Employee(Employee other) {
+        this.empNo = other.empNo;
+        this.birthDate = other.birthDate == null ? null : (Date) other.birthDate.clone();
+        this.bonus = other.bonus;
+        this.comm = other.comm;
+        this.edLevel = other.edLevel;
+        this.firstName = other.firstName;
+        this.hireDate = other.hireDate == null ? null : (Date) other.hireDate.clone();
+        this.job = other.job;
+        this.lastName = other.lastName;
+        this.midInit = other.midInit;
+        this.phoneNo = other.phoneNo;
+        this.salary = other.salary;
+        this.gender = other.gender;
+        this.rowChangeToken = other.rowChangeToken;
+        this.dirty = EnumSet.copyOf(other.dirty);
+    }
+    
+    /**
+     * Writes the bean in a compact binary form.
+     * 
+     * After a version byte come a bit for each field that is null, a bit for each CHAR
+     * field that fills its column, the changed columns as a bit set, the numeric fields,
+     * then each field that is not null. Strings are written one byte per character
+     * where possible, dates as a day number and money as a scaled long; see
+     * {@link CompactEncoding}.
+     * 
+     * @param out - the stream to write to
+     * 
+     * @throws IOException if the stream cannot be written
+     */
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        
+        int nulls = 0;
+        Object[] values = nullableValues();
+        for (int i = 0; i < values.length; i++) {
+            if ( values[i] == null ) {
+                nulls |= 1 << i;
+            }
+        }
+        
+        int fixed = 0;
+        fixed |= CompactEncoding.isFixed(this.empNo, EMPNO_WIDTH) ? 1 : 0;
+        fixed |= CompactEncoding.isFixed(this.job, JOB_WIDTH) ? 1 << 1 : 0;
+        fixed |= CompactEncoding.isFixed(this.midInit, MIDINIT_WIDTH) ? 1 << 2 : 0;
+        fixed |= CompactEncoding.isFixed(this.phoneNo, PHONENO_WIDTH) ? 1 << 3 : 0;
+        fixed |= CompactEncoding.isFixed(this.gender, SEX_WIDTH) ? 1 << 4 : 0;
+        
+        int changed = 0;
+        for (EmployeeColumn column : this.dirty) {
+            changed |= 1 << column.ordinal();
+        }
+        
+        out.writeByte(VERSION);
+        out.writeShort(nulls);
+        out.writeByte(fixed);
+        out.writeShort(changed);
+        out.writeShort(this.edLevel);
+        out.writeLong(this.rowChangeToken);
+        
+        writeChar(out, this.empNo, (fixed & 1) != 0);
+        if ( this.birthDate != null ) {
+            CompactEncoding.writeDate(out, this.birthDate);
+        }
+        if ( this.bonus != null ) {
+            CompactEncoding.writeDecimal(out, this.bonus);
+        }
+        if ( this.comm != null ) {
+            CompactEncoding.writeDecimal(out, this.comm);
+        }
+        if ( this.firstName != null ) {
+            CompactEncoding.writeString(out, this.firstName);
+        }
+        if ( this.hireDate != null ) {
+            CompactEncoding.writeDate(out, this.hireDate);
+        }
+        writeChar(out, this.job, (fixed & 1 << 1) != 0);
+        if ( this.lastName != null ) {
+            CompactEncoding.writeString(out, this.lastName);
+        }
+        writeChar(out, this.midInit, (fixed & 1 << 2) != 0);
+        writeChar(out, this.phoneNo, (fixed & 1 << 3) != 0);
+        if ( this.salary != null ) {
+            CompactEncoding.writeDecimal(out, this.salary);
+        }
+        writeChar(out, this.gender, (fixed & 1 << 4) != 0);
+    }
+    
+    /**
+     * Reads the form written by {@link #writeExternal(ObjectOutput)}.
+     * 
+     * @param in - the stream to read from
+     * 
+     * @throws IOException if the stream cannot be read, or was written by an unknown version
+     */
+    @Override
+    public void readExternal(ObjectInput in) throws IOException {
+        
+        int version = in.readUnsignedByte();
+        if ( version != VERSION ) {
+            throw new InvalidObjectException("Unsupported Employee version " + version);
+        }
+        
+        int nulls = in.readUnsignedShort();
+        int fixed = in.readUnsignedByte();
+        int changed = in.readUnsignedShort();
+        this.edLevel = in.readShort();
+        this.rowChangeToken = in.readLong();
+        
+        this.dirty = EnumSet.noneOf(EmployeeColumn.class);
+        for (EmployeeColumn column : EmployeeColumn.values()) {
+            if ( (changed & 1 << column.ordinal()) != 0 ) {
+                this.dirty.add(column);
+            }
+        }
+        
+        // Fields in the order of nullableValues()
+        this.empNo = (nulls & 1) != 0 ? null : readChar(in, EMPNO_WIDTH, (fixed & 1) != 0);
+        this.birthDate = (nulls & 1 << 1) != 0 ? null : CompactEncoding.readDate(in);
+        this.bonus = (nulls & 1 << 2) != 0 ? null : CompactEncoding.readDecimal(in);
+        this.comm = (nulls & 1 << 3) != 0 ? null : CompactEncoding.readDecimal(in);
+        this.firstName = (nulls & 1 << 4) != 0 ? null : CompactEncoding.readString(in);
+        this.hireDate = (nulls & 1 << 5) != 0 ? null : CompactEncoding.readDate(in);
+        this.job = (nulls & 1 << 6) != 0 ? null : readChar(in, JOB_WIDTH, (fixed & 1 << 1) != 0);
+        this.lastName = (nulls & 1 << 7) != 0 ? null : CompactEncoding.readString(in);
+        this.midInit = (nulls & 1 << 8) != 0 ? null : readChar(in, MIDINIT_WIDTH, (fixed & 1 << 2) != 0);
+        this.phoneNo = (nulls & 1 << 9) != 0 ? null : readChar(in, PHONENO_WIDTH, (fixed & 1 << 3) != 0);
+        this.salary = (nulls & 1 << 10) != 0 ? null : CompactEncoding.readDecimal(in);
+        this.gender = (nulls & 1 << 11) != 0 ? null : readChar(in, SEX_WIDTH, (fixed & 1 << 4) != 0);
+    }
+    
+    /**
+     * @return the fields that may be null, in the order they are written
+     */
+    private Object[] nullableValues() {
+        return new Object[] {
+            this.empNo, this.birthDate, this.bonus, this.comm, this.firstName, this.hireDate,
+            this.job, this.lastName, this.midInit, this.phoneNo, this.salary, this.gender
+        };
+    }
+    
+    private static void writeChar(ObjectOutput out, String value, boolean fixed) throws IOException {
+        if ( fixed ) {
+            CompactEncoding.writeFixed(out, value);
+        }
+        else if ( value != null ) {
+            CompactEncoding.writeString(out, value);
+        }
+    }
+    
+    private static String readChar(ObjectInput in, int width, boolean fixed) throws IOException {
+        return fixed ? CompactEncoding.readFixed(in, width) : CompactEncoding.readString(in);
+    }
+    
+    /**
+     * @return the columns changed since the bean was read from the database
+     */
+    public Set<EmployeeColumn> getDirtyColumns() {
+        return EnumSet.copyOf(this.dirty);
+    }
+    
+    /**
+     * @return true if any column has changed since the bean was read from the database
+     */
+    public boolean isDirty() {
+        return ! this.dirty.isEmpty();
+    }
+    
+    /**
+     * Marks the bean as matching the database, after it has been read or saved.
+     */
+    public void clearDirty() {
+        this.dirty.clear();
+    }
+    
+    /**
+     * Records a column as changed if the new value differs from the old one.
+     * 
+     * JSF sets every input field when a form is submitted, so setters are
+     * called with unchanged values as well as edited ones.
+     */
+    private void track(EmployeeColumn column, Object oldValue, Object newValue) {
+        boolean same;
+        if ( oldValue instanceof BigDecimal && newValue instanceof BigDecimal ) {
+            // Ignore differences in scale, so 1000 and 1000.00 are the same salary
+            same = ((BigDecimal) oldValue).compareTo((BigDecimal) newValue) == 0;
+        }
+        else if ( oldValue instanceof Date && newValue instanceof Date ) {
+            same = ((Date) oldValue).getTime() == ((Date) newValue).getTime();
+        }
+        else {
+            same = oldValue == null ? newValue == null : oldValue.equals(newValue);
+        }
+        if ( ! same ) {
+            this.dirty.add(column);
+        }
+    }
+    
+    public String getEmpNo() {
+        return this.empNo;
+    }
+
+    public void setEmpNo(String empNo) {
+        this.empNo = empNo;
+    }
+
+    public Date getBirthDate() {
+        return this.birthDate;
+    }
+
+    public void setBirthDate(Date birthDate) {
+        track(EmployeeColumn.BIRTHDATE, this.birthDate, birthDate);
+        this.birthDate = birthDate;
+    }
+
+    public BigDecimal getBonus() {
+        return this.bonus;
+    }
+
+    public void setBonus(BigDecimal bonus) {
+        track(EmployeeColumn.BONUS, this.bonus, bonus);
+        this.bonus = bonus;
+    }
+
+    public BigDecimal getComm() {
+        return this.comm;
+    }
+
+    public void setComm(BigDecimal comm) {
+        track(EmployeeColumn.COMM, this.comm, comm);
+        this.comm = comm;
+    }
+
+    public short getEdLevel() {
+        return this.edLevel;
+    }
+
+    public void setEdLevel(short edLevel) {
+        track(EmployeeColumn.EDLEVEL, this.edLevel, edLevel);
+        this.edLevel = edLevel;
+    }
+
+    public String getFirstName() {
+        return this.firstName;
+    }
+
+    public void setFirstName(String firstName) {
+        track(EmployeeColumn.FIRSTNME, this.firstName, firstName);
+        this.firstName = firstName;
+    }
+
+    public Date getHireDate() {
+        return this.hireDate;
+    }
+
+    public void setHireDate(Date hireDate) {
+        track(EmployeeColumn.HIREDATE, this.hireDate, hireDate);
+        this.hireDate = hireDate;
+    }
+
+    public String getJob() {
+        return this.job;
+    }
+
+    public void setJob(String job) {
+        track(EmployeeColumn.JOB, this.job, job);
+        this.job = job;
+    }
+
+    public String getLastName() {
+        return this.lastName;
+    }
+
+    public void setLastName(String lastName) {
+        track(EmployeeColumn.LASTNAME, this.lastName, lastName);
+        this.lastName = lastName;
+    }
+
+    public String getMidInit() {
+        return this.midInit;
+    }
+
+    public void setMidInit(String midInit) {
+        track(EmployeeColumn.MIDINIT, this.midInit, midInit);
+        this.midInit = midInit;
+    }
+
+    public String getPhoneNo() {
+        return this.phoneNo;
+    }
+
+    public void setPhoneNo(String phoneNo) {
+        track(EmployeeColumn.PHONENO, this.phoneNo, phoneNo);
+        this.phoneNo = phoneNo;
+    }
+
+    public BigDecimal getSalary() {
+        return this.salary;
+    }
+
+    public void setSalary(BigDecimal salary) {
+        track(EmployeeColumn.SALARY, this.salary, salary);
+        this.salary = salary;
+    }
+
+    public String getGender() {
+        return this.gender;
+    }
+
+    public void setGender(String gender) {
+        track(EmployeeColumn.SEX, this.gender, gender);
+        this.gender = gender;
+    }
+
+    /**
+     * @return the Db2 row change token read with the row, or 0 if the row was not read from the database
+     */
+    public long getRowChangeToken() {
+        return this.rowChangeToken;
+    }
+
+    public void setRowChangeToken(long rowChangeToken) {
+        this.rowChangeToken = rowChangeToken;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,23 @@
+/* Licensed Materials - Property of IBM                                   */
+/*                                                                        */
+/* SAMPLE                                                                 */
+/*                                                                        */
+/* (c) Copyright IBM Corp. 2018 All Rights Reserved                       */
+/*                                                                        */
+/* US Government Users Restricted Rights - Use, duplication or disclosure */
+/* restricted by GSA ADP Schedule Contract with IBM Corp                  */
+/*                                                                        */
+package com.ibm.cicsdev.employee.jdbc.beans;
+
+
+/**
+ * The updatable columns of the Db2 EMP table held in an {@link Employee}.
+ * 
+ * The employee number is not included, as it is the key used to find the row
+ * being updated, and the department is not included, as it is not set by the
+ * application.
+ */
+public enum EmployeeColumn
+{
+    BIRTHDATE, BONUS, COMM, EDLEVEL, FIRSTNME, HIREDATE, JOB, LASTNAME, MIDINIT, PHONENO, SALARY, SEX;
+}
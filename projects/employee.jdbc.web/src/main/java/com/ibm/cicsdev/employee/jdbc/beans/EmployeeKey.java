@@ -0,0 +1,54 @@
+/* Licensed Materials - Property of IBM                                   */
+/*                                                                        */
+/* SAMPLE                                                                 */
+/*                                                                        */
+/* (c) Copyright IBM Corp. 2018 All Rights Reserved                       */
+/*                                                                        */
+/* US Government Users Restricted Rights - Use, duplication or disclosure */
+/* restricted by GSA ADP Schedule Contract with IBM Corp                  */
+/*                                                                        */
+package com.ibm.cicsdev.employee.jdbc.beans;
+
+import java.io.Serializable;
+
+
+/**
+ * An immutable position in the sort order used by the employee search,
+ * which is <code>ORDER BY LASTNAME, EMPNO</code>.
+ *
+ * A key is used as a seek cursor when reading a page of results: the next
+ * page starts immediately after the key of the last row displayed, and the
+ * previous page ends immediately before the key of the first row displayed.
+ */
+public class EmployeeKey implements Serializable
+{
+    private static final long serialVersionUID = 2710467043513520411L;
+
+    private final String lastName;
+
+    private final String empNo;
+
+    public EmployeeKey(String lastName, String empNo) {
+        this.lastName = lastName;
+        this.empNo = empNo;
+    }
+
+    /**
+     * Builds the key identifying the position of an employee in the search order.
+     *
+     * @param employee - the employee row
+     *
+     * @return the key for the row
+     */
+    public static EmployeeKey of(EmployeeSummary employee) {
+        return new EmployeeKey(employee.getLastName(), employee.getEmpNo());
+    }
+
+    public String getLastName() {
+        return this.lastName;
+    }
+
+    public String getEmpNo() {
+        return this.empNo;
+    }
+}
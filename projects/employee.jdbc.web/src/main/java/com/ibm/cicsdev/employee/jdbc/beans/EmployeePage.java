@@ -0,0 +1,77 @@
+/* Licensed Materials - Property of IBM                                   */
+/*                                                                        */
+/* SAMPLE                                                                 */
+/*                                                                        */
+/* (c) Copyright IBM Corp. 2018 All Rights Reserved                       */
+/*                                                                        */
+/* US Government Users Restricted Rights - Use, duplication or disclosure */
+/* restricted by GSA ADP Schedule Contract with IBM Corp                  */
+/*                                                                        */
+package com.ibm.cicsdev.employee.jdbc.beans;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.List;
+
+
+/**
+ * A single page of employee search results.
+ *
+ * The page and the summaries it holds cannot be modified, so a page can be
+ * shared between users.
+ *
+ * As well as the rows to display, the page records whether further rows
+ * exist on either side of it, so the view can decide which navigation
+ * buttons to offer without counting the full result set.
+ */
+public class EmployeePage implements Serializable
+{
+    private static final long serialVersionUID = -3412958320941166215L;
+
+    /**
+     * An empty page, used before any search has been run.
+     */
+    public static final EmployeePage EMPTY = new EmployeePage(Collections.<EmployeeSummary>emptyList(), false, false);
+
+    private final List<EmployeeSummary> employees;
+
+    private final boolean hasPrevious;
+
+    private final boolean hasNext;
+
+    public EmployeePage(List<EmployeeSummary> employees, boolean hasPrevious, boolean hasNext) {
+        this.employees = Collections.unmodifiableList(employees);
+        this.hasPrevious = hasPrevious;
+        this.hasNext = hasNext;
+    }
+
+    public List<EmployeeSummary> getEmployees() {
+        return this.employees;
+    }
+
+    public boolean isEmpty() {
+        return this.employees.isEmpty();
+    }
+
+    public boolean isHasPrevious() {
+        return this.hasPrevious;
+    }
+
+    public boolean isHasNext() {
+        return this.hasNext;
+    }
+
+    /**
+     * @return the seek key of the first row on the page, or null if the page is empty
+     */
+    public EmployeeKey getFirstKey() {
+        return this.employees.isEmpty() ? null : EmployeeKey.of(this.employees.get(0));
+    }
+
+    /**
+     * @return the seek key of the last row on the page, or null if the page is empty
+     */
+    public EmployeeKey getLastKey() {
+        return this.employees.isEmpty() ? null : EmployeeKey.of(this.employees.get(this.employees.size() - 1));
+    }
+}
@@ -0,0 +1,71 @@
+/* Licensed Materials - Property of IBM                                   */
+/*                                                                        */
+/* SAMPLE                                                                 */
+/*                                                                        */
+/* (c) Copyright IBM Corp. 2018 All Rights Reserved                       */
+/*                                                                        */
+/* US Government Users Restricted Rights - Use, duplication or disclosure */
+/* restricted by GSA ADP Schedule Contract with IBM Corp                  */
+/*                                                                        */
+package com.ibm.cicsdev.employee.jdbc.beans;
+
+import java.io.Serializable;
+
+
+/**
+ * An immutable, read-only view of the columns of the Db2 EMP table shown in
+ * the list of search results.
+ * 
+ * The full {@link Employee} is only read when a row is edited or deleted, so
+ * the list does not need to transfer or hold the dates and decimal amounts
+ * it never displays.
+ */
+public class EmployeeSummary implements Serializable
+{
+    private static final long serialVersionUID = 6618254075103945207L;
+
+    private final String empNo;
+
+    private final String firstName;
+
+    private final String lastName;
+
+    private final String gender;
+
+    private final String phoneNo;
+
+    private final String job;
+
+    public EmployeeSummary(String empNo, String firstName, String lastName, String gender, String phoneNo, String job) {
+        this.empNo = empNo;
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.gender = gender;
+        this.phoneNo = phoneNo;
+        this.job = job;
+    }
+
+    public String getEmpNo() {
+        return this.empNo;
+    }
+
+    public String getFirstName() {
+        return this.firstName;
+    }
+
+    public String getLastName() {
+        return this.lastName;
+    }
+
+    public String getGender() {
+        return this.gender;
+    }
+
+    public String getPhoneNo() {
+        return this.phoneNo;
+    }
+
+    public String getJob() {
+        return this.job;
+    }
+}
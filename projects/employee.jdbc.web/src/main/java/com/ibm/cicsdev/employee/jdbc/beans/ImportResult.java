@@ -0,0 +1,90 @@
+/* Licensed Materials - Property of IBM                                   */
+/*                                                                        */
+/* SAMPLE                                                                 */
+/*                                                                        */
+/* (c) Copyright IBM Corp. 2018 All Rights Reserved                       */
+/*                                                                        */
+/* US Government Users Restricted Rights - Use, duplication or disclosure */
+/* restricted by GSA ADP Schedule Contract with IBM Corp                  */
+/*                                                                        */
+package com.ibm.cicsdev.employee.jdbc.beans;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+
+/**
+ * The outcome of adding a number of employees in one request.
+ *
+ * Rows that could not be added are reported individually, so that a single
+ * bad row does not prevent the remainder of an import from being added.
+ */
+public class ImportResult implements Serializable
+{
+    private static final long serialVersionUID = 8329170658127043392L;
+
+    private int added;
+
+    private final List<Failure> failures = new ArrayList<>();
+
+    /**
+     * Records that a row was added to the database.
+     */
+    public void added() {
+        this.added++;
+    }
+
+    /**
+     * Records that a row could not be added.
+     *
+     * @param row - the position of the row in the input, starting at 1
+     * @param empNo - the employee number of the row, if known
+     * @param reason - description of the problem
+     */
+    public void failed(int row, String empNo, String reason) {
+        this.failures.add(new Failure(row, empNo, reason));
+    }
+
+    public int getAdded() {
+        return this.added;
+    }
+
+    public List<Failure> getFailures() {
+        return Collections.unmodifiableList(this.failures);
+    }
+
+
+    /**
+     * A single row that could not be added.
+     */
+    public static class Failure implements Serializable
+    {
+        private static final long serialVersionUID = -1946201783380146213L;
+
+        private final int row;
+
+        private final String empNo;
+
+        private final String reason;
+
+        public Failure(int row, String empNo, String reason) {
+            this.row = row;
+            this.empNo = empNo;
+            this.reason = reason;
+        }
+
+        public int getRow() {
+            return this.row;
+        }
+
+        public String getEmpNo() {
+            return this.empNo;
+        }
+
+        public String getReason() {
+            return this.reason;
+        }
+    }
+}
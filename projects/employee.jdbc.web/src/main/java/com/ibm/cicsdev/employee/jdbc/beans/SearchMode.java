@@ -0,0 +1,50 @@
+/* Licensed Materials - Property of IBM                                   */
+/*                                                                        */
+/* SAMPLE                                                                 */
+/*                                                                        */
+/* (c) Copyright IBM Corp. 2018 All Rights Reserved                       */
+/*                                                                        */
+/* US Government Users Restricted Rights - Use, duplication or disclosure */
+/* restricted by GSA ADP Schedule Contract with IBM Corp                  */
+/*                                                                        */
+package com.ibm.cicsdev.employee.jdbc.beans;
+
+
+/**
+ * The ways a last name search string can be matched against the EMP table.
+ */
+public enum SearchMode
+{
+    /**
+     * The last name is exactly the search string.
+     */
+    EXACT("Exact"),
+    
+    /**
+     * The last name starts with the search string.
+     */
+    PREFIX("Starts with"),
+    
+    /**
+     * The last name contains the search string anywhere.
+     */
+    CONTAINS("Contains"),
+    
+    /**
+     * The last name sounds like the search string, using the Db2 SOUNDEX function.
+     */
+    PHONETIC("Sounds like");
+    
+    private final String label;
+    
+    private SearchMode(String label) {
+        this.label = label;
+    }
+    
+    /**
+     * @return the description of the mode shown on the search page
+     */
+    public String getLabel() {
+        return this.label;
+    }
+}
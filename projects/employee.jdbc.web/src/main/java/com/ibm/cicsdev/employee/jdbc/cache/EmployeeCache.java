@@ -0,0 +1,473 @@
+/* Licensed Materials - Property of IBM                                   */
+/*                                                                        */
+/* SAMPLE                                                                 */
+/*                                                                        */
+/* (c) Copyright IBM Corp. 2018 All Rights Reserved                       */
+/*                                                                        */
+/* US Government Users Restricted Rights - Use, duplication or disclosure */
+/* restricted by GSA ADP Schedule Contract with IBM Corp                  */
+/*                                                                        */
+package com.ibm.cicsdev.employee.jdbc.cache;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.ibm.cicsdev.employee.jdbc.beans.Employee;
+import com.ibm.cicsdev.employee.jdbc.beans.EmployeePage;
+import com.ibm.cicsdev.employee.jdbc.beans.EmployeeSummary;
+import com.ibm.cicsdev.employee.jdbc.metrics.StripedCounter;
+
+/**
+ * A bounded, read-through cache of employee data held in front of the database.
+ *
+ * Two kinds of entry are held: single employees keyed by employee number, and
+ * pages of search results keyed by the search and the page position. Each kind is limited to a maximum number of entries, with the
+ * least recently used entries evicted first, and every entry expires after a
+ * fixed time to live.
+ *
+ * Entries are only ever changed by the application, so the cache relies on
+ * {@link #invalidate(String, String)} being called after each committed
+ * mutation. Cached employees are copied on the way in and on the way out, as
+ * the JSF pages update the {@link Employee} instances they edit. Pages of
+ * search results cannot be modified, so they are shared.
+ *
+ * The entries are held in concurrent maps, so that reads do not wait for each
+ * other or for a change being invalidated. Each read records when the entry was
+ * used, and once a map is full the least recently used eighth of its entries
+ * are evicted together by one thread, so the order is kept only approximately
+ * and a map may briefly hold a few more entries than its limit.
+ *
+ * A generation number guards against a search that started before a commit
+ * storing results read before that commit: values may only be stored with the
+ * generation obtained before the database was read. The generation is checked
+ * again after a value is stored, and the value removed if an invalidation has
+ * started in the meantime.
+ *
+ * Searches may read a replica that lags behind the database, so the cache also
+ * records when it was last invalidated. A caller reading a replica can then
+ * decline to store results that may predate a recent change.
+ */
+public class EmployeeCache
+{
+    /**
+     * Maximum number of entries of each kind.
+     */
+    private final int maxEntries;
+
+    /**
+     * Time to live for each entry, in milliseconds.
+     */
+    private final long ttlMillis;
+
+    /**
+     * Employees keyed by employee number.
+     */
+    private final BoundedMap<Employee> employees;
+
+    /**
+     * Pages of search results keyed by search string and position.
+     */
+    private final BoundedMap<EmployeePage> searches;
+
+    /**
+     * Incremented by every invalidation, before any entry is removed.
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    /**
+     * When the cache was last invalidated, in milliseconds.
+     */
+    private volatile long invalidated;
+
+    /**
+     * When the cache was created, so versions are not repeated after a restart.
+     */
+    private final long created = System.currentTimeMillis();
+
+    /*
+     * Statistics.
+     */
+
+    private final StripedCounter hits = new StripedCounter();
+
+    private final StripedCounter misses = new StripedCounter();
+
+    private final StripedCounter evictions = new StripedCounter();
+
+
+    /**
+     * Creates an empty cache.
+     *
+     * @param maxEntries - the maximum number of employees, and separately of search pages, to hold
+     * @param ttlSeconds - how long an entry may be used for after it has been read from the database
+     */
+    public EmployeeCache(int maxEntries, int ttlSeconds) {
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlSeconds * 1000L;
+        this.employees = new BoundedMap<>();
+        this.searches = new BoundedMap<>();
+    }
+
+
+    /*
+     * Read operations.
+     */
+
+    /**
+     * Returns the generation to be supplied when storing the results of a read
+     * that is about to be made. This must be called before the database is read.
+     *
+     * @return the current generation
+     */
+    public long getGeneration() {
+        return this.generation.get();
+    }
+
+    /**
+     * Returns a version for the data in the database, used to tag results sent to a client.
+     *
+     * The version changes after every invalidation and, as the database may also be
+     * changed outside the application, at least once every time to live. A client
+     * holding results with the current version can continue to use them for as
+     * long as a cached entry could have been used.
+     *
+     * @return the current version
+     */
+    public String getVersion() {
+        long period = System.currentTimeMillis() / Math.max(1, this.ttlMillis);
+        return Long.toString(this.created, 36) + '.' + this.generation.get() + '.' + period;
+    }
+
+    /**
+     * Tests whether the cache has been invalidated recently, so that data read
+     * from a replica may not include the change.
+     *
+     * @param millis - the longest a replica is expected to lag behind the database
+     *
+     * @return true if the cache was invalidated within the period
+     */
+    public boolean isChangedWithin(long millis) {
+        return System.currentTimeMillis() - this.invalidated < millis;
+    }
+
+    /**
+     * Finds a cached employee.
+     *
+     * @param empNo - the employee number
+     *
+     * @return a copy of the cached employee, or null if not cached
+     */
+    public Employee getEmployee(String empNo) {
+        Employee employee = this.employees.value(empNo);
+        return employee == null ? null : new Employee(employee);
+    }
+
+    /**
+     * Finds a cached page of search results.
+     *
+     * @param key - the key built by {@link #searchKey(String, String, boolean, int)}
+     *
+     * @return the cached page, or null if not cached
+     */
+    public EmployeePage getPage(String key) {
+        return this.searches.value(key);
+    }
+
+
+    /*
+     * Update operations.
+     */
+
+    /**
+     * Stores an employee read from the database.
+     *
+     * @param generation - the generation obtained before the database was read
+     * @param employee - the employee read
+     */
+    public void putEmployee(long generation, Employee employee) {
+        if ( generation == this.generation.get() ) {
+            Employee copy = new Employee(employee);
+            this.employees.put(generation, copy.getEmpNo(), new CacheEntry<>(copy, null, expiry()));
+        }
+    }
+
+    /**
+     * Stores a page of search results read from the database.
+     *
+     * @param generation - the generation obtained before the database was read
+     * @param key - the key built by {@link #searchKey(String, String, boolean, int)}
+     * @param search - decides which changed employees affect the page
+     * @param page - the page read
+     */
+    public void putPage(long generation, String key, LastNameMatcher search, EmployeePage page) {
+        if ( generation == this.generation.get() ) {
+            this.searches.put(generation, key, new CacheEntry<>(page, search, expiry()));
+        }
+    }
+
+    /**
+     * Removes every entry that may be affected by a committed change to an employee.
+     *
+     * That is the employee itself, any page that contains the employee, and any
+     * search that matches the employee's last name, as the employee may now
+     * belong in those results, or have left them.
+     *
+     * @param empNo - the employee number changed
+     * @param lastName - the last name of the employee, after the change if it was updated,
+     *                   or null if the change cannot affect which searches match the employee
+     */
+    public void invalidate(String empNo, String lastName) {
+        invalidate(Collections.singleton(empNo),
+                lastName == null ? Collections.<String>emptySet() : Collections.singleton(lastName));
+    }
+
+    /**
+     * Removes every entry that may be affected by changes committed together to a
+     * number of employees, as {@link #invalidate(String, String)} does for one, in a
+     * single pass over the cached pages.
+     *
+     * @param empNos - the employee numbers changed
+     * @param lastNames - the last names of the employees, after the change if they were
+     *                    updated, omitting any that cannot affect which searches match them
+     */
+    public void invalidate(Collection<String> empNos, Collection<String> lastNames) {
+
+        // Any read in progress may have seen the old data
+        this.generation.incrementAndGet();
+        this.invalidated = System.currentTimeMillis();
+
+        for (String empNo : empNos) {
+            this.employees.map.remove(empNo);
+        }
+
+        Set<String> changed = new HashSet<>(empNos);
+        Set<String> names = new HashSet<>(lastNames);
+        Iterator<CacheEntry<EmployeePage>> it = this.searches.map.values().iterator();
+        while ( it.hasNext() ) {
+            CacheEntry<EmployeePage> entry = it.next();
+            if ( matchesAny(entry.search, names) || containsAny(entry.value, changed) ) {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Removes all entries.
+     */
+    public void clear() {
+        this.generation.incrementAndGet();
+        this.invalidated = System.currentTimeMillis();
+        this.employees.map.clear();
+        this.searches.map.clear();
+    }
+
+
+    /*
+     * Statistics, exposed for monitoring.
+     */
+
+    public long getHits() {
+        return this.hits.sum();
+    }
+
+    public long getMisses() {
+        return this.misses.sum();
+    }
+
+    public long getEvictions() {
+        return this.evictions.sum();
+    }
+
+    public int getSize() {
+        return this.employees.map.size() + this.searches.map.size();
+    }
+
+
+    /*
+     * Utility methods.
+     */
+
+    /**
+     * Builds the key used to cache a page of search results.
+     *
+     * @param search - a string identifying the search
+     * @param seek - the seek position encoded as a string, or null for the first page
+     * @param forward - the direction read from the seek position
+     * @param pageSize - the maximum number of rows in the page
+     *
+     * @return the cache key
+     */
+    public static String searchKey(String search, String seek, boolean forward, int pageSize) {
+        return search + '\u0000' + (seek == null ? "" : seek) + '\u0000' + forward + '\u0000' + pageSize;
+    }
+
+    private long expiry() {
+        return System.currentTimeMillis() + this.ttlMillis;
+    }
+
+    private static boolean matchesAny(LastNameMatcher search, Set<String> lastNames) {
+        for (String lastName : lastNames) {
+            if ( search.matches(lastName) ) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean containsAny(EmployeePage page, Set<String> empNos) {
+        for (EmployeeSummary employee : page.getEmployees()) {
+            if ( empNos.contains(employee.getEmpNo()) ) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+
+    /*
+     * Nested classes.
+     */
+
+    /**
+     * A cached value together with its expiry time and when it was last used.
+     */
+    private static class CacheEntry<V>
+    {
+        final V value;
+
+        final LastNameMatcher search;
+
+        final long expiry;
+
+        /**
+         * When the entry was stored or last read, from {@link System#nanoTime()}.
+         */
+        volatile long used = System.nanoTime();
+
+        CacheEntry(V value, LastNameMatcher search, long expiry) {
+            this.value = value;
+            this.search = search;
+            this.expiry = expiry;
+        }
+    }
+
+    /**
+     * Concurrent map of one kind of entry, evicting the least recently used entries once full.
+     */
+    private class BoundedMap<V>
+    {
+        final ConcurrentHashMap<String, CacheEntry<V>> map = new ConcurrentHashMap<>();
+
+        /**
+         * Held by the thread evicting entries, so that only one thread sorts the entries at a time.
+         */
+        private final ReentrantLock evicting = new ReentrantLock();
+
+        /**
+         * Returns a live entry value, counting the hit or miss and removing an expired entry.
+         */
+        V value(String key) {
+            CacheEntry<V> entry = this.map.get(key);
+            if ( entry != null && entry.expiry < System.currentTimeMillis() ) {
+                if ( this.map.remove(key, entry) ) {
+                    EmployeeCache.this.evictions.increment();
+                }
+                entry = null;
+            }
+            if ( entry == null ) {
+                EmployeeCache.this.misses.increment();
+                return null;
+            }
+            entry.used = System.nanoTime();
+            EmployeeCache.this.hits.increment();
+            return entry.value;
+        }
+
+        /**
+         * Stores an entry read in a generation, unless an invalidation starts before it is stored.
+         */
+        void put(long generation, String key, CacheEntry<V> entry) {
+            if ( EmployeeCache.this.maxEntries <= 0 ) {
+                return;
+            }
+            this.map.put(key, entry);
+
+            // An invalidation may have passed this key before the entry was stored
+            if ( generation != EmployeeCache.this.generation.get() ) {
+                this.map.remove(key, entry);
+                return;
+            }
+            if ( this.map.size() > EmployeeCache.this.maxEntries ) {
+                evict();
+            }
+        }
+
+        /**
+         * Evicts the least recently used entries, leaving room for an eighth of the maximum
+         * to be added before the next eviction. A thread finding another already evicting
+         * leaves it to that thread, which carries on until the map is within its limit.
+         */
+        private void evict() {
+            if ( ! this.evicting.tryLock() ) {
+                return;
+            }
+            try {
+                // Other threads store entries meanwhile, and entries used during a pass are kept
+                int max = EmployeeCache.this.maxEntries;
+                while ( this.map.size() > max ) {
+                    if ( evictOldest(this.map.size() - max + max / 8) == 0 ) {
+                        return;
+                    }
+                }
+            }
+            finally {
+                this.evicting.unlock();
+            }
+        }
+
+        /**
+         * Evicts up to a number of the least recently used entries.
+         *
+         * @return the number of entries evicted
+         */
+        private int evictOldest(int excess) {
+
+            // Find when the last entry to evict was used, from a copy of the times as they are still changing
+            long[] used = new long[this.map.size()];
+            int n = 0;
+            for (CacheEntry<V> entry : this.map.values()) {
+                if ( n == used.length ) {
+                    break;
+                }
+                used[n++] = entry.used;
+            }
+            Arrays.sort(used, 0, n);
+            int count = Math.min(n, excess);
+            if ( count == 0 ) {
+                return 0;
+            }
+            long threshold = used[count - 1];
+
+            // Entries used since the copy was made are kept, and any stored since are not removed
+            int evicted = 0;
+            for (Map.Entry<String, CacheEntry<V>> entry : this.map.entrySet()) {
+                if ( evicted == count ) {
+                    break;
+                }
+                if ( entry.getValue().used <= threshold && this.map.remove(entry.getKey(), entry.getValue()) ) {
+                    EmployeeCache.this.evictions.increment();
+                    evicted++;
+                }
+            }
+            return evicted;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+/* Licensed Materials - Property of IBM                                   */
+/*                                                                        */
+/* SAMPLE                                                                 */
+/*                                                                        */
+/* (c) Copyright IBM Corp. 2018 All Rights Reserved                       */
+/*                                                                        */
+/* US Government Users Restricted Rights - Use, duplication or disclosure */
+/* restricted by GSA ADP Schedule Contract with IBM Corp                  */
+/*                                                                        */
+package com.ibm.cicsdev.employee.jdbc.cache;
+
+/**
+ * Decides whether an employee with a given last name belongs in the results
+ * of a cached search, so the cache can discard those results when such an
+ * employee is added or changed.
+ */
+public interface LastNameMatcher
+{
+    /**
+     * @param lastName - the last name of an employee that has been added or changed
+     * 
+     * @return true if the employee may belong in the results of the search
+     */
+    boolean matches(String lastName);
+}
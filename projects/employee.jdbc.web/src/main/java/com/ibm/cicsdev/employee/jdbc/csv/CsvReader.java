@@ -0,0 +1,181 @@
+/* Licensed Materials - Property of IBM                                   */
+/*                                                                        */
+/* SAMPLE                                                                 */
+/*                                                                        */
+/* (c) Copyright IBM Corp. 2018 All Rights Reserved                       */
+/*                                                                        */
+/* US Government Users Restricted Rights - Use, duplication or disclosure */
+/* restricted by GSA ADP Schedule Contract with IBM Corp                  */
+/*                                                                        */
+package com.ibm.cicsdev.employee.jdbc.csv;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads comma separated values as defined by RFC 4180, the form written by {@link EmployeeCsv}.
+ * 
+ * A field enclosed in quotes may contain commas and line breaks, and a quote written
+ * twice. Records may end with CRLF, LF or CR, and a byte order mark at the start
+ * of the input is skipped. A quote within a field that was not enclosed in quotes is
+ * read as an ordinary character.
+ */
+public class CsvReader implements Closeable
+{
+    private final Reader in;
+    
+    /**
+     * A character read ahead of the current record, or -2 if there is none.
+     */
+    private int pending = -2;
+    
+    /**
+     * The number of line breaks read so far, including those within quoted fields.
+     */
+    private int lines;
+    
+    /**
+     * The line the last record read started on.
+     */
+    private int lineNumber;
+    
+    /**
+     * True if the input ended within a quoted field of the last record read.
+     */
+    private boolean unterminated;
+    
+    /**
+     * @param in - the input, which is best buffered
+     */
+    public CsvReader(Reader in) {
+        this.in = in;
+    }
+    
+    /**
+     * Reads the next record.
+     * 
+     * @return the fields of the record, of which a blank line has one empty field,
+     *         or null at the end of the input
+     * 
+     * @throws IOException if the input cannot be read
+     */
+    public List<String> readRecord() throws IOException
+    {
+        int c = read();
+        if ( c == -1 ) {
+            return null;
+        }
+        if ( c == '\uFEFF' && this.lines == 0 && this.lineNumber == 0 ) {
+            c = read();
+        }
+        
+        this.lineNumber = this.lines + 1;
+        this.unterminated = false;
+        
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        boolean inQuotes = false;
+        
+        for (;; c = read()) {
+            
+            if ( inQuotes ) {
+                if ( c == -1 ) {
+                    this.unterminated = true;
+                    break;
+                }
+                if ( c == '"' ) {
+                    int next = read();
+                    if ( next == '"' ) {
+                        field.append('"');
+                    }
+                    else {
+                        inQuotes = false;
+                        this.pending = next;
+                    }
+                    continue;
+                }
+                if ( c == '\n' || (c == '\r' && ! peek('\n')) ) {
+                    this.lines++;
+                }
+                field.append((char) c);
+                continue;
+            }
+            
+            if ( c == -1 ) {
+                break;
+            }
+            if ( c == '\r' || c == '\n' ) {
+                if ( c == '\r' ) {
+                    skip('\n');
+                }
+                this.lines++;
+                break;
+            }
+            if ( c == ',' ) {
+                fields.add(field.toString());
+                field.setLength(0);
+                quoted = false;
+            }
+            else if ( c == '"' && field.length() == 0 && ! quoted ) {
+                quoted = true;
+                inQuotes = true;
+            }
+            else {
+                field.append((char) c);
+            }
+        }
+        
+        fields.add(field.toString());
+        return fields;
+    }
+    
+    /**
+     * @return the line of the input on which the last record read started, counting from 1
+     */
+    public int getLineNumber() {
+        return this.lineNumber;
+    }
+    
+    /**
+     * @return true if the input ended within a quoted field of the last record read
+     */
+    public boolean isUnterminated() {
+        return this.unterminated;
+    }
+    
+    @Override
+    public void close() throws IOException {
+        this.in.close();
+    }
+    
+    private int read() throws IOException {
+        if ( this.pending != -2 ) {
+            int c = this.pending;
+            this.pending = -2;
+            return c;
+        }
+        return this.in.read();
+    }
+    
+    /**
+     * Checks whether the next character is the one expected, without consuming it.
+     */
+    private boolean peek(int expected) throws IOException {
+        this.pending = read();
+        return this.pending == expected;
+    }
+    
+    /**
+     * Consumes the next character if it is the one expected.
+     */
+    private void skip(int expected) throws IOException {
+        if ( ! peek(expected) ) {
+            return;
+        }
+        this.pending = -2;
+    }
+}
@@ -0,0 +1,113 @@
+/* Licensed Materials - Property of IBM                                   */
+/*                                                                        */
+/* SAMPLE                                                                 */
+/*                                                                        */
+/* (c) Copyright IBM Corp. 2018 All Rights Reserved                       */
+/*                                                                        */
+/* US Government Users Restricted Rights - Use, duplication or disclosure */
+/* restricted by GSA ADP Schedule Contract with IBM Corp                  */
+/*                                                                        */
+package com.ibm.cicsdev.employee.jdbc.csv;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.sql.SQLException;
+
+import com.ibm.cicsdev.employee.jdbc.faces.EmployeeRowMapper;
+
+/**
+ * Writes employees as comma separated values, one row per line.
+ * 
+ * Values containing a comma, quote or line break are quoted, with any quotes
+ * doubled. Null values are written as empty fields.
+ */
+public class EmployeeCsv
+{
+    /**
+     * The heading line, naming the columns of the EMP table in the order written.
+     */
+    private static final String HEADING = "EMPNO,FIRSTNME,MIDINIT,LASTNAME,SEX,PHONENO,JOB," +
+                                          "EDLEVEL,BIRTHDATE,HIREDATE,SALARY,BONUS,COMM\r\n";
+    
+    private EmployeeCsv() {
+    }
+    
+    /**
+     * Writes the heading line.
+     * 
+     * @param out - the destination
+     * 
+     * @throws IOException if the line cannot be written
+     */
+    public static void writeHeading(Writer out) throws IOException
+    {
+        out.write(HEADING);
+    }
+    
+    /**
+     * Writes the current row of a query as a line.
+     * 
+     * @param out - the destination
+     * @param row - reads the current row
+     * 
+     * @throws SQLException if the row cannot be read
+     * @throws IOException if the line cannot be written
+     */
+    public static void write(Writer out, EmployeeRowMapper row) throws SQLException, IOException
+    {
+        writeValue(out, row.getEmpNo());
+        out.write(',');
+        writeValue(out, row.getFirstName());
+        out.write(',');
+        writeValue(out, row.getMidInit());
+        out.write(',');
+        writeValue(out, row.getLastName());
+        out.write(',');
+        writeValue(out, row.getGender());
+        out.write(',');
+        writeValue(out, row.getPhoneNo());
+        out.write(',');
+        writeValue(out, row.getJob());
+        out.write(',');
+        out.write(Short.toString(row.getEdLevel()));
+        out.write(',');
+        writeValue(out, row.getBirthDate() == null ? null : row.getBirthDate().toString());
+        out.write(',');
+        writeValue(out, row.getHireDate() == null ? null : row.getHireDate().toString());
+        out.write(',');
+        writeDecimal(out, row.getSalary());
+        out.write(',');
+        writeDecimal(out, row.getBonus());
+        out.write(',');
+        writeDecimal(out, row.getComm());
+        out.write("\r\n");
+    }
+    
+    private static void writeDecimal(Writer out, BigDecimal value) throws IOException {
+        if ( value != null ) {
+            out.write(value.toPlainString());
+        }
+    }
+    
+    private static void writeValue(Writer out, String value) throws IOException {
+        if ( value == null ) {
+            return;
+        }
+        
+        // Quote only when needed, which for this table is rare
+        boolean quote = false;
+        for (int i = 0; i < value.length() && ! quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\r' || c == '\n';
+        }
+        if ( ! quote ) {
+            out.write(value);
+            return;
+        }
+        
+        out.write('"');
+        out.write(value.replace("\"", "\"\""));
+        out.write('"');
+    }
+}
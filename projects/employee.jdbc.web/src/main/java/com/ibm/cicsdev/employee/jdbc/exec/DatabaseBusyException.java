@@ -0,0 +1,28 @@
+/* Licensed Materials - Property of IBM                                   */
+/*                                                                        */
+/* SAMPLE                                                                 */
+/*                                                                        */
+/* (c) Copyright IBM Corp. 2018 All Rights Reserved                       */
+/*                                                                        */
+/* US Government Users Restricted Rights - Use, duplication or disclosure */
+/* restricted by GSA ADP Schedule Contract with IBM Corp                  */
+/*                                                                        */
+package com.ibm.cicsdev.employee.jdbc.exec;
+
+/**
+ * Thrown when a database call is refused because too many calls are already
+ * running or waiting, or has not completed within the time allowed.
+ * 
+ * The message is suitable for display to the user.
+ */
+public class DatabaseBusyException extends Exception
+{
+    private static final long serialVersionUID = -2280417371245963150L;
+
+    /**
+     * @param message - explanation for the user
+     */
+    public DatabaseBusyException(String message) {
+        super(message);
+    }
+}
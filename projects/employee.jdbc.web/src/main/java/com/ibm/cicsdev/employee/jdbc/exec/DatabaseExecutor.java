@@ -0,0 +1,261 @@
+/* Licensed Materials - Property of IBM                                   */
+/*                                                                        */
+/* SAMPLE                                                                 */
+/*                                                                        */
+/* (c) Copyright IBM Corp. 2018 All Rights Reserved                       */
+/*                                                                        */
+/* US Government Users Restricted Rights - Use, duplication or disclosure */
+/* restricted by GSA ADP Schedule Contract with IBM Corp                  */
+/*                                                                        */
+package com.ibm.cicsdev.employee.jdbc.exec;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs database calls on a bounded set of threads, separate from the web
+ * container's request threads.
+ * 
+ * At most a fixed number of calls run at once, which should be less than the
+ * data source's maximum pool size, and a fixed number more may wait for a
+ * thread. Further calls are refused immediately with a
+ * {@link DatabaseBusyException}, rather than queuing behind a slow database
+ * until every web thread is blocked.
+ * 
+ * Callers that must wait for the result use {@link #call(Callable)}, which
+ * gives up after the configured timeout. The web container's asynchronous
+ * support lets other callers hand a task to {@link #execute(Runnable)} and
+ * release their request thread, completing the response when the task ends.
+ * 
+ * The threads are created by a Liberty managed thread factory, so that JNDI
+ * lookups, JTA and the JCICS API are available to each call. Without one, calls
+ * run on the caller's thread, and only the limit on the number of calls applies.
+ */
+public class DatabaseExecutor
+{
+    /**
+     * Runs the calls, or null if calls run on the caller's thread.
+     */
+    private final ThreadPoolExecutor pool;
+    
+    /**
+     * Limits the calls running on callers' threads, if there is no pool.
+     */
+    private final Semaphore permits;
+    
+    /**
+     * The number of permits, if there is no pool.
+     */
+    private final int maxCalls;
+    
+    /**
+     * How long {@link #call(Callable)} waits for a result, in milliseconds.
+     */
+    private final long timeoutMillis;
+    
+    /*
+     * Statistics.
+     */
+    
+    private final AtomicLong rejected = new AtomicLong();
+    
+    private final AtomicLong timedOut = new AtomicLong();
+    
+    
+    /**
+     * Creates an executor that runs calls on its own threads.
+     * 
+     * @param threadFactory - creates the threads, normally a Liberty managed thread factory
+     * @param threads - the maximum number of calls running at once
+     * @param queueSize - the maximum number of calls waiting for a thread
+     * @param timeoutSeconds - how long a caller waits for a result
+     */
+    public DatabaseExecutor(ThreadFactory threadFactory, int threads, int queueSize, int timeoutSeconds) {
+        this.pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(Math.max(1, queueSize)), threadFactory);
+        this.pool.allowCoreThreadTimeOut(true);
+        this.permits = null;
+        this.maxCalls = 0;
+        this.timeoutMillis = timeoutSeconds * 1000L;
+    }
+    
+    /**
+     * Creates an executor that runs calls on the caller's thread.
+     * 
+     * @param maxCalls - the maximum number of calls running at once
+     * @param timeoutSeconds - how long an asynchronous caller should wait for a result
+     */
+    public DatabaseExecutor(int maxCalls, int timeoutSeconds) {
+        this.pool = null;
+        this.permits = new Semaphore(maxCalls);
+        this.maxCalls = maxCalls;
+        this.timeoutMillis = timeoutSeconds * 1000L;
+    }
+    
+    
+    /*
+     * Running calls.
+     */
+    
+    /**
+     * Runs a database call and waits for its result.
+     * 
+     * @param task - the call
+     * 
+     * @return the result of the call
+     * 
+     * @throws DatabaseBusyException if the call is refused because the limit has been reached
+     * @throws DatabaseTimeoutException if the call has not completed within the timeout
+     * @throws Exception the exception thrown by the call
+     */
+    public <T> T call(Callable<T> task) throws Exception
+    {
+        // No pool, so run the call here if a permit is available
+        if ( this.pool == null ) {
+            acquire();
+            try {
+                return task.call();
+            }
+            finally {
+                this.permits.release();
+            }
+        }
+        
+        Future<T> future;
+        try {
+            future = this.pool.submit(task);
+        }
+        catch (RejectedExecutionException e) {
+            throw busy();
+        }
+        
+        try {
+            return future.get(this.timeoutMillis, TimeUnit.MILLISECONDS);
+        }
+        catch (TimeoutException e) {
+            // Interrupting a thread inside the JDBC driver is not safe, so only a call that
+            // has not yet started is stopped
+            future.cancel(false);
+            this.timedOut.incrementAndGet();
+            throw new DatabaseTimeoutException("The database did not respond within "
+                    + this.timeoutMillis / 1000 + " seconds. Refresh the list before trying again.");
+        }
+        catch (InterruptedException e) {
+            future.cancel(false);
+            Thread.currentThread().interrupt();
+            throw e;
+        }
+        catch (ExecutionException e) {
+            // Rethrow the exception from the call, as if it had run on this thread
+            Throwable cause = e.getCause();
+            if ( cause instanceof Exception ) {
+                throw (Exception) cause;
+            }
+            if ( cause instanceof Error ) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+    
+    /**
+     * Runs a database call without waiting for it to complete.
+     * 
+     * The task is responsible for reporting its own result and any exception.
+     * 
+     * @param task - the call
+     * 
+     * @throws DatabaseBusyException if the call is refused because the limit has been reached
+     */
+    public void execute(Runnable task) throws DatabaseBusyException
+    {
+        if ( this.pool == null ) {
+            acquire();
+            try {
+                task.run();
+            }
+            finally {
+                this.permits.release();
+            }
+            return;
+        }
+        
+        try {
+            this.pool.execute(task);
+        }
+        catch (RejectedExecutionException e) {
+            throw busy();
+        }
+    }
+    
+    /**
+     * Stops accepting calls, allowing those already accepted to complete.
+     */
+    public void shutdown()
+    {
+        if ( this.pool != null ) {
+            this.pool.shutdown();
+        }
+    }
+    
+    
+    /*
+     * Statistics, exposed for monitoring.
+     */
+    
+    /**
+     * @return how long a caller should wait for a call to complete, in milliseconds
+     */
+    public long getTimeoutMillis() {
+        return this.timeoutMillis;
+    }
+    
+    /**
+     * @return the number of calls running
+     */
+    public int getActive() {
+        return this.pool == null ? this.maxCalls - this.permits.availablePermits() : this.pool.getActiveCount();
+    }
+    
+    /**
+     * @return the number of calls waiting for a thread
+     */
+    public int getQueued() {
+        return this.pool == null ? 0 : this.pool.getQueue().size();
+    }
+    
+    public long getRejected() {
+        return this.rejected.get();
+    }
+    
+    public long getTimedOut() {
+        return this.timedOut.get();
+    }
+    
+    
+    /*
+     * Utility methods.
+     */
+    
+    private void acquire() throws DatabaseBusyException
+    {
+        if ( ! this.permits.tryAcquire() ) {
+            throw busy();
+        }
+    }
+    
+    private DatabaseBusyException busy()
+    {
+        this.rejected.incrementAndGet();
+        return new DatabaseBusyException("The database is busy. Try again in a few seconds.");
+    }
+}
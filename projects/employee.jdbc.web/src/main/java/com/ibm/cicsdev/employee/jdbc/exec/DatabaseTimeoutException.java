@@ -0,0 +1,29 @@
+/* Licensed Materials - Property of IBM                                   */
+/*                                                                        */
+/* SAMPLE                                                                 */
+/*                                                                        */
+/* (c) Copyright IBM Corp. 2018 All Rights Reserved                       */
+/*                                                                        */
+/* US Government Users Restricted Rights - Use, duplication or disclosure */
+/* restricted by GSA ADP Schedule Contract with IBM Corp                  */
+/*                                                                        */
+package com.ibm.cicsdev.employee.jdbc.exec;
+
+/**
+ * Thrown when the caller stops waiting for a database call that has not
+ * completed within the time allowed.
+ * 
+ * The call itself is not stopped, so an update may still be committed after
+ * this exception has been thrown.
+ */
+public class DatabaseTimeoutException extends DatabaseBusyException
+{
+    private static final long serialVersionUID = 6733012994510782346L;
+
+    /**
+     * @param message - explanation for the user
+     */
+    public DatabaseTimeoutException(String message) {
+        super(message);
+    }
+}
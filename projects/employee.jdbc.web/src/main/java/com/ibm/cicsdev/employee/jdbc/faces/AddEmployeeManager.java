@@ -0,0 +1,532 @@
+/* Licensed Materials - Property of IBM                                   */
+/*                                                                        */
+/* SAMPLE                                                                 */
+/*                                                                        */
+/* (c) Copyright IBM Corp. 2018 All Rights Reserved                       */
+/*                                                                        */
+/* US Government Users Restricted Rights - Use, duplication or disclosure */
+/* restricted by GSA ADP Schedule Contract with IBM Corp                  */
+/*                                                                        */
+package com.ibm.cicsdev.employee.jdbc.faces;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import javax.annotation.PostConstruct;
+import javax.faces.application.Application;
+import javax.faces.bean.ManagedBean;
+import javax.faces.bean.SessionScoped;
+import javax.faces.context.ExternalContext;
+import javax.faces.context.FacesContext;
+import javax.servlet.http.Part;
+
+import com.ibm.cicsdev.employee.jdbc.beans.Employee;
+import com.ibm.cicsdev.employee.jdbc.beans.ImportResult;
+import com.ibm.cicsdev.employee.jdbc.csv.CsvReader;
+import com.ibm.cicsdev.employee.jdbc.exec.DatabaseBusyException;
+
+/**
+ * The bean class that handles the data and actions used by the Add Employee page. 
+ * 
+ * It includes data fields used to take user input, as well as methods for sending
+ * that information to the database and returning to previous pages.
+ * 
+ * @author Michael Jones
+ *
+ */
+@ManagedBean(name = "addEmployee")
+@SessionScoped
+public class AddEmployeeManager implements Serializable
+{    
+    private static final long serialVersionUID = -2261598417385702846L;
+    
+    /*
+     * Instance fields.
+     */    
+    
+    /**
+     * The employee number specified on the form.
+     */
+    private String empNo;
+    
+    /**
+     * The first name value specified on the form.
+     */
+    private String firstName;
+    
+    /**
+     * The last name value specified on the form.
+     */
+    private String lastName;
+    
+    /**
+     * The gender value specified on the form.
+     */
+    private String gender;
+    
+    /**
+     * The job value specified on the form.
+     */
+    private String job;
+    
+    /**
+     * Current error message for display.
+     */
+    private String message = "";
+
+    /**
+     * Field used to access the DB manipulation methods, found again if the session is restored.
+     */
+    private transient DatabaseOperationsManager dbOperations;
+
+    /**
+     * Flag to indicate we will use JTA for unit of work support.
+     */
+    private boolean useJta = true;
+    
+    /**
+     * The file of employees uploaded on the form, only used by the request that uploaded it.
+     */
+    private transient Part uploadFile;
+    
+    /**
+     * The number of uploaded employees committed in each unit of work.
+     */
+    private int batchSize = 100;
+    
+    /**
+     * The maximum number of failing rows listed in the message after an upload.
+     */
+    private static final int MAX_FAILURES_REPORTED = 10;
+    
+    /**
+     * The positions of the employee number, first name, last name, gender and job
+     * in an uploaded file with the fields in the order of the form.
+     */
+    private static final int[] FORM_COLUMNS = { 0, 1, 2, 3, 4 };
+    
+    /**
+     * The columns of the EMP table that supply the fields of the form, in the same order.
+     */
+    private static final String[] FORM_COLUMN_NAMES = { "EMPNO", "FIRSTNME", "LASTNAME", "SEX", "JOB" };
+
+    
+    /*
+     * Constructor.
+     */
+    
+    /**
+     * Default constructor called by JSF.
+     * 
+     */
+    public AddEmployeeManager() {       
+    }
+    
+
+    /*
+     * Lifecycle methods.
+     */
+    
+    /**
+     * Performs initialisation of the bean after the constructor has been called.
+     * 
+     * This method finds the application-scoped instance of the {@link DatabaseOperationsManager}
+     * bean in here, rather than using injection. We do that this way to allow us to trap
+     * any problems with instantiating the class in a try ... catch block. This enables the
+     * ability to provide a "DB down" message on the main page, without a huge amount of
+     * error-handling logic at the backend.
+     */
+    @PostConstruct
+    public void init() {
+        
+        // Find the database operations using the current faces context
+        findOperations(FacesContext.getCurrentInstance());
+    }
+    
+    /**
+     * Restores the bean from a persisted session, finding the DatabaseOperationsManager again.
+     */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        FacesContext ctxt = FacesContext.getCurrentInstance();
+        if ( ctxt != null ) {
+            findOperations(ctxt);
+        }
+    }
+    
+    /**
+     * Finds the application-scoped DatabaseOperationsManager, or sets the message if it is unavailable.
+     */
+    private void findOperations(FacesContext ctxt) {
+        
+        Application app = ctxt.getApplication();
+        
+        try {
+            // Get an instance of the DatabaseOperationsManager bean  
+            this.dbOperations = app.evaluateExpressionGet(ctxt, "#{databaseOperations}", DatabaseOperationsManager.class);
+        }
+        catch (Exception e) {
+            
+            // Assume all exceptions from the lookup are fatal
+            this.message = "Database connection unavailable: see error log";
+            
+            // Dump the exception to the log
+            e.printStackTrace(System.out);
+        }
+    }
+    
+    
+    /*
+     * Action methods.
+     */
+
+    /**
+     * Called by JSF when the user clicks the "Go back" button.
+     * 
+     * This will clear any error message and send the user back to the main page.
+     * 
+     * @return The name of the page to navigate to
+     */
+    public String goBack() {
+        this.message = "";
+        return "main";
+    }
+    
+    /** 
+     * Called by JSF when the user clicks the "Toggle JTA" button.
+     * 
+     * Toggles the state of the JTA flag.
+     */
+    public void toggleUseJta() {
+        this.useJta = ! this.useJta;
+    }
+
+    /**
+     * Called by JSF when the user clicks the "Add employee" button.
+     * 
+     * The method will attempt to add the new employee to the database,
+     * displaying messages where appropriate.
+     */
+    public void create() {
+        
+        // Create a new instance to store the data
+        final Employee employee = newEmployee(this.empNo, this.firstName, this.lastName, this.gender, this.job);
+        final boolean jta = this.useJta;
+
+        try {
+            // Attempt to create the new employee record in the DB
+            call(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    AddEmployeeManager.this.dbOperations.createEmployee(employee, jta);
+                    return null;
+                }
+            });
+            
+            // Update the message
+            this.message = "Successfully added employee";
+            
+            // Clear the input data, ready for next request
+            this.empNo = "";
+            this.firstName = "";
+            this.lastName = "";
+            this.gender = "";
+            this.job = "";
+        }
+        catch (DuplicateEmployeeException e) {
+            
+            // Found before or by the insert, with no unit of work left to roll back
+            this.message = "Error: Employee number already in use";
+        }
+        catch (DatabaseBusyException e) {
+            
+            // Keep the values entered, so the user can try again
+            this.message = e.getMessage();
+        }
+        catch (Exception e) {
+            
+            // The database access class will have already rolledback our transaction
+            this.message = "An error occurred: see error log";
+            
+            // Dump to output for debug purposes
+            e.printStackTrace(System.out);
+        }
+    }
+    
+    
+    /**
+     * Called by JSF when the user clicks the "Upload employees" button.
+     * 
+     * The uploaded file is read as comma-separated values, as defined by RFC 4180, one
+     * employee per record, with the fields in the same order as the form: employee number,
+     * first name, last name, gender and job title. A first line starting with the heading
+     * EMPNO is ignored, unless it is the heading written by the export, in which case
+     * those fields are taken from the columns it names and the rest are ignored.
+     * The employees are then added to the database in batches, and a message
+     * summarises the rows added and any rows that were rejected.
+     * 
+     * @see DatabaseOperationsManager#createEmployees(List, boolean, int, ImportResult)
+     */
+    public void importEmployees() {
+        
+        // Check we have a file to read
+        if ( this.uploadFile == null ) {
+            this.message = "Error: Choose a file to upload";
+            return;
+        }
+        
+        // Rows of the file that could not be read, and the employees built from the rest
+        ImportResult parseErrors = new ImportResult();
+        final List<Employee> employees = new ArrayList<>();
+        
+        try ( CsvReader reader = new CsvReader(new BufferedReader(
+                new InputStreamReader(this.uploadFile.getInputStream(), StandardCharsets.UTF_8))) ) {
+            
+            // Positions of the employee number, first name, last name, gender and job
+            int[] columns = FORM_COLUMNS;
+            int width = FORM_COLUMNS.length;
+            
+            List<String> fields;
+            boolean first = true;
+            while ( (fields = reader.readRecord()) != null ) {
+                int lineNo = reader.getLineNumber();
+                
+                if ( reader.isUnterminated() ) {
+                    parseErrors.failed(lineNo, null, "a quoted field is not closed");
+                    break;
+                }
+                
+                // Skip blank lines
+                if ( fields.size() == 1 && fields.get(0).trim().isEmpty() ) {
+                    continue;
+                }
+                
+                // A heading, which names the columns if the file was written by the export
+                if ( first ) {
+                    first = false;
+                    if ( fields.get(0).trim().toUpperCase().startsWith("EMPNO") ) {
+                        int[] named = exportColumns(fields);
+                        if ( named != null ) {
+                            columns = named;
+                            width = fields.size();
+                        }
+                        continue;
+                    }
+                }
+                
+                if ( fields.size() != width ) {
+                    parseErrors.failed(lineNo, null, "expected " + width + " fields but found " + fields.size());
+                    continue;
+                }
+                employees.add(newEmployee(fields.get(columns[0]).trim(), fields.get(columns[1]).trim(),
+                        fields.get(columns[2]).trim(), fields.get(columns[3]).trim(), fields.get(columns[4]).trim()));
+            }
+        }
+        catch (IOException e) {
+            this.message = "Error: The uploaded file could not be read";
+            e.printStackTrace(System.out);
+            return;
+        }
+        
+        // Filled in as each batch is committed
+        final ImportResult result = new ImportResult();
+        final boolean jta = this.useJta;
+        final int batch = Math.max(1, this.batchSize);
+        
+        try {
+            // Attempt to add the employees, in batches
+            call(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    AddEmployeeManager.this.dbOperations.createEmployees(employees, jta, batch, result);
+                    return null;
+                }
+            });
+            
+            // Summarise what happened
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format("Added %d of %d employees", result.getAdded(), employees.size()));
+            int failures = parseErrors.getFailures().size() + result.getFailures().size();
+            if ( failures > 0 ) {
+                sb.append(String.format(", %d rows rejected:", failures));
+                int reported = 0;
+                for (ImportResult.Failure failure : parseErrors.getFailures()) {
+                    if ( reported++ < MAX_FAILURES_REPORTED ) {
+                        sb.append(String.format(" line %d (%s);", failure.getRow(), failure.getReason()));
+                    }
+                }
+                for (ImportResult.Failure failure : result.getFailures()) {
+                    if ( reported++ < MAX_FAILURES_REPORTED ) {
+                        sb.append(String.format(" %s (%s);", failure.getEmpNo(), failure.getReason()));
+                    }
+                }
+            }
+            this.message = sb.toString();
+        }
+        catch (DatabaseBusyException e) {
+            
+            // Refused, or still running after the wait, so the result is not yet known
+            this.message = e.getMessage();
+        }
+        catch (Exception e) {
+            
+            // The database access class will have already rolledback the current batch,
+            // but any earlier batches were committed
+            if ( result.getAdded() > 0 ) {
+                this.message = String.format("An error occurred after adding %d of %d employees: see error log",
+                        result.getAdded(), employees.size());
+            }
+            else {
+                this.message = "An error occurred: see error log";
+            }
+            e.printStackTrace(System.out);
+        }
+    }
+    
+    /**
+     * Runs the database work for an action, as described in
+     * {@link DatabaseOperationsManager#call(ExternalContext, boolean, Callable)},
+     * which also records the change made by this session.
+     * 
+     * @param work - the database operations, which update the database
+     * 
+     * @throws DatabaseBusyException if the database is too busy to run the work
+     * @throws Exception the exception thrown by the work
+     */
+    private void call(Callable<Void> work) throws Exception {
+        this.dbOperations.call(FacesContext.getCurrentInstance().getExternalContext(), false, work);
+    }
+    
+    /**
+     * Finds the fields of the form in a heading that names the columns of the EMP table,
+     * as written by the export.
+     * 
+     * @param heading - the fields of the heading
+     * 
+     * @return the positions of the fields of the form, or null if the heading does not name them all
+     */
+    private static int[] exportColumns(List<String> heading) {
+        int[] columns = new int[FORM_COLUMN_NAMES.length];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = -1;
+            for (int j = 0; j < heading.size() && columns[i] < 0; j++) {
+                if ( heading.get(j).trim().equalsIgnoreCase(FORM_COLUMN_NAMES[i]) ) {
+                    columns[i] = j;
+                }
+            }
+            if ( columns[i] < 0 ) {
+                return null;
+            }
+        }
+        return columns;
+    }
+    
+    /**
+     * Builds a new employee from the values entered by the user.
+     * 
+     * @return a new {@link Employee}, with default values for fields we don't display
+     */
+    private static Employee newEmployee(String empNo, String firstName, String lastName, String gender, String job) {
+        
+        // Create a new instance to store the data
+        Employee employee = new Employee();
+        
+        // Set our default values - we don't display these, so we don't care about them
+        employee.setMidInit("R");
+        employee.setPhoneNo("1111");
+        employee.setBonus( new BigDecimal(1_000_000) );
+        employee.setComm( new BigDecimal(1_000_000) );
+        employee.setSalary( new BigDecimal(1_000_000) );        
+        employee.setEdLevel((short) 1);
+        
+        // Now add in the user input
+        employee.setEmpNo(empNo.toUpperCase());
+        employee.setFirstName(firstName.toUpperCase());
+        employee.setLastName(lastName.toUpperCase());
+        employee.setGender(gender.toUpperCase());        
+        employee.setJob(job.toUpperCase());
+        
+        return employee;
+    }
+    
+    
+    /*
+     * Attribute accessor methods used by JSF.
+     */
+    
+    public boolean getUseJta() {
+        return this.useJta;
+    }
+    
+    public String getMessage() {
+        return this.message;
+    }
+    
+    public String getEmpNo() {
+        return this.empNo;
+    }
+    
+    public void setEmpNo(String empNo) {
+        this.empNo = empNo;
+    }
+
+    public String getFirstName() {
+        return this.firstName;
+    }
+    
+    public void setFirstName(String firstName) {
+        this.firstName = firstName;
+    }
+    
+    public String getLastName() {
+        return this.lastName;
+    }
+    
+    public void setLastName(String lastName) {
+        this.lastName = lastName;
+    }
+    
+    public String getGender() {
+        return this.gender;
+    }
+    
+    public void setGender(String gender) {
+        this.gender = gender;
+    }
+    
+    public String getJob() {
+        return this.job;
+    }
+    
+    public void setJob(String job) {
+        this.job = job;
+    }    
+
+    public Part getUploadFile() {
+        return this.uploadFile;
+    }
+    
+    public void setUploadFile(Part uploadFile) {
+        this.uploadFile = uploadFile;
+    }
+    
+    public int getBatchSize() {
+        return this.batchSize;
+    }
+    
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public boolean isDatabaseAvailable() {
+        return this.dbOperations != null;
+    }
+}
@@ -0,0 +1,2259 @@
+/* Licensed Materials - Property of IBM                                   */
+/*                                                                        */
+/* SAMPLE                                                                 */
+/*                                                                        */
+/* (c) Copyright IBM Corp. 2018 All Rights Reserved                       */
+/*                                                                        */
+/* US Government Users Restricted Rights - Use, duplication or disclosure */
+/* restricted by GSA ADP Schedule Contract with IBM Corp                  */
+/*                                                                        */
+package com.ibm.cicsdev.employee.jdbc.faces;
+
+import java.io.IOException;
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import javax.annotation.Resource.AuthenticationType;
+import javax.faces.bean.ApplicationScoped;
+import javax.faces.bean.ManagedBean;
+import javax.faces.context.ExternalContext;
+import javax.faces.context.FacesContext;
+import javax.naming.InitialContext;
+import javax.naming.NamingException;
+import javax.sql.DataSource;
+import javax.transaction.HeuristicMixedException;
+import javax.transaction.HeuristicRollbackException;
+import javax.transaction.NotSupportedException;
+import javax.transaction.RollbackException;
+import javax.transaction.SystemException;
+import javax.transaction.UserTransaction;
+
+import com.ibm.cics.server.CicsConditionException;
+import com.ibm.cicsdev.employee.jdbc.audit.AuditSink;
+import com.ibm.cicsdev.employee.jdbc.audit.AuditWriter;
+import com.ibm.cicsdev.employee.jdbc.audit.BufferedAuditSink;
+import com.ibm.cicsdev.employee.jdbc.audit.TransactionalAuditSink;
+import com.ibm.cicsdev.employee.jdbc.audit.TsqAuditWriter;
+import com.ibm.cicsdev.employee.jdbc.beans.Employee;
+import com.ibm.cicsdev.employee.jdbc.beans.EmployeeColumn;
+import com.ibm.cicsdev.employee.jdbc.beans.EmployeeKey;
+import com.ibm.cicsdev.employee.jdbc.beans.EmployeePage;
+import com.ibm.cicsdev.employee.jdbc.beans.EmployeeSummary;
+import com.ibm.cicsdev.employee.jdbc.beans.ImportResult;
+import com.ibm.cicsdev.employee.jdbc.beans.SearchMode;
+import com.ibm.cicsdev.employee.jdbc.cache.EmployeeCache;
+import com.ibm.cicsdev.employee.jdbc.exec.DatabaseBusyException;
+import com.ibm.cicsdev.employee.jdbc.exec.DatabaseExecutor;
+import com.ibm.cicsdev.employee.jdbc.exec.DatabaseTimeoutException;
+import com.ibm.cicsdev.employee.jdbc.metrics.Metrics;
+import com.ibm.cicsdev.employee.jdbc.metrics.OperationTimer;
+import com.ibm.cicsdev.employee.jdbc.metrics.Phase;
+import com.ibm.cicsdev.employee.jdbc.metrics.TxMode;
+import com.ibm.cicsdev.employee.jdbc.search.InvalidSearchException;
+import com.ibm.cicsdev.employee.jdbc.search.LastNameIndex;
+import com.ibm.cicsdev.employee.jdbc.search.SearchPlan;
+import com.ibm.cicsdev.employee.jdbc.search.SearchPlanner;
+import com.ibm.cicsdev.employee.jdbc.sql.EmployeeStatements;
+import com.ibm.cicsdev.employee.jdbc.sql.EmployeeStatements.Position;
+import com.ibm.cicsdev.employee.jdbc.sql.EmployeeStatements.Projection;
+import com.ibm.cicsdev.employee.jdbc.sql.SchemaMismatchException;
+import com.ibm.cicsdev.employee.jdbc.sql.SqlErrors;
+import com.ibm.cicsdev.employee.jdbc.tx.GroupCommit;
+import com.ibm.cicsdev.employee.jdbc.tx.RequestConnection;
+import com.ibm.cicsdev.employee.jdbc.tx.TransactionCoordinator;
+import com.ibm.cicsdev.employee.jdbc.tx.UnitOfWork;
+
+/**
+ * This class contains all of the database interaction code for our application.
+ * 
+ * Data is passed in from either {@link EmployeeListManager} or {@link AddEmployeeManager} to one
+ * of the update methods. Those methods will then attempt to perform the requested
+ * operation. Once complete they will return control to the caller, which will
+ * print out a message to screen.
+ * 
+ * The REST API in the rest package uses the same instance. The bean is created
+ * eagerly when the application starts, and JSF stores it as the servlet context
+ * attribute {@link #ATTRIBUTE}, where the API finds it.
+ * 
+ * @author Michael Jones
+ */
+@ManagedBean(name = DatabaseOperationsManager.ATTRIBUTE, eager = true)
+@ApplicationScoped
+public class DatabaseOperationsManager
+{
+    /**
+     * Name of the bean, and of the servlet context attribute holding the application's instance.
+     */
+    public static final String ATTRIBUTE = "databaseOperations";
+    
+    /**
+     * Context parameter giving the maximum number of entries of each kind held in the cache.
+     */
+    private static final String CACHE_SIZE_PARAM = "com.ibm.cicsdev.employee.CACHE_SIZE";
+    
+    /**
+     * Context parameter giving the number of seconds a cache entry remains valid.
+     */
+    private static final String CACHE_TTL_PARAM = "com.ibm.cicsdev.employee.CACHE_TTL";
+    
+    /**
+     * Context parameter selecting how audit records are written: TRANSACTIONAL to write each
+     * record inside its unit of work, or BUFFERED to queue records and write them in groups
+     * after commit.
+     */
+    private static final String AUDIT_MODE_PARAM = "com.ibm.cicsdev.employee.AUDIT_MODE";
+    
+    /**
+     * Context parameter giving the maximum number of audit records queued in BUFFERED mode.
+     */
+    private static final String AUDIT_QUEUE_SIZE_PARAM = "com.ibm.cicsdev.employee.AUDIT_QUEUE_SIZE";
+    
+    /**
+     * Context parameter giving the maximum number of database calls from the web pages
+     * and the REST API that run at once.
+     */
+    private static final String DB_THREADS_PARAM = "com.ibm.cicsdev.employee.DB_THREADS";
+    
+    /**
+     * Context parameter giving the maximum number of database calls waiting to run,
+     * beyond which calls are refused.
+     */
+    private static final String DB_QUEUE_SIZE_PARAM = "com.ibm.cicsdev.employee.DB_QUEUE_SIZE";
+    
+    /**
+     * Context parameter giving the number of seconds a caller waits for a database call.
+     */
+    private static final String DB_TIMEOUT_PARAM = "com.ibm.cicsdev.employee.DB_TIMEOUT";
+    
+    /**
+     * Context parameter giving the JNDI name of a separate data source for searches and
+     * exports, such as a read replica. If it cannot be found the primary is used.
+     */
+    private static final String READ_DATA_SOURCE_PARAM = "com.ibm.cicsdev.employee.READ_DATA_SOURCE";
+    
+    /**
+     * Context parameter giving the number of seconds the read data source may lag behind
+     * the primary. For this long after a user changes the database, their own searches
+     * use the primary, and searches read from the replica are not cached.
+     */
+    private static final String REPLICA_LAG_PARAM = "com.ibm.cicsdev.employee.REPLICA_LAG";
+    
+    /**
+     * Context parameter giving the number of seconds the index of last names used for
+     * suggestions is used for before it is read again from the database.
+     */
+    private static final String SUGGEST_REFRESH_PARAM = "com.ibm.cicsdev.employee.SUGGEST_REFRESH";
+    
+    /**
+     * Context parameter giving the number of milliseconds a change waits for other changes
+     * to be committed with it when JTA is not used. Zero, the default, commits each change
+     * on its own.
+     */
+    private static final String GROUP_COMMIT_PARAM = "com.ibm.cicsdev.employee.GROUP_COMMIT";
+    
+    /**
+     * Context parameter giving the most changes committed together.
+     */
+    private static final String GROUP_COMMIT_SIZE_PARAM = "com.ibm.cicsdev.employee.GROUP_COMMIT_SIZE";
+    
+    /**
+     * Session attribute recording when the session last changed the database.
+     */
+    private static final String LAST_CHANGE_ATTRIBUTE = "com.ibm.cicsdev.employee.lastChange";
+    
+    /**
+     * Most employee numbers listed in one audit record, keeping the record within a TSQ item.
+     */
+    private static final int MAX_AUDIT_KEYS = 2000;
+    
+    /**
+     * DataSource instance for connecting to the database using JDBC
+     * Use of Resource injection required for container managed security
+     */          
+    @Resource(authenticationType = AuthenticationType.CONTAINER, name = "jdbc/sample")
+    private DataSource ds;    
+    
+    /**
+     * DataSource used by searches and exports, which is the primary DataSource
+     * unless a read data source has been configured.
+     */
+    private DataSource readDs;
+    
+    /**
+     * How long the read DataSource may lag behind the primary, in milliseconds.
+     */
+    private long replicaLagMillis;
+    
+    /**
+     * Cache of employees and search results, kept consistent by the update methods.
+     */
+    private EmployeeCache cache;
+    
+    /**
+     * Index of last names, used to suggest search strings as the user types.
+     */
+    private LastNameIndex lastNames;
+    
+    /**
+     * Held while the index of last names is read from the database, so only one read runs at a time.
+     */
+    private final ReentrantLock lastNamesLoad = new ReentrantLock();
+    
+    /**
+     * Receives a record of each change made to the database.
+     */
+    private AuditSink audit;
+    
+    /**
+     * Runs the database calls made by the web pages and the REST API.
+     */
+    private DatabaseExecutor executor;
+    
+    /**
+     * Starts the JTA or CICS unit of work for each update, and times it.
+     */
+    private final TransactionCoordinator transactions = new TransactionCoordinator();
+    
+    /**
+     * Times each database operation and counts its rows and errors.
+     */
+    private final Metrics metrics = new Metrics();
+    
+    /**
+     * Commits concurrent single-row changes made without JTA together, or null to
+     * commit each change on its own.
+     */
+    private GroupCommit groupCommit;
+    
+    
+    /*
+     * Constructors.
+     */
+    
+    /**
+     * No args constructor used by JSF, which then injects the DataSource and calls {@link #init()}.
+     */
+    public DatabaseOperationsManager() {
+        
+    }
+    
+    /**
+     * Creates an instance outside JSF, for example to drive the database methods from a test
+     * or benchmark harness using a stand-alone DataSource and an in-memory audit writer.
+     * 
+     * The row change token SQL can be replaced for a database other than Db2,
+     * see {@link EmployeeStatements#ROW_CHANGE_TOKEN_PROPERTY}.
+     *
+     * @param ds - the DataSource used for all database access
+     * @param cache - the cache of employees and search results
+     * @param audit - receives a record of each change made to the database
+     * @param executor - runs the database calls made through {@link #getExecutor()}, and refreshes the index of last names
+     * @param lastNames - the index of last names, normally empty so that it is read on first use
+     */
+    public DatabaseOperationsManager(DataSource ds, EmployeeCache cache, AuditSink audit,
+            DatabaseExecutor executor, LastNameIndex lastNames) {
+        this.ds = ds;
+        this.readDs = ds;
+        this.cache = cache;
+        this.lastNames = lastNames;
+        this.audit = audit;
+        this.executor = executor;
+    }
+    
+    
+    /*
+     * Lifecycle methods.
+     */
+    
+    /**
+     * Performs initialisation of the bean after resource injection.
+     * 
+     * Creates the cache, the audit sink, the executor for database calls and any group
+     * commit, and finds the read data source, configured using the context parameters
+     * in web.xml, then checks the EMP table matches the application's SQL and starts
+     * reading the index of last names.
+     */
+    @PostConstruct
+    public void init() {
+        ExternalContext ctxt = FacesContext.getCurrentInstance().getExternalContext();
+        int size = intParameter(ctxt, CACHE_SIZE_PARAM, 1000);
+        int ttl = intParameter(ctxt, CACHE_TTL_PARAM, 30);
+        this.cache = new EmployeeCache(size, ttl);
+        this.lastNames = new LastNameIndex(intParameter(ctxt, SUGGEST_REFRESH_PARAM, 300));
+        this.audit = createAuditSink(ctxt.getInitParameter(AUDIT_MODE_PARAM), intParameter(ctxt, AUDIT_QUEUE_SIZE_PARAM, 10_000));
+        this.executor = createExecutor(intParameter(ctxt, DB_THREADS_PARAM, 20),
+                intParameter(ctxt, DB_QUEUE_SIZE_PARAM, 100), intParameter(ctxt, DB_TIMEOUT_PARAM, 30));
+        this.readDs = lookupReadDataSource(ctxt.getInitParameter(READ_DATA_SOURCE_PARAM), this.ds);
+        this.replicaLagMillis = intParameter(ctxt, REPLICA_LAG_PARAM, 5) * 1000L;
+        int window = intParameter(ctxt, GROUP_COMMIT_PARAM, 0);
+        if ( window > 0 ) {
+            this.groupCommit = new GroupCommit(this.ds, this.metrics, window, intParameter(ctxt, GROUP_COMMIT_SIZE_PARAM, 16));
+        }
+        validateSchema();
+        
+        // Read the index of last names now, so duplicate employee numbers are refused from the start
+        refreshLastNames();
+    }
+    
+    /**
+     * Prepares every registered statement against the database, as described in
+     * {@link EmployeeStatements#validate(Connection)}.
+     * 
+     * A table that does not match stops the application from starting, rather than
+     * failing later on the first request to use the missing column. If the database
+     * cannot be reached the check is skipped, so the application still starts and
+     * reports the database as unavailable.
+     * 
+     * @throws IllegalStateException if the EMP table does not match the application's SQL
+     */
+    public void validateSchema() {
+        try ( Connection conn = this.ds.getConnection() ) {
+            conn.setAutoCommit(true);
+            EmployeeStatements.validate(conn);
+        }
+        catch (SchemaMismatchException e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+        catch (SQLException e) {
+            System.out.println("Unable to validate the EMP table: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Releases resources before the bean is discarded, writing any queued audit records.
+     */
+    @PreDestroy
+    public void destroy() {
+        this.executor.shutdown();
+        this.audit.close();
+    }
+    
+    /**
+     * Reads one page of employees whose last name matches the specified string.
+     * 
+     * Used by the search function on main.xhtml page. The {@link SearchPlanner} chooses
+     * the predicate for the search mode, refusing searches that could only be answered
+     * by scanning the whole table. Rather than reading every matching
+     * row, the query seeks directly to the supplied position in the
+     * <code>ORDER BY LASTNAME, EMPNO</code> sequence and fetches at most one page plus one
+     * row. The extra row is never displayed; it only tells us whether another page exists.
+     * 
+     * The page is read from the read data source, unless the current request must see
+     * the primary, see {@link #beginRequest(boolean, boolean)}.
+     * 
+     * @param mode - how the search argument is matched against the lastName field
+     * @param lastName - the search argument to be applied to the lastName field.
+     * @param seek - position to read from, or null to read the first page
+     * @param forward - true to read the rows after the seek position, false to read the rows before it
+     * @param maxRows - maximum number of rows to return, limited to {@link SearchPlanner#MAX_PAGE_SIZE}
+     * 
+     * @return a page of {@link EmployeeSummary} instances, in search order
+     * 
+     * @throws InvalidSearchException if the search is refused, with a message for the user
+     * @throws SQLException All SQL exceptions are propagated from this method.
+     */
+    public EmployeePage findEmployeePage(SearchMode mode, String lastName, EmployeeKey seek, final boolean forward, int maxRows)
+            throws InvalidSearchException, SQLException
+    {
+        // Choose the SQL for the search, and limit the rows returned
+        SearchPlan plan = SearchPlanner.plan(mode, lastName);
+        int pageSize = SearchPlanner.pageSize(maxRows);
+        
+        // Instances of JDBC objects
+        Connection conn = null;
+        PreparedStatement statement = null;
+        
+        // Paging backwards with no position is the same as reading the first page
+        boolean reverse = ! forward && seek != null;
+        
+        // Return the page from the cache if it has been read recently
+        String key = EmployeeCache.searchKey(plan.getKey(),
+                seek == null ? null : seek.getLastName() + '\u0000' + seek.getEmpNo(), forward, pageSize);
+        EmployeePage cached = this.cache.getPage(key);
+        if ( cached != null ) {
+            return cached;
+        }
+        long generation = this.cache.getGeneration();
+        
+        // Times each phase of the operation
+        OperationTimer timer = this.metrics.start("search", TxMode.NONE);
+        
+        try {
+            // The SQL command used to find our employees list - only the columns shown in the
+            // list are read, the full employee is read when a row is edited
+            String sqlCmd = EmployeeStatements.page(Projection.SUMMARY, plan.getPredicate(), position(seek, reverse));
+            
+            // Get the DB connection, shared with the rest of the request if there is one open.
+            // This is only a search - for this example we are not updating any resources or require any locks
+            DataSource source = readDataSource();
+            conn = RequestConnection.getConnection(source, this.metrics, true);
+            timer.lap(Phase.CONNECT);
+            
+            // Prepare the statement
+            statement = conn.prepareStatement(sqlCmd);
+            statement.setMaxRows(pageSize + 1);
+            bindPage(statement, plan, seek);
+            
+            // Perform the SELECT operation
+            ResultSet rs = statement.executeQuery();
+            
+            // Store at most one page of results in the summary list
+            EmployeeRowMapper mapper = new EmployeeRowMapper(rs);
+            List<EmployeeSummary> results = new ArrayList<>(pageSize);
+            boolean more = false;
+            while ( rs.next() ) {
+                if ( results.size() == pageSize ) {
+                    more = true;
+                    break;
+                }
+                results.add( mapper.toSummary() );
+            }
+            
+            timer.lap(Phase.EXECUTE);
+            timer.rows(results.size());
+            
+            // Rows read backwards are returned in display order
+            EmployeePage page;
+            if ( reverse ) {
+                Collections.reverse(results);
+                page = new EmployeePage(results, more, true);
+            }
+            else {
+                page = new EmployeePage(results, seek != null, more);
+            }
+            
+            // Return the page, sharing it with other users unless a replica may not have a recent change
+            if ( source == this.ds || ! this.cache.isChangedWithin(this.replicaLagMillis) ) {
+                this.cache.putPage(generation, key, plan, page);
+            }
+            timer.end();
+            return page;
+        }
+        catch (Throwable t) {
+            
+            // Count the failure, and propagate it
+            timer.failed(t);
+            throw t;
+        }
+        finally {
+            
+            // Any exceptions will be propagated
+            
+            // No transaction rollback needed - all operations read-only
+            
+            // Close database objects, regardless of what happened
+            if ( statement != null ) {
+                statement.close();
+            }
+            RequestConnection.release(conn);
+        }
+    }
+    
+    /**
+     * Reads one page of employees whose last name matches the specified string, passing
+     * each row to a handler as it is read.
+     * 
+     * Used where the rows are written straight to a client, such as the REST API, so no
+     * {@link Employee} or {@link EmployeePage} is built and the cache is not used. The
+     * search and paging rules are the same as {@link #findEmployeePage}, reading forwards
+     * from the seek position, and the rows are read from the read data source.
+     * 
+     * @param mode - how the search argument is matched against the lastName field
+     * @param lastName - the search argument to be applied to the lastName field.
+     * @param seek - position to read from, or null to read the first page
+     * @param maxRows - maximum number of rows to pass to the handler, limited to {@link SearchPlanner#MAX_PAGE_SIZE}
+     * @param handler - receives each row in search order
+     * 
+     * @return true if more rows follow the last row passed to the handler
+     * 
+     * @throws InvalidSearchException if the search is refused, with a message for the user
+     * @throws SQLException All SQL exceptions are propagated from this method.
+     * @throws IOException if the handler fails to write a row
+     */
+    public boolean scanEmployeePage(SearchMode mode, String lastName, EmployeeKey seek, int maxRows, EmployeeRowHandler handler)
+            throws InvalidSearchException, SQLException, IOException
+    {
+        // Choose the SQL for the search, and limit the rows returned
+        SearchPlan plan = SearchPlanner.plan(mode, lastName);
+        int pageSize = SearchPlanner.pageSize(maxRows);
+        
+        // Instances of JDBC objects
+        Connection conn = null;
+        PreparedStatement statement = null;
+        
+        // Times each phase of the operation
+        OperationTimer timer = this.metrics.start("scanPage", TxMode.NONE);
+        
+        try {
+            // Get the DB connection - read-only, so no locks or unit of work needed
+            conn = RequestConnection.getConnection(readDataSource(), this.metrics, true);
+            timer.lap(Phase.CONNECT);
+            
+            // Prepare and run the query
+            statement = conn.prepareStatement(
+                    EmployeeStatements.page(Projection.EMPLOYEE, plan.getPredicate(), position(seek, false)));
+            statement.setMaxRows(pageSize + 1);
+            bindPage(statement, plan, seek);
+            ResultSet rs = statement.executeQuery();
+            
+            // Hand each row to the handler, reading one extra row to see if there are more
+            EmployeeRowMapper mapper = new EmployeeRowMapper(rs);
+            int rows = 0;
+            boolean more = false;
+            while ( rs.next() ) {
+                if ( rows == pageSize ) {
+                    more = true;
+                    break;
+                }
+                handler.row(mapper);
+                rows++;
+            }
+            timer.lap(Phase.EXECUTE);
+            timer.rows(rows);
+            timer.end();
+            return more;
+        }
+        catch (Throwable t) {
+            
+            // Count the failure, and propagate it
+            timer.failed(t);
+            throw t;
+        }
+        finally {
+            
+            // Close database objects, regardless of what happened
+            if ( statement != null ) {
+                statement.close();
+            }
+            RequestConnection.release(conn);
+        }
+    }
+    
+    /**
+     * Reads every employee in employee number order, passing each row to a handler
+     * as it is read.
+     * 
+     * Used to export the table. The query runs with a forward-only, read-only cursor,
+     * and the driver fetches the rows in blocks of the requested size, so memory use
+     * does not depend on the size of the table. The cache is not used, and the rows are
+     * read from the read data source.
+     * 
+     * @param afterEmpNo - read the employees after this employee number, or null to read them all
+     * @param fetchSize - the number of rows the driver fetches from Db2 at a time
+     * @param handler - receives each row in employee number order
+     * 
+     * @return the number of rows passed to the handler
+     * 
+     * @throws SQLException All SQL exceptions are propagated from this method.
+     * @throws IOException if the handler fails to write a row
+     */
+    public long scanAllEmployees(String afterEmpNo, int fetchSize, EmployeeRowHandler handler)
+            throws SQLException, IOException
+    {
+        // Instances of JDBC objects
+        Connection conn = null;
+        PreparedStatement statement = null;
+        
+        // Times each phase of the operation
+        OperationTimer timer = this.metrics.start("export", TxMode.NONE);
+        
+        try {
+            // The primary key index gives the order, so the rows can be returned as they are read
+            String sqlCmd = afterEmpNo == null ? EmployeeStatements.EXPORT_ALL : EmployeeStatements.EXPORT_AFTER;
+            
+            // Get the DB connection - read-only, so no locks or unit of work needed
+            conn = RequestConnection.getConnection(readDataSource(), this.metrics, true);
+            timer.lap(Phase.CONNECT);
+            
+            // Prepare and run the query
+            statement = conn.prepareStatement(sqlCmd, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(fetchSize);
+            if ( afterEmpNo != null ) {
+                statement.setString(1, afterEmpNo);
+            }
+            ResultSet rs = statement.executeQuery();
+            
+            // Hand each row to the handler, holding none of them
+            EmployeeRowMapper mapper = new EmployeeRowMapper(rs);
+            long rows = 0;
+            while ( rs.next() ) {
+                handler.row(mapper);
+                rows++;
+            }
+            timer.lap(Phase.EXECUTE);
+            timer.rows(rows);
+            timer.end();
+            return rows;
+        }
+        catch (Throwable t) {
+            
+            // Count the failure, and propagate it
+            timer.failed(t);
+            throw t;
+        }
+        finally {
+            
+            // Close database objects, regardless of what happened
+            if ( statement != null ) {
+                statement.close();
+            }
+            RequestConnection.release(conn);
+        }
+    }
+    
+    /**
+     * Suggests last names that start with the characters typed so far.
+     * 
+     * Suggestions come from the in-memory {@link LastNameIndex}, so typing does not
+     * send a query to Db2 for each key pressed. The first call reads the index from
+     * the database, with any other callers waiting for that one read. Once the index
+     * is older than its refresh period, callers continue to use it while a single
+     * read to refresh it runs on the {@link DatabaseExecutor}.
+     * 
+     * @param prefix - the start of the last name, as typed
+     * @param limit - maximum number of names to return, limited to {@link LastNameIndex#MAX_SUGGESTIONS}
+     * 
+     * @return the distinct matching last names, in search order
+     * 
+     * @throws SQLException if the index cannot be read
+     */
+    public List<String> suggestLastNames(String prefix, int limit) throws SQLException
+    {
+        if ( ! this.lastNames.isLoaded() ) {
+            
+            // Nothing to suggest until the index has been read, so wait for it
+            this.lastNamesLoad.lock();
+            try {
+                if ( ! this.lastNames.isLoaded() ) {
+                    loadLastNames();
+                }
+            }
+            finally {
+                this.lastNamesLoad.unlock();
+            }
+        }
+        else if ( ! this.lastNames.isCurrent() && ! this.lastNamesLoad.isLocked() ) {
+            refreshLastNames();
+        }
+        
+        return this.lastNames.suggest(SearchPlanner.normalize(prefix), limit);
+    }
+    
+    /**
+     * @return true if suggestions can be made without reading the database
+     */
+    public boolean isSuggestReady() {
+        return this.lastNames.isLoaded();
+    }
+    
+    /**
+     * Tests whether an employee number is in use, starting a refresh of the index of
+     * last names if it is out of date.
+     * 
+     * A number the index shows to be in use is confirmed by reading the row by primary
+     * key, outside any unit of work, as another program may have deleted it since the
+     * index was read. A number the index does not show is left for the insert to check.
+     * 
+     * @param empNo - the employee number
+     * 
+     * @return true if the number is known to be in use, false if it is not, or the index cannot tell
+     * 
+     * @throws SQLException if the row cannot be read
+     */
+    private boolean isEmployeeNumberInUse(String empNo) throws SQLException
+    {
+        if ( ! this.lastNames.isCurrent() && ! this.lastNamesLoad.isLocked() ) {
+            refreshLastNames();
+        }
+        if ( empNo == null || ! this.lastNames.contains(empNo) ) {
+            return false;
+        }
+        
+        // Instances of JDBC objects
+        Connection conn = null;
+        PreparedStatement statement = null;
+        
+        try {
+            // Get the DB connection - read-only, so no locks or unit of work needed
+            conn = RequestConnection.getConnection(this.ds, this.metrics, true);
+            statement = conn.prepareStatement(EmployeeStatements.FIND_EMPLOYEE);
+            statement.setString(1, empNo);
+            if ( statement.executeQuery().next() ) {
+                return true;
+            }
+            
+            // Deleted since the index was read, so no longer in use
+            this.lastNames.remove(empNo);
+            return false;
+        }
+        finally {
+            
+            // Close database objects, regardless of what happened
+            if ( statement != null ) {
+                statement.close();
+            }
+            RequestConnection.release(conn);
+        }
+    }
+    
+    /**
+     * Reads the index of last names again in the background, unless a read is already running
+     * or the executor is busy, in which case the current index continues to be used.
+     */
+    private void refreshLastNames()
+    {
+        try {
+            this.executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    if ( ! DatabaseOperationsManager.this.lastNamesLoad.tryLock() ) {
+                        return;
+                    }
+                    try {
+                        if ( ! DatabaseOperationsManager.this.lastNames.isCurrent() ) {
+                            loadLastNames();
+                        }
+                    }
+                    catch (SQLException e) {
+                        System.out.println("Unable to refresh the last name index: " + e.getMessage());
+                    }
+                    finally {
+                        DatabaseOperationsManager.this.lastNamesLoad.unlock();
+                    }
+                }
+            });
+        }
+        catch (DatabaseBusyException e) {
+            // Try again on a later suggestion
+        }
+    }
+    
+    /**
+     * Reads the last name of every employee into the index. Called holding {@link #lastNamesLoad}.
+     * 
+     * The index is kept current by the update methods, so it is read from the primary DataSource.
+     */
+    private void loadLastNames() throws SQLException
+    {
+        // Instances of JDBC objects
+        Connection conn = null;
+        PreparedStatement statement = null;
+        
+        // Times each phase of the operation
+        OperationTimer timer = this.metrics.start("loadIndex", TxMode.NONE);
+        
+        // Changes committed from now on are applied over the rows read
+        this.lastNames.beginLoad();
+        
+        try {
+            // Get the DB connection - read-only, so no locks or unit of work needed
+            conn = RequestConnection.getConnection(this.ds, this.metrics, true);
+            timer.lap(Phase.CONNECT);
+            
+            // Prepare and run the query, reading just the two columns
+            statement = conn.prepareStatement(EmployeeStatements.LAST_NAMES, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(1000);
+            ResultSet rs = statement.executeQuery();
+            
+            Map<String, String> rows = new HashMap<>();
+            while ( rs.next() ) {
+                rows.put(rs.getString(1), rs.getString(2));
+            }
+            timer.lap(Phase.EXECUTE);
+            
+            this.lastNames.endLoad(rows);
+            timer.rows(rows.size());
+            timer.end();
+        }
+        catch (Throwable t) {
+            
+            // Count the failure, and propagate it
+            this.lastNames.abortLoad();
+            timer.failed(t);
+            throw t;
+        }
+        finally {
+            
+            // Close database objects, regardless of what happened
+            if ( statement != null ) {
+                statement.close();
+            }
+            RequestConnection.release(conn);
+        }
+    }
+    
+    /**
+     * Reads a single employee, using the cache where possible.
+     * 
+     * @param empNo - the employee number to find
+     * 
+     * @return the matching {@link Employee}, or null if there is no such employee
+     * 
+     * @throws SQLException All SQL exceptions are propagated from this method.
+     */
+    public Employee findEmployee(String empNo) throws SQLException
+    {
+        // Check the cache first
+        Employee employee = this.cache.getEmployee(empNo);
+        if ( employee != null ) {
+            return employee;
+        }
+        long generation = this.cache.getGeneration();
+        
+        // Times each phase of the operation
+        OperationTimer timer = this.metrics.start("find", TxMode.NONE);
+        
+        // Instances of JDBC objects
+        Connection conn = null;
+        PreparedStatement statement = null;
+        
+        try {
+            // The SQL command used to find a single employee by primary key
+            String sqlCmd = EmployeeStatements.FIND_EMPLOYEE;
+            
+            // Get the DB connection - read-only, so no locks or unit of work needed
+            conn = RequestConnection.getConnection(this.ds, this.metrics, true);
+            timer.lap(Phase.CONNECT);
+            
+            // Prepare and run the query
+            statement = conn.prepareStatement(sqlCmd);
+            statement.setString(1, empNo);
+            ResultSet rs = statement.executeQuery();
+            employee = rs.next() ? new EmployeeRowMapper(rs).toEmployee() : null;
+            timer.lap(Phase.EXECUTE);
+            timer.end();
+            if ( employee == null ) {
+                return null;
+            }
+            timer.rows(1);
+            
+            // Keep a copy for other users
+            this.cache.putEmployee(generation, employee);
+            return employee;
+        }
+        catch (Throwable t) {
+            
+            // Count the failure, and propagate it
+            timer.failed(t);
+            throw t;
+        }
+        finally {
+            
+            // Close database objects, regardless of what happened
+            if ( statement != null ) {
+                statement.close();
+            }
+            RequestConnection.release(conn);
+        }
+    }
+    
+    /**
+     * Writes a new employee to the database.
+     * 
+     * This method is called when a user presses 'Add employee' button.
+     * It will add the employee based on the values provided in the already-populated bean.
+     * Without JTA, and with group commit configured, the employee may be committed
+     * together with other concurrent changes, see {@link GroupCommit}.
+     * 
+     * An employee number the index of last names shows to be in use, and that a
+     * primary key read confirms, is refused without starting a unit of work. Otherwise a duplicate is found by the
+     * insert, and reported in the same way once the unit of work has rolled back.
+     * 
+     * @param employee - The employee object populated
+     * @param useJta - use JTA to provide unit of work support, rather than the CICS unit of work support
+     * 
+     * @throws DuplicateEmployeeException if the employee number is already in use
+     * @throws NamingException if the JNDI lookup of the UserTransaction fails
+     * @throws SQLException if a JDBC error occurs
+     * @throws CicsConditionException if a CICS error occurs
+     * @throws NotSupportedException propagated from {@link UserTransaction#begin()}
+     * @throws RollbackException propagated from {@link UserTransaction#commit()}
+     * @throws HeuristicMixedException propagated from {@link UserTransaction#commit()}
+     * @throws HeuristicRollbackException propagated from {@link UserTransaction#commit()} 
+     * @throws SystemException propagated from {@link UserTransaction#begin()} and {@link UserTransaction#commit()}
+     */
+    public void createEmployee(final Employee employee, final boolean useJta)
+            throws DuplicateEmployeeException, NamingException, SQLException, CicsConditionException,
+            NotSupportedException, RollbackException, HeuristicMixedException, HeuristicRollbackException, SystemException 
+    {
+        // Refuse a number known to be in use before starting a unit of work that would fail
+        if ( isEmployeeNumberInUse(employee.getEmpNo()) ) {
+            this.metrics.duplicateRefused();
+            throw new DuplicateEmployeeException(employee.getEmpNo(), null);
+        }
+        
+        // Without JTA, concurrent changes may be committed together
+        if ( ! useJta && this.groupCommit != null ) {
+            final String msg = String.format("Added %s with last name: %s", employee.getEmpNo(), employee.getLastName());
+            try {
+                commitInGroup("create", new GroupCommit.Change<Void>() {
+                    @Override
+                    public Void execute(Connection conn) throws Exception {
+                        insertEmployee(conn, employee);
+                        DatabaseOperationsManager.this.audit.beforeCommit(msg);
+                        return null;
+                    }
+                });
+            }
+            catch (EmployeeConflictException e) {
+                // Not thrown by an insert
+                throw new IllegalStateException(e);
+            }
+            catch (SQLException e) {
+                if ( SqlErrors.isDuplicateKey(e) ) {
+                    throw new DuplicateEmployeeException(employee.getEmpNo(), e);
+                }
+                throw e;
+            }
+            this.cache.invalidate(employee.getEmpNo(), employee.getLastName());
+            this.lastNames.put(employee.getEmpNo(), employee.getLastName());
+            this.audit.afterCommit(msg);
+            return;
+        }
+        
+        // Instances of JDBC objects
+        Connection conn = null;
+        
+        // The unit of work, either JTA or CICS
+        UnitOfWork uow = null;
+        
+        // Times each phase of the operation
+        OperationTimer timer = this.metrics.start("create", TxMode.of(useJta));
+        
+        try {
+
+            /*
+             * Setup the transaction, based on whether JTA has been requested.
+             */
+            
+            // Transactions are started implictly in CICS, explicitly in JTA
+            uow = this.transactions.begin("create", useJta);
+            
+            
+            /*
+             * Update the database.
+             */
+            
+            // Get the DB connection
+            conn = RequestConnection.getConnection(this.ds, this.metrics, false);
+            uow.enlist(conn);
+            timer.lap(Phase.CONNECT);
+            
+            // Perform the INSERT operation
+            insertEmployee(conn, employee);
+            timer.lap(Phase.EXECUTE);
+            
+            
+            /*
+             * Record the change in the audit log.
+             */
+            
+            // Write an audit record, including it in the transaction if required
+            String msg = String.format("Added %s with last name: %s", employee.getEmpNo(), employee.getLastName());
+            this.audit.beforeCommit(msg);
+            timer.lap(Phase.AUDIT);
+ 
+            
+            /*
+             * Commit the transaction.
+             */
+            
+            uow.commit();
+            timer.lap(Phase.COMMIT);
+            
+            // Committed, so discard any cached copies that no longer match the database
+            this.cache.invalidate(employee.getEmpNo(), employee.getLastName());
+            this.lastNames.put(employee.getEmpNo(), employee.getLastName());
+            this.audit.afterCommit(msg);
+            timer.rows(1);
+            timer.end();
+        }
+        catch (Throwable t) {
+            
+            // Count the failure
+            timer.failed(t);
+            
+            // Make sure we rollback the transaction
+            if ( uow != null ) {
+                uow.rollback();
+            }
+            
+            // Report a duplicate employee number as such, rather than as a JDBC error
+            if ( SqlErrors.isDuplicateKey(t) ) {
+                throw new DuplicateEmployeeException(employee.getEmpNo(), t);
+            }
+            
+            // Rethrow out to the caller
+            throw t;
+        }
+        finally {
+        
+            // Any exceptions will be propagated
+            
+            // Close database objects, regardless of what happened
+            RequestConnection.release(conn);
+        }
+    }
+    
+    /**
+     * Writes a number of new employees to the database.
+     * 
+     * This method is called when a user uploads a file of employees from the 'Add employee' page.
+     * The rows are sent to the database as JDBC batches of <code>batchSize</code> rows, and each
+     * batch is committed as a separate unit of work, together with a single audit record for the batch.
+     * 
+     * A row that is rejected by the database, for example because the employee number is already in use,
+     * is reported in the result without preventing the other rows in its batch from being added. Only errors
+     * in the data of a row (SQLState classes 22 and 23) are treated this way. Any other
+     * error rolls back the current batch and is propagated, leaving earlier batches committed.
+     * 
+     * @param employees - The employee objects populated
+     * @param useJta - use JTA to provide unit of work support, rather than the CICS unit of work support
+     * @param batchSize - the number of rows sent to the database and committed together
+     * 
+     * @return the number of employees added, and the rows that could not be added
+     * 
+     * @throws NamingException if the JNDI lookup of the UserTransaction fails
+     * @throws SQLException if a JDBC error occurs
+     * @throws CicsConditionException if a CICS error occurs
+     * @throws NotSupportedException propagated from {@link UserTransaction#begin()}
+     * @throws RollbackException propagated from {@link UserTransaction#commit()}
+     * @throws HeuristicMixedException propagated from {@link UserTransaction#commit()}
+     * @throws HeuristicRollbackException propagated from {@link UserTransaction#commit()} 
+     * @throws SystemException propagated from {@link UserTransaction#begin()} and {@link UserTransaction#commit()}
+     */
+    public ImportResult createEmployees(List<Employee> employees, final boolean useJta, final int batchSize)
+            throws NamingException, SQLException, CicsConditionException,
+            NotSupportedException, RollbackException, HeuristicMixedException, HeuristicRollbackException, SystemException 
+    {
+        ImportResult result = new ImportResult();
+        createEmployees(employees, useJta, batchSize, result);
+        return result;
+    }
+    
+    /**
+     * Writes a number of new employees to the database, recording the outcome as each batch
+     * is committed, so the caller can report the rows already added if a later batch fails.
+     * 
+     * @param employees - The employee objects populated
+     * @param useJta - use JTA to provide unit of work support, rather than the CICS unit of work support
+     * @param batchSize - the number of rows sent to the database and committed together
+     * @param result - updated with the number of employees added, and the rows that could not be added
+     * 
+     * @see #createEmployees(List, boolean, int)
+     */
+    public void createEmployees(List<Employee> employees, final boolean useJta, final int batchSize, ImportResult result)
+            throws NamingException, SQLException, CicsConditionException,
+            NotSupportedException, RollbackException, HeuristicMixedException, HeuristicRollbackException, SystemException 
+    {
+        // Each batch is a separate unit of work
+        for (int start = 0; start < employees.size(); start += batchSize) {
+            int end = Math.min(start + batchSize, employees.size());
+            createEmployeeBatch(employees.subList(start, end), start, useJta, result);
+        }
+    }
+    
+    /**
+     * Writes a single batch of new employees to the database in one unit of work.
+     * 
+     * @param employees - The employee objects in this batch
+     * @param offset - The position of the first employee of the batch in the full list
+     * @param useJta - use JTA to provide unit of work support, rather than the CICS unit of work support
+     * @param result - updated with the outcome of each row
+     * 
+     * @see #createEmployees(List, boolean, int)
+     */
+    private void createEmployeeBatch(List<Employee> employees, int offset, final boolean useJta, ImportResult result)
+            throws NamingException, SQLException, CicsConditionException,
+            NotSupportedException, RollbackException, HeuristicMixedException, HeuristicRollbackException, SystemException 
+    {
+        // Instances of JDBC objects
+        Connection conn = null;
+        PreparedStatement statement = null;
+        
+        // The unit of work, either JTA or CICS
+        UnitOfWork uow = null;
+        
+        // Times each phase of the operation
+        OperationTimer timer = this.metrics.start("createBatch", TxMode.of(useJta));
+        
+        // The rows actually added in this batch
+        List<Employee> added = new ArrayList<>(employees.size());
+        
+        try {
+
+            /*
+             * Setup the transaction, based on whether JTA has been requested.
+             */
+            
+            // Transactions are started implictly in CICS, explicitly in JTA
+            uow = this.transactions.begin("createBatch", useJta);
+            
+            
+            /*
+             * Update the database.
+             */
+            
+            // Our INSERT command for the DB
+            String sqlCmd = EmployeeStatements.INSERT_EMPLOYEE;
+            
+            // Get the DB connection
+            conn = RequestConnection.getConnection(this.ds, this.metrics, false);
+            uow.enlist(conn);
+            timer.lap(Phase.CONNECT);
+            
+            // Prepare the statement once, and add a set of values for each row
+            statement = conn.prepareStatement(sqlCmd);
+            for (Employee employee : employees) {
+                populateStatement(statement, employee);
+                statement.addBatch();
+            }
+            
+            // Perform the INSERT operations in a single request to the database
+            int[] counts;
+            SQLException failure = null;
+            try {
+                counts = statement.executeBatch();
+            }
+            catch (BatchUpdateException e) {
+                
+                // Anything other than rejected rows fails the whole batch, as the database
+                // may already have rolled back the rows reported as added
+                if ( ! SqlErrors.isRowErrors(e) ) {
+                    throw e;
+                }
+                counts = e.getUpdateCounts() == null ? new int[0] : e.getUpdateCounts();
+                failure = e;
+            }
+            
+            // Work out which rows were added. Errors for individual rows are chained from the
+            // batch exception, in the same order as the failing rows.
+            SQLException rowError = failure == null ? null : failure.getNextException();
+            for (int i = 0; i < counts.length; i++) {
+                Employee employee = employees.get(i);
+                if ( counts[i] == Statement.EXECUTE_FAILED ) {
+                    String reason = rowFailure(rowError == null ? failure : rowError);
+                    result.failed(offset + i + 1, employee.getEmpNo(), reason);
+                    rowError = rowError == null ? null : rowError.getNextException();
+                }
+                else {
+                    added.add(employee);
+                }
+            }
+            
+            // Some drivers stop at the first failing row, which is the row after the last count
+            // returned - any rows after that were not attempted, so add them individually
+            if ( counts.length < employees.size() ) {
+                Employee employee = employees.get(counts.length);
+                String reason = rowFailure(rowError == null ? failure : rowError);
+                result.failed(offset + counts.length + 1, employee.getEmpNo(), reason);
+                
+                statement.clearBatch();
+                for (int i = counts.length + 1; i < employees.size(); i++) {
+                    employee = employees.get(i);
+                    try {
+                        populateStatement(statement, employee);
+                        statement.executeUpdate();
+                        added.add(employee);
+                    }
+                    catch (SQLException e) {
+                        if ( ! SqlErrors.isRowError(e) ) {
+                            throw e;
+                        }
+                        result.failed(offset + i + 1, employee.getEmpNo(), rowFailure(e));
+                    }
+                }
+            }
+            timer.lap(Phase.EXECUTE);
+            
+            
+            /*
+             * Record the change in the audit log.
+             */
+            
+            // Write a single audit record for the batch, including it in the transaction if required
+            String msg = null;
+            if ( ! added.isEmpty() ) {
+                msg = String.format("Added %d employees from %s to %s", added.size(),
+                        added.get(0).getEmpNo(), added.get(added.size() - 1).getEmpNo());
+                this.audit.beforeCommit(msg);
+                timer.lap(Phase.AUDIT);
+            }
+            
+            
+            /*
+             * Commit the transaction.
+             */
+            
+            uow.commit();
+            timer.lap(Phase.COMMIT);
+            
+            // Committed, so record the rows added and discard any cached copies that no longer match the database
+            List<String> empNos = new ArrayList<>(added.size());
+            Set<String> lastNames = new HashSet<>();
+            for (Employee employee : added) {
+                result.added();
+                empNos.add(employee.getEmpNo());
+                lastNames.add(employee.getLastName());
+                this.lastNames.put(employee.getEmpNo(), employee.getLastName());
+            }
+            this.cache.invalidate(empNos, lastNames);
+            if ( msg != null ) {
+                this.audit.afterCommit(msg);
+            }
+            timer.rows(added.size());
+            timer.end();
+        }
+        catch (Throwable t) {
+            
+            // Count the failure
+            timer.failed(t);
+            
+            // Make sure we rollback the transaction
+            if ( uow != null ) {
+                uow.rollback();
+            }
+            
+            // Rethrow out to the caller
+            throw t;
+        }
+        finally {
+        
+            // Close database objects, regardless of what happened
+            if ( statement != null ) {
+                statement.close();
+            }
+            RequestConnection.release(conn);
+        }
+    }
+    
+    /**
+     * Deletes an employee from the database.
+     * 
+     * This method is called when a user presses the 'Delete' button next to an employee row.
+     * 
+     * It will use the employee number in the bean to fill in an delete statement
+     * and remove the associated record from the DB. If the employee was read from
+     * the DB, the record is only removed if it has not been changed since. Without JTA,
+     * and with group commit configured, the delete may be committed together with
+     * other concurrent changes, see {@link GroupCommit}.
+     * 
+     * @param employee - The employee object populated
+     * @param useJta - use JTA to provide unit of work support, rather than CICS
+     * 
+     * @throws EmployeeConflictException if the record has been changed or deleted since it was read
+     * @throws NamingException if the JNDI lookup of the UserTransaction fails
+     * @throws SQLException if a JDBC error occurs
+     * @throws CicsConditionException if a CICS error occurs
+     * @throws NotSupportedException propagated from {@link UserTransaction#begin()}
+     * @throws RollbackException propagated from {@link UserTransaction#commit()}
+     * @throws HeuristicMixedException propagated from {@link UserTransaction#commit()}
+     * @throws HeuristicRollbackException propagated from {@link UserTransaction#commit()} 
+     * @throws SystemException propagated from {@link UserTransaction#begin()} and {@link UserTransaction#commit()}
+     */
+    public void deleteEmployee(final Employee employee, final boolean useJta)
+            throws EmployeeConflictException, NamingException, SQLException, CicsConditionException,
+            NotSupportedException, RollbackException, HeuristicMixedException, HeuristicRollbackException, SystemException     
+    {
+        // Without JTA, concurrent changes may be committed together
+        if ( ! useJta && this.groupCommit != null ) {
+            final String msg = String.format("Deleted %s with last name: %s", employee.getEmpNo(), employee.getLastName());
+            commitInGroup("delete", new GroupCommit.Change<Void>() {
+                @Override
+                public Void execute(Connection conn) throws Exception {
+                    deleteRow(conn, employee);
+                    DatabaseOperationsManager.this.audit.beforeCommit(msg);
+                    return null;
+                }
+            });
+            this.cache.invalidate(employee.getEmpNo(), employee.getLastName());
+            this.lastNames.remove(employee.getEmpNo());
+            this.audit.afterCommit(msg);
+            return;
+        }
+        
+        // Instances of JDBC objects
+        Connection conn = null;
+        
+        // The unit of work, either JTA or CICS
+        UnitOfWork uow = null;
+        
+        // Times each phase of the operation
+        OperationTimer timer = this.metrics.start("delete", TxMode.of(useJta));
+        
+        try {
+
+            /*
+             * Setup the transaction, based on whether JTA has been requested.
+             */
+            
+            // Transactions are started implictly in CICS, explicitly in JTA
+            uow = this.transactions.begin("delete", useJta);
+            
+            
+            /*
+             * Update the database.
+             */
+            
+            // Get the DB connection
+            conn = RequestConnection.getConnection(this.ds, this.metrics, false);
+            uow.enlist(conn);
+            timer.lap(Phase.CONNECT);
+            
+            // Perform the DELETE operation, unless someone else has changed the record
+            deleteRow(conn, employee);
+            timer.lap(Phase.EXECUTE);
+
+
+            /*
+             * Record the change in the audit log.
+             */
+            
+            // Write some basic information about the deleted record to the audit log
+            String msg = String.format("Deleted %s with last name: %s", employee.getEmpNo(), employee.getLastName());
+            this.audit.beforeCommit(msg);
+            timer.lap(Phase.AUDIT);
+
+            
+            /*
+             * Commit the transaction.
+             */
+            
+            uow.commit();
+            timer.lap(Phase.COMMIT);
+            
+            // Committed, so discard any cached copies that no longer match the database
+            this.cache.invalidate(employee.getEmpNo(), employee.getLastName());
+            this.lastNames.remove(employee.getEmpNo());
+            this.audit.afterCommit(msg);
+            timer.rows(1);
+            timer.end();
+        }
+        catch (Throwable t) {
+            
+            // Count the failure
+            timer.failed(t);
+            
+            // Make sure we rollback the transaction
+            if ( uow != null ) {
+                uow.rollback();
+            }
+            
+            // Rethrow out to the caller
+            throw t;
+        }
+        finally {
+            
+            // Any exceptions will be propagated
+            
+            // Close database objects, regardless of what happened
+            RequestConnection.release(conn);
+        }
+    }
+    
+    /** 
+     * This method is called when a user presses the 'Edit' then 'Save' button
+     * next to an employee row.
+     * 
+     * It will use the employee number in the bean to fill in an UPDATE statement
+     * and update the associated record from the DB. Only the columns changed since
+     * the employee was read are written, and if nothing has changed the database
+     * is not called at all.
+     * 
+     * Concurrent updates are detected without holding locks: the record is only
+     * updated if its row change token still matches the value read with it. The
+     * new token is then stored in the bean, so the employee can be edited again.
+     * 
+     * Without JTA, and with group commit configured, the update may be committed
+     * together with other concurrent changes, see {@link GroupCommit}.
+     * 
+     * @param employee - The employee object populated
+     * @param useJta - use JTA to provide unit of work support, rather than CICS
+     * 
+     * @throws EmployeeConflictException if the record has been changed or deleted since it was read
+     * @throws NamingException if the JNDI lookup of the UserTransaction fails
+     * @throws SQLException if a JDBC error occurs
+     * @throws CicsConditionException if a CICS error occurs
+     * @throws NotSupportedException propagated from {@link UserTransaction#begin()}
+     * @throws RollbackException propagated from {@link UserTransaction#commit()}
+     * @throws HeuristicMixedException propagated from {@link UserTransaction#commit()}
+     * @throws HeuristicRollbackException propagated from {@link UserTransaction#commit()} 
+     * @throws SystemException propagated from {@link UserTransaction#begin()} and {@link UserTransaction#commit()}
+     */
+    public void updateEmployee(final Employee employee, final boolean useJta)
+            throws EmployeeConflictException, NamingException, SQLException, CicsConditionException,
+                   NotSupportedException, RollbackException, HeuristicMixedException, HeuristicRollbackException, SystemException 
+    {
+        /*
+         * Clean some of the data before passing to the database.
+         */
+
+        // Uppercase the gender
+        if ( employee.getGender() != null ) {
+            employee.setGender(employee.getGender().toUpperCase());
+        }
+        
+        // Nothing to do if no fields have been changed since the employee was read
+        final Set<EmployeeColumn> columns = employee.getDirtyColumns();
+        if ( columns.isEmpty() ) {
+            return;
+        }
+        
+        // Without JTA, concurrent changes may be committed together
+        if ( ! useJta && this.groupCommit != null ) {
+            final String msg = String.format("Updated %s with last name: %s", employee.getEmpNo(), employee.getLastName());
+            long newToken = commitInGroup("update", new GroupCommit.Change<Long>() {
+                @Override
+                public Long execute(Connection conn) throws Exception {
+                    long token = updateRow(conn, employee, columns);
+                    DatabaseOperationsManager.this.audit.beforeCommit(msg);
+                    return token;
+                }
+            });
+            employee.clearDirty();
+            employee.setRowChangeToken(newToken);
+            this.cache.invalidate(employee.getEmpNo(), employee.getLastName());
+            this.lastNames.put(employee.getEmpNo(), employee.getLastName());
+            this.audit.afterCommit(msg);
+            return;
+        }
+        
+        // Instances of JDBC objects
+        Connection conn = null;
+        
+        // The unit of work, either JTA or CICS
+        UnitOfWork uow = null;
+        
+        // Times each phase of the operation
+        OperationTimer timer = this.metrics.start("update", TxMode.of(useJta));
+        
+        try {
+
+            /*
+             * Setup the transaction, based on whether JTA has been requested.
+             */
+            
+            // Transactions are started implictly in CICS, explicitly in JTA
+            uow = this.transactions.begin("update", useJta);
+
+            
+            /*
+             * Update the database.
+             */
+            
+            // Get the DB connection
+            conn = RequestConnection.getConnection(this.ds, this.metrics, false);
+            uow.enlist(conn);
+            timer.lap(Phase.CONNECT);
+
+            // Perform the UPDATE operation, reading the new token for the next time this employee is changed
+            long newToken = updateRow(conn, employee, columns);
+            timer.lap(Phase.EXECUTE);
+
+            
+            /*
+             * Record the change in the audit log.
+             */
+            
+            // Write some basic information about the updated record to the audit log
+            String msg = String.format("Updated %s with last name: %s", employee.getEmpNo(), employee.getLastName());
+            this.audit.beforeCommit(msg);
+            timer.lap(Phase.AUDIT);
+
+            
+            /*
+             * Commit the transaction.
+             */
+           
+            
+            uow.commit();
+            timer.lap(Phase.COMMIT);
+            
+            // Committed, so the bean now matches the database
+            employee.clearDirty();
+            employee.setRowChangeToken(newToken);
+            
+            // Discard any cached copies that no longer match the database
+            this.cache.invalidate(employee.getEmpNo(), employee.getLastName());
+            this.lastNames.put(employee.getEmpNo(), employee.getLastName());
+            this.audit.afterCommit(msg);
+            timer.rows(1);
+            timer.end();
+        }
+        catch (Throwable t) {
+            
+            // Count the failure
+            timer.failed(t);
+            
+            // Make sure we rollback the transaction
+            if ( uow != null ) {
+                uow.rollback();
+            }
+            
+            // Rethrow out to the caller
+            throw t;
+        }
+        finally {
+            
+            // Close database objects, regardless of what happened
+            RequestConnection.release(conn);
+        }
+    }
+
+    
+    /**
+     * Deletes a set of employees from the database in a single unit of work.
+     * 
+     * This method is called when a user presses the 'Delete selected' button.
+     * 
+     * The employees are deleted by number, whether or not they have changed since
+     * they were listed, and one audit record lists them all.
+     * 
+     * @param empNos - the numbers of the employees to delete
+     * @param useJta - use JTA to provide unit of work support, rather than CICS
+     * 
+     * @return the number of employees deleted
+     * 
+     * @throws NamingException if the JNDI lookup of the UserTransaction fails
+     * @throws SQLException if a JDBC error occurs, in which case no employee is deleted
+     * @throws CicsConditionException if a CICS error occurs
+     * @throws NotSupportedException propagated from {@link UserTransaction#begin()}
+     * @throws RollbackException propagated from {@link UserTransaction#commit()}
+     * @throws HeuristicMixedException propagated from {@link UserTransaction#commit()}
+     * @throws HeuristicRollbackException propagated from {@link UserTransaction#commit()} 
+     * @throws SystemException propagated from {@link UserTransaction#begin()} and {@link UserTransaction#commit()}
+     */
+    public int deleteEmployees(Collection<String> empNos, boolean useJta)
+            throws NamingException, SQLException, CicsConditionException,
+                   NotSupportedException, RollbackException, HeuristicMixedException, HeuristicRollbackException, SystemException
+    {
+        int deleted = updateByKeys("deleteSet", EmployeeStatements.DELETE_EMPLOYEES, null, empNos, useJta, "Deleted");
+        
+        // Committed, so the employees no longer have a last name to suggest
+        for (String empNo : empNos) {
+            this.lastNames.remove(empNo);
+        }
+        return deleted;
+    }
+    
+    /**
+     * Changes the job of a set of employees in a single unit of work.
+     * 
+     * This method is called when a user presses the 'Change job' button for the selected rows.
+     * 
+     * @param empNos - the numbers of the employees to change
+     * @param job - the new job
+     * @param useJta - use JTA to provide unit of work support, rather than CICS
+     * 
+     * @return the number of employees changed
+     * 
+     * @throws NamingException if the JNDI lookup of the UserTransaction fails
+     * @throws SQLException if a JDBC error occurs, in which case no employee is changed
+     * @throws CicsConditionException if a CICS error occurs
+     * @throws NotSupportedException propagated from {@link UserTransaction#begin()}
+     * @throws RollbackException propagated from {@link UserTransaction#commit()}
+     * @throws HeuristicMixedException propagated from {@link UserTransaction#commit()}
+     * @throws HeuristicRollbackException propagated from {@link UserTransaction#commit()} 
+     * @throws SystemException propagated from {@link UserTransaction#begin()} and {@link UserTransaction#commit()}
+     */
+    public int updateJob(Collection<String> empNos, String job, boolean useJta)
+            throws NamingException, SQLException, CicsConditionException,
+                   NotSupportedException, RollbackException, HeuristicMixedException, HeuristicRollbackException, SystemException
+    {
+        return updateByKeys("updateJob", EmployeeStatements.UPDATE_JOBS, job, empNos, useJta, "Changed job to " + job + " for");
+    }
+    
+    /**
+     * Runs a statement that changes a set of employees, chosen with an IN list of
+     * {@link EmployeeStatements#KEY_LIST_SIZE} employee numbers.
+     * 
+     * The keys are sorted, so that concurrent calls lock rows in the same order, and
+     * split into lists of that size, the last padded by repeating its final key. Each
+     * list is added to a batch, so every list is sent to Db2 together, and the whole
+     * set is committed in one unit of work with a single audit record.
+     * 
+     * @param operation - name of the operation, used to record latency
+     * @param sqlCmd - the statement, with an optional value parameter followed by the IN list
+     * @param value - the value of the first parameter, or null if the statement has none
+     * @param empNos - the employee numbers
+     * @param useJta - use JTA to provide unit of work support, rather than CICS
+     * @param action - describes the change in the audit record
+     * 
+     * @return the number of rows changed
+     */
+    private int updateByKeys(String operation, String sqlCmd, String value, Collection<String> empNos, boolean useJta, String action)
+            throws NamingException, SQLException, CicsConditionException,
+                   NotSupportedException, RollbackException, HeuristicMixedException, HeuristicRollbackException, SystemException
+    {
+        List<String> keys = new ArrayList<>(new TreeSet<>(empNos));
+        if ( keys.isEmpty() ) {
+            return 0;
+        }
+        
+        // Instances of JDBC objects
+        Connection conn = null;
+        PreparedStatement statement = null;
+        
+        // The unit of work, either JTA or CICS
+        UnitOfWork uow = null;
+        
+        // Times each phase of the operation
+        OperationTimer timer = this.metrics.start(operation, TxMode.of(useJta));
+        
+        try {
+            
+            /*
+             * Setup the transaction, based on whether JTA has been requested.
+             */
+            
+            uow = this.transactions.begin(operation, useJta);
+            
+            
+            /*
+             * Update the database.
+             */
+            
+            // Get the DB connection
+            conn = RequestConnection.getConnection(this.ds, this.metrics, false);
+            uow.enlist(conn);
+            timer.lap(Phase.CONNECT);
+            
+            // Add a set of values to the batch for each list of keys
+            statement = conn.prepareStatement(sqlCmd);
+            for (int from = 0; from < keys.size(); from += EmployeeStatements.KEY_LIST_SIZE) {
+                int index = 1;
+                if ( value != null ) {
+                    statement.setString(index++, value);
+                }
+                for (int i = 0; i < EmployeeStatements.KEY_LIST_SIZE; i++) {
+                    statement.setString(index++, keys.get(Math.min(from + i, keys.size() - 1)));
+                }
+                statement.addBatch();
+            }
+            
+            // Count the rows changed, where the driver reports them
+            int rows = 0;
+            for (int count : statement.executeBatch()) {
+                if ( count > 0 ) {
+                    rows += count;
+                }
+            }
+            timer.lap(Phase.EXECUTE);
+            
+            
+            /*
+             * Record the change in the audit log.
+             */
+            
+            String msg = String.format("%s %d employees: %s", action, rows, auditKeys(keys));
+            this.audit.beforeCommit(msg);
+            timer.lap(Phase.AUDIT);
+            
+            
+            /*
+             * Commit the transaction.
+             */
+            
+            uow.commit();
+            timer.lap(Phase.COMMIT);
+            
+            // Committed, so discard any cached copies - the last names have not changed,
+            // so only pages holding these employees are affected
+            this.cache.invalidate(keys, Collections.<String>emptySet());
+            this.audit.afterCommit(msg);
+            timer.rows(rows);
+            timer.end();
+            return rows;
+        }
+        catch (Throwable t) {
+            
+            // Count the failure
+            timer.failed(t);
+            
+            // Make sure we rollback the transaction
+            if ( uow != null ) {
+                uow.rollback();
+            }
+            
+            // Rethrow out to the caller
+            throw t;
+        }
+        finally {
+            
+            // Close database objects, regardless of what happened
+            if ( statement != null ) {
+                statement.close();
+            }
+            RequestConnection.release(conn);
+        }
+    }
+    
+    /**
+     * Lists employee numbers for an audit record, limited so the record fits in a TSQ item.
+     */
+    private static String auditKeys(List<String> keys)
+    {
+        int listed = Math.min(keys.size(), MAX_AUDIT_KEYS);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < listed; i++) {
+            sb.append(i == 0 ? "" : ", ").append(keys.get(i));
+        }
+        if ( listed < keys.size() ) {
+            sb.append(" and ").append(keys.size() - listed).append(" more");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Chooses the page query registered for a seek position.
+     * 
+     * @param seek - position to read from, or null to read the first page
+     * @param reverse - true to read the rows before the seek position, in descending order
+     * 
+     * @return the position of the page
+     */
+    private static Position position(EmployeeKey seek, boolean reverse)
+    {
+        if ( seek == null ) {
+            return Position.FIRST;
+        }
+        return reverse ? Position.BEFORE : Position.AFTER;
+    }
+    
+    /**
+     * Sets the parameters of a page query from {@link EmployeeStatements#page}.
+     * 
+     * @param statement - the prepared query
+     * @param plan - the search, whose argument is the first query value
+     * @param seek - position to read from, or null to read the first page
+     * 
+     * @throws SQLException if any JDBC errors are encountered when updating the statement.
+     */
+    private static void bindPage(PreparedStatement statement, SearchPlan plan, EmployeeKey seek) throws SQLException
+    {
+        statement.setString(1, plan.getArgument());
+        if ( seek != null ) {
+            statement.setString(2, seek.getLastName());
+            statement.setString(3, seek.getLastName());
+            statement.setString(4, seek.getEmpNo());
+        }
+    }
+    
+    /**
+     * Reads the current row change token for an employee.
+     * 
+     * @param conn - the connection used to update the employee, so the read is in the same unit of work
+     * @param empNo - the employee number
+     * 
+     * @return the row change token, or 0 if there is no such employee
+     * 
+     * @throws SQLException if any JDBC errors are encountered.
+     */
+    private static long readRowChangeToken(Connection conn, String empNo) throws SQLException
+    {
+        try ( PreparedStatement statement = conn.prepareStatement(EmployeeStatements.READ_ROW_CHANGE_TOKEN) ) {
+            statement.setString(1, empNo);
+            ResultSet rs = statement.executeQuery();
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+    
+    /**
+     * Inserts a new employee, without committing.
+     * 
+     * @param conn - the connection, in manual commit mode
+     * @param employee - the employee to insert
+     * 
+     * @throws SQLException if any JDBC errors are encountered.
+     */
+    private static void insertEmployee(Connection conn, Employee employee) throws SQLException
+    {
+        try ( PreparedStatement statement = conn.prepareStatement(EmployeeStatements.INSERT_EMPLOYEE) ) {
+            populateStatement(statement, employee);
+            statement.executeUpdate();
+        }
+    }
+    
+    /**
+     * Deletes an employee, without committing.
+     * 
+     * The row change token is checked if the employee has one, so that we don't
+     * delete a record someone else has changed.
+     * 
+     * @param conn - the connection, in manual commit mode
+     * @param employee - the employee to delete
+     * 
+     * @throws EmployeeConflictException if the record has been changed or deleted since it was read
+     * @throws SQLException if any JDBC errors are encountered.
+     */
+    private static void deleteRow(Connection conn, Employee employee) throws EmployeeConflictException, SQLException
+    {
+        boolean checkToken = employee.getRowChangeToken() != 0;
+        try ( PreparedStatement statement = conn.prepareStatement(checkToken
+                ? EmployeeStatements.DELETE_EMPLOYEE_CHECKED
+                : EmployeeStatements.DELETE_EMPLOYEE) ) {
+            statement.setString(1, employee.getEmpNo());
+            if ( checkToken ) {
+                statement.setLong(2, employee.getRowChangeToken());
+            }
+            
+            // No row deleted means it has changed or gone
+            if ( statement.executeUpdate() == 0 && checkToken ) {
+                throw new EmployeeConflictException(employee.getEmpNo());
+            }
+        }
+    }
+    
+    /**
+     * Writes the changed columns of an employee, without committing.
+     * 
+     * The row change token is checked if the employee has one, and the new token
+     * is read in the same unit of work.
+     * 
+     * @param conn - the connection, in manual commit mode
+     * @param employee - the employee to update
+     * @param columns - the columns changed
+     * 
+     * @return the new row change token, or 0 if the employee has no token
+     * 
+     * @throws EmployeeConflictException if the record has been changed or deleted since it was read
+     * @throws SQLException if any JDBC errors are encountered.
+     */
+    private static long updateRow(Connection conn, Employee employee, Set<EmployeeColumn> columns)
+            throws EmployeeConflictException, SQLException
+    {
+        boolean checkToken = employee.getRowChangeToken() != 0;
+        try ( PreparedStatement statement = conn.prepareStatement(EmployeeStatements.update(columns, checkToken)) ) {
+            int index = 1;
+            for (EmployeeColumn column : columns) {
+                bindColumn(statement, index++, column, employee);
+            }
+            statement.setString(index++, employee.getEmpNo());
+            if ( checkToken ) {
+                statement.setLong(index, employee.getRowChangeToken());
+            }
+            
+            // No row updated means it has changed or gone
+            if ( statement.executeUpdate() == 0 && checkToken ) {
+                throw new EmployeeConflictException(employee.getEmpNo());
+            }
+        }
+        return checkToken ? readRowChangeToken(conn, employee.getEmpNo()) : 0;
+    }
+    
+    /**
+     * Describes why a row of a batch was not inserted.
+     * 
+     * @param e - the error for the row
+     * 
+     * @return the reason reported to the user
+     */
+    private static String rowFailure(SQLException e)
+    {
+        return SqlErrors.isDuplicateKeyRow(e) ? "employee number already in use" : e.getMessage();
+    }
+    
+    /**
+     * Makes a change through the group commit, timing it and counting any failure.
+     * 
+     * @param operation - name of the operation
+     * @param change - the change
+     * 
+     * @return the result of the change
+     * 
+     * @throws EmployeeConflictException if the record has been changed or deleted since it was read
+     * @throws SQLException if a JDBC error occurs, in the change or in the commit of its group
+     * @throws CicsConditionException if a CICS error occurs
+     */
+    private <T> T commitInGroup(String operation, GroupCommit.Change<T> change)
+            throws EmployeeConflictException, SQLException, CicsConditionException
+    {
+        OperationTimer timer = this.metrics.start(operation, TxMode.GROUP);
+        try {
+            T result = this.groupCommit.run(change);
+            timer.lap(Phase.COMMIT);
+            timer.rows(1);
+            timer.end();
+            return result;
+        }
+        catch (EmployeeConflictException | SQLException | CicsConditionException | RuntimeException e) {
+            timer.failed(e);
+            throw e;
+        }
+        catch (Exception e) {
+            // Not thrown by the changes made by this class
+            timer.failed(e);
+            throw new SQLException(e);
+        }
+    }
+    
+    /**
+     * Sets the value of a single column in an UPDATE statement, taken from an employee bean.
+     * 
+     * @param statement - The statement you want to populate
+     * @param index - The parameter index of the column
+     * @param column - The column to set
+     * @param employee - The employee you wish to use values from
+     * 
+     * @throws SQLException if any JDBC errors are encountered when updating the statement.
+     */
+    private static void bindColumn(PreparedStatement statement, int index, EmployeeColumn column, Employee employee)
+            throws SQLException
+    {
+        switch ( column ) {
+        case BIRTHDATE:
+            statement.setDate(index, employee.getBirthDate() == null ? null : new Date(employee.getBirthDate().getTime()));
+            break;
+        case BONUS:
+            statement.setBigDecimal(index, employee.getBonus());
+            break;
+        case COMM:
+            statement.setBigDecimal(index, employee.getComm());
+            break;
+        case EDLEVEL:
+            statement.setShort(index, employee.getEdLevel());
+            break;
+        case FIRSTNME:
+            statement.setString(index, employee.getFirstName());
+            break;
+        case HIREDATE:
+            statement.setDate(index, employee.getHireDate() == null ? null : new Date(employee.getHireDate().getTime()));
+            break;
+        case JOB:
+            statement.setString(index, employee.getJob());
+            break;
+        case LASTNAME:
+            statement.setString(index, employee.getLastName());
+            break;
+        case MIDINIT:
+            statement.setString(index, employee.getMidInit());
+            break;
+        case PHONENO:
+            statement.setString(index, employee.getPhoneNo());
+            break;
+        case SALARY:
+            statement.setBigDecimal(index, employee.getSalary());
+            break;
+        case SEX:
+            statement.setString(index, employee.getGender());
+            break;
+        }
+    }
+    
+    
+    /**
+     * Populates a CREATE statement with values, taken from an employee bean.
+     * 
+     * @param statement - The statement you want to populate
+     * @param employee - The employee you wish to use values from
+     * 
+     * @return A populated statement
+     * 
+     * @throws SQLException if any JDBC errors are encountered when updating the statement.
+     */
+    private static PreparedStatement populateStatement(PreparedStatement statement, Employee employee) throws SQLException
+    {
+        // Check for non-null value on birth date field
+        Date bDate = employee.getBirthDate() == null ? null : new Date(employee.getBirthDate().getTime());
+        statement.setDate(1, bDate);
+        
+        // Check for non-null value on hire date field
+        Date hDate = employee.getHireDate() == null ? null : new Date(employee.getHireDate().getTime());
+        statement.setDate(7, hDate);
+                
+        // Set a null department, as not set for the application
+        statement.setString(14, null);
+        
+        // Fill in the rest of the fields
+        statement.setBigDecimal(2, employee.getBonus());
+        statement.setBigDecimal(3, employee.getComm());
+        statement.setShort(4, employee.getEdLevel());
+        statement.setString(5, employee.getEmpNo());
+        statement.setString(6, employee.getFirstName());
+        statement.setString(8, employee.getJob());
+        statement.setString(9, employee.getLastName());
+        statement.setString(10, employee.getMidInit());
+        statement.setString(11, employee.getPhoneNo());
+        statement.setBigDecimal(12, employee.getSalary());
+        statement.setString(13, employee.getGender());
+        
+        // Return the populated statement
+        return statement;
+    }
+    
+    
+    /**
+     * Returns the DataSource for a search: the read DataSource, unless the request open
+     * on this thread must see the primary.
+     */
+    private DataSource readDataSource()
+    {
+        return RequestConnection.isReadPrimary() ? this.ds : this.readDs;
+    }
+    
+    /**
+     * Finds the DataSource used by searches and exports.
+     * 
+     * @param jndiName - the JNDI name of the read DataSource, or null if none is configured
+     * @param primary - the DataSource used if the read DataSource is not available
+     * 
+     * @return the DataSource for searches and exports
+     */
+    private static DataSource lookupReadDataSource(String jndiName, DataSource primary)
+    {
+        if ( jndiName == null || jndiName.trim().isEmpty() ) {
+            return primary;
+        }
+        
+        try {
+            return InitialContext.doLookup(jndiName.trim());
+        }
+        catch (NamingException e) {
+            System.out.println("Read data source " + jndiName.trim() + " unavailable, searches will use the primary data source");
+        }
+        
+        return primary;
+    }
+    
+    /**
+     * Creates the executor for database calls.
+     * 
+     * The threads come from a managed thread factory, so that they are CICS-enabled
+     * and can use JTA. If one is not available calls run on the caller's thread,
+     * with no more running at once than there would be threads.
+     * 
+     * @param threads - the maximum number of calls running at once
+     * @param queueSize - the maximum number of calls waiting to run
+     * @param timeoutSeconds - how long a caller waits for a call
+     * 
+     * @return the executor
+     */
+    private static DatabaseExecutor createExecutor(int threads, int queueSize, int timeoutSeconds)
+    {
+        try {
+            ThreadFactory threadFactory = InitialContext.doLookup("java:comp/DefaultManagedThreadFactory");
+            return new DatabaseExecutor(threadFactory, threads, queueSize, timeoutSeconds);
+        }
+        catch (NamingException e) {
+            System.out.println("Managed thread factory unavailable, database calls will run on the web container's threads");
+            e.printStackTrace(System.out);
+        }
+        
+        // No more calls than the managed threads would have run at once, with none queued
+        return new DatabaseExecutor(threads, timeoutSeconds);
+    }
+    
+    /**
+     * Creates the audit sink for the requested mode.
+     * 
+     * Buffered mode needs a managed executor, so that the records are written on a
+     * CICS-enabled thread. If one is not available the transactional mode is used.
+     * 
+     * @param mode - the value of the audit mode context parameter
+     * @param queueSize - the maximum number of records queued in buffered mode
+     * 
+     * @return the audit sink
+     */
+    private static AuditSink createAuditSink(String mode, int queueSize)
+    {
+        AuditWriter writer = new TsqAuditWriter();
+        
+        if ( "BUFFERED".equalsIgnoreCase(mode) ) {
+            try {
+                ExecutorService executor = InitialContext.doLookup("java:comp/DefaultManagedExecutorService");
+                return new BufferedAuditSink(writer, executor, queueSize, 100, 50);
+            }
+            catch (NamingException e) {
+                System.out.println("Managed executor unavailable, audit records will be written in each unit of work");
+                e.printStackTrace(System.out);
+            }
+        }
+        
+        return new TransactionalAuditSink(writer);
+    }
+    
+    /**
+     * Reads an integer context parameter from web.xml.
+     * 
+     * @param ctxt - the external context
+     * @param name - the name of the parameter
+     * @param defaultValue - the value to use if the parameter is not set
+     * 
+     * @return the value of the parameter
+     */
+    private static int intParameter(ExternalContext ctxt, String name, int defaultValue)
+    {
+        String value = ctxt.getInitParameter(name);
+        return value == null || value.trim().isEmpty() ? defaultValue : Integer.parseInt(value.trim());
+    }
+    
+    
+    /*
+     * Attribute accessor methods used by JSF.
+     */
+    
+    public EmployeeCache getCache() {
+        return this.cache;
+    }
+    
+    public LastNameIndex getLastNames() {
+        return this.lastNames;
+    }
+    
+    public AuditSink getAudit() {
+        return this.audit;
+    }
+    
+    public TransactionCoordinator getTransactions() {
+        return this.transactions;
+    }
+    
+    public Metrics getMetrics() {
+        return this.metrics;
+    }
+    
+    /**
+     * Opens a request on the current thread, so that the operations called until
+     * it is closed share one connection for each DataSource.
+     * 
+     * Searches in the request use the read DataSource until the request updates the database.
+     * 
+     * @param readOnly - true if none of the operations will update the database
+     * 
+     * @return the request, which must be closed on this thread
+     */
+    public RequestConnection beginRequest(boolean readOnly) {
+        return beginRequest(readOnly, false);
+    }
+    
+    /**
+     * Opens a request on the current thread, so that the operations called until
+     * it is closed share one connection for each DataSource.
+     * 
+     * @param readOnly - true if none of the operations will update the database
+     * @param readPrimary - true if searches in the request must use the primary DataSource,
+     *                      as returned by {@link #isReadPrimary(ExternalContext)}
+     * 
+     * @return the request, which must be closed on this thread
+     */
+    public RequestConnection beginRequest(boolean readOnly, boolean readPrimary) {
+        return RequestConnection.begin(this.metrics, readOnly, readPrimary);
+    }
+    
+    /**
+     * Runs the database work for a page action on the {@link DatabaseExecutor}, and waits for it.
+     * 
+     * The work runs inside a {@link RequestConnection}, so every database operation
+     * in the action shares one connection from the pool. Searches use the primary
+     * DataSource rather than the read DataSource if the session has changed the
+     * database recently, and work that may have changed the database is recorded
+     * with {@link #recordChange(ExternalContext)} once it ends, even if it failed.
+     * 
+     * @param ctxt - the external context of the request, used on the calling thread only
+     * @param readOnly - true if the work does not update the database
+     * @param work - the database operations
+     * 
+     * @return the result of the work
+     * 
+     * @throws DatabaseBusyException if the database is too busy to run the work
+     * @throws Exception the exception thrown by the work
+     */
+    public <T> T call(ExternalContext ctxt, final boolean readOnly, final Callable<T> work) throws Exception
+    {
+        final boolean readPrimary = isReadPrimary(ctxt);
+        
+        // Set once the work starts, as work refused by the executor changes nothing.
+        // Work that timed out may still start after the wait, so counts as started.
+        final AtomicBoolean started = new AtomicBoolean();
+        
+        try {
+            return this.executor.call(new Callable<T>() {
+                @Override
+                public T call() throws Exception {
+                    started.set(true);
+                    RequestConnection request = beginRequest(readOnly, readPrimary);
+                    try {
+                        return work.call();
+                    }
+                    finally {
+                        request.close();
+                    }
+                }
+            });
+        }
+        catch (DatabaseTimeoutException e) {
+            started.set(true);
+            throw e;
+        }
+        finally {
+            
+            // Even a failed update, or one that timed out, may have committed some changes
+            if ( ! readOnly && started.get() ) {
+                recordChange(ctxt);
+            }
+        }
+    }
+    
+    /**
+     * Records that the user's session has changed the database, so that the user's
+     * searches see the change even if the read DataSource has not caught up.
+     * 
+     * @param ctxt - the external context of the request that made the change
+     */
+    public void recordChange(ExternalContext ctxt) {
+        if ( this.readDs != this.ds ) {
+            ctxt.getSessionMap().put(LAST_CHANGE_ATTRIBUTE, Long.valueOf(System.currentTimeMillis()));
+        }
+    }
+    
+    /**
+     * Tests whether the user's session changed the database recently enough that the
+     * read DataSource may not yet have the change.
+     * 
+     * @param ctxt - the external context of the request
+     * 
+     * @return true if the user's searches must use the primary DataSource
+     */
+    public boolean isReadPrimary(ExternalContext ctxt) {
+        Object lastChange = ctxt.getSessionMap().get(LAST_CHANGE_ATTRIBUTE);
+        return lastChange instanceof Long
+                && System.currentTimeMillis() - ((Long) lastChange).longValue() < this.replicaLagMillis;
+    }
+    
+    /**
+     * Tests whether the database changed recently enough that the read DataSource may
+     * not yet have the change. This covers changes from every user, including REST
+     * clients, which have no session for {@link #recordChange(ExternalContext)}.
+     * 
+     * @return true if a search that must match the current cache version must use the primary DataSource
+     */
+    public boolean isReplicaBehind() {
+        return this.readDs != this.ds && this.cache.isChangedWithin(this.replicaLagMillis);
+    }
+    
+    public DatabaseExecutor getExecutor() {
+        return this.executor;
+    }
+}
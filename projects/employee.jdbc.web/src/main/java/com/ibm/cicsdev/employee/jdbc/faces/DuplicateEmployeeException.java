@@ -0,0 +1,31 @@
+/* Licensed Materials - Property of IBM                                   */
+/*                                                                        */
+/* SAMPLE                                                                 */
+/*                                                                        */
+/* (c) Copyright IBM Corp. 2018 All Rights Reserved                       */
+/*                                                                        */
+/* US Government Users Restricted Rights - Use, duplication or disclosure */
+/* restricted by GSA ADP Schedule Contract with IBM Corp                  */
+/*                                                                        */
+package com.ibm.cicsdev.employee.jdbc.faces;
+
+/**
+ * Thrown when an employee cannot be added because the employee number is
+ * already in use.
+ * 
+ * No unit of work is left in progress when this exception is seen by the caller:
+ * either the number was known to be in use and the database was not called, or
+ * the insert failed and was rolled back.
+ */
+public class DuplicateEmployeeException extends Exception
+{
+    private static final long serialVersionUID = -6093458127740452398L;
+    
+    /**
+     * @param empNo - the employee number already in use
+     * @param cause - the database error, or null if the database was not called
+     */
+    public DuplicateEmployeeException(String empNo, Throwable cause) {
+        super("Employee number " + empNo + " is already in use", cause);
+    }
+}
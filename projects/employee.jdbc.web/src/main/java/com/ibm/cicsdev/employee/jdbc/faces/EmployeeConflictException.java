@@ -0,0 +1,29 @@
+/* Licensed Materials - Property of IBM                                   */
+/*                                                                        */
+/* SAMPLE                                                                 */
+/*                                                                        */
+/* (c) Copyright IBM Corp. 2018 All Rights Reserved                       */
+/*                                                                        */
+/* US Government Users Restricted Rights - Use, duplication or disclosure */
+/* restricted by GSA ADP Schedule Contract with IBM Corp                  */
+/*                                                                        */
+package com.ibm.cicsdev.employee.jdbc.faces;
+
+/**
+ * Thrown when an employee cannot be updated or deleted because the row has
+ * been changed or deleted by another user since it was read.
+ * 
+ * The unit of work has been rolled back when this exception is seen by the
+ * caller, which should read the employee again before retrying.
+ */
+public class EmployeeConflictException extends Exception
+{
+    private static final long serialVersionUID = 5215870193346716642L;
+    
+    /**
+     * @param empNo - the employee number of the row that was changed
+     */
+    public EmployeeConflictException(String empNo) {
+        super("Employee " + empNo + " has been changed by another user");
+    }
+}
@@ -0,0 +1,1027 @@
+/* Licensed Materials - Property of IBM                                   */
+/*                                                                        */
+/* SAMPLE                                                                 */
+/*                                                                        */
+/* (c) Copyright IBM Corp. 2018 All Rights Reserved                       */
+/*                                                                        */
+/* US Government Users Restricted Rights - Use, duplication or disclosure */
+/* restricted by GSA ADP Schedule Contract with IBM Corp                  */
+/*                                                                        */
+package com.ibm.cicsdev.employee.jdbc.faces;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import javax.annotation.PostConstruct;
+import javax.faces.application.Application;
+import javax.faces.bean.ManagedBean;
+import javax.faces.bean.SessionScoped;
+import javax.faces.context.ExternalContext;
+import javax.faces.context.FacesContext;
+import javax.faces.event.AjaxBehaviorEvent;
+
+import com.ibm.cicsdev.employee.jdbc.beans.Employee;
+import com.ibm.cicsdev.employee.jdbc.beans.EmployeeKey;
+import com.ibm.cicsdev.employee.jdbc.beans.EmployeePage;
+import com.ibm.cicsdev.employee.jdbc.beans.EmployeeSummary;
+import com.ibm.cicsdev.employee.jdbc.beans.SearchMode;
+import com.ibm.cicsdev.employee.jdbc.exec.DatabaseBusyException;
+import com.ibm.cicsdev.employee.jdbc.exec.DatabaseExecutor;
+import com.ibm.cicsdev.employee.jdbc.search.InvalidSearchException;
+import com.ibm.cicsdev.employee.jdbc.sql.SqlErrors;
+
+/**
+ * Bean used to implement the function of the main view page.
+ * 
+ * This bean provides all of the required methods for populating the
+ * page, as well as controlling the edit/delete buttons and calling
+ * into the database methods class.
+ * 
+ * Each database call runs on the {@link DatabaseExecutor}, which limits how
+ * long the page waits and refuses calls when the database is overloaded;
+ * either way the user sees a message rather than a page that never returns.
+ * 
+ * How much is kept in the session is set by the SESSION_STATE context parameter.
+ * FULL keeps the page of results displayed. KEYS keeps only the search, the
+ * position the page was read from, the keys of the rows displayed, the ticked
+ * employee numbers and the employee being edited: the rows are read again by
+ * employee number for each request, normally from the application's
+ * {@link com.ibm.cicsdev.employee.jdbc.cache.EmployeeCache}, and held only until
+ * the response has been rendered. Reading them by number, rather than running the
+ * search again, means a tick or button pressed on a row acts on the employee that
+ * was displayed, even if other users have since changed the results of the search.
+ * 
+ * @author Michael Jones
+ */
+
+@ManagedBean(name = "employeeList")
+@SessionScoped
+public class EmployeeListManager implements Serializable
+{
+    private static final long serialVersionUID = 4127339804656163219L;
+    
+    /**
+     * Context parameter selecting what the bean keeps in the session: FULL to keep
+     * the page of results, or KEYS to keep only what is needed to read it again.
+     */
+    private static final String SESSION_STATE_PARAM = "com.ibm.cicsdev.employee.SESSION_STATE";
+    
+    /**
+     * Request attribute holding the page of results in KEYS mode.
+     */
+    private static final String PAGE_ATTRIBUTE = "com.ibm.cicsdev.employee.page";
+    
+    /**
+     * Number of last names suggested as the user types a search.
+     */
+    private static final int SUGGESTIONS = 8;
+    
+    /*
+     * Instance fields.
+     */    
+
+    /**
+     * Stores current target employee for an update or delete operation,
+     * read in full from the database when the row is selected.
+     */
+    private Employee employee;
+    
+    /**
+     * The row whose Edit or Delete button was last pressed, only used by the request that pressed it.
+     */
+    private transient EmployeeSummary selected;
+    
+    /**
+     * Employee number of the row being edited, or null if none.
+     */
+    private String editingEmpNo;
+    
+    /**
+     * Employee number of the row awaiting confirmation of a delete, or null if none.
+     */
+    private String deletingEmpNo;
+    
+    /**
+     * The rows ticked for a bulk delete or job change, keyed by employee number.
+     */
+    private Map<String, Boolean> checked = new HashMap<>();
+    
+    /**
+     * The job entered for a bulk job change.
+     */
+    private String newJob;
+
+    /**
+     * Stores the last value used as the search criteria.
+     */
+    private String searchString;
+    
+    /**
+     * Last names starting with the search string typed so far.
+     */
+    private List<String> suggestions = Collections.emptyList();
+    
+    /**
+     * Stores how the search criteria is matched against last names.
+     */
+    private SearchMode searchMode = SearchMode.PREFIX;
+    
+    /**
+     * Stores the page of results currently displayed, in FULL mode.
+     */
+    private EmployeePage page = EmployeePage.EMPTY;
+    
+    /**
+     * True to keep only the keys of the page in the session, rather than the page itself.
+     */
+    private boolean keysOnly;
+    
+    /**
+     * Keys of the rows displayed, in order, in KEYS mode.
+     */
+    private List<EmployeeKey> pageKeys = Collections.emptyList();
+    
+    /**
+     * Whether rows exist before the page displayed, in KEYS mode.
+     */
+    private boolean pageHasPrevious;
+    
+    /**
+     * Whether rows exist after the page displayed, in KEYS mode.
+     */
+    private boolean pageHasNext;
+    
+    /**
+     * The search the current page was read for, as the search box may since have changed.
+     */
+    private String pageSearchString;
+    
+    /**
+     * How the search the current page was read for is matched against last names.
+     */
+    private SearchMode pageSearchMode = SearchMode.PREFIX;
+    
+    /**
+     * The position the current page was read from, used to read it again.
+     */
+    private EmployeeKey pageSeek;
+    
+    /**
+     * The direction the current page was read in, used to read it again.
+     */
+    private boolean pageForward = true;
+    
+    /**
+     * Used to indicate the index of the first result displayed.
+     */
+    private int firstRow = 0;
+    
+    /**
+     * Used to limit the number of rows displayed by the application, and
+     * hence the number of rows read from the database for each page.
+     */
+    private int lastRow = 15;
+    
+    /**
+     * Current error message for display.
+     */
+    private String message = "";
+    
+    /**
+     * Flag to indicate we will use JTA for unit of work support.
+     */
+    private boolean useJta = true;
+    
+    /**
+     * Field used to access the DB manipulation methods, found again if the session is restored.
+     */
+    private transient DatabaseOperationsManager dbOperations;
+
+    
+    /*
+     * Constructor.
+     */
+    
+    /**
+     * No args constructor for this bean - JSF will call it when the page is first loaded. 
+     *
+     */ 
+
+    public EmployeeListManager() {
+        
+    } 
+
+    
+    /*
+     * Lifecycle methods.
+     */
+    
+    /**
+     * Performs initialisation of the bean after the constructor has been called.
+     * 
+     * This method finds the application-scoped instance of the {@link DatabaseOperationsManager}
+     * bean in here, rather than using injection. We do that this way to allow us to trap
+     * any problems with instantiating the class in a try ... catch block. This enables the
+     * ability to provide a "DB down" message on the main page, without a huge amount of
+     * error-handling logic at the backend.
+     */
+    @PostConstruct
+    public void init() {
+        
+        // Get the current faces & application context
+        FacesContext ctxt = FacesContext.getCurrentInstance();
+        this.keysOnly = "KEYS".equalsIgnoreCase(ctxt.getExternalContext().getInitParameter(SESSION_STATE_PARAM));
+        findOperations(ctxt);
+    }
+    
+    /**
+     * Restores the bean from a persisted session, finding the DatabaseOperationsManager again.
+     */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        FacesContext ctxt = FacesContext.getCurrentInstance();
+        if ( ctxt != null ) {
+            findOperations(ctxt);
+        }
+    }
+    
+    /**
+     * Finds the application-scoped DatabaseOperationsManager, or sets the message if it is unavailable.
+     */
+    private void findOperations(FacesContext ctxt) {
+        
+        Application app = ctxt.getApplication();
+        
+        try {
+            // Get an instance of the DatabaseOperationsManager bean  
+            this.dbOperations = app.evaluateExpressionGet(ctxt, "#{databaseOperations}", DatabaseOperationsManager.class);
+        }
+        catch (Exception e) {
+            
+            // Assume all exceptions from the lookup are fatal
+            this.message = "Database connection unavailable: see error log";
+            
+            // Dump the exception to the log
+            e.printStackTrace(System.out);
+        }
+    }
+    
+    
+    /*
+     * Action methods.
+     */
+    
+    /**
+     * Called by JSF when the user clicks the "Add new employee" button.
+     * 
+     * Navigates the user to the correct page to add an employee.
+     * 
+     * @return the name of the JSF file for rendering next.
+     */
+    public String goToAddScreen() {
+        return "addEmployee";
+    }
+    
+    /** 
+     * Called by JSF when the user clicks the "Toggle JTA" button.
+     * 
+     * Toggles the state of the JTA flag.
+     */
+    public void toggleUseJta() {
+        this.useJta = ! this.useJta;
+    }
+    
+    /**
+     * Called by JSF when the user clicks the "Edit" button for a row. 
+     * 
+     * Reads the full employee for the selected row and marks the row as being
+     * edited, so its fields become input fields rather than just text boxes.
+     */
+    public void setCanEdit() {
+        if ( loadSelected() ) {
+            this.editingEmpNo = this.employee.getEmpNo();
+            this.deletingEmpNo = null;
+        }
+    }
+    
+    /**
+     * Called by JSF when the user clicks the "Save" button for a row.
+     * 
+     * This method will run the update function using the new values, updating the record
+     * in the database, then read the page again using the same connection. Will also clear
+     * the editable flag for the current record.
+     * 
+     * @see DatabaseOperationsManager#updateEmployee(Employee, boolean)
+     */
+    public void saveUpdates() throws Exception {
+        
+        final Employee target = this.employee;
+        final boolean jta = this.useJta;
+        final Callable<EmployeePage> refresh = pageReader(this.pageSeek, this.pageForward);
+        final boolean[] conflict = new boolean[1];
+        EmployeePage refreshed;
+        try {
+            // Call our utility routine to update the database, then read the new values
+            refreshed = call(false, new Callable<EmployeePage>() {
+                @Override
+                public EmployeePage call() throws Exception {
+                    try {
+                        EmployeeListManager.this.dbOperations.updateEmployee(target, jta);
+                    }
+                    catch (EmployeeConflictException e) {
+                        // Someone else got there first - show them the current values
+                        conflict[0] = true;
+                    }
+                    return refreshPage(refresh);
+                }
+            });
+        }
+        catch (DatabaseBusyException e) {
+            // Leave the row in edit, so the user can try again
+            this.message = e.getMessage();
+            return;
+        }
+        catch (Exception e) {
+            // The database access class will have already rolledback our transaction
+            this.editingEmpNo = null;
+            this.message = "An error occurred: see error log";
+            e.printStackTrace(System.out);
+            return;
+        }
+
+        // Show the page read again, which also ends the edit
+        showPage(refreshed, this.pageSeek, this.pageForward);
+        if ( conflict[0] ) {
+            this.message = "Not saved: this employee was changed by another user. The latest values are shown.";
+        }
+    }
+    
+    /** 
+     * Called by JSF when the user presses the Search button.
+     * 
+     * This method will call the database search method, passing the supplied search string.
+     * 
+     * @return The name of the page to navigate to, which will contain the results.
+     * 
+     * @see #readPage(EmployeeKey, boolean)
+     */
+    public String search() {
+        
+        // A new search always starts from the first page, with no rows ticked
+        this.checked.clear();
+        this.pageSearchString = this.searchString;
+        this.pageSearchMode = this.searchMode;
+        this.suggestions = Collections.emptyList();
+        return readPage(null, true);
+    }
+    
+    /**
+     * Called by JSF when the user clicks a suggested last name.
+     * 
+     * Searches for employees with exactly that last name.
+     * 
+     * @param lastName - the suggested last name
+     * 
+     * @return The name of the page to navigate to, which will contain the results.
+     */
+    public String searchFor(String lastName) {
+        this.searchString = lastName;
+        this.searchMode = SearchMode.EXACT;
+        return search();
+    }
+    
+    /**
+     * Called by JSF as the user types in the search box, once typing pauses.
+     * 
+     * Suggests last names starting with the search string typed so far. The names
+     * are found in the in-memory index of last names, so only the first suggestion
+     * after the application starts reads the database, and that read runs on the
+     * {@link DatabaseExecutor}.
+     * 
+     * @param event - the AJAX event
+     * 
+     * @see DatabaseOperationsManager#suggestLastNames(String, int)
+     */
+    public void suggest(AjaxBehaviorEvent event) {
+        
+        final String prefix = this.searchString;
+        
+        try {
+            if ( this.dbOperations.isSuggestReady() ) {
+                this.suggestions = this.dbOperations.suggestLastNames(prefix, SUGGESTIONS);
+            }
+            else {
+                this.suggestions = call(true, new Callable<List<String>>() {
+                    @Override
+                    public List<String> call() throws Exception {
+                        return EmployeeListManager.this.dbOperations.suggestLastNames(prefix, SUGGESTIONS);
+                    }
+                });
+            }
+        }
+        catch (DatabaseBusyException e) {
+            
+            // Suggestions are optional, so offer none rather than report an error
+            this.suggestions = Collections.emptyList();
+        }
+        catch (Exception e) {
+            this.suggestions = Collections.emptyList();
+            e.printStackTrace(System.out);
+        }
+    }
+    
+    /**
+     * Called by JSF when the user presses the Next button.
+     * 
+     * Reads the page of results following the last row currently displayed. Rows
+     * ticked on this page are no longer displayed, so are no longer ticked.
+     * 
+     * @return The name of the page to navigate to, which will contain the results.
+     */
+    public String nextPage() {
+        this.checked.clear();
+        return readPage(page().getLastKey(), true);
+    }
+    
+    /**
+     * Called by JSF when the user presses the Previous button.
+     * 
+     * Reads the page of results preceding the first row currently displayed. Rows
+     * ticked on this page are no longer displayed, so are no longer ticked.
+     * 
+     * @return The name of the page to navigate to, which will contain the results.
+     */
+    public String previousPage() {
+        this.checked.clear();
+        return readPage(page().getFirstKey(), false);
+    }
+    
+    /**
+     * Reads a single page of results for the current search string.
+     * 
+     * @param seek - the position to read from, or null for the first page
+     * @param forward - the direction to read from the seek position
+     * 
+     * @return The name of the page to navigate to, which will contain the results.
+     * 
+     * @see DatabaseOperationsManager#findEmployeePage(SearchMode, String, EmployeeKey, boolean, int)
+     */
+    private String readPage(EmployeeKey seek, boolean forward) {
+        
+        try {
+            // Search the database for this string
+            showPage(call(true, pageReader(seek, forward)), seek, forward);
+        }
+        catch (InvalidSearchException e) {
+            // The search was refused - tell the user why
+            setPage(EmployeePage.EMPTY);
+            this.message = e.getMessage();
+        }
+        catch (DatabaseBusyException e) {
+            // Keep the current page, and tell the user to try again
+            this.message = e.getMessage();
+        }
+        catch (Exception e) {
+            // The database access class will have already rolledback our transaction
+            this.message = "An error occurred: see error log";
+            e.printStackTrace(System.out);
+        }
+        
+        // Redirect back to main page
+        return "main";
+    }
+    
+    /**
+     * Builds the database work that reads a page of results for the current search.
+     * 
+     * The search the current page was read for is taken from the bean now, as the
+     * work runs on another thread.
+     * 
+     * @param seek - the position to read from, or null for the first page
+     * @param forward - the direction to read from the seek position
+     * 
+     * @return the work, which returns the page
+     */
+    private Callable<EmployeePage> pageReader(final EmployeeKey seek, final boolean forward) {
+        
+        final SearchMode mode = this.pageSearchMode;
+        final String lastName = this.pageSearchString;
+        final int maxRows = this.lastRow;
+        return new Callable<EmployeePage>() {
+            @Override
+            public EmployeePage call() throws Exception {
+                return EmployeeListManager.this.dbOperations.findEmployeePage(mode, lastName, seek, forward, maxRows);
+            }
+        };
+    }
+    
+    /**
+     * Reads the page again after a change, from within the same database work.
+     * 
+     * @return the page, or null if the search is refused, as the change has been made regardless
+     */
+    private static EmployeePage refreshPage(Callable<EmployeePage> reader) throws Exception {
+        try {
+            return reader.call();
+        }
+        catch (InvalidSearchException e) {
+            return null;
+        }
+    }
+    
+    /**
+     * Displays a page of results.
+     * 
+     * @param results - the page read, or null if the search was refused
+     * @param seek - the position the page was read from
+     * @param forward - the direction the page was read in
+     */
+    private void showPage(EmployeePage results, EmployeeKey seek, boolean forward) {
+        
+        // A refused search reads nothing, so let readPage report it
+        if ( results == null ) {
+            readPage(seek, forward);
+            return;
+        }
+        
+        setPage(results);
+        this.pageSeek = seek;
+        this.pageForward = forward;
+        
+        // Any row being edited or deleted may no longer be displayed
+        this.editingEmpNo = null;
+        this.deletingEmpNo = null;
+        
+        // Message if no results are found
+        if ( results.isEmpty() ) {
+            this.message = "No results found";
+        }
+        else {
+            this.message = "";
+        }
+    }
+    
+    /**
+     * Called by JSF when the user clicks the "Delete" button for a record.
+     * 
+     * This method will read the full employee for the record in question, and mark
+     * it as awaiting confirmation, which will have the effect of showing the "Confirm" button.
+     */
+    public void confirmDel() {
+        if ( loadSelected() ) {
+            this.deletingEmpNo = this.employee.getEmpNo();
+            this.editingEmpNo = null;
+        }
+    }
+    
+    /**
+     * Called by JSF when the user clicks the "Confirm" button for a record.
+     * 
+     * Will take the relevant employee and use it as the basis for the delete command.
+     * It will try to detect the error that informs the user they don't have
+     * the permission to delete the record. If that occurs, it will update the
+     * status message.
+     * 
+     * @return The next page to display in the user interaction
+     * 
+     * @see DatabaseOperationsManager#deleteEmployee(Employee, boolean)
+     */
+    public String deleteEmployee() {
+        
+        final Employee target = this.employee;
+        final boolean jta = this.useJta;
+        final Callable<EmployeePage> refresh = pageReader(null, true);
+        final Callable<EmployeePage> current = pageReader(this.pageSeek, this.pageForward);
+        final boolean[] conflict = new boolean[1];
+        EmployeePage refreshed;
+        try {
+            // Call the delete function for this employee, then read the first page again
+            refreshed = call(false, new Callable<EmployeePage>() {
+                @Override
+                public EmployeePage call() throws Exception {
+                    try {
+                        EmployeeListManager.this.dbOperations.deleteEmployee(target, jta);
+                        return refreshPage(refresh);
+                    }
+                    catch (EmployeeConflictException e) {
+                        // Someone else got there first - show them the current values of this page
+                        conflict[0] = true;
+                        return refreshPage(current);
+                    }
+                }
+            });
+        }
+        catch (DatabaseBusyException e) {
+            // Leave the row awaiting confirmation, so the user can try again
+            this.message = e.getMessage();
+            return "main";
+        }
+        catch (Exception e) {
+        
+            // Check for the delete permissions error
+            if ( SqlErrors.isDeleteRestricted(e) ) {
+                // Not allowed to delete the record
+                this.message = "ERROR: You cannot delete this record.";
+            }
+            else {
+                // If we can't find the permission error, report the problem
+                this.message = "An error occurred: see error log";
+                e.printStackTrace(System.out);
+            }
+
+            // Clear the row awaiting confirmation
+            this.deletingEmpNo = null;
+
+            // Redirect back to main page
+            return "main";
+        }
+        
+        if ( conflict[0] ) {
+            showPage(refreshed, this.pageSeek, this.pageForward);
+            this.message = "Not deleted: this employee was changed by another user. The latest values are shown.";
+            return "main";
+        }
+        
+        // Successful: show the first page of the search again, refreshing the view
+        this.checked.clear();
+        showPage(refreshed, null, true);
+        return "main";
+    }
+    
+    /**
+     * Called by JSF when the user clicks the "Delete selected" button.
+     * 
+     * Deletes every ticked employee in a single unit of work. If any one of them
+     * cannot be deleted, none are.
+     * 
+     * @return The next page to display in the user interaction
+     * 
+     * @see DatabaseOperationsManager#deleteEmployees(Collection, boolean)
+     */
+    public String deleteSelected() {
+        
+        final List<String> empNos = checkedEmpNos();
+        if ( empNos.isEmpty() ) {
+            this.message = "Tick the employees to delete";
+            return "main";
+        }
+        
+        final boolean jta = this.useJta;
+        final Callable<EmployeePage> refresh = pageReader(this.pageSeek, this.pageForward);
+        final EmployeePage[] refreshed = new EmployeePage[1];
+        int rows;
+        try {
+            rows = call(false, new Callable<Integer>() {
+                @Override
+                public Integer call() throws Exception {
+                    int deleted = EmployeeListManager.this.dbOperations.deleteEmployees(empNos, jta);
+                    refreshed[0] = refreshPage(refresh);
+                    return deleted;
+                }
+            });
+        }
+        catch (DatabaseBusyException e) {
+            this.message = e.getMessage();
+            return "main";
+        }
+        catch (Exception e) {
+            if ( SqlErrors.isDeleteRestricted(e) ) {
+                this.message = "ERROR: You cannot delete one or more of these records. No records were deleted.";
+            }
+            else {
+                this.message = "An error occurred: see error log";
+                e.printStackTrace(System.out);
+            }
+            return "main";
+        }
+        
+        // Successful: show the page again without the deleted rows
+        this.checked.clear();
+        showPage(refreshed[0], this.pageSeek, this.pageForward);
+        this.message = "Deleted " + rows + " employees";
+        return "main";
+    }
+    
+    /**
+     * Called by JSF when the user clicks the "Change job" button.
+     * 
+     * Sets the job of every ticked employee to the job entered, in a single unit of work.
+     * 
+     * @return The next page to display in the user interaction
+     * 
+     * @see DatabaseOperationsManager#updateJob(Collection, String, boolean)
+     */
+    public String changeJobOfSelected() {
+        
+        final List<String> empNos = checkedEmpNos();
+        if ( empNos.isEmpty() ) {
+            this.message = "Tick the employees whose job is to change";
+            return "main";
+        }
+        if ( this.newJob == null || this.newJob.trim().isEmpty() ) {
+            this.message = "Enter the new job";
+            return "main";
+        }
+        
+        final String job = this.newJob.trim();
+        final boolean jta = this.useJta;
+        final Callable<EmployeePage> refresh = pageReader(this.pageSeek, this.pageForward);
+        final EmployeePage[] refreshed = new EmployeePage[1];
+        int rows;
+        try {
+            rows = call(false, new Callable<Integer>() {
+                @Override
+                public Integer call() throws Exception {
+                    int changed = EmployeeListManager.this.dbOperations.updateJob(empNos, job, jta);
+                    refreshed[0] = refreshPage(refresh);
+                    return changed;
+                }
+            });
+        }
+        catch (DatabaseBusyException e) {
+            this.message = e.getMessage();
+            return "main";
+        }
+        catch (Exception e) {
+            this.message = "An error occurred: see error log";
+            e.printStackTrace(System.out);
+            return "main";
+        }
+        
+        // Successful: show the new jobs
+        this.checked.clear();
+        showPage(refreshed[0], this.pageSeek, this.pageForward);
+        this.message = "Changed the job of " + rows + " employees to " + job;
+        return "main";
+    }
+    
+    /**
+     * @return the employee numbers of the ticked rows
+     */
+    private List<String> checkedEmpNos() {
+        List<String> empNos = new ArrayList<>();
+        for (Map.Entry<String, Boolean> entry : this.checked.entrySet()) {
+            if ( Boolean.TRUE.equals(entry.getValue()) ) {
+                empNos.add(entry.getKey());
+            }
+        }
+        return empNos;
+    }
+    
+    /**
+     * Reads the full employee for the selected row, ready for an update or delete.
+     * 
+     * The list only holds a summary of each employee, so the remaining columns and
+     * the row change token are read when a row is chosen. If the employee has been
+     * deleted, the page is read again with the same connection.
+     * 
+     * @return true if the employee was read, false if it could not be found
+     */
+    private boolean loadSelected() {
+        
+        final String empNo = this.selected.getEmpNo();
+        final Callable<EmployeePage> refresh = pageReader(this.pageSeek, this.pageForward);
+        final EmployeePage[] refreshed = new EmployeePage[1];
+        try {
+            this.employee = call(true, new Callable<Employee>() {
+                @Override
+                public Employee call() throws Exception {
+                    Employee found = EmployeeListManager.this.dbOperations.findEmployee(empNo);
+                    if ( found == null ) {
+                        refreshed[0] = refreshPage(refresh);
+                    }
+                    return found;
+                }
+            });
+        }
+        catch (DatabaseBusyException e) {
+            this.employee = null;
+            this.message = e.getMessage();
+            return false;
+        }
+        catch (Exception e) {
+            this.employee = null;
+            this.message = "An error occurred: see error log";
+            e.printStackTrace(System.out);
+            return false;
+        }
+        
+        // Deleted by another user since the page was read
+        if ( this.employee == null ) {
+            showPage(refreshed[0], this.pageSeek, this.pageForward);
+            this.message = "This employee no longer exists. The latest values are shown.";
+            return false;
+        }
+        return true;
+    }
+    
+    /**
+     * Returns the page of results displayed.
+     * 
+     * In KEYS mode the page is held in the request, and its rows are read again the
+     * first time it is needed in each request, normally from the cache.
+     */
+    private EmployeePage page() {
+        
+        if ( ! this.keysOnly ) {
+            return this.page;
+        }
+        
+        Map<String, Object> requestMap = FacesContext.getCurrentInstance().getExternalContext().getRequestMap();
+        EmployeePage current = (EmployeePage) requestMap.get(PAGE_ATTRIBUTE);
+        if ( current == null ) {
+            current = rereadPage();
+            requestMap.put(PAGE_ATTRIBUTE, current);
+        }
+        return current;
+    }
+    
+    /**
+     * Sets the page of results displayed, in the session or the request according to the mode.
+     */
+    private void setPage(EmployeePage page) {
+        
+        if ( this.keysOnly ) {
+            FacesContext.getCurrentInstance().getExternalContext().getRequestMap().put(PAGE_ATTRIBUTE, page);
+            List<EmployeeKey> keys = new ArrayList<>(page.getEmployees().size());
+            for (EmployeeSummary row : page.getEmployees()) {
+                keys.add(EmployeeKey.of(row));
+            }
+            this.pageKeys = keys;
+            this.pageHasPrevious = page.isHasPrevious();
+            this.pageHasNext = page.isHasNext();
+        }
+        else {
+            this.page = page;
+        }
+    }
+    
+    /**
+     * Reads the rows of the page displayed again, by employee number.
+     * 
+     * Rows are not found by running the search again, which could return different
+     * employees to those displayed. An employee deleted since keeps its place as a
+     * row holding only its key, so that each row still matches the one rendered,
+     * and acting on it reports that the employee no longer exists.
+     * 
+     * @return the page, or an empty page if it cannot be read
+     */
+    private EmployeePage rereadPage() {
+        
+        if ( this.pageKeys.isEmpty() ) {
+            return new EmployeePage(Collections.<EmployeeSummary>emptyList(), this.pageHasPrevious, this.pageHasNext);
+        }
+        
+        final List<EmployeeKey> keys = this.pageKeys;
+        try {
+            List<EmployeeSummary> rows = call(true, new Callable<List<EmployeeSummary>>() {
+                @Override
+                public List<EmployeeSummary> call() throws Exception {
+                    List<EmployeeSummary> found = new ArrayList<>(keys.size());
+                    for (EmployeeKey key : keys) {
+                        Employee emp = EmployeeListManager.this.dbOperations.findEmployee(key.getEmpNo());
+                        if ( emp == null ) {
+                            found.add(new EmployeeSummary(key.getEmpNo(), null, key.getLastName(), null, null, null));
+                        }
+                        else {
+                            found.add(new EmployeeSummary(emp.getEmpNo(), emp.getFirstName(), emp.getLastName(),
+                                    emp.getGender(), emp.getPhoneNo(), emp.getJob()));
+                        }
+                    }
+                    return found;
+                }
+            });
+            return new EmployeePage(rows, this.pageHasPrevious, this.pageHasNext);
+        }
+        catch (DatabaseBusyException e) {
+            this.message = e.getMessage();
+            return EmployeePage.EMPTY;
+        }
+        catch (Exception e) {
+            this.message = "An error occurred: see error log";
+            e.printStackTrace(System.out);
+            return EmployeePage.EMPTY;
+        }
+    }
+    
+    /**
+     * Runs the database work for an action, as described in
+     * {@link DatabaseOperationsManager#call(ExternalContext, boolean, Callable)}.
+     * 
+     * @param readOnly - true if the work does not update the database
+     * @param work - the database operations
+     * 
+     * @return the result of the work
+     * 
+     * @throws DatabaseBusyException if the database is too busy to run the work
+     * @throws Exception the exception thrown by the work
+     */
+    private <T> T call(boolean readOnly, Callable<T> work) throws Exception {
+        return this.dbOperations.call(FacesContext.getCurrentInstance().getExternalContext(), readOnly, work);
+    }
+    
+    /*
+     * Attribute accessor methods used by JSF.
+     */
+    
+    public String getSearchString() {
+        return this.searchString;
+    }
+    
+    public void setSearchString(String ss) {
+        this.searchString = ss;
+    }
+    
+    public SearchMode getSearchMode() {
+        return this.searchMode;
+    }
+    
+    public void setSearchMode(SearchMode searchMode) {
+        this.searchMode = searchMode;
+    }
+    
+    public SearchMode[] getSearchModes() {
+        return SearchMode.values();
+    }
+    
+    public String getMessage() {
+        return this.message;
+    }
+    
+    public int getFirstRow() {
+        return this.firstRow;
+    }
+    
+    public int getLastRow() {
+        return this.lastRow;
+    }
+    
+    public List<EmployeeSummary> getallResults() {
+        // The page cannot be modified, so there is no need to copy it for each EL evaluation
+        return page().getEmployees();
+    }
+    
+    public boolean isHasPreviousPage() {
+        return page().isHasPrevious();
+    }
+    
+    public boolean isHasNextPage() {
+        return page().isHasNext();
+    }
+    
+    public Employee getEmployee() {
+        return this.employee;
+    }
+    
+    public void setEmployee(Employee emp) {
+        this.employee = emp;
+    }  
+    
+    public EmployeeSummary getSelected() {
+        return this.selected;
+    }
+    
+    public void setSelected(EmployeeSummary selected) {
+        this.selected = selected;
+    }
+    
+    public String getEditingEmpNo() {
+        return this.editingEmpNo;
+    }
+    
+    public String getDeletingEmpNo() {
+        return this.deletingEmpNo;
+    }
+    
+    public List<String> getSuggestions() {
+        return this.suggestions;
+    }
+    
+    public Map<String, Boolean> getChecked() {
+        return this.checked;
+    }
+    
+    public String getNewJob() {
+        return this.newJob;
+    }
+    
+    public void setNewJob(String newJob) {
+        this.newJob = newJob;
+    }
+
+    public boolean getUseJta() {
+        return this.useJta;
+    }
+
+    public boolean isDatabaseAvailable() {
+        return this.dbOperations != null;
+    }
+}
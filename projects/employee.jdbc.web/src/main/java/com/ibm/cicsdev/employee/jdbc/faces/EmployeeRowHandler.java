@@ -0,0 +1,32 @@
+/* Licensed Materials - Property of IBM                                   */
+/*                                                                        */
+/* SAMPLE                                                                 */
+/*                                                                        */
+/* (c) Copyright IBM Corp. 2018 All Rights Reserved                       */
+/*                                                                        */
+/* US Government Users Restricted Rights - Use, duplication or disclosure */
+/* restricted by GSA ADP Schedule Contract with IBM Corp                  */
+/*                                                                        */
+package com.ibm.cicsdev.employee.jdbc.faces;
+
+import java.io.IOException;
+import java.sql.SQLException;
+
+/**
+ * Receives the rows of a query one at a time, as they are read from the database.
+ * 
+ * The mapper passed to {@link #row(EmployeeRowMapper)} reads the current row of
+ * the ResultSet, and is only valid for the duration of the call.
+ */
+public interface EmployeeRowHandler
+{
+    /**
+     * Processes a single row.
+     * 
+     * @param row - reads the columns of the current row
+     * 
+     * @throws SQLException if the row cannot be read
+     * @throws IOException if the row cannot be written
+     */
+    void row(EmployeeRowMapper row) throws SQLException, IOException;
+}
@@ -0,0 +1,220 @@
+/* Licensed Materials - Property of IBM                                   */
+/*                                                                        */
+/* SAMPLE                                                                 */
+/*                                                                        */
+/* (c) Copyright IBM Corp. 2018 All Rights Reserved                       */
+/*                                                                        */
+/* US Government Users Restricted Rights - Use, duplication or disclosure */
+/* restricted by GSA ADP Schedule Contract with IBM Corp                  */
+/*                                                                        */
+package com.ibm.cicsdev.employee.jdbc.faces;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+
+import com.ibm.cicsdev.employee.jdbc.beans.Employee;
+import com.ibm.cicsdev.employee.jdbc.beans.EmployeeSummary;
+
+/**
+ * Reads the columns of the EMP table from the current row of a ResultSet.
+ * 
+ * The position of each column is looked up once, when the mapper is created
+ * for a ResultSet, and every row is then read by column index rather than by
+ * name. Columns missing from the query, such as those not selected for a
+ * summary list, are left as null.
+ */
+public class EmployeeRowMapper
+{
+    /**
+     * The ResultSet being read.
+     */
+    private final ResultSet rs;
+    
+    /*
+     * Column indexes, or 0 if the column is not in the query.
+     */
+    
+    private int birthDate;
+    
+    private int bonus;
+    
+    private int comm;
+    
+    private int edLevel;
+    
+    private int empNo;
+    
+    private int firstName;
+    
+    private int hireDate;
+    
+    private int job;
+    
+    private int lastName;
+    
+    private int midInit;
+    
+    private int phoneNo;
+    
+    private int salary;
+    
+    private int gender;
+    
+    private int rowToken;
+    
+    /**
+     * Creates a mapper for a ResultSet, looking up the position of each column.
+     * 
+     * @param rs - the ResultSet to be read
+     * 
+     * @throws SQLException if the ResultSet metadata cannot be read
+     */
+    public EmployeeRowMapper(ResultSet rs) throws SQLException
+    {
+        this.rs = rs;
+        
+        ResultSetMetaData md = rs.getMetaData();
+        for (int i = 1; i <= md.getColumnCount(); i++) {
+            switch ( md.getColumnLabel(i).toUpperCase() ) {
+            case "BIRTHDATE": this.birthDate = i; break;
+            case "BONUS":     this.bonus = i;     break;
+            case "COMM":      this.comm = i;      break;
+            case "EDLEVEL":   this.edLevel = i;   break;
+            case "EMPNO":     this.empNo = i;     break;
+            case "FIRSTNME":  this.firstName = i; break;
+            case "HIREDATE":  this.hireDate = i;  break;
+            case "JOB":       this.job = i;       break;
+            case "LASTNAME":  this.lastName = i;  break;
+            case "MIDINIT":   this.midInit = i;   break;
+            case "PHONENO":   this.phoneNo = i;   break;
+            case "SALARY":    this.salary = i;    break;
+            case "SEX":       this.gender = i;    break;
+            case "ROWTOKEN":  this.rowToken = i;  break;
+            default:                              break;
+            }
+        }
+    }
+    
+    
+    /*
+     * Conversion of the current row.
+     */
+    
+    /**
+     * Builds a full employee bean from the current row.
+     * 
+     * @return A populated Employee bean, matching the database
+     * 
+     * @throws SQLException if the row cannot be read
+     */
+    public Employee toEmployee() throws SQLException
+    {
+        // Create a new instance
+        Employee employee = new Employee();
+        
+        // Gather the employee information from the current row of the ResultSet and set up the bean
+        employee.setBirthDate(getBirthDate());
+        employee.setBonus(getBonus());
+        employee.setComm(getComm());
+        employee.setEdLevel(getEdLevel());
+        employee.setEmpNo(getEmpNo());
+        employee.setFirstName(getFirstName());
+        employee.setHireDate(getHireDate());
+        employee.setJob(getJob());
+        employee.setLastName(getLastName());
+        employee.setMidInit(getMidInit());
+        employee.setPhoneNo(getPhoneNo());
+        employee.setSalary(getSalary());
+        employee.setGender(getGender());
+        employee.setRowChangeToken(getRowChangeToken());
+        
+        // The bean now matches the database
+        employee.clearDirty();
+        
+        // Return the constructed instance
+        return employee;
+    }
+    
+    /**
+     * Builds a summary of the employee in the current row.
+     * 
+     * @return a new summary
+     * 
+     * @throws SQLException if the row cannot be read
+     */
+    public EmployeeSummary toSummary() throws SQLException
+    {
+        return new EmployeeSummary(getEmpNo(), getFirstName(), getLastName(), getGender(), getPhoneNo(), getJob());
+    }
+    
+    
+    /*
+     * Accessors for the columns of the current row.
+     */
+    
+    public Date getBirthDate() throws SQLException {
+        return this.birthDate == 0 ? null : this.rs.getDate(this.birthDate);
+    }
+    
+    public BigDecimal getBonus() throws SQLException {
+        return this.bonus == 0 ? null : this.rs.getBigDecimal(this.bonus);
+    }
+    
+    public BigDecimal getComm() throws SQLException {
+        return this.comm == 0 ? null : this.rs.getBigDecimal(this.comm);
+    }
+    
+    /**
+     * @return the education level, or 0 if it is null
+     */
+    public short getEdLevel() throws SQLException {
+        // getShort returns 0 for a null value, which is the value we want
+        return this.edLevel == 0 ? 0 : this.rs.getShort(this.edLevel);
+    }
+    
+    public String getEmpNo() throws SQLException {
+        return this.empNo == 0 ? null : this.rs.getString(this.empNo);
+    }
+    
+    public String getFirstName() throws SQLException {
+        return this.firstName == 0 ? null : this.rs.getString(this.firstName);
+    }
+    
+    public Date getHireDate() throws SQLException {
+        return this.hireDate == 0 ? null : this.rs.getDate(this.hireDate);
+    }
+    
+    public String getJob() throws SQLException {
+        return this.job == 0 ? null : this.rs.getString(this.job);
+    }
+    
+    public String getLastName() throws SQLException {
+        return this.lastName == 0 ? null : this.rs.getString(this.lastName);
+    }
+    
+    public String getMidInit() throws SQLException {
+        return this.midInit == 0 ? null : this.rs.getString(this.midInit);
+    }
+    
+    public String getPhoneNo() throws SQLException {
+        return this.phoneNo == 0 ? null : this.rs.getString(this.phoneNo);
+    }
+    
+    public BigDecimal getSalary() throws SQLException {
+        return this.salary == 0 ? null : this.rs.getBigDecimal(this.salary);
+    }
+    
+    public String getGender() throws SQLException {
+        return this.gender == 0 ? null : this.rs.getString(this.gender);
+    }
+    
+    /**
+     * @return the row change token, or 0 if it was not selected
+     */
+    public long getRowChangeToken() throws SQLException {
+        return this.rowToken == 0 ? 0 : this.rs.getLong(this.rowToken);
+    }
+}
@@ -0,0 +1,162 @@
+/* Licensed Materials - Property of IBM                                   */
+/*                                                                        */
+/* SAMPLE                                                                 */
+/*                                                                        */
+/* (c) Copyright IBM Corp. 2018 All Rights Reserved                       */
+/*                                                                        */
+/* US Government Users Restricted Rights - Use, duplication or disclosure */
+/* restricted by GSA ADP Schedule Contract with IBM Corp                  */
+/*                                                                        */
+package com.ibm.cicsdev.employee.jdbc.faces;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.util.Enumeration;
+import java.util.concurrent.ThreadLocalRandom;
+
+import javax.faces.context.ExternalContext;
+import javax.faces.event.PhaseEvent;
+import javax.faces.event.PhaseId;
+import javax.faces.event.PhaseListener;
+import javax.servlet.annotation.WebListener;
+import javax.servlet.http.HttpSession;
+import javax.servlet.http.HttpSessionEvent;
+import javax.servlet.http.HttpSessionListener;
+
+import com.ibm.cicsdev.employee.jdbc.metrics.Metrics;
+
+/**
+ * Measures how much state each session holds, so the effect of the SESSION_STATE
+ * context parameter on the heap, and on session persistence, can be seen.
+ * 
+ * After a page has been rendered, the attributes of the session are serialized to a
+ * stream that only counts the bytes, and the size recorded in the {@link Metrics}.
+ * This includes the JSF view state as well as the session-scoped beans. As
+ * serialization is not free, nothing is measured unless the SESSION_SIZE_SAMPLE
+ * context parameter is set, and then only one request in the number it gives.
+ * 
+ * The class is registered as a JSF phase listener in faces-config.xml, and as a
+ * session listener so that sessions that have ended stop being counted.
+ */
+@WebListener
+public class SessionSizeListener implements PhaseListener, HttpSessionListener
+{
+    private static final long serialVersionUID = 6873400937286521804L;
+    
+    /**
+     * Context parameter giving how many requests there are for each one measured.
+     */
+    private static final String SESSION_SIZE_SAMPLE_PARAM = "com.ibm.cicsdev.employee.SESSION_SIZE_SAMPLE";
+    
+    
+    /*
+     * Phase listener methods.
+     */
+    
+    @Override
+    public PhaseId getPhaseId() {
+        return PhaseId.RENDER_RESPONSE;
+    }
+    
+    @Override
+    public void beforePhase(PhaseEvent event) {
+    }
+    
+    /**
+     * Measures the session after the response has been rendered, when the beans
+     * hold what they keep between requests.
+     */
+    @Override
+    public void afterPhase(PhaseEvent event) {
+        
+        ExternalContext ctxt = event.getFacesContext().getExternalContext();
+        Object session = ctxt.getSession(false);
+        Object dbOperations = ctxt.getApplicationMap().get(DatabaseOperationsManager.ATTRIBUTE);
+        if ( ! (session instanceof HttpSession) || ! (dbOperations instanceof DatabaseOperationsManager) ) {
+            return;
+        }
+        
+        String sample = ctxt.getInitParameter(SESSION_SIZE_SAMPLE_PARAM);
+        int rate = sample == null || sample.trim().isEmpty() ? 0 : Integer.parseInt(sample.trim());
+        if ( rate <= 0 || ThreadLocalRandom.current().nextInt(rate) != 0 ) {
+            return;
+        }
+        
+        HttpSession httpSession = (HttpSession) session;
+        try {
+            ((DatabaseOperationsManager) dbOperations).getMetrics().sessionMeasured(httpSession.getId(), serializedSize(httpSession));
+        }
+        catch (IOException e) {
+            // An attribute that cannot be serialized could not be persisted either
+            System.out.println("Unable to measure session " + httpSession.getId() + ": " + e);
+        }
+        catch (RuntimeException e) {
+            // Another request for the session may be changing an attribute as it is written,
+            // or may have invalidated the session, so skip this sample
+        }
+    }
+    
+    
+    /*
+     * Session listener methods.
+     */
+    
+    @Override
+    public void sessionCreated(HttpSessionEvent event) {
+    }
+    
+    @Override
+    public void sessionDestroyed(HttpSessionEvent event) {
+        HttpSession session = event.getSession();
+        Object dbOperations = session.getServletContext().getAttribute(DatabaseOperationsManager.ATTRIBUTE);
+        if ( dbOperations instanceof DatabaseOperationsManager ) {
+            ((DatabaseOperationsManager) dbOperations).getMetrics().sessionEnded(session.getId());
+        }
+    }
+    
+    
+    /*
+     * Utility methods.
+     */
+    
+    /**
+     * Returns the number of bytes the serializable attributes of a session occupy when
+     * serialized together, as they would be to persist the session.
+     */
+    private static int serializedSize(HttpSession session) throws IOException {
+        
+        CountingOutputStream counter = new CountingOutputStream();
+        try ( ObjectOutputStream out = new ObjectOutputStream(counter) ) {
+            Enumeration<String> names = session.getAttributeNames();
+            while ( names.hasMoreElements() ) {
+                String name = names.nextElement();
+                Object value = session.getAttribute(name);
+                if ( value instanceof Serializable ) {
+                    out.writeObject(name);
+                    out.writeObject(value);
+                }
+            }
+        }
+        return counter.count;
+    }
+    
+    /**
+     * Discards the bytes written to it, only counting them.
+     */
+    private static class CountingOutputStream extends OutputStream
+    {
+        int count;
+        
+        @Override
+        public void write(int b) {
+            this.count++;
+        }
+        
+        @Override
+        public void write(byte[] b, int off, int len) {
+            this.count += len;
+        }
+    }
+}
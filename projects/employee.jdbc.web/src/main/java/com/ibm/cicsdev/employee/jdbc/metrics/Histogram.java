@@ -0,0 +1,102 @@
+/* Licensed Materials - Property of IBM                                   */
+/*                                                                        */
+/* SAMPLE                                                                 */
+/*                                                                        */
+/* (c) Copyright IBM Corp. 2018 All Rights Reserved                       */
+/*                                                                        */
+/* US Government Users Restricted Rights - Use, duplication or disclosure */
+/* restricted by GSA ADP Schedule Contract with IBM Corp                  */
+/*                                                                        */
+package com.ibm.cicsdev.employee.jdbc.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A latency histogram with fixed buckets, recording without locks.
+ * 
+ * Like {@link StripedCounter}, each thread records into its own stripe of
+ * the counts, so threads timing the same operation do not contend. A stripe
+ * holds a count for each bucket, followed by the total count and the total
+ * time recorded.
+ */
+public class Histogram
+{
+    /**
+     * Upper bound of each bucket, in nanoseconds. A final unbounded bucket holds slower values.
+     */
+    private static final long[] BOUNDS = {
+        500_000L, 1_000_000L, 2_500_000L, 5_000_000L, 10_000_000L, 25_000_000L, 50_000_000L,
+        100_000_000L, 250_000_000L, 500_000_000L, 1_000_000_000L, 2_500_000_000L, 5_000_000_000L, 10_000_000_000L
+    };
+    
+    /**
+     * Position of the total count, and of the total time, within a stripe.
+     */
+    private static final int COUNT = BOUNDS.length + 1;
+    private static final int SUM = COUNT + 1;
+    
+    /**
+     * Length of a stripe, rounded up to whole cache lines, plus a cache line of padding.
+     */
+    private static final int STRIDE = (SUM + StripedCounter.PAD) / StripedCounter.PAD * StripedCounter.PAD + StripedCounter.PAD;
+    
+    private final AtomicLongArray cells = new AtomicLongArray(StripedCounter.STRIPES * STRIDE);
+    
+    /**
+     * Records one value.
+     * 
+     * @param nanos - the time taken
+     */
+    public void record(long nanos) {
+        int bucket = 0;
+        while ( bucket < BOUNDS.length && nanos > BOUNDS[bucket] ) {
+            bucket++;
+        }
+        int base = StripedCounter.stripe() * STRIDE;
+        this.cells.getAndIncrement(base + bucket);
+        this.cells.getAndIncrement(base + COUNT);
+        this.cells.getAndAdd(base + SUM, nanos);
+    }
+    
+    /**
+     * @return the upper bound of each bucket in nanoseconds, excluding the final unbounded bucket
+     */
+    public static long[] getBounds() {
+        return BOUNDS.clone();
+    }
+    
+    /**
+     * Returns the number of values recorded no larger than each bucket bound,
+     * as used by Prometheus. The final element is the count of all values.
+     * 
+     * @return the cumulative counts, one more than the number of bounds
+     */
+    public long[] getCumulativeCounts() {
+        long[] counts = new long[BOUNDS.length + 1];
+        for (int s = 0; s < StripedCounter.STRIPES; s++) {
+            for (int b = 0; b < counts.length; b++) {
+                counts[b] += this.cells.get(s * STRIDE + b);
+            }
+        }
+        for (int b = 1; b < counts.length; b++) {
+            counts[b] += counts[b - 1];
+        }
+        return counts;
+    }
+    
+    public long getCount() {
+        return total(COUNT);
+    }
+    
+    public long getSumNanos() {
+        return total(SUM);
+    }
+    
+    private long total(int offset) {
+        long sum = 0;
+        for (int s = 0; s < StripedCounter.STRIPES; s++) {
+            sum += this.cells.get(s * STRIDE + offset);
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,285 @@
+/* Licensed Materials - Property of IBM                                   */
+/*                                                                        */
+/* SAMPLE                                                                 */
+/*                                                                        */
+/* (c) Copyright IBM Corp. 2018 All Rights Reserved                       */
+/*                                                                        */
+/* US Government Users Restricted Rights - Use, duplication or disclosure */
+/* restricted by GSA ADP Schedule Contract with IBM Corp                  */
+/*                                                                        */
+package com.ibm.cicsdev.employee.jdbc.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Measurements of each kind of database operation, such as search or update.
+ * 
+ * Recording uses striped counters without locks, so the measurements are cheap
+ * enough to be left on in production. They are published in the Prometheus text
+ * format by {@link PrometheusWriter}.
+ */
+public class Metrics
+{
+    /**
+     * The largest number of pool checkouts in a request counted separately; requests with more are counted together.
+     */
+    public static final int MAX_COUNTED_CHECKOUTS = 3;
+    
+    /**
+     * Upper bound of each bucket of group commit sizes. Larger groups are counted together.
+     */
+    private static final int[] GROUP_SIZES = { 1, 2, 4, 8, 16, 32, 64 };
+    
+    private final ConcurrentMap<String, OperationMetrics> operations = new ConcurrentHashMap<>();
+    
+    /**
+     * Requests counted by the number of connections they took from the pool.
+     */
+    private final StripedCounter[] requests = new StripedCounter[MAX_COUNTED_CHECKOUTS + 2];
+    
+    /**
+     * Total connections taken from the pool by all requests.
+     */
+    private final StripedCounter checkouts = new StripedCounter();
+    
+    /**
+     * Connections taken from the pool by operations run outside a request.
+     */
+    private final StripedCounter unscopedCheckouts = new StripedCounter();
+    
+    /**
+     * Serialized size of the state held by each live session, keyed by session ID.
+     */
+    private final ConcurrentMap<String, Integer> sessionBytes = new ConcurrentHashMap<>();
+    
+    /**
+     * Group commits counted by the bucket of their size.
+     */
+    private final StripedCounter[] groups = new StripedCounter[GROUP_SIZES.length + 1];
+    
+    /**
+     * Total changes committed by groups.
+     */
+    private final StripedCounter groupedChanges = new StripedCounter();
+    
+    /**
+     * Time each change waited for its group to start.
+     */
+    private final Histogram groupWait = new Histogram();
+    
+    /**
+     * Inserts refused without starting a unit of work, as the employee number was known to be in use.
+     */
+    private final StripedCounter duplicatesRefused = new StripedCounter();
+    
+    public Metrics() {
+        for (int i = 0; i < this.requests.length; i++) {
+            this.requests[i] = new StripedCounter();
+        }
+        for (int i = 0; i < this.groups.length; i++) {
+            this.groups[i] = new StripedCounter();
+        }
+    }
+    
+    /**
+     * Starts timing an operation.
+     * 
+     * @param operation - name of the operation
+     * @param mode - how the unit of work is controlled
+     * 
+     * @return the timer
+     */
+    public OperationTimer start(String operation, TxMode mode) {
+        return new OperationTimer(operation(operation), mode);
+    }
+    
+    /**
+     * Returns the measurements of an operation, creating them on first use.
+     * 
+     * @param operation - name of the operation
+     * 
+     * @return the measurements
+     */
+    public OperationMetrics operation(String operation) {
+        OperationMetrics metrics = this.operations.get(operation);
+        if ( metrics == null ) {
+            OperationMetrics created = new OperationMetrics();
+            metrics = this.operations.putIfAbsent(operation, created);
+            if ( metrics == null ) {
+                metrics = created;
+            }
+        }
+        return metrics;
+    }
+    
+    /**
+     * Records the number of connections a request took from the pool.
+     * 
+     * @param count - the number of checkouts
+     */
+    public void requestEnded(int count) {
+        this.requests[Math.min(count, MAX_COUNTED_CHECKOUTS + 1)].increment();
+        this.checkouts.add(count);
+    }
+    
+    /**
+     * Records a connection taken from the pool for a single operation outside a request.
+     */
+    public void unscopedCheckout() {
+        this.unscopedCheckouts.increment();
+    }
+    
+    /**
+     * @return the number of connections taken from the pool by operations outside a request
+     */
+    public long getUnscopedCheckouts() {
+        return this.unscopedCheckouts.sum();
+    }
+    
+    /**
+     * @return the number of requests that took 0 to {@link #MAX_COUNTED_CHECKOUTS} connections
+     * from the pool, followed by the number that took more
+     */
+    public long[] getRequestCounts() {
+        long[] counts = new long[this.requests.length];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = this.requests[i].sum();
+        }
+        return counts;
+    }
+    
+    /**
+     * @return the total number of connections taken from the pool
+     */
+    public long getCheckouts() {
+        return this.checkouts.sum();
+    }
+    
+    /**
+     * Records a group of changes committed together.
+     * 
+     * @param size - the number of changes in the group
+     */
+    public void groupCommitted(int size) {
+        int bucket = 0;
+        while ( bucket < GROUP_SIZES.length && size > GROUP_SIZES[bucket] ) {
+            bucket++;
+        }
+        this.groups[bucket].increment();
+        this.groupedChanges.add(size);
+    }
+    
+    /**
+     * Records the time a change waited for its group to start, which is the latency
+     * group commit adds to the change.
+     * 
+     * @param nanos - the time from the change arriving to the group starting
+     */
+    public void groupWaited(long nanos) {
+        this.groupWait.record(nanos);
+    }
+    
+    /**
+     * @return the upper bound of each bucket of group sizes, excluding the final unbounded bucket
+     */
+    public static int[] getGroupSizeBounds() {
+        return GROUP_SIZES.clone();
+    }
+    
+    /**
+     * @return the number of groups committed in each bucket of sizes, followed by the number of larger groups
+     */
+    public long[] getGroupCounts() {
+        long[] counts = new long[this.groups.length];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = this.groups[i].sum();
+        }
+        return counts;
+    }
+    
+    /**
+     * @return the total number of changes committed by groups
+     */
+    public long getGroupedChanges() {
+        return this.groupedChanges.sum();
+    }
+    
+    /**
+     * @return the time changes waited for their group to start
+     */
+    public Histogram getGroupWait() {
+        return this.groupWait;
+    }
+    
+    /**
+     * Records an insert refused without starting a unit of work, as the employee number was confirmed to be in use.
+     */
+    public void duplicateRefused() {
+        this.duplicatesRefused.increment();
+    }
+    
+    /**
+     * @return the number of inserts refused without starting a unit of work
+     */
+    public long getDuplicatesRefused() {
+        return this.duplicatesRefused.sum();
+    }
+    
+    /**
+     * Records the size of the state a session holds, after a request has been rendered.
+     * 
+     * @param sessionId - the session ID
+     * @param bytes - the serialized size of the session's attributes
+     */
+    public void sessionMeasured(String sessionId, int bytes) {
+        this.sessionBytes.put(sessionId, bytes);
+    }
+    
+    /**
+     * Stops counting a session that has ended.
+     * 
+     * @param sessionId - the session ID
+     */
+    public void sessionEnded(String sessionId) {
+        this.sessionBytes.remove(sessionId);
+    }
+    
+    /**
+     * @return the number of live sessions that have been measured
+     */
+    public int getSessions() {
+        return this.sessionBytes.size();
+    }
+    
+    /**
+     * @return the total size of the state held by the live sessions, in bytes
+     */
+    public long getSessionBytes() {
+        long total = 0;
+        for (Integer bytes : this.sessionBytes.values()) {
+            total += bytes;
+        }
+        return total;
+    }
+    
+    /**
+     * @return the size of the state held by the largest live session, in bytes
+     */
+    public int getMaxSessionBytes() {
+        int max = 0;
+        for (Integer bytes : this.sessionBytes.values()) {
+            max = Math.max(max, bytes);
+        }
+        return max;
+    }
+    
+    /**
+     * @return the measurements of each operation, in operation name order
+     */
+    public Map<String, OperationMetrics> getOperations() {
+        return new TreeMap<>(this.operations);
+    }
+}
@@ -0,0 +1,126 @@
+/* Licensed Materials - Property of IBM                                   */
+/*                                                                        */
+/* SAMPLE                                                                 */
+/*                                                                        */
+/* (c) Copyright IBM Corp. 2018 All Rights Reserved                       */
+/*                                                                        */
+/* US Government Users Restricted Rights - Use, duplication or disclosure */
+/* restricted by GSA ADP Schedule Contract with IBM Corp                  */
+/*                                                                        */
+package com.ibm.cicsdev.employee.jdbc.metrics;
+
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The measurements of a single kind of database operation.
+ */
+public class OperationMetrics
+{
+    /**
+     * Histograms for each phase and unit of work mode, created when first used.
+     */
+    private final AtomicReferenceArray<Histogram> histograms =
+            new AtomicReferenceArray<>(Phase.values().length * TxMode.values().length);
+    
+    private final StripedCounter rows = new StripedCounter();
+    
+    /**
+     * Failures counted by SQLState, or by exception class for errors that are not from JDBC.
+     */
+    private final ConcurrentMap<String, StripedCounter> errors = new ConcurrentHashMap<>();
+    
+    /**
+     * Returns the histogram for a phase of the operation, creating it on first use.
+     * 
+     * @param phase - the phase timed
+     * @param mode - how the unit of work is controlled
+     * 
+     * @return the histogram
+     */
+    public Histogram histogram(Phase phase, TxMode mode) {
+        int index = phase.ordinal() * TxMode.values().length + mode.ordinal();
+        Histogram histogram = this.histograms.get(index);
+        if ( histogram == null ) {
+            this.histograms.compareAndSet(index, null, new Histogram());
+            histogram = this.histograms.get(index);
+        }
+        return histogram;
+    }
+    
+    /**
+     * Returns the histogram for a phase of the operation if it has been used.
+     * 
+     * @param phase - the phase timed
+     * @param mode - how the unit of work is controlled
+     * 
+     * @return the histogram, or null if nothing has been recorded
+     */
+    public Histogram getHistogram(Phase phase, TxMode mode) {
+        return this.histograms.get(phase.ordinal() * TxMode.values().length + mode.ordinal());
+    }
+    
+    /**
+     * Counts rows read or written.
+     * 
+     * @param count - the number of rows
+     */
+    public void rows(long count) {
+        this.rows.add(count);
+    }
+    
+    /**
+     * Counts a failure of the operation.
+     * 
+     * @param t - the exception thrown
+     */
+    public void error(Throwable t) {
+        String code = errorCode(t);
+        StripedCounter counter = this.errors.get(code);
+        if ( counter == null ) {
+            StripedCounter created = new StripedCounter();
+            counter = this.errors.putIfAbsent(code, created);
+            if ( counter == null ) {
+                counter = created;
+            }
+        }
+        counter.increment();
+    }
+    
+    public long getRows() {
+        return this.rows.sum();
+    }
+    
+    /**
+     * @return the number of failures for each error code, in code order
+     */
+    public Map<String, Long> getErrors() {
+        Map<String, Long> errors = new TreeMap<>();
+        for (Map.Entry<String, StripedCounter> entry : this.errors.entrySet()) {
+            errors.put(entry.getKey(), entry.getValue().sum());
+        }
+        return errors;
+    }
+    
+    /**
+     * Finds the code used to count an exception: the SQLState of the first JDBC exception
+     * in the cause chain, such as 23505 for a duplicate key or 23504 for a referential
+     * integrity violation, or otherwise the exception's class name.
+     * 
+     * @param t - the exception thrown
+     * 
+     * @return the code
+     */
+    static String errorCode(Throwable t) {
+        for (Throwable cause = t; cause != null; cause = cause.getCause()) {
+            if ( cause instanceof SQLException && ((SQLException) cause).getSQLState() != null ) {
+                return ((SQLException) cause).getSQLState();
+            }
+        }
+        return t.getClass().getSimpleName();
+    }
+}
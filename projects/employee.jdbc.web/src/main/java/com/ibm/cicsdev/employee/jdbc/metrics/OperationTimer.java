@@ -0,0 +1,71 @@
+/* Licensed Materials - Property of IBM                                   */
+/*                                                                        */
+/* SAMPLE                                                                 */
+/*                                                                        */
+/* (c) Copyright IBM Corp. 2018 All Rights Reserved                       */
+/*                                                                        */
+/* US Government Users Restricted Rights - Use, duplication or disclosure */
+/* restricted by GSA ADP Schedule Contract with IBM Corp                  */
+/*                                                                        */
+package com.ibm.cicsdev.employee.jdbc.metrics;
+
+/**
+ * Times the phases of a single database operation.
+ * 
+ * Each call to {@link #lap(Phase)} records the time since the previous call, or
+ * since the timer was started, against the phase just completed. A timer is used
+ * by a single thread.
+ */
+public class OperationTimer
+{
+    private final OperationMetrics metrics;
+    
+    private final TxMode mode;
+    
+    private final long started;
+    
+    private long last;
+    
+    OperationTimer(OperationMetrics metrics, TxMode mode) {
+        this.metrics = metrics;
+        this.mode = mode;
+        this.started = System.nanoTime();
+        this.last = this.started;
+    }
+    
+    /**
+     * Records the end of a phase.
+     * 
+     * @param phase - the phase just completed
+     */
+    public void lap(Phase phase) {
+        long now = System.nanoTime();
+        this.metrics.histogram(phase, this.mode).record(now - this.last);
+        this.last = now;
+    }
+    
+    /**
+     * Counts rows read or written by the operation.
+     * 
+     * @param count - the number of rows
+     */
+    public void rows(long count) {
+        this.metrics.rows(count);
+    }
+    
+    /**
+     * Records the successful end of the operation.
+     */
+    public void end() {
+        this.metrics.histogram(Phase.TOTAL, this.mode).record(System.nanoTime() - this.started);
+    }
+    
+    /**
+     * Records the failure of the operation.
+     * 
+     * @param t - the exception thrown
+     */
+    public void failed(Throwable t) {
+        this.metrics.error(t);
+    }
+}
@@ -0,0 +1,38 @@
+/* Licensed Materials - Property of IBM                                   */
+/*                                                                        */
+/* SAMPLE                                                                 */
+/*                                                                        */
+/* (c) Copyright IBM Corp. 2018 All Rights Reserved                       */
+/*                                                                        */
+/* US Government Users Restricted Rights - Use, duplication or disclosure */
+/* restricted by GSA ADP Schedule Contract with IBM Corp                  */
+/*                                                                        */
+package com.ibm.cicsdev.employee.jdbc.metrics;
+
+/**
+ * The parts of a database operation that are timed separately.
+ */
+public enum Phase
+{
+    /** Starting the unit of work and obtaining a connection from the pool. */
+    CONNECT,
+    
+    /** Preparing and executing the SQL, and reading any rows returned. */
+    EXECUTE,
+    
+    /** Writing the audit record to the TSQ. */
+    AUDIT,
+    
+    /** Committing the unit of work. */
+    COMMIT,
+    
+    /** The whole operation. */
+    TOTAL;
+    
+    /**
+     * @return the name used as a metric label
+     */
+    public String getLabel() {
+        return name().toLowerCase();
+    }
+}
@@ -0,0 +1,253 @@
+/* Licensed Materials - Property of IBM                                   */
+/*                                                                        */
+/* SAMPLE                                                                 */
+/*                                                                        */
+/* (c) Copyright IBM Corp. 2018 All Rights Reserved                       */
+/*                                                                        */
+/* US Government Users Restricted Rights - Use, duplication or disclosure */
+/* restricted by GSA ADP Schedule Contract with IBM Corp                  */
+/*                                                                        */
+package com.ibm.cicsdev.employee.jdbc.metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Map;
+
+import com.ibm.cicsdev.employee.jdbc.audit.AuditSink;
+import com.ibm.cicsdev.employee.jdbc.audit.BufferedAuditSink;
+import com.ibm.cicsdev.employee.jdbc.cache.EmployeeCache;
+import com.ibm.cicsdev.employee.jdbc.exec.DatabaseExecutor;
+import com.ibm.cicsdev.employee.jdbc.tx.TransactionCoordinator;
+
+/**
+ * Writes the application's measurements in the Prometheus text exposition format.
+ * 
+ * Times are written in seconds. Histograms and error counts are only written
+ * for the operations and modes that have been used.
+ */
+public class PrometheusWriter
+{
+    /**
+     * Content type of the text format.
+     */
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+    
+    private final Writer out;
+    
+    private PrometheusWriter(Writer out) {
+        this.out = out;
+    }
+    
+    /**
+     * Writes all measurements.
+     * 
+     * @param out - the destination
+     * @param metrics - the database operation measurements
+     * @param transactions - starts the units of work, and records how long each takes
+     * @param cache - the employee cache
+     * @param executor - runs the database calls
+     * @param audit - the audit sink, whose queue is described if it is buffered
+     * 
+     * @throws IOException if the output cannot be written
+     */
+    public static void write(Writer out, Metrics metrics, TransactionCoordinator transactions, EmployeeCache cache, DatabaseExecutor executor, AuditSink audit)
+            throws IOException
+    {
+        PrometheusWriter writer = new PrometheusWriter(out);
+        Map<String, OperationMetrics> operations = metrics.getOperations();
+        writer.writeOperations(operations);
+        writer.writeTransactions(transactions);
+        writer.writeDuplicates(metrics);
+        writer.writeCheckouts(metrics);
+        writer.writeGroups(metrics);
+        writer.writeSessions(metrics);
+        writer.writeCache(cache);
+        writer.writeExecutor(executor);
+        if ( audit instanceof BufferedAuditSink ) {
+            writer.writeAudit((BufferedAuditSink) audit);
+        }
+        out.flush();
+    }
+    
+    private void writeOperations(Map<String, OperationMetrics> operations) throws IOException
+    {
+        long[] bounds = Histogram.getBounds();
+        
+        header("employee_db_operation_seconds", "histogram", "Time spent in each phase of a database operation");
+        for (Map.Entry<String, OperationMetrics> entry : operations.entrySet()) {
+            for (Phase phase : Phase.values()) {
+                for (TxMode mode : TxMode.values()) {
+                    Histogram histogram = entry.getValue().getHistogram(phase, mode);
+                    if ( histogram == null ) {
+                        continue;
+                    }
+                    String labels = "operation=\"" + entry.getKey() + "\",phase=\"" + phase.getLabel() + "\",tx=\"" + mode.getLabel() + "\"";
+                    long[] counts = histogram.getCumulativeCounts();
+                    for (int i = 0; i < bounds.length; i++) {
+                        sample("employee_db_operation_seconds_bucket", labels + ",le=\"" + seconds(bounds[i]) + "\"", counts[i]);
+                    }
+                    sample("employee_db_operation_seconds_bucket", labels + ",le=\"+Inf\"", counts[bounds.length]);
+                    sample("employee_db_operation_seconds_sum", labels, seconds(histogram.getSumNanos()));
+                    sample("employee_db_operation_seconds_count", labels, histogram.getCount());
+                }
+            }
+        }
+        
+        header("employee_db_rows_total", "counter", "Rows read or written by database operations");
+        for (Map.Entry<String, OperationMetrics> entry : operations.entrySet()) {
+            sample("employee_db_rows_total", "operation=\"" + entry.getKey() + "\"", entry.getValue().getRows());
+        }
+        
+        header("employee_db_errors_total", "counter", "Failed database operations, by SQLState or exception class");
+        for (Map.Entry<String, OperationMetrics> entry : operations.entrySet()) {
+            for (Map.Entry<String, Long> error : entry.getValue().getErrors().entrySet()) {
+                sample("employee_db_errors_total", "operation=\"" + entry.getKey() + "\",code=\"" + error.getKey() + "\"", error.getValue());
+            }
+        }
+    }
+    
+    private void writeTransactions(TransactionCoordinator transactions) throws IOException
+    {
+        long[] bounds = Histogram.getBounds();
+        
+        header("employee_db_transaction_seconds", "histogram", "Time from the start of each unit of work to its commit");
+        for (Map.Entry<String, Histogram> entry : transactions.getLatencies().entrySet()) {
+            String labels = "operation=\"" + entry.getKey() + "\"";
+            Histogram histogram = entry.getValue();
+            long[] counts = histogram.getCumulativeCounts();
+            for (int i = 0; i < bounds.length; i++) {
+                sample("employee_db_transaction_seconds_bucket", labels + ",le=\"" + seconds(bounds[i]) + "\"", counts[i]);
+            }
+            sample("employee_db_transaction_seconds_bucket", labels + ",le=\"+Inf\"", counts[bounds.length]);
+            sample("employee_db_transaction_seconds_sum", labels, seconds(histogram.getSumNanos()));
+            sample("employee_db_transaction_seconds_count", labels, histogram.getCount());
+        }
+    }
+    
+    private void writeDuplicates(Metrics metrics) throws IOException
+    {
+        header("employee_db_duplicates_refused_total", "counter", "Inserts refused without a unit of work, as the employee number was in use");
+        sample("employee_db_duplicates_refused_total", null, metrics.getDuplicatesRefused());
+    }
+    
+    private void writeCheckouts(Metrics metrics) throws IOException
+    {
+        header("employee_db_request_checkouts", "histogram", "Connections taken from the pool by each request");
+        long[] counts = metrics.getRequestCounts();
+        long cumulative = 0;
+        for (int i = 0; i < counts.length - 1; i++) {
+            cumulative += counts[i];
+            sample("employee_db_request_checkouts_bucket", "le=\"" + i + "\"", cumulative);
+        }
+        cumulative += counts[counts.length - 1];
+        sample("employee_db_request_checkouts_bucket", "le=\"+Inf\"", cumulative);
+        sample("employee_db_request_checkouts_sum", null, metrics.getCheckouts());
+        sample("employee_db_request_checkouts_count", null, cumulative);
+        
+        header("employee_db_unscoped_checkouts_total", "counter", "Connections taken from the pool by operations outside a request");
+        sample("employee_db_unscoped_checkouts_total", null, metrics.getUnscopedCheckouts());
+    }
+    
+    private void writeGroups(Metrics metrics) throws IOException
+    {
+        // Only written once group commit has been used
+        Histogram wait = metrics.getGroupWait();
+        if ( wait.getCount() == 0 ) {
+            return;
+        }
+        
+        header("employee_db_group_commit_size", "histogram", "Changes committed together by each group commit");
+        int[] sizes = Metrics.getGroupSizeBounds();
+        long[] groups = metrics.getGroupCounts();
+        long cumulative = 0;
+        for (int i = 0; i < sizes.length; i++) {
+            cumulative += groups[i];
+            sample("employee_db_group_commit_size_bucket", "le=\"" + sizes[i] + "\"", cumulative);
+        }
+        cumulative += groups[sizes.length];
+        sample("employee_db_group_commit_size_bucket", "le=\"+Inf\"", cumulative);
+        sample("employee_db_group_commit_size_sum", null, metrics.getGroupedChanges());
+        sample("employee_db_group_commit_size_count", null, cumulative);
+        
+        header("employee_db_group_commit_wait_seconds", "histogram", "Time each change waited for its group commit to start");
+        long[] bounds = Histogram.getBounds();
+        long[] counts = wait.getCumulativeCounts();
+        for (int i = 0; i < bounds.length; i++) {
+            sample("employee_db_group_commit_wait_seconds_bucket", "le=\"" + seconds(bounds[i]) + "\"", counts[i]);
+        }
+        sample("employee_db_group_commit_wait_seconds_bucket", "le=\"+Inf\"", counts[bounds.length]);
+        sample("employee_db_group_commit_wait_seconds_sum", null, seconds(wait.getSumNanos()));
+        sample("employee_db_group_commit_wait_seconds_count", null, wait.getCount());
+    }
+    
+    private void writeSessions(Metrics metrics) throws IOException
+    {
+        header("employee_sessions", "gauge", "Live sessions whose state has been measured");
+        sample("employee_sessions", null, metrics.getSessions());
+        header("employee_session_state_bytes", "gauge", "Serialized size of the state held by all live sessions");
+        sample("employee_session_state_bytes", null, metrics.getSessionBytes());
+        header("employee_session_state_max_bytes", "gauge", "Serialized size of the state held by the largest live session");
+        sample("employee_session_state_max_bytes", null, metrics.getMaxSessionBytes());
+    }
+    
+    private void writeCache(EmployeeCache cache) throws IOException
+    {
+        header("employee_cache_hits_total", "counter", "Reads answered by the employee cache");
+        sample("employee_cache_hits_total", null, cache.getHits());
+        header("employee_cache_misses_total", "counter", "Reads not answered by the employee cache");
+        sample("employee_cache_misses_total", null, cache.getMisses());
+        header("employee_cache_evictions_total", "counter", "Entries removed from the employee cache as full or expired");
+        sample("employee_cache_evictions_total", null, cache.getEvictions());
+        header("employee_cache_entries", "gauge", "Entries held in the employee cache");
+        sample("employee_cache_entries", null, cache.getSize());
+    }
+    
+    private void writeExecutor(DatabaseExecutor executor) throws IOException
+    {
+        header("employee_db_calls_active", "gauge", "Database calls running");
+        sample("employee_db_calls_active", null, executor.getActive());
+        header("employee_db_calls_queued", "gauge", "Database calls waiting for a thread");
+        sample("employee_db_calls_queued", null, executor.getQueued());
+        header("employee_db_calls_rejected_total", "counter", "Database calls refused as too many were running or waiting");
+        sample("employee_db_calls_rejected_total", null, executor.getRejected());
+        header("employee_db_calls_timed_out_total", "counter", "Database calls the caller stopped waiting for");
+        sample("employee_db_calls_timed_out_total", null, executor.getTimedOut());
+    }
+    
+    private void writeAudit(BufferedAuditSink audit) throws IOException
+    {
+        header("employee_audit_written_total", "counter", "Audit records written to the TSQ");
+        sample("employee_audit_written_total", null, audit.getWritten());
+        header("employee_audit_dropped_total", "counter", "Audit records dropped as the queue was full");
+        sample("employee_audit_dropped_total", null, audit.getDropped());
+        header("employee_audit_failed_total", "counter", "Audit records that could not be written");
+        sample("employee_audit_failed_total", null, audit.getFailed());
+        header("employee_audit_queue_depth", "gauge", "Audit records waiting to be written");
+        sample("employee_audit_queue_depth", null, audit.getQueueDepth());
+    }
+    
+    private void header(String name, String type, String help) throws IOException {
+        this.out.write("# HELP " + name + " " + help + "\n");
+        this.out.write("# TYPE " + name + " " + type + "\n");
+    }
+    
+    private void sample(String name, String labels, long value) throws IOException {
+        sample(name, labels, Long.toString(value));
+    }
+    
+    private void sample(String name, String labels, String value) throws IOException {
+        this.out.write(name);
+        if ( labels != null ) {
+            this.out.write('{');
+            this.out.write(labels);
+            this.out.write('}');
+        }
+        this.out.write(' ');
+        this.out.write(value);
+        this.out.write('\n');
+    }
+    
+    private static String seconds(long nanos) {
+        return Double.toString(nanos / 1e9);
+    }
+}
@@ -0,0 +1,78 @@
+/* Licensed Materials - Property of IBM                                   */
+/*                                                                        */
+/* SAMPLE                                                                 */
+/*                                                                        */
+/* (c) Copyright IBM Corp. 2018 All Rights Reserved                       */
+/*                                                                        */
+/* US Government Users Restricted Rights - Use, duplication or disclosure */
+/* restricted by GSA ADP Schedule Contract with IBM Corp                  */
+/*                                                                        */
+package com.ibm.cicsdev.employee.jdbc.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A counter that many threads can add to without contending.
+ * 
+ * The total is split over a number of cells, each on its own cache line, and
+ * each thread adds to the cell chosen by its thread id. Adding is a single
+ * uncontended atomic add in the common case, while reading the total sums
+ * the cells, so a counter suits values updated far more often than read.
+ */
+public class StripedCounter
+{
+    /**
+     * Number of longs between cells, so that each cell is on its own 64 byte cache line.
+     */
+    static final int PAD = 8;
+    
+    /**
+     * Number of cells, a power of two no smaller than the number of processors.
+     */
+    static final int STRIPES = stripes();
+    
+    private final AtomicLongArray cells = new AtomicLongArray(STRIPES * PAD);
+    
+    /**
+     * Adds a value to the counter.
+     * 
+     * @param value - the amount to add
+     */
+    public void add(long value) {
+        this.cells.getAndAdd(stripe() * PAD, value);
+    }
+    
+    /**
+     * Adds one to the counter.
+     */
+    public void increment() {
+        add(1);
+    }
+    
+    /**
+     * @return the total of the values added
+     */
+    public long sum() {
+        long sum = 0;
+        for (int i = 0; i < STRIPES; i++) {
+            sum += this.cells.get(i * PAD);
+        }
+        return sum;
+    }
+    
+    /**
+     * @return the cell used by the current thread
+     */
+    static int stripe() {
+        long id = Thread.currentThread().getId();
+        return (int) (id ^ (id >>> 16)) & (STRIPES - 1);
+    }
+    
+    private static int stripes() {
+        int n = 1;
+        while ( n < Runtime.getRuntime().availableProcessors() && n < 64 ) {
+            n <<= 1;
+        }
+        return n;
+    }
+}
@@ -0,0 +1,44 @@
+/* Licensed Materials - Property of IBM                                   */
+/*                                                                        */
+/* SAMPLE                                                                 */
+/*                                                                        */
+/* (c) Copyright IBM Corp. 2018 All Rights Reserved                       */
+/*                                                                        */
+/* US Government Users Restricted Rights - Use, duplication or disclosure */
+/* restricted by GSA ADP Schedule Contract with IBM Corp                  */
+/*                                                                        */
+package com.ibm.cicsdev.employee.jdbc.metrics;
+
+/**
+ * How the unit of work of a database operation is controlled.
+ */
+public enum TxMode
+{
+    /** A JTA transaction. */
+    JTA,
+    
+    /** The CICS unit of work, committed through the connection. */
+    CICS,
+    
+    /** The CICS unit of work, committed by a group of operations together. */
+    GROUP,
+    
+    /** No unit of work, as the operation only reads. */
+    NONE;
+    
+    /**
+     * @param useJta - true if JTA was requested
+     * 
+     * @return the mode of an update
+     */
+    public static TxMode of(boolean useJta) {
+        return useJta ? JTA : CICS;
+    }
+    
+    /**
+     * @return the name used as a metric label
+     */
+    public String getLabel() {
+        return name().toLowerCase();
+    }
+}
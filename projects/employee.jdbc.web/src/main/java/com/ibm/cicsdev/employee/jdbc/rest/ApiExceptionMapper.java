@@ -0,0 +1,39 @@
+/* Licensed Materials - Property of IBM                                   */
+/*                                                                        */
+/* SAMPLE                                                                 */
+/*                                                                        */
+/* (c) Copyright IBM Corp. 2018 All Rights Reserved                       */
+/*                                                                        */
+/* US Government Users Restricted Rights - Use, duplication or disclosure */
+/* restricted by GSA ADP Schedule Contract with IBM Corp                  */
+/*                                                                        */
+package com.ibm.cicsdev.employee.jdbc.rest;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.ext.ExceptionMapper;
+import javax.ws.rs.ext.Provider;
+
+/**
+ * Turns an exception from the API into a response, writing unexpected errors
+ * to the log in the same way as the JSF pages.
+ */
+@Provider
+public class ApiExceptionMapper implements ExceptionMapper<Exception>
+{
+    @Override
+    public Response toResponse(Exception e)
+    {
+        // Responses chosen by the resource are sent as they are
+        if ( e instanceof WebApplicationException ) {
+            return ((WebApplicationException) e).getResponse();
+        }
+        
+        // The database access class will have already rolled back any transaction
+        e.printStackTrace(System.out);
+        return Response.status(Status.INTERNAL_SERVER_ERROR)
+                .entity("An error occurred: see error log").type(MediaType.TEXT_PLAIN).build();
+    }
+}
@@ -0,0 +1,25 @@
+/* Licensed Materials - Property of IBM                                   */
+/*                                                                        */
+/* SAMPLE                                                                 */
+/*                                                                        */
+/* (c) Copyright IBM Corp. 2018 All Rights Reserved                       */
+/*                                                                        */
+/* US Government Users Restricted Rights - Use, duplication or disclosure */
+/* restricted by GSA ADP Schedule Contract with IBM Corp                  */
+/*                                                                        */
+package com.ibm.cicsdev.employee.jdbc.rest;
+
+import javax.ws.rs.ApplicationPath;
+import javax.ws.rs.core.Application;
+
+/**
+ * JAX-RS application providing a stateless JSON API to the employee data,
+ * for programs that would otherwise drive the JSF pages.
+ * 
+ * The resources and providers in this package are found by scanning, and are
+ * available under <code>/api</code> in the web application's context root.
+ */
+@ApplicationPath("api")
+public class EmployeeApplication extends Application
+{
+}
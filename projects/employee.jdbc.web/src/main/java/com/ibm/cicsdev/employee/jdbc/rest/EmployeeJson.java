@@ -0,0 +1,342 @@
+/* Licensed Materials - Property of IBM                                   */
+/*                                                                        */
+/* SAMPLE                                                                 */
+/*                                                                        */
+/* (c) Copyright IBM Corp. 2018 All Rights Reserved                       */
+/*                                                                        */
+/* US Government Users Restricted Rights - Use, duplication or disclosure */
+/* restricted by GSA ADP Schedule Contract with IBM Corp                  */
+/*                                                                        */
+package com.ibm.cicsdev.employee.jdbc.rest;
+
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.json.Json;
+import javax.json.JsonArray;
+import javax.json.JsonException;
+import javax.json.JsonObject;
+import javax.json.JsonReader;
+import javax.json.JsonString;
+import javax.json.JsonValue;
+import javax.json.stream.JsonGenerator;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+
+import com.ibm.cicsdev.employee.jdbc.beans.Employee;
+import com.ibm.cicsdev.employee.jdbc.beans.ImportResult;
+import com.ibm.cicsdev.employee.jdbc.faces.EmployeeRowMapper;
+
+/**
+ * Converts employees to and from JSON.
+ * 
+ * Each employee is a JSON object whose names match the properties of
+ * {@link Employee}. Dates are written as <code>yyyy-mm-dd</code>, and
+ * decimal amounts as JSON numbers so no precision is lost.
+ */
+public class EmployeeJson
+{
+    /*
+     * Property names.
+     */
+    
+    private static final String EMPNO = "empNo";
+    private static final String FIRSTNAME = "firstName";
+    private static final String MIDINIT = "midInit";
+    private static final String LASTNAME = "lastName";
+    private static final String GENDER = "gender";
+    private static final String PHONENO = "phoneNo";
+    private static final String JOB = "job";
+    private static final String EDLEVEL = "edLevel";
+    private static final String BIRTHDATE = "birthDate";
+    private static final String HIREDATE = "hireDate";
+    private static final String SALARY = "salary";
+    private static final String BONUS = "bonus";
+    private static final String COMM = "comm";
+    private static final String ROWCHANGETOKEN = "rowChangeToken";
+    
+    private EmployeeJson() {
+    }
+    
+    
+    /*
+     * Writing.
+     */
+    
+    /**
+     * Writes the current row of a query as an employee object.
+     * 
+     * @param json - the generator, positioned where a value may be written
+     * @param row - reads the current row
+     * 
+     * @throws SQLException if the row cannot be read
+     */
+    public static void write(JsonGenerator json, EmployeeRowMapper row) throws SQLException
+    {
+        json.writeStartObject();
+        writeString(json, EMPNO, row.getEmpNo());
+        writeString(json, FIRSTNAME, row.getFirstName());
+        writeString(json, MIDINIT, row.getMidInit());
+        writeString(json, LASTNAME, row.getLastName());
+        writeString(json, GENDER, row.getGender());
+        writeString(json, PHONENO, row.getPhoneNo());
+        writeString(json, JOB, row.getJob());
+        json.write(EDLEVEL, row.getEdLevel());
+        writeDate(json, BIRTHDATE, row.getBirthDate());
+        writeDate(json, HIREDATE, row.getHireDate());
+        writeDecimal(json, SALARY, row.getSalary());
+        writeDecimal(json, BONUS, row.getBonus());
+        writeDecimal(json, COMM, row.getComm());
+        json.write(ROWCHANGETOKEN, row.getRowChangeToken());
+        json.writeEnd();
+    }
+    
+    /**
+     * Writes an employee object.
+     * 
+     * @param json - the generator, positioned where a value may be written
+     * @param employee - the employee to write
+     */
+    public static void write(JsonGenerator json, Employee employee)
+    {
+        json.writeStartObject();
+        writeString(json, EMPNO, employee.getEmpNo());
+        writeString(json, FIRSTNAME, employee.getFirstName());
+        writeString(json, MIDINIT, employee.getMidInit());
+        writeString(json, LASTNAME, employee.getLastName());
+        writeString(json, GENDER, employee.getGender());
+        writeString(json, PHONENO, employee.getPhoneNo());
+        writeString(json, JOB, employee.getJob());
+        json.write(EDLEVEL, employee.getEdLevel());
+        writeDate(json, BIRTHDATE, employee.getBirthDate());
+        writeDate(json, HIREDATE, employee.getHireDate());
+        writeDecimal(json, SALARY, employee.getSalary());
+        writeDecimal(json, BONUS, employee.getBonus());
+        writeDecimal(json, COMM, employee.getComm());
+        json.write(ROWCHANGETOKEN, employee.getRowChangeToken());
+        json.writeEnd();
+    }
+    
+    /**
+     * Writes the outcome of a bulk add.
+     * 
+     * @param json - the generator, positioned where a value may be written
+     * @param result - the outcome
+     */
+    public static void write(JsonGenerator json, ImportResult result)
+    {
+        json.writeStartObject();
+        json.write("added", result.getAdded());
+        json.writeStartArray("failures");
+        for (ImportResult.Failure failure : result.getFailures()) {
+            json.writeStartObject();
+            json.write("row", failure.getRow());
+            writeString(json, EMPNO, failure.getEmpNo());
+            writeString(json, "reason", failure.getReason());
+            json.writeEnd();
+        }
+        json.writeEnd();
+        json.writeEnd();
+    }
+    
+    
+    /*
+     * Reading.
+     */
+    
+    /**
+     * Reads a single JSON object from a request body.
+     * 
+     * @param in - the request body
+     * 
+     * @return the object
+     * 
+     * @throws WebApplicationException with status 400 if the body is not a JSON object
+     */
+    public static JsonObject readObject(InputStream in)
+    {
+        try ( JsonReader reader = Json.createReader(in) ) {
+            return reader.readObject();
+        }
+        catch (JsonException | IllegalStateException e) {
+            throw badRequest("Request body must be a JSON object");
+        }
+    }
+    
+    /**
+     * Reads a JSON array of employees from a request body.
+     * 
+     * @param in - the request body
+     * 
+     * @return a new employee for each element of the array
+     * 
+     * @throws WebApplicationException with status 400 if the body is not an array of valid employees
+     */
+    public static List<Employee> readEmployees(InputStream in)
+    {
+        JsonArray array;
+        try ( JsonReader reader = Json.createReader(in) ) {
+            array = reader.readArray();
+        }
+        catch (JsonException | IllegalStateException e) {
+            throw badRequest("Request body must be a JSON array");
+        }
+        
+        List<Employee> employees = new ArrayList<>(array.size());
+        for (int i = 0; i < array.size(); i++) {
+            if ( array.get(i).getValueType() != JsonValue.ValueType.OBJECT ) {
+                throw badRequest("Element " + (i + 1) + " is not a JSON object");
+            }
+            employees.add(toEmployee(array.getJsonObject(i)));
+        }
+        return employees;
+    }
+    
+    /**
+     * Builds a new employee from a JSON object.
+     * 
+     * @param json - the object, which must include the employee number
+     * 
+     * @return a new employee
+     * 
+     * @throws WebApplicationException with status 400 if the object is not a valid employee
+     */
+    public static Employee toEmployee(JsonObject json)
+    {
+        String empNo = string(json, EMPNO);
+        if ( empNo == null || empNo.trim().isEmpty() ) {
+            throw badRequest("An employee number is required");
+        }
+        
+        Employee employee = new Employee();
+        employee.setEmpNo(empNo.trim().toUpperCase());
+        apply(json, employee);
+        return employee;
+    }
+    
+    /**
+     * Copies the values in a JSON object to an employee.
+     * 
+     * Only the properties present in the object are set, so the employee records just
+     * those columns as changed. The employee number and row change token are ignored,
+     * as they identify the row rather than being part of it.
+     * 
+     * @param json - the object
+     * @param employee - the employee to update
+     * 
+     * @throws WebApplicationException with status 400 if a value is of the wrong type
+     */
+    public static void apply(JsonObject json, Employee employee)
+    {
+        try {
+            if ( json.containsKey(FIRSTNAME) ) {
+                employee.setFirstName(string(json, FIRSTNAME));
+            }
+            if ( json.containsKey(MIDINIT) ) {
+                employee.setMidInit(string(json, MIDINIT));
+            }
+            if ( json.containsKey(LASTNAME) ) {
+                employee.setLastName(string(json, LASTNAME));
+            }
+            if ( json.containsKey(GENDER) ) {
+                employee.setGender(string(json, GENDER));
+            }
+            if ( json.containsKey(PHONENO) ) {
+                employee.setPhoneNo(string(json, PHONENO));
+            }
+            if ( json.containsKey(JOB) ) {
+                employee.setJob(string(json, JOB));
+            }
+            if ( json.containsKey(EDLEVEL) ) {
+                employee.setEdLevel(json.isNull(EDLEVEL) ? 0 : (short) json.getInt(EDLEVEL));
+            }
+            if ( json.containsKey(BIRTHDATE) ) {
+                employee.setBirthDate(date(json, BIRTHDATE));
+            }
+            if ( json.containsKey(HIREDATE) ) {
+                employee.setHireDate(date(json, HIREDATE));
+            }
+            if ( json.containsKey(SALARY) ) {
+                employee.setSalary(decimal(json, SALARY));
+            }
+            if ( json.containsKey(BONUS) ) {
+                employee.setBonus(decimal(json, BONUS));
+            }
+            if ( json.containsKey(COMM) ) {
+                employee.setComm(decimal(json, COMM));
+            }
+        }
+        catch (ClassCastException e) {
+            throw badRequest("Invalid value type for employee " + employee.getEmpNo());
+        }
+        catch (IllegalArgumentException e) {
+            throw badRequest("Invalid date for employee " + employee.getEmpNo() + ": use yyyy-mm-dd");
+        }
+    }
+    
+    
+    /*
+     * Utility methods.
+     */
+    
+    /**
+     * Builds an exception that sends a 400 response with a plain text message.
+     * 
+     * @param message - the message for the client
+     * 
+     * @return the exception, for the caller to throw
+     */
+    public static WebApplicationException badRequest(String message)
+    {
+        return new WebApplicationException(
+                Response.status(Status.BAD_REQUEST).entity(message).type(MediaType.TEXT_PLAIN).build());
+    }
+    
+    private static void writeString(JsonGenerator json, String name, String value) {
+        if ( value == null ) {
+            json.writeNull(name);
+        }
+        else {
+            json.write(name, value);
+        }
+    }
+    
+    private static void writeDate(JsonGenerator json, String name, java.util.Date value) {
+        if ( value == null ) {
+            json.writeNull(name);
+        }
+        else {
+            // java.sql.Date prints as yyyy-mm-dd
+            json.write(name, (value instanceof Date ? value : new Date(value.getTime())).toString());
+        }
+    }
+    
+    private static void writeDecimal(JsonGenerator json, String name, BigDecimal value) {
+        if ( value == null ) {
+            json.writeNull(name);
+        }
+        else {
+            json.write(name, value);
+        }
+    }
+    
+    private static String string(JsonObject json, String name) {
+        JsonValue value = json.get(name);
+        return value == null || value.getValueType() == JsonValue.ValueType.NULL ? null : ((JsonString) value).getString();
+    }
+    
+    private static Date date(JsonObject json, String name) {
+        String value = string(json, name);
+        return value == null ? null : Date.valueOf(value);
+    }
+    
+    private static BigDecimal decimal(JsonObject json, String name) {
+        return json.isNull(name) ? null : json.getJsonNumber(name).bigDecimalValue();
+    }
+}
@@ -0,0 +1,625 @@
+/* Licensed Materials - Property of IBM                                   */
+/*                                                                        */
+/* SAMPLE                                                                 */
+/*                                                                        */
+/* (c) Copyright IBM Corp. 2018 All Rights Reserved                       */
+/*                                                                        */
+/* US Government Users Restricted Rights - Use, duplication or disclosure */
+/* restricted by GSA ADP Schedule Contract with IBM Corp                  */
+/*                                                                        */
+package com.ibm.cicsdev.employee.jdbc.rest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import javax.json.Json;
+import javax.json.JsonObject;
+import javax.json.stream.JsonGenerator;
+import javax.servlet.ServletContext;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.DELETE;
+import javax.ws.rs.DefaultValue;
+import javax.ws.rs.GET;
+import javax.ws.rs.POST;
+import javax.ws.rs.PUT;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
+import javax.ws.rs.container.TimeoutHandler;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.ResponseBuilder;
+import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.core.StreamingOutput;
+import javax.ws.rs.core.UriBuilder;
+import javax.ws.rs.core.UriInfo;
+
+import com.ibm.cicsdev.employee.jdbc.beans.Employee;
+import com.ibm.cicsdev.employee.jdbc.beans.EmployeeKey;
+import com.ibm.cicsdev.employee.jdbc.beans.ImportResult;
+import com.ibm.cicsdev.employee.jdbc.beans.SearchMode;
+import com.ibm.cicsdev.employee.jdbc.exec.DatabaseBusyException;
+import com.ibm.cicsdev.employee.jdbc.exec.DatabaseExecutor;
+import com.ibm.cicsdev.employee.jdbc.faces.DatabaseOperationsManager;
+import com.ibm.cicsdev.employee.jdbc.faces.DuplicateEmployeeException;
+import com.ibm.cicsdev.employee.jdbc.faces.EmployeeConflictException;
+import com.ibm.cicsdev.employee.jdbc.faces.EmployeeRowHandler;
+import com.ibm.cicsdev.employee.jdbc.faces.EmployeeRowMapper;
+import com.ibm.cicsdev.employee.jdbc.search.InvalidSearchException;
+import com.ibm.cicsdev.employee.jdbc.search.SearchPlanner;
+import com.ibm.cicsdev.employee.jdbc.tx.RequestConnection;
+
+/**
+ * Stateless JSON access to the employees in the EMP table.
+ * 
+ * <ul>
+ * <li><code>GET employees?lastName=&amp;mode=&amp;afterLastName=&amp;afterEmpNo=&amp;limit=</code> reads a page of a search</li>
+ * <li><code>GET employees/{empNo}</code> reads a single employee</li>
+ * <li><code>POST employees</code> adds an employee</li>
+ * <li><code>POST employees/bulk</code> adds an array of employees, in batches</li>
+ * <li><code>PUT employees/{empNo}</code> changes the properties supplied</li>
+ * <li><code>DELETE employees/{empNo}</code> deletes an employee</li>
+ * </ul>
+ * 
+ * Search results are written to JSON as each row is read from the database,
+ * rather than being built as a list of employees first. The page is held in memory
+ * until the search completes, so an error status can still be sent if it fails.
+ * 
+ * Responses carry an ETag: a search is tagged with the version of the
+ * cached data, so a client repeating a search with <code>If-None-Match</code>
+ * receives 304 Not Modified without the database being read, and a single
+ * employee is tagged with its row change token, which may be supplied in
+ * <code>If-Match</code> to update or delete it only if it has not changed.
+ * 
+ * Updates use JTA unless <code>jta=false</code> is specified.
+ * 
+ * Each request is suspended while its database call runs on the application's
+ * {@link DatabaseExecutor}, so the request thread is free for other work. A
+ * request is answered with 503 Service Unavailable if the executor refuses the
+ * call or it does not complete in time.
+ */
+@Path("employees")
+public class EmployeeResource
+{
+    /**
+     * The number of rows in a page when no limit is requested.
+     */
+    private static final String DEFAULT_LIMIT = "15";
+    
+    /**
+     * The number of employees committed in each unit of work by a bulk add.
+     */
+    private static final int BULK_BATCH_SIZE = 100;
+    
+    @Context
+    private ServletContext context;
+    
+    @Context
+    private Request request;
+    
+    @Context
+    private HttpHeaders headers;
+    
+    @Context
+    private UriInfo uriInfo;
+    
+    
+    /*
+     * Read operations.
+     */
+    
+    /**
+     * Reads a page of employees whose last name matches a search.
+     * 
+     * The next page is read by passing the <code>next</code> values from the response
+     * as <code>afterLastName</code> and <code>afterEmpNo</code>.
+     * 
+     * @param lastName - the search argument
+     * @param mode - the name of a {@link SearchMode}
+     * @param afterLastName - last name of the last row of the previous page
+     * @param afterEmpNo - employee number of the last row of the previous page
+     * @param limit - maximum number of rows to return
+     * @param async - resumed with the page, or 304 if the client's copy is current
+     */
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    public void search(@QueryParam("lastName") final String lastName,
+                       @QueryParam("mode") @DefaultValue("PREFIX") String mode,
+                       @QueryParam("afterLastName") String afterLastName,
+                       @QueryParam("afterEmpNo") String afterEmpNo,
+                       @QueryParam("limit") @DefaultValue(DEFAULT_LIMIT) final int limit,
+                       @Suspended AsyncResponse async)
+    {
+        final DatabaseOperationsManager dbOperations = dbOperations();
+        final SearchMode searchMode = searchMode(mode);
+        final EmployeeKey seek = afterLastName == null || afterEmpNo == null ? null : new EmployeeKey(afterLastName, afterEmpNo);
+        
+        // Refuse a bad search now, while an error status can still be sent
+        try {
+            SearchPlanner.plan(searchMode, lastName);
+        }
+        catch (InvalidSearchException e) {
+            throw EmployeeJson.badRequest(e.getMessage());
+        }
+        
+        // The version must be read before the database, so the tag is never newer than the data.
+        // A replica may not have a recent change under that version yet, so read the primary instead.
+        final EntityTag tag = new EntityTag(dbOperations.getCache().getVersion());
+        boolean readPrimary = dbOperations.isReplicaBehind();
+        ResponseBuilder notModified = this.request.evaluatePreconditions(tag);
+        if ( notModified != null ) {
+            async.resume(notModified.build());
+            return;
+        }
+        
+        // Write each row to JSON as it is read, holding the page in memory so a failure can still be reported
+        submit(dbOperations, true, readPrimary, async, new Callable<Response>() {
+            @Override
+            public Response call() throws Exception {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                try ( JsonGenerator json = Json.createGenerator(out) ) {
+                    PageWriter writer = new PageWriter(json);
+                    json.writeStartObject();
+                    json.writeStartArray("employees");
+                    boolean more = dbOperations.scanEmployeePage(searchMode, lastName, seek, limit, writer);
+                    json.writeEnd();
+                    if ( more ) {
+                        json.writeStartObject("next");
+                        json.write("afterLastName", writer.lastName);
+                        json.write("afterEmpNo", writer.empNo);
+                        json.writeEnd();
+                    }
+                    json.writeEnd();
+                }
+                return Response.ok(out.toByteArray()).tag(tag).build();
+            }
+        });
+    }
+    
+    /**
+     * Suggests last names starting with a prefix, for search-as-you-type.
+     * 
+     * The names come from the in-memory index of last names, so the database is only
+     * read if the index has not been loaded yet.
+     * 
+     * @param prefix - the start of the last name
+     * @param limit - maximum number of names to return
+     * @param async - resumed with the distinct matching last names, in search order
+     */
+    @GET
+    @Path("suggest")
+    @Produces(MediaType.APPLICATION_JSON)
+    public void suggest(@QueryParam("prefix") final String prefix,
+                        @QueryParam("limit") @DefaultValue("10") final int limit,
+                        @Suspended AsyncResponse async)
+    {
+        final DatabaseOperationsManager dbOperations = dbOperations();
+        
+        // Answer from the index on this thread if it is ready
+        if ( dbOperations.isSuggestReady() ) {
+            try {
+                async.resume(Response.ok(suggestions(dbOperations.suggestLastNames(prefix, limit))).build());
+            }
+            catch (SQLException e) {
+                async.resume(e);
+            }
+            return;
+        }
+        
+        submit(dbOperations, true, async, new Callable<Response>() {
+            @Override
+            public Response call() throws Exception {
+                return Response.ok(suggestions(dbOperations.suggestLastNames(prefix, limit))).build();
+            }
+        });
+    }
+    
+    /**
+     * Reads a single employee.
+     * 
+     * @param empNo - the employee number
+     * @param async - resumed with the employee, 304 if the client's copy is current,
+     * or 404 if there is no such employee
+     */
+    @GET
+    @Path("{empNo}")
+    @Produces(MediaType.APPLICATION_JSON)
+    public void get(@PathParam("empNo") final String empNo, @Suspended AsyncResponse async)
+    {
+        final DatabaseOperationsManager dbOperations = dbOperations();
+        final String ifNoneMatch = this.headers.getHeaderString(HttpHeaders.IF_NONE_MATCH);
+        submit(dbOperations, true, async, new Callable<Response>() {
+            @Override
+            public Response call() throws Exception {
+                Employee employee = find(dbOperations, empNo);
+                EntityTag tag = tag(employee);
+                if ( ifNoneMatch != null && matches(ifNoneMatch, tag) ) {
+                    return Response.notModified(tag).build();
+                }
+                return Response.ok(entity(employee)).tag(tag).build();
+            }
+        });
+    }
+    
+    
+    /*
+     * Update operations.
+     */
+    
+    /**
+     * Adds an employee.
+     * 
+     * @param body - a JSON employee object
+     * @param useJta - use JTA to provide unit of work support, rather than the CICS unit of work support
+     * @param async - resumed with 201 and the location of the new employee, or 409 if the employee number is in use
+     */
+    @POST
+    @Consumes(MediaType.APPLICATION_JSON)
+    public void create(InputStream body, @QueryParam("jta") @DefaultValue("true") final boolean useJta,
+                       @Suspended AsyncResponse async)
+    {
+        final DatabaseOperationsManager dbOperations = dbOperations();
+        final Employee employee = EmployeeJson.toEmployee(EmployeeJson.readObject(body));
+        final UriBuilder location = this.uriInfo.getAbsolutePathBuilder();
+        submit(dbOperations, false, async, new Callable<Response>() {
+            @Override
+            public Response call() throws Exception {
+                try {
+                    dbOperations.createEmployee(employee, useJta);
+                }
+                catch (DuplicateEmployeeException e) {
+                    return Response.status(Status.CONFLICT).entity(e.getMessage()).type(MediaType.TEXT_PLAIN).build();
+                }
+                return Response.created(location.path(employee.getEmpNo()).build()).build();
+            }
+        });
+    }
+    
+    /**
+     * Adds an array of employees, committing them in batches.
+     * 
+     * Rows that cannot be added are reported in the response rather than failing the request.
+     * 
+     * @param body - a JSON array of employee objects
+     * @param useJta - use JTA to provide unit of work support, rather than the CICS unit of work support
+     * @param async - resumed with the number of employees added and the rows that failed
+     */
+    @POST
+    @Path("bulk")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public void createAll(InputStream body, @QueryParam("jta") @DefaultValue("true") final boolean useJta,
+                          @Suspended AsyncResponse async)
+    {
+        final DatabaseOperationsManager dbOperations = dbOperations();
+        final List<Employee> employees = EmployeeJson.readEmployees(body);
+        submit(dbOperations, false, async, new Callable<Response>() {
+            @Override
+            public Response call() throws Exception {
+                final ImportResult result = dbOperations.createEmployees(employees, useJta, BULK_BATCH_SIZE);
+                StreamingOutput entity = new StreamingOutput() {
+                    @Override
+                    public void write(OutputStream out) {
+                        try ( JsonGenerator json = Json.createGenerator(out) ) {
+                            EmployeeJson.write(json, result);
+                        }
+                    }
+                };
+                return Response.ok(entity).build();
+            }
+        });
+    }
+    
+    /**
+     * Changes the properties of an employee present in the request.
+     * 
+     * @param empNo - the employee number
+     * @param body - a JSON object holding the properties to change
+     * @param useJta - use JTA to provide unit of work support, rather than the CICS unit of work support
+     * @param async - resumed with 204 and the new tag, 404 if there is no such employee, or 412 if it has changed
+     */
+    @PUT
+    @Path("{empNo}")
+    @Consumes(MediaType.APPLICATION_JSON)
+    public void update(@PathParam("empNo") final String empNo, InputStream body,
+                       @QueryParam("jta") @DefaultValue("true") final boolean useJta,
+                       @Suspended AsyncResponse async)
+    {
+        final DatabaseOperationsManager dbOperations = dbOperations();
+        final Long token = ifMatch();
+        final JsonObject changes = EmployeeJson.readObject(body);
+        submit(dbOperations, false, async, new Callable<Response>() {
+            @Override
+            public Response call() throws Exception {
+                Employee employee = find(dbOperations, empNo);
+                if ( token != null ) {
+                    employee.setRowChangeToken(token);
+                }
+                EmployeeJson.apply(changes, employee);
+                
+                try {
+                    dbOperations.updateEmployee(employee, useJta);
+                }
+                catch (EmployeeConflictException e) {
+                    return conflict(token != null);
+                }
+                return Response.noContent().tag(tag(employee)).build();
+            }
+        });
+    }
+    
+    /**
+     * Deletes an employee.
+     * 
+     * @param empNo - the employee number
+     * @param useJta - use JTA to provide unit of work support, rather than the CICS unit of work support
+     * @param async - resumed with 204, 404 if there is no such employee, or 412 if it has changed
+     */
+    @DELETE
+    @Path("{empNo}")
+    public void delete(@PathParam("empNo") final String empNo,
+                       @QueryParam("jta") @DefaultValue("true") final boolean useJta,
+                       @Suspended AsyncResponse async)
+    {
+        final DatabaseOperationsManager dbOperations = dbOperations();
+        final Long token = ifMatch();
+        submit(dbOperations, false, async, new Callable<Response>() {
+            @Override
+            public Response call() throws Exception {
+                Employee employee = find(dbOperations, empNo);
+                if ( token != null ) {
+                    employee.setRowChangeToken(token);
+                }
+                
+                try {
+                    dbOperations.deleteEmployee(employee, useJta);
+                }
+                catch (EmployeeConflictException e) {
+                    return conflict(token != null);
+                }
+                return Response.noContent().build();
+            }
+        });
+    }
+    
+    
+    /*
+     * Utility methods.
+     */
+    
+    /**
+     * @return the application's instance of the database access class
+     * 
+     * @throws WebApplicationException with status 503 if the database is unavailable
+     */
+    private DatabaseOperationsManager dbOperations()
+    {
+        DatabaseOperationsManager dbOperations = (DatabaseOperationsManager) this.context.getAttribute(DatabaseOperationsManager.ATTRIBUTE);
+        if ( dbOperations == null ) {
+            throw new WebApplicationException(Status.SERVICE_UNAVAILABLE);
+        }
+        return dbOperations;
+    }
+    
+    /**
+     * Runs a call on the database executor, releasing the request thread, and resumes
+     * the response with the result of the call.
+     * 
+     * The request is injected into this resource for the request thread only, so
+     * everything the call needs from the request must be read before it is submitted.
+     * The call runs inside a {@link RequestConnection}, so a read followed by an update
+     * uses one connection.
+     * 
+     * @param dbOperations - the application's instance of the database access class
+     * @param readOnly - true if the call does not update the database
+     * @param async - the suspended response
+     * @param call - builds the response, or throws an exception to be mapped to one
+     */
+    private static void submit(final DatabaseOperationsManager dbOperations, final boolean readOnly,
+                               final AsyncResponse async, final Callable<Response> call)
+    {
+        submit(dbOperations, readOnly, false, async, call);
+    }
+    
+    /**
+     * Runs a call on the database executor, as {@link #submit(DatabaseOperationsManager, boolean, AsyncResponse, Callable)},
+     * choosing whether its searches use the primary DataSource.
+     * 
+     * @param dbOperations - the application's instance of the database access class
+     * @param readOnly - true if the call does not update the database
+     * @param readPrimary - true if searches in the call must use the primary DataSource
+     * @param async - the suspended response
+     * @param call - builds the response, or throws an exception to be mapped to one
+     */
+    private static void submit(final DatabaseOperationsManager dbOperations, final boolean readOnly, final boolean readPrimary,
+                               final AsyncResponse async, final Callable<Response> call)
+    {
+        DatabaseExecutor executor = dbOperations.getExecutor();
+        
+        // Stop waiting after the executor's timeout, although the call itself carries on
+        async.setTimeoutHandler(new TimeoutHandler() {
+            @Override
+            public void handleTimeout(AsyncResponse response) {
+                response.resume(unavailable("The database did not respond in time. A change may still be applied."));
+            }
+        });
+        async.setTimeout(executor.getTimeoutMillis(), TimeUnit.MILLISECONDS);
+        
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        RequestConnection request = dbOperations.beginRequest(readOnly, readPrimary);
+                        try {
+                            async.resume(call.call());
+                        }
+                        finally {
+                            request.close();
+                        }
+                    }
+                    catch (Throwable t) {
+                        async.resume(t);
+                    }
+                }
+            });
+        }
+        catch (DatabaseBusyException e) {
+            async.resume(unavailable(e.getMessage()));
+        }
+    }
+    
+    /**
+     * Reads an employee, failing the request if it does not exist.
+     */
+    private static Employee find(DatabaseOperationsManager dbOperations, String empNo) throws SQLException
+    {
+        Employee employee = dbOperations.findEmployee(empNo);
+        if ( employee == null ) {
+            throw new WebApplicationException(Status.NOT_FOUND);
+        }
+        return employee;
+    }
+    
+    /**
+     * Reads the row change token in an If-Match header, if there is one, so the
+     * update or delete only succeeds if the row still has that token.
+     * 
+     * @return the token, or null if the request is not conditional
+     */
+    private Long ifMatch()
+    {
+        String ifMatch = this.headers.getHeaderString(HttpHeaders.IF_MATCH);
+        if ( ifMatch == null || ifMatch.trim().equals("*") ) {
+            return null;
+        }
+        
+        try {
+            return Long.valueOf(tagValue(ifMatch));
+        }
+        catch (NumberFormatException e) {
+            // Not a tag we issued, so it cannot match
+            throw new WebApplicationException(Status.PRECONDITION_FAILED);
+        }
+    }
+    
+    /**
+     * @return true if an If-None-Match header lists the tag
+     */
+    private static boolean matches(String ifNoneMatch, EntityTag tag)
+    {
+        for (String value : ifNoneMatch.split(",")) {
+            if ( value.trim().equals("*") || tagValue(value).equals(tag.getValue()) ) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * @return an entity tag without its weak prefix and quotes
+     */
+    private static String tagValue(String tag)
+    {
+        String value = tag.trim();
+        if ( value.startsWith("W/") ) {
+            value = value.substring(2);
+        }
+        return value.replace("\"", "");
+    }
+    
+    private static Response unavailable(String message)
+    {
+        return Response.status(Status.SERVICE_UNAVAILABLE).header("Retry-After", "5")
+                .entity(message).type(MediaType.TEXT_PLAIN).build();
+    }
+    
+    private static Response conflict(boolean conditional)
+    {
+        return Response.status(conditional ? Status.PRECONDITION_FAILED : Status.CONFLICT)
+                .entity("The employee was changed by another user").type(MediaType.TEXT_PLAIN).build();
+    }
+    
+    private static EntityTag tag(Employee employee)
+    {
+        return new EntityTag(Long.toString(employee.getRowChangeToken()));
+    }
+    
+    private static StreamingOutput entity(final Employee employee)
+    {
+        return new StreamingOutput() {
+            @Override
+            public void write(OutputStream out) {
+                try ( JsonGenerator json = Json.createGenerator(out) ) {
+                    EmployeeJson.write(json, employee);
+                }
+            }
+        };
+    }
+    
+    private static byte[] suggestions(List<String> lastNames)
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try ( JsonGenerator json = Json.createGenerator(out) ) {
+            json.writeStartObject();
+            json.writeStartArray("lastNames");
+            for (String lastName : lastNames) {
+                json.write(lastName);
+            }
+            json.writeEnd();
+            json.writeEnd();
+        }
+        return out.toByteArray();
+    }
+    
+    private static SearchMode searchMode(String mode)
+    {
+        try {
+            return SearchMode.valueOf(mode.trim().toUpperCase());
+        }
+        catch (IllegalArgumentException e) {
+            throw EmployeeJson.badRequest("Unknown search mode " + mode);
+        }
+    }
+    
+    
+    /*
+     * Nested classes.
+     */
+    
+    /**
+     * Writes each row of a search, remembering the position of the last row.
+     */
+    private static class PageWriter implements EmployeeRowHandler
+    {
+        private final JsonGenerator json;
+        
+        String lastName;
+        
+        String empNo;
+        
+        PageWriter(JsonGenerator json) {
+            this.json = json;
+        }
+        
+        @Override
+        public void row(EmployeeRowMapper row) throws SQLException {
+            EmployeeJson.write(this.json, row);
+            this.lastName = row.getLastName();
+            this.empNo = row.getEmpNo();
+        }
+    }
+}
@@ -0,0 +1,298 @@
+/* Licensed Materials - Property of IBM                                   */
+/*                                                                        */
+/* SAMPLE                                                                 */
+/*                                                                        */
+/* (c) Copyright IBM Corp. 2018 All Rights Reserved                       */
+/*                                                                        */
+/* US Government Users Restricted Rights - Use, duplication or disclosure */
+/* restricted by GSA ADP Schedule Contract with IBM Corp                  */
+/*                                                                        */
+package com.ibm.cicsdev.employee.jdbc.rest;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.concurrent.Semaphore;
+import java.util.zip.GZIPOutputStream;
+
+import javax.json.Json;
+import javax.json.stream.JsonGenerator;
+import javax.servlet.AsyncContext;
+import javax.servlet.ServletException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import com.ibm.cicsdev.employee.jdbc.csv.EmployeeCsv;
+import com.ibm.cicsdev.employee.jdbc.exec.DatabaseBusyException;
+import com.ibm.cicsdev.employee.jdbc.faces.DatabaseOperationsManager;
+import com.ibm.cicsdev.employee.jdbc.faces.EmployeeRowHandler;
+import com.ibm.cicsdev.employee.jdbc.faces.EmployeeRowMapper;
+import com.ibm.cicsdev.employee.jdbc.tx.RequestConnection;
+
+/**
+ * Exports the whole EMP table as CSV or JSON.
+ * 
+ * <code>GET /api/export?format=csv|json&amp;after={empNo}&amp;fetchSize={rows}</code>
+ * 
+ * Each row is written to the response as it is read from the database, so the
+ * memory used does not depend on the size of the table. Rows are written in
+ * employee number order, and an interrupted export can be resumed by passing
+ * the last employee number received as <code>after</code>. The response is
+ * compressed when the client accepts gzip.
+ * 
+ * An export can take much longer than any other request, so the servlet uses
+ * asynchronous processing: the export runs on the application's database
+ * executor, writing directly to the response, and the web container's request
+ * thread is released as soon as the export has been accepted. The servlet is
+ * mapped to a path inside the JAX-RS application, and takes precedence over it.
+ * 
+ * The export runs as a read-only request, as described in {@link RequestConnection}.
+ * Each export holds an executor thread, a connection and a cursor until it ends,
+ * so only a few exports may run at once, leaving the rest of the executor for
+ * the pages and the REST API. Further exports are refused with 503.
+ * 
+ * The number of rows and the rate they were written are written to the log
+ * at the end of each export, and included at the end of a JSON export.
+ */
+@WebServlet(urlPatterns = "/api/export", asyncSupported = true)
+public class ExportServlet extends HttpServlet
+{
+    private static final long serialVersionUID = 3386015725491738027L;
+    
+    /**
+     * Context parameter giving the default number of rows fetched from Db2 at a time.
+     */
+    private static final String FETCH_SIZE_PARAM = "com.ibm.cicsdev.employee.EXPORT_FETCH_SIZE";
+    
+    /**
+     * The fetch size used when none is configured.
+     */
+    private static final int DEFAULT_FETCH_SIZE = 500;
+    
+    /**
+     * The largest fetch size a client may request.
+     */
+    private static final int MAX_FETCH_SIZE = 10_000;
+    
+    /**
+     * Context parameter giving the maximum number of exports that run at once.
+     */
+    private static final String EXPORT_LIMIT_PARAM = "com.ibm.cicsdev.employee.EXPORT_LIMIT";
+    
+    /**
+     * The number of exports that run at once when none is configured.
+     */
+    private static final int DEFAULT_EXPORT_LIMIT = 2;
+    
+    /**
+     * Size of the buffer between the row writer and the response.
+     */
+    private static final int BUFFER_SIZE = 8192;
+    
+    /**
+     * Permits for the exports running.
+     */
+    private transient Semaphore exports;
+    
+    
+    @Override
+    public void init() throws ServletException
+    {
+        String value = getServletContext().getInitParameter(EXPORT_LIMIT_PARAM);
+        int limit = value == null || value.trim().isEmpty() ? DEFAULT_EXPORT_LIMIT : Integer.parseInt(value.trim());
+        this.exports = new Semaphore(Math.max(1, limit));
+    }
+    
+    /**
+     * Exports the employees.
+     * 
+     * The request parameters are <code>format</code>, csv or json, <code>after</code>, to export
+     * the employees after this employee number, and <code>fetchSize</code>, the number of rows
+     * fetched from Db2 at a time.
+     */
+    @Override
+    protected void doGet(HttpServletRequest request, final HttpServletResponse response) throws IOException
+    {
+        final DatabaseOperationsManager dbOperations = 
+                (DatabaseOperationsManager) getServletContext().getAttribute(DatabaseOperationsManager.ATTRIBUTE);
+        if ( dbOperations == null ) {
+            response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            return;
+        }
+        
+        String format = request.getParameter("format");
+        final boolean json;
+        if ( "json".equalsIgnoreCase(format) ) {
+            json = true;
+        }
+        else if ( format == null || "csv".equalsIgnoreCase(format) ) {
+            json = false;
+        }
+        else {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Unknown export format " + format);
+            return;
+        }
+        
+        final int rowsPerFetch;
+        try {
+            int fetchSize = request.getParameter("fetchSize") == null ? 0 : Integer.parseInt(request.getParameter("fetchSize"));
+            rowsPerFetch = Math.min(MAX_FETCH_SIZE, fetchSize > 0 ? fetchSize : configuredFetchSize());
+        }
+        catch (NumberFormatException e) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid fetch size");
+            return;
+        }
+        
+        final String after = request.getParameter("after");
+        String acceptEncoding = request.getHeader("Accept-Encoding");
+        final boolean gzip = acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip");
+        
+        // Refuse the export if too many are already running
+        if ( ! this.exports.tryAcquire() ) {
+            response.setHeader("Retry-After", "5");
+            response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Too many exports are running");
+            return;
+        }
+        
+        // The export may take as long as the table needs, so the container must not time it out
+        final AsyncContext async = request.startAsync();
+        async.setTimeout(0);
+        try {
+            dbOperations.getExecutor().execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        response.setContentType(json ? "application/json" : "text/csv; charset=UTF-8");
+                        response.setHeader("Content-Disposition", "attachment; filename=employees." + (json ? "json" : "csv"));
+                        if ( gzip ) {
+                            response.setHeader("Content-Encoding", "gzip");
+                        }
+                        
+                        // A read-only request, so the whole export uses one connection set read-only
+                        RequestConnection request = dbOperations.beginRequest(true, false);
+                        try {
+                            export(dbOperations, response.getOutputStream(), json, gzip, after, rowsPerFetch);
+                        }
+                        finally {
+                            request.close();
+                        }
+                    }
+                    catch (SQLException | IOException e) {
+                        e.printStackTrace(System.out);
+                        failed(response);
+                    }
+                    finally {
+                        exports.release();
+                        async.complete();
+                    }
+                }
+            });
+        }
+        catch (DatabaseBusyException e) {
+            this.exports.release();
+            response.setHeader("Retry-After", "5");
+            response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, e.getMessage());
+            async.complete();
+        }
+    }
+    
+    /**
+     * Reports an export that failed. If nothing has been sent yet the client is sent
+     * an error status, rather than an empty export; otherwise the client will see the
+     * response end early.
+     */
+    private static void failed(HttpServletResponse response)
+    {
+        if ( response.isCommitted() ) {
+            return;
+        }
+        try {
+            // Discard the headers and any buffered output of the export
+            response.reset();
+            response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+        }
+        catch (IOException | IllegalStateException e) {
+            e.printStackTrace(System.out);
+        }
+    }
+    
+    /**
+     * Writes the employees in the requested format, and logs the row rate.
+     */
+    private static void export(DatabaseOperationsManager dbOperations, OutputStream out,
+                               boolean json, boolean gzip, String after, int fetchSize)
+            throws SQLException, IOException
+    {
+        // Compress if the client allows it, finishing the compressed stream at the end
+        GZIPOutputStream zip = gzip ? new GZIPOutputStream(out, BUFFER_SIZE) : null;
+        OutputStream target = gzip ? zip : out;
+        
+        long start = System.nanoTime();
+        long rows = json ? writeJson(dbOperations, target, after, fetchSize, start)
+                         : writeCsv(dbOperations, target, after, fetchSize);
+        if ( zip != null ) {
+            zip.finish();
+        }
+        
+        long millis = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+        System.out.println(String.format("Exported %d employees in %d ms, %d rows/sec",
+                rows, millis, rows * 1000 / millis));
+    }
+    
+    /**
+     * Writes the employees as CSV, with a heading line.
+     */
+    private static long writeCsv(DatabaseOperationsManager dbOperations, OutputStream out, String after, int fetchSize)
+            throws SQLException, IOException
+    {
+        final Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+        EmployeeCsv.writeHeading(writer);
+        long rows = dbOperations.scanAllEmployees(after, fetchSize, new EmployeeRowHandler() {
+            @Override
+            public void row(EmployeeRowMapper row) throws SQLException, IOException {
+                EmployeeCsv.write(writer, row);
+            }
+        });
+        writer.flush();
+        return rows;
+    }
+    
+    /**
+     * Writes the employees as a JSON object, holding the array of employees followed by the export statistics.
+     */
+    private static long writeJson(DatabaseOperationsManager dbOperations, OutputStream out, String after, int fetchSize, long start)
+            throws SQLException, IOException
+    {
+        final JsonGenerator json = Json.createGenerator(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        json.writeStartObject();
+        json.writeStartArray("employees");
+        long rows = dbOperations.scanAllEmployees(after, fetchSize, new EmployeeRowHandler() {
+            @Override
+            public void row(EmployeeRowMapper row) throws SQLException {
+                EmployeeJson.write(json, row);
+            }
+        });
+        json.writeEnd();
+        long millis = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+        json.write("rows", rows);
+        json.write("rowsPerSecond", rows * 1000 / millis);
+        json.writeEnd();
+        json.flush();
+        return rows;
+    }
+    
+    /**
+     * @return the fetch size configured in web.xml, or the default
+     */
+    private int configuredFetchSize()
+    {
+        String value = getServletContext().getInitParameter(FETCH_SIZE_PARAM);
+        return value == null || value.trim().isEmpty() ? DEFAULT_FETCH_SIZE : Integer.parseInt(value.trim());
+    }
+}
@@ -0,0 +1,63 @@
+/* Licensed Materials - Property of IBM                                   */
+/*                                                                        */
+/* SAMPLE                                                                 */
+/*                                                                        */
+/* (c) Copyright IBM Corp. 2018 All Rights Reserved                       */
+/*                                                                        */
+/* US Government Users Restricted Rights - Use, duplication or disclosure */
+/* restricted by GSA ADP Schedule Contract with IBM Corp                  */
+/*                                                                        */
+package com.ibm.cicsdev.employee.jdbc.rest;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+
+import javax.servlet.ServletContext;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.core.StreamingOutput;
+
+import com.ibm.cicsdev.employee.jdbc.faces.DatabaseOperationsManager;
+import com.ibm.cicsdev.employee.jdbc.metrics.PrometheusWriter;
+
+/**
+ * Publishes the application's measurements for Prometheus to collect.
+ * 
+ * <code>GET metrics</code> returns the database operation and unit of work timings,
+ * row and error counts, and the cache, database executor and audit queue statistics, in the Prometheus
+ * text format.
+ */
+@Path("metrics")
+public class MetricsResource
+{
+    @Context
+    private ServletContext context;
+    
+    /**
+     * @return the current measurements
+     */
+    @GET
+    public Response get()
+    {
+        final DatabaseOperationsManager dbOperations =
+                (DatabaseOperationsManager) this.context.getAttribute(DatabaseOperationsManager.ATTRIBUTE);
+        if ( dbOperations == null ) {
+            throw new WebApplicationException(Status.SERVICE_UNAVAILABLE);
+        }
+        
+        StreamingOutput body = new StreamingOutput() {
+            @Override
+            public void write(OutputStream out) throws IOException {
+                PrometheusWriter.write(new OutputStreamWriter(out, StandardCharsets.UTF_8),
+                        dbOperations.getMetrics(), dbOperations.getTransactions(), dbOperations.getCache(), dbOperations.getExecutor(), dbOperations.getAudit());
+            }
+        };
+        return Response.ok(body, PrometheusWriter.CONTENT_TYPE).build();
+    }
+}
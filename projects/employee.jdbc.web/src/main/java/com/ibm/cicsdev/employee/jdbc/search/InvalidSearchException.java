@@ -0,0 +1,25 @@
+/* Licensed Materials - Property of IBM                                   */
+/*                                                                        */
+/* SAMPLE                                                                 */
+/*                                                                        */
+/* (c) Copyright IBM Corp. 2018 All Rights Reserved                       */
+/*                                                                        */
+/* US Government Users Restricted Rights - Use, duplication or disclosure */
+/* restricted by GSA ADP Schedule Contract with IBM Corp                  */
+/*                                                                        */
+package com.ibm.cicsdev.employee.jdbc.search;
+
+/**
+ * Thrown when a search is refused because it could not be answered without
+ * an unbounded scan of the EMP table.
+ * 
+ * The message is suitable for display to the user.
+ */
+public class InvalidSearchException extends Exception
+{
+    private static final long serialVersionUID = -3326318807541953102L;
+    
+    public InvalidSearchException(String message) {
+        super(message);
+    }
+}
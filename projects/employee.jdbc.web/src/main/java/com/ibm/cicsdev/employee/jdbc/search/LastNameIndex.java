@@ -0,0 +1,285 @@
+/* Licensed Materials - Property of IBM                                   */
+/*                                                                        */
+/* SAMPLE                                                                 */
+/*                                                                        */
+/* (c) Copyright IBM Corp. 2018 All Rights Reserved                       */
+/*                                                                        */
+/* US Government Users Restricted Rights - Use, duplication or disclosure */
+/* restricted by GSA ADP Schedule Contract with IBM Corp                  */
+/*                                                                        */
+package com.ibm.cicsdev.employee.jdbc.search;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+import com.ibm.cicsdev.employee.jdbc.beans.EmployeeKey;
+
+/**
+ * An in-memory index of the last name of every employee, sorted in the
+ * search order, used to suggest last names as the user types. As the index
+ * holds every employee number, it also lets an insert of a number already in
+ * use be refused without calling the database.
+ * 
+ * The index is loaded from the database when the application starts, or on
+ * first use if that fails, and reloaded once it
+ * is older than its refresh period in case the table has been changed outside
+ * the application. In between, the update methods keep it current by calling
+ * {@link #put(String, String)} and {@link #remove(String)} after each commit.
+ * Changes made while the index is being loaded are recorded, and applied on
+ * top of the rows read, so the load cannot undo them.
+ * 
+ * Lookups do not lock: the sorted keys are held in a concurrent skip list, the
+ * employee numbers in a concurrent map, and a load replaces the whole index at once.
+ * Employee numbers are held without the trailing blanks of the CHAR column.
+ */
+public class LastNameIndex
+{
+    /**
+     * Maximum number of last names returned by a single suggestion request.
+     */
+    public static final int MAX_SUGGESTIONS = 20;
+    
+    /**
+     * Sorts after every employee number, to skip the other employees with a last name.
+     */
+    private static final String HIGHEST = "\uffff";
+    
+    /**
+     * Orders keys by last name, then employee number, as the search does.
+     */
+    private static final Comparator<EmployeeKey> ORDER = new Comparator<EmployeeKey>() {
+        @Override
+        public int compare(EmployeeKey a, EmployeeKey b) {
+            int result = a.getLastName().compareTo(b.getLastName());
+            return result != 0 ? result : a.getEmpNo().compareTo(b.getEmpNo());
+        }
+    };
+    
+    /**
+     * How long a load is used for before the index is reloaded, in milliseconds.
+     */
+    private final long refreshMillis;
+    
+    /**
+     * The index, or null until it has been loaded.
+     */
+    private volatile Snapshot snapshot;
+    
+    /**
+     * Changes made while a load is in progress, keyed by employee number, with a
+     * null last name for a deleted employee. Null when no load is in progress.
+     */
+    private Map<String, String> journal;
+    
+    
+    /**
+     * Creates an empty index.
+     * 
+     * @param refreshSeconds - how long the index is used for after it has been loaded
+     */
+    public LastNameIndex(int refreshSeconds) {
+        this.refreshMillis = refreshSeconds * 1000L;
+    }
+    
+    
+    /*
+     * Read operations.
+     */
+    
+    /**
+     * @return true if the index has been loaded
+     */
+    public boolean isLoaded() {
+        return this.snapshot != null;
+    }
+    
+    /**
+     * @return true if the index has been loaded within its refresh period
+     */
+    public boolean isCurrent() {
+        Snapshot current = this.snapshot;
+        return current != null && System.currentTimeMillis() - current.loaded < this.refreshMillis;
+    }
+    
+    /**
+     * Returns the distinct last names that start with a prefix, in search order.
+     * 
+     * @param prefix - the normalized start of the last name
+     * @param limit - maximum number of names to return, limited to {@link #MAX_SUGGESTIONS}
+     * 
+     * @return the matching last names, empty if the prefix is empty or the index has not been loaded
+     */
+    public List<String> suggest(String prefix, int limit) {
+        Snapshot current = this.snapshot;
+        if ( current == null || prefix.isEmpty() ) {
+            return Collections.emptyList();
+        }
+        
+        int max = Math.max(1, Math.min(limit, MAX_SUGGESTIONS));
+        List<String> names = new ArrayList<>(max);
+        
+        // Seek to the first name with the prefix, then skip from name to name
+        EmployeeKey key = current.keys.ceiling(new EmployeeKey(prefix, ""));
+        while ( key != null && key.getLastName().startsWith(prefix) && names.size() < max ) {
+            names.add(key.getLastName());
+            key = current.keys.higher(new EmployeeKey(key.getLastName(), HIGHEST));
+        }
+        return names;
+    }
+    
+    /**
+     * Tests whether an employee number is in use. Only an index loaded within its
+     * refresh period is used, so that a number deleted outside the application is
+     * not refused for long.
+     * 
+     * @param empNo - the employee number
+     * 
+     * @return true if the index is current and holds the employee number
+     */
+    public boolean contains(String empNo) {
+        Snapshot current = this.snapshot;
+        return current != null && System.currentTimeMillis() - current.loaded < this.refreshMillis
+                && current.lastNames.containsKey(key(empNo));
+    }
+    
+    /**
+     * @return the number of employees in the index
+     */
+    public int getSize() {
+        Snapshot current = this.snapshot;
+        return current == null ? 0 : current.keys.size();
+    }
+    
+    
+    /*
+     * Load operations.
+     */
+    
+    /**
+     * Starts recording changes, before the rows for a load are read.
+     */
+    public synchronized void beginLoad() {
+        this.journal = new HashMap<>();
+    }
+    
+    /**
+     * Replaces the index with the rows read, updated by any changes made since
+     * {@link #beginLoad()} was called.
+     * 
+     * @param lastNames - the last name of every employee, keyed by employee number
+     */
+    public void endLoad(Map<String, String> lastNames) {
+        Snapshot loaded = new Snapshot(lastNames);
+        synchronized (this) {
+            if ( this.journal != null ) {
+                for (Map.Entry<String, String> change : this.journal.entrySet()) {
+                    loaded.put(change.getKey(), change.getValue());
+                }
+            }
+            this.journal = null;
+            this.snapshot = loaded;
+        }
+    }
+    
+    /**
+     * Stops recording changes after a load has failed.
+     */
+    public synchronized void abortLoad() {
+        this.journal = null;
+    }
+    
+    
+    /*
+     * Update operations.
+     */
+    
+    /**
+     * Records a committed insert or update of an employee.
+     * 
+     * @param empNo - the employee number
+     * @param lastName - the last name of the employee after the change
+     */
+    public synchronized void put(String empNo, String lastName) {
+        change(empNo, lastName);
+    }
+    
+    /**
+     * Records a committed delete of an employee.
+     * 
+     * @param empNo - the employee number
+     */
+    public synchronized void remove(String empNo) {
+        change(empNo, null);
+    }
+    
+    private void change(String empNo, String lastName) {
+        if ( this.journal != null ) {
+            this.journal.put(key(empNo), lastName);
+        }
+        if ( this.snapshot != null ) {
+            this.snapshot.put(key(empNo), lastName);
+        }
+    }
+    
+    /**
+     * Removes the blanks Db2 pads a CHAR column with, so that the numbers read
+     * match those typed by users.
+     */
+    private static String key(String empNo) {
+        int end = empNo.length();
+        while ( end > 0 && empNo.charAt(end - 1) == ' ' ) {
+            end--;
+        }
+        return empNo.substring(0, end);
+    }
+    
+    
+    /*
+     * Nested classes.
+     */
+    
+    /**
+     * One load of the index, with the changes made since.
+     */
+    private static class Snapshot
+    {
+        final long loaded = System.currentTimeMillis();
+        
+        /**
+         * The sorted keys, read without locking.
+         */
+        final NavigableSet<EmployeeKey> keys = new ConcurrentSkipListSet<>(ORDER);
+        
+        /**
+         * The last name of each employee, used to find the key to remove, and
+         * to test whether an employee number is in use. Only changed while
+         * holding the lock on the index.
+         */
+        final Map<String, String> lastNames = new ConcurrentHashMap<>();
+        
+        Snapshot(Map<String, String> lastNames) {
+            for (Map.Entry<String, String> entry : lastNames.entrySet()) {
+                String empNo = key(entry.getKey());
+                this.lastNames.put(empNo, entry.getValue());
+                this.keys.add(new EmployeeKey(entry.getValue(), empNo));
+            }
+        }
+        
+        void put(String empNo, String lastName) {
+            String old = lastName == null ? this.lastNames.remove(empNo) : this.lastNames.put(empNo, lastName);
+            if ( old != null ) {
+                this.keys.remove(new EmployeeKey(old, empNo));
+            }
+            if ( lastName != null ) {
+                this.keys.add(new EmployeeKey(lastName, empNo));
+            }
+        }
+    }
+}
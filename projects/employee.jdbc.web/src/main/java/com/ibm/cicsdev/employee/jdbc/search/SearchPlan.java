@@ -0,0 +1,87 @@
+/* Licensed Materials - Property of IBM                                   */
+/*                                                                        */
+/* SAMPLE                                                                 */
+/*                                                                        */
+/* (c) Copyright IBM Corp. 2018 All Rights Reserved                       */
+/*                                                                        */
+/* US Government Users Restricted Rights - Use, duplication or disclosure */
+/* restricted by GSA ADP Schedule Contract with IBM Corp                  */
+/*                                                                        */
+package com.ibm.cicsdev.employee.jdbc.search;
+
+import com.ibm.cicsdev.employee.jdbc.beans.SearchMode;
+import com.ibm.cicsdev.employee.jdbc.cache.LastNameMatcher;
+
+/**
+ * The SQL chosen by the {@link SearchPlanner} to answer a last name search.
+ * 
+ * The plan supplies a predicate with a single parameter, the value to bind to
+ * it, and a cache key identifying the search.
+ */
+public class SearchPlan implements LastNameMatcher
+{
+    private final SearchMode mode;
+    
+    private final String term;
+    
+    private final String predicate;
+    
+    private final String argument;
+    
+    SearchPlan(SearchMode mode, String term, String predicate, String argument) {
+        this.mode = mode;
+        this.term = term;
+        this.predicate = predicate;
+        this.argument = argument;
+    }
+    
+    /**
+     * @return the search mode
+     */
+    public SearchMode getMode() {
+        return this.mode;
+    }
+    
+    /**
+     * @return the normalized search string
+     */
+    public String getTerm() {
+        return this.term;
+    }
+    
+    /**
+     * @return the SQL predicate on LASTNAME, containing a single parameter marker
+     */
+    public String getPredicate() {
+        return this.predicate;
+    }
+    
+    /**
+     * @return the value to bind to the parameter marker in the predicate
+     */
+    public String getArgument() {
+        return this.argument;
+    }
+    
+    /**
+     * @return a string identifying the search, for use in cache keys
+     */
+    public String getKey() {
+        return this.mode.name() + ':' + this.term;
+    }
+    
+    @Override
+    public boolean matches(String lastName) {
+        switch ( this.mode ) {
+        case EXACT:
+            return this.term.equals(lastName);
+        case PREFIX:
+            return lastName.startsWith(this.term);
+        case CONTAINS:
+            return lastName.contains(this.term);
+        default:
+            // Phonetic codes are computed by Db2, so assume any change may match
+            return true;
+        }
+    }
+}
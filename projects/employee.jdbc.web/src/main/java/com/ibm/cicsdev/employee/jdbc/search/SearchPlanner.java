@@ -0,0 +1,132 @@
+/* Licensed Materials - Property of IBM                                   */
+/*                                                                        */
+/* SAMPLE                                                                 */
+/*                                                                        */
+/* (c) Copyright IBM Corp. 2018 All Rights Reserved                       */
+/*                                                                        */
+/* US Government Users Restricted Rights - Use, duplication or disclosure */
+/* restricted by GSA ADP Schedule Contract with IBM Corp                  */
+/*                                                                        */
+package com.ibm.cicsdev.employee.jdbc.search;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import com.ibm.cicsdev.employee.jdbc.beans.SearchMode;
+
+/**
+ * Chooses the SQL used to answer a last name search.
+ * 
+ * Exact and prefix searches are written so that Db2 can use an index on
+ * LASTNAME, EMPNO, which also provides the ORDER BY used for paging. Phonetic
+ * searches compare SOUNDEX(LASTNAME), which can use an index on that
+ * expression. Searches that would have to scan the whole table, such as an
+ * empty search string, are refused, and contains searches, which cannot use
+ * an index, need a longer search string.
+ * 
+ * A sample definition of both indexes is provided in etc/DB2/EMP-indexes.sql.
+ */
+public class SearchPlanner
+{
+    /**
+     * Minimum length of the search string for a contains search.
+     */
+    public static final int MIN_CONTAINS_LENGTH = 3;
+    
+    /**
+     * Maximum number of rows returned by a single search request.
+     */
+    public static final int MAX_PAGE_SIZE = 100;
+    
+    /**
+     * Escape character used in LIKE patterns.
+     */
+    private static final char ESCAPE = '\\';
+    
+    /*
+     * The predicates a search may use, each applied to a single argument.
+     */
+    
+    public static final String EXACT_PREDICATE = "LASTNAME = ?";
+    
+    public static final String LIKE_PREDICATE = "LASTNAME LIKE ? ESCAPE '\\'";
+    
+    public static final String PHONETIC_PREDICATE = "SOUNDEX(LASTNAME) = SOUNDEX(?)";
+    
+    /**
+     * Every predicate returned in a {@link SearchPlan}.
+     */
+    public static final List<String> PREDICATES = Collections.unmodifiableList(
+            Arrays.asList(EXACT_PREDICATE, LIKE_PREDICATE, PHONETIC_PREDICATE));
+    
+    /**
+     * Chooses the SQL for a search.
+     * 
+     * @param mode - how the search string is matched
+     * @param lastName - the search string entered
+     * 
+     * @return the plan for the search
+     * 
+     * @throws InvalidSearchException if the search would need an unbounded scan of the table
+     */
+    public static SearchPlan plan(SearchMode mode, String lastName) throws InvalidSearchException
+    {
+        String term = normalize(lastName);
+        if ( term.isEmpty() ) {
+            throw new InvalidSearchException("Enter a last name to search for");
+        }
+        
+        switch ( mode ) {
+        case EXACT:
+            return new SearchPlan(mode, term, EXACT_PREDICATE, term);
+        case CONTAINS:
+            if ( term.length() < MIN_CONTAINS_LENGTH ) {
+                throw new InvalidSearchException("Enter at least " + MIN_CONTAINS_LENGTH + " letters for a contains search");
+            }
+            return new SearchPlan(mode, term, LIKE_PREDICATE, '%' + escape(term) + '%');
+        case PHONETIC:
+            return new SearchPlan(mode, term, PHONETIC_PREDICATE, term);
+        case PREFIX:
+        default:
+            return new SearchPlan(SearchMode.PREFIX, term, LIKE_PREDICATE, escape(term) + '%');
+        }
+    }
+    
+    /**
+     * Limits the number of rows a single search request may return.
+     * 
+     * @param pageSize - the number of rows requested
+     * 
+     * @return the number of rows that will be returned, between 1 and {@link #MAX_PAGE_SIZE}
+     */
+    public static int pageSize(int pageSize) {
+        return Math.max(1, Math.min(pageSize, MAX_PAGE_SIZE));
+    }
+    
+    /**
+     * Normalizes a last name search string to the form stored in the table.
+     * 
+     * @param lastName - the search string entered
+     * 
+     * @return the search string, upper case and without surrounding blanks
+     */
+    public static String normalize(String lastName) {
+        return lastName == null ? "" : lastName.trim().toUpperCase();
+    }
+    
+    /**
+     * Escapes the LIKE wildcard characters in a search string, so they match literally.
+     */
+    private static String escape(String term) {
+        StringBuilder sb = new StringBuilder(term.length() + 4);
+        for (int i = 0; i < term.length(); i++) {
+            char c = term.charAt(i);
+            if ( c == '%' || c == '_' || c == ESCAPE ) {
+                sb.append(ESCAPE);
+            }
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+}
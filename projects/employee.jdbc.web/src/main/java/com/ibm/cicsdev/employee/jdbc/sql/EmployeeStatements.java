@@ -0,0 +1,443 @@
+/* Licensed Materials - Property of IBM                                   */
+/*                                                                        */
+/* SAMPLE                                                                 */
+/*                                                                        */
+/* (c) Copyright IBM Corp. 2018 All Rights Reserved                       */
+/*                                                                        */
+/* US Government Users Restricted Rights - Use, duplication or disclosure */
+/* restricted by GSA ADP Schedule Contract with IBM Corp                  */
+/*                                                                        */
+package com.ibm.cicsdev.employee.jdbc.sql;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.ibm.cicsdev.employee.jdbc.beans.EmployeeColumn;
+import com.ibm.cicsdev.employee.jdbc.search.SearchPlanner;
+
+/**
+ * The registry of every SQL statement the application runs against the EMP table.
+ * 
+ * Each statement has a single, constant text, so that repeated calls are found in
+ * the data source's prepared statement cache, configured with the
+ * <code>statementCacheSize</code> attribute in server.xml, rather than being
+ * prepared again by Db2. Statements whose text depends on the request are built
+ * once for each combination and reused: a page of search results for each
+ * predicate and position, and an UPDATE for each set of columns changed.
+ * 
+ * {@link #validate(Connection)} is called when the application starts, and checks
+ * that the table has the columns and types these statements expect.
+ */
+public final class EmployeeStatements
+{
+    /**
+     * The columns selected for a page of search results.
+     */
+    public enum Projection
+    {
+        /** Every column, as read into an Employee. */
+        EMPLOYEE,
+        
+        /** The columns shown in the list of search results. */
+        SUMMARY
+    }
+    
+    /**
+     * Where a page of search results starts.
+     */
+    public enum Position
+    {
+        /** The first page. */
+        FIRST,
+        
+        /** The rows after a seek key, in ascending order. */
+        AFTER,
+        
+        /** The rows before a seek key, in descending order. */
+        BEFORE
+    }
+    
+    
+    /*
+     * Fixed statements.
+     */
+    
+    /**
+     * System property giving the SQL expression used as the row change token, for a database
+     * other than Db2, which does not support <code>ROW CHANGE TOKEN</code>. The expression must
+     * give a BIGINT that changes whenever the row is updated, such as a column set from a
+     * sequence on each update. It is read once, when this class is loaded.
+     */
+    public static final String ROW_CHANGE_TOKEN_PROPERTY = "com.ibm.cicsdev.employee.ROW_CHANGE_TOKEN";
+    
+    /**
+     * The row change token of the current EMP row.
+     */
+    private static final String ROW_CHANGE_TOKEN = System.getProperty(ROW_CHANGE_TOKEN_PROPERTY, "ROW CHANGE TOKEN FOR EMP");
+    
+    /**
+     * Fails in Db2 if EMP has no row change timestamp column, in which case each row change
+     * token is derived from the page holding the row, not from the row.
+     */
+    private static final String READ_ROW_CHANGE_TIMESTAMP = "SELECT ROW CHANGE TIMESTAMP FOR EMP FROM EMP WHERE EMPNO = ?";
+    
+    /**
+     * Columns read to build a full Employee.
+     */
+    public static final String EMPLOYEE_COLUMNS = "BIRTHDATE, BONUS, COMM, EDLEVEL, EMPNO, " +
+                                                  "FIRSTNME, HIREDATE, JOB, LASTNAME, MIDINIT, " +
+                                                  "PHONENO, SALARY, SEX, " +
+                                                  ROW_CHANGE_TOKEN + " AS ROWTOKEN";
+    
+    /**
+     * Columns read to build an EmployeeSummary for the list of search results.
+     */
+    public static final String SUMMARY_COLUMNS = "EMPNO, FIRSTNME, LASTNAME, SEX, PHONENO, JOB";
+    
+    /**
+     * Predicate added to an UPDATE or DELETE to check that the row has not changed since it was read.
+     */
+    private static final String ROW_CHANGE_TOKEN_PREDICATE = " AND " + ROW_CHANGE_TOKEN + " = ?";
+    
+    public static final String FIND_EMPLOYEE = "SELECT " + EMPLOYEE_COLUMNS + " FROM EMP WHERE EMPNO = ?";
+    
+    public static final String READ_ROW_CHANGE_TOKEN = "SELECT " + ROW_CHANGE_TOKEN + " FROM EMP WHERE EMPNO = ?";
+    
+    public static final String INSERT_EMPLOYEE = "INSERT INTO EMP (" +
+                                                     "BIRTHDATE, BONUS,    COMM, EDLEVEL,  EMPNO, " +
+                                                     "FIRSTNME,  HIREDATE, JOB,  LASTNAME, MIDINIT, " +
+                                                     "PHONENO,   SALARY,   SEX,  WORKDEPT) " +
+                                                 "VALUES (" +
+                                                     "?, ?, ?, ?, ?, " +
+                                                     "?, ?, ?, ?, ?, " +
+                                                     "?, ?, ?, ?)";
+    
+    public static final String DELETE_EMPLOYEE = "DELETE FROM EMP WHERE EMPNO = ?";
+    
+    public static final String DELETE_EMPLOYEE_CHECKED = DELETE_EMPLOYEE + ROW_CHANGE_TOKEN_PREDICATE;
+    
+    /**
+     * Number of employee numbers in the IN list of a statement that changes a set of
+     * employees. A shorter list is padded by repeating its last key, so that every
+     * statement has the same text.
+     */
+    public static final int KEY_LIST_SIZE = 50;
+    
+    public static final String DELETE_EMPLOYEES = "DELETE FROM EMP WHERE EMPNO IN (" + markers(KEY_LIST_SIZE) + ")";
+    
+    public static final String UPDATE_JOBS = "UPDATE EMP SET JOB = ? WHERE EMPNO IN (" + markers(KEY_LIST_SIZE) + ")";
+    
+    public static final String EXPORT_ALL = "SELECT " + EMPLOYEE_COLUMNS + " FROM EMP ORDER BY EMPNO FOR READ ONLY";
+    
+    public static final String EXPORT_AFTER = "SELECT " + EMPLOYEE_COLUMNS + " FROM EMP WHERE EMPNO > ? ORDER BY EMPNO FOR READ ONLY";
+    
+    public static final String LAST_NAMES = "SELECT EMPNO, LASTNAME FROM EMP FOR READ ONLY";
+    
+    /**
+     * Reads no rows, but describes every column the application uses.
+     */
+    private static final String DESCRIBE = "SELECT " + EMPLOYEE_COLUMNS + ", WORKDEPT FROM EMP WHERE 1 = 0";
+    
+    /**
+     * The JDBC types accepted for each column, by column label.
+     */
+    private static final Map<String, Set<Integer>> COLUMN_TYPES = new LinkedHashMap<>();
+    static {
+        Set<Integer> text = types(Types.CHAR, Types.VARCHAR);
+        Set<Integer> decimal = types(Types.DECIMAL, Types.NUMERIC);
+        Set<Integer> date = types(Types.DATE);
+        COLUMN_TYPES.put("BIRTHDATE", date);
+        COLUMN_TYPES.put("BONUS", decimal);
+        COLUMN_TYPES.put("COMM", decimal);
+        COLUMN_TYPES.put("EDLEVEL", types(Types.SMALLINT));
+        COLUMN_TYPES.put("EMPNO", text);
+        COLUMN_TYPES.put("FIRSTNME", text);
+        COLUMN_TYPES.put("HIREDATE", date);
+        COLUMN_TYPES.put("JOB", text);
+        COLUMN_TYPES.put("LASTNAME", text);
+        COLUMN_TYPES.put("MIDINIT", text);
+        COLUMN_TYPES.put("PHONENO", text);
+        COLUMN_TYPES.put("SALARY", decimal);
+        COLUMN_TYPES.put("SEX", text);
+        COLUMN_TYPES.put("ROWTOKEN", types(Types.BIGINT));
+        COLUMN_TYPES.put("WORKDEPT", text);
+    }
+    
+    
+    /*
+     * Statements built for each combination of their variable parts.
+     */
+    
+    /**
+     * Page queries for each search predicate, indexed by projection and position.
+     * 
+     * The number of rows fetched is always one more than the largest page, so the
+     * text does not depend on the page size; the statement's maximum row count
+     * limits each page to the size requested.
+     */
+    private static final Map<String, String[]> PAGE_QUERIES = new HashMap<>();
+    static {
+        for (String predicate : SearchPlanner.PREDICATES) {
+            String[] queries = new String[Projection.values().length * Position.values().length];
+            for (Projection projection : Projection.values()) {
+                for (Position position : Position.values()) {
+                    queries[pageIndex(projection, position)] = buildPage(projection, predicate, position);
+                }
+            }
+            PAGE_QUERIES.put(predicate, queries);
+        }
+    }
+    
+    /**
+     * UPDATE commands already built, keyed by the set of columns they write,
+     * with and without the row change token check.
+     */
+    private static final ConcurrentMap<Set<EmployeeColumn>, String> UPDATES = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<Set<EmployeeColumn>, String> CHECKED_UPDATES = new ConcurrentHashMap<>();
+    
+    
+    private EmployeeStatements() {
+    }
+    
+    
+    /*
+     * Statement lookup.
+     */
+    
+    /**
+     * Returns the query for a page of search results.
+     * 
+     * The search argument is the first parameter. For a position other than
+     * {@link Position#FIRST} it is followed by the seek key's last name, its last
+     * name again, and its employee number.
+     * 
+     * @param projection - the columns selected
+     * @param predicate - the predicate chosen by the {@link SearchPlanner}
+     * @param position - where the page starts
+     * 
+     * @return the SQL text
+     */
+    public static String page(Projection projection, String predicate, Position position)
+    {
+        String[] queries = PAGE_QUERIES.get(predicate);
+        if ( queries == null ) {
+            throw new IllegalArgumentException("Unregistered search predicate: " + predicate);
+        }
+        return queries[pageIndex(projection, position)];
+    }
+    
+    /**
+     * Returns the UPDATE command that writes a set of columns, building it on first use.
+     * 
+     * Only a small number of column combinations are edited in practice, so each command
+     * is kept for reuse, which also lets the statement cache match the SQL text.
+     * 
+     * @param columns - the columns to update, in {@link EmployeeColumn} order
+     * @param checkToken - true to update the row only if its row change token has not changed
+     * 
+     * @return the SQL text, with a parameter for each column followed by the employee
+     * number and, if checked, the row change token
+     */
+    public static String update(Set<EmployeeColumn> columns, boolean checkToken)
+    {
+        ConcurrentMap<Set<EmployeeColumn>, String> commands = checkToken ? CHECKED_UPDATES : UPDATES;
+        String sqlCmd = commands.get(columns);
+        if ( sqlCmd == null ) {
+            StringBuilder sb = new StringBuilder("UPDATE EMP SET ");
+            String separator = "";
+            for (EmployeeColumn column : columns) {
+                sb.append(separator).append(column.name()).append(" = ?");
+                separator = ", ";
+            }
+            sb.append(" WHERE EMPNO = ?");
+            if ( checkToken ) {
+                sb.append(ROW_CHANGE_TOKEN_PREDICATE);
+            }
+            sqlCmd = sb.toString();
+            commands.putIfAbsent(EnumSet.copyOf(columns), sqlCmd);
+        }
+        return sqlCmd;
+    }
+    
+    /**
+     * @return every statement whose text is known before the application runs
+     */
+    public static List<String> getStatements()
+    {
+        List<String> statements = new ArrayList<>();
+        statements.add(FIND_EMPLOYEE);
+        statements.add(READ_ROW_CHANGE_TOKEN);
+        statements.add(INSERT_EMPLOYEE);
+        statements.add(DELETE_EMPLOYEE);
+        statements.add(DELETE_EMPLOYEE_CHECKED);
+        statements.add(DELETE_EMPLOYEES);
+        statements.add(UPDATE_JOBS);
+        statements.add(EXPORT_ALL);
+        statements.add(EXPORT_AFTER);
+        statements.add(LAST_NAMES);
+        statements.add(update(EnumSet.allOf(EmployeeColumn.class), true));
+        for (String[] queries : PAGE_QUERIES.values()) {
+            Collections.addAll(statements, queries);
+        }
+        return statements;
+    }
+    
+    
+    /*
+     * Validation.
+     */
+    
+    /**
+     * Checks that the EMP table matches the statements in this registry.
+     * 
+     * Every column used is described and its type checked, then each statement is
+     * prepared and described, so that a column that has been dropped, renamed or
+     * changed in type is reported when the application starts rather than when a
+     * user first reaches the statement that uses it.
+     * 
+     * A warning is written if Db2 is keeping row change tokens for each page rather
+     * than each row, as it does when the table has no row change timestamp column.
+     * 
+     * @param conn - a connection to the database
+     * 
+     * @throws SchemaMismatchException if the table does not match, describing every difference found
+     * @throws SQLException if the database cannot be reached
+     */
+    public static void validate(Connection conn) throws SQLException
+    {
+        List<String> problems = new ArrayList<>();
+        
+        // Check the type of every column
+        try ( PreparedStatement statement = conn.prepareStatement(DESCRIBE) ) {
+            ResultSet rs = statement.executeQuery();
+            ResultSetMetaData md = rs.getMetaData();
+            Map<String, Integer> found = new HashMap<>();
+            for (int i = 1; i <= md.getColumnCount(); i++) {
+                found.put(md.getColumnLabel(i).toUpperCase(), md.getColumnType(i));
+            }
+            for (Map.Entry<String, Set<Integer>> expected : COLUMN_TYPES.entrySet()) {
+                Integer type = found.get(expected.getKey());
+                if ( type == null ) {
+                    problems.add(expected.getKey() + " is missing");
+                }
+                else if ( ! expected.getValue().contains(type) ) {
+                    problems.add(expected.getKey() + " has unexpected JDBC type " + type);
+                }
+            }
+        }
+        catch (SQLException e) {
+            if ( isSchemaError(e) ) {
+                throw new SchemaMismatchException("EMP table does not have the expected columns: " + e.getMessage(), e);
+            }
+            throw e;
+        }
+        
+        // Prepare and describe every statement, which makes the driver send it to Db2
+        for (String sqlCmd : getStatements()) {
+            try ( PreparedStatement statement = conn.prepareStatement(sqlCmd) ) {
+                if ( sqlCmd.startsWith("SELECT") ) {
+                    statement.getMetaData();
+                }
+                else {
+                    statement.getParameterMetaData();
+                }
+            }
+            catch (SQLException e) {
+                if ( ! isSchemaError(e) ) {
+                    throw e;
+                }
+                problems.add("cannot prepare \"" + sqlCmd + "\": " + e.getMessage());
+            }
+        }
+        
+        if ( ! problems.isEmpty() ) {
+            throw new SchemaMismatchException("EMP table does not match the application's SQL: " + problems, null);
+        }
+        
+        if ( System.getProperty(ROW_CHANGE_TOKEN_PROPERTY) == null && ! hasRowChangeTimestamp(conn) ) {
+            System.out.println("EMP has no ROW CHANGE TIMESTAMP column, so row change tokens are kept for each page, "
+                    + "and a change to one employee is reported as a conflict by users changing others on the same page. "
+                    + "Add the column with etc/DB2/EMP-rowchg.sql");
+        }
+    }
+    
+    /**
+     * Checks whether EMP has a row change timestamp column, which makes Db2 keep a
+     * row change token for each row.
+     * 
+     * @param conn - a connection to the database
+     * 
+     * @return false if Db2 refuses ROW CHANGE TIMESTAMP for the table
+     */
+    private static boolean hasRowChangeTimestamp(Connection conn) {
+        try ( PreparedStatement statement = conn.prepareStatement(READ_ROW_CHANGE_TIMESTAMP) ) {
+            statement.getMetaData();
+            return true;
+        }
+        catch (SQLException e) {
+            return false;
+        }
+    }
+    
+    
+    /*
+     * Utility methods.
+     */
+    
+    /**
+     * Syntax and access rule errors, class 42, include undefined columns and incompatible types.
+     */
+    private static boolean isSchemaError(SQLException e) {
+        return e.getSQLState() != null && e.getSQLState().startsWith("42");
+    }
+    
+    private static String markers(int count) {
+        StringBuilder sb = new StringBuilder("?");
+        for (int i = 1; i < count; i++) {
+            sb.append(", ?");
+        }
+        return sb.toString();
+    }
+    
+    private static int pageIndex(Projection projection, Position position) {
+        return projection.ordinal() * Position.values().length + position.ordinal();
+    }
+    
+    private static String buildPage(Projection projection, String predicate, Position position)
+    {
+        StringBuilder sqlCmd = new StringBuilder("SELECT ")
+                .append(projection == Projection.EMPLOYEE ? EMPLOYEE_COLUMNS : SUMMARY_COLUMNS)
+                .append(" FROM EMP WHERE ").append(predicate);
+        
+        // The seek predicate matches the sort order, allowing Db2 to position directly
+        // on the LASTNAME, EMPNO sequence
+        if ( position != Position.FIRST ) {
+            String op = position == Position.BEFORE ? "<" : ">";
+            sqlCmd.append(" AND (LASTNAME ").append(op).append(" ? OR (LASTNAME = ? AND EMPNO ").append(op).append(" ?))");
+        }
+        sqlCmd.append(position == Position.BEFORE ? " ORDER BY LASTNAME DESC, EMPNO DESC" : " ORDER BY LASTNAME, EMPNO");
+        sqlCmd.append(" FETCH FIRST ").append(SearchPlanner.MAX_PAGE_SIZE + 1).append(" ROWS ONLY");
+        return sqlCmd.toString();
+    }
+    
+    private static Set<Integer> types(Integer... types) {
+        Set<Integer> set = new HashSet<>();
+        Collections.addAll(set, types);
+        return set;
+    }
+}
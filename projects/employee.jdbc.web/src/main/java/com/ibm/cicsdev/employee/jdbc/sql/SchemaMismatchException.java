@@ -0,0 +1,29 @@
+/* Licensed Materials - Property of IBM                                   */
+/*                                                                        */
+/* SAMPLE                                                                 */
+/*                                                                        */
+/* (c) Copyright IBM Corp. 2018 All Rights Reserved                       */
+/*                                                                        */
+/* US Government Users Restricted Rights - Use, duplication or disclosure */
+/* restricted by GSA ADP Schedule Contract with IBM Corp                  */
+/*                                                                        */
+package com.ibm.cicsdev.employee.jdbc.sql;
+
+import java.sql.SQLException;
+
+/**
+ * Thrown when the EMP table does not have the columns the application's SQL
+ * statements expect.
+ */
+public class SchemaMismatchException extends SQLException
+{
+    private static final long serialVersionUID = 4419861043320948753L;
+
+    /**
+     * @param message - description of each difference found
+     * @param cause - the error reported by Db2, if any
+     */
+    public SchemaMismatchException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,127 @@
+/* Licensed Materials - Property of IBM                                   */
+/*                                                                        */
+/* SAMPLE                                                                 */
+/*                                                                        */
+/* (c) Copyright IBM Corp. 2018 All Rights Reserved                       */
+/*                                                                        */
+/* US Government Users Restricted Rights - Use, duplication or disclosure */
+/* restricted by GSA ADP Schedule Contract with IBM Corp                  */
+/*                                                                        */
+package com.ibm.cicsdev.employee.jdbc.sql;
+
+import java.sql.BatchUpdateException;
+import java.sql.SQLException;
+
+/**
+ * Classifies the database errors the application reports to the user, by their
+ * SQLState or Db2 SQLCODE rather than the text of the message, which varies
+ * between drivers and releases.
+ * 
+ * The JDBC exception may be wrapped, for example by a JTA exception, or chained
+ * behind another JDBC exception, so the whole chain is searched.
+ */
+public final class SqlErrors
+{
+    /**
+     * A row would duplicate the value of a unique index, such as the primary key.
+     */
+    private static final String DUPLICATE_KEY_STATE = "23505";
+    private static final int DUPLICATE_KEY_CODE = -803;
+    
+    /**
+     * A row cannot be deleted, as a referential constraint restricts the deletion.
+     */
+    private static final String DELETE_RESTRICTED_STATE = "23504";
+    private static final int DELETE_RESTRICTED_CODE = -532;
+    
+    /**
+     * The SQLState classes for errors in the data of a single row: data exceptions,
+     * such as a value too long for its column, and integrity constraint violations.
+     */
+    private static final String DATA_EXCEPTION_CLASS = "22";
+    private static final String CONSTRAINT_VIOLATION_CLASS = "23";
+    
+    private SqlErrors() {
+    }
+    
+    /**
+     * @param t - the exception thrown
+     * 
+     * @return true if an insert or update failed because the key is already in use
+     */
+    public static boolean isDuplicateKey(Throwable t) {
+        return matches(t, DUPLICATE_KEY_STATE, DUPLICATE_KEY_CODE);
+    }
+    
+    /**
+     * Tests the error for one row of a batch. The errors for the other rows are
+     * chained from it, so the chain is not searched.
+     * 
+     * @param e - the error for the row
+     * 
+     * @return true if the row was not inserted because the key is already in use
+     */
+    public static boolean isDuplicateKeyRow(SQLException e) {
+        return DUPLICATE_KEY_STATE.equals(e.getSQLState()) || e.getErrorCode() == DUPLICATE_KEY_CODE;
+    }
+    
+    /**
+     * Tests the error for one row of a batch. Only these errors leave the rest of the
+     * unit of work intact; any other error, such as a deadlock or a lost connection,
+     * means the database may already have rolled back the work.
+     * 
+     * @param e - the error for the row
+     * 
+     * @return true if only that row was rejected
+     */
+    public static boolean isRowError(SQLException e) {
+        String state = e.getSQLState();
+        return state != null && (state.startsWith(DATA_EXCEPTION_CLASS) || state.startsWith(CONSTRAINT_VIOLATION_CLASS));
+    }
+    
+    /**
+     * Tests the errors for a batch. The errors for the rows that failed are chained from
+     * the batch exception, and the batch exception is used if no errors are chained.
+     * 
+     * @param e - the exception thrown by the batch
+     * 
+     * @return true if every error was for a single row, so the rows that succeeded can be committed
+     */
+    public static boolean isRowErrors(BatchUpdateException e) {
+        SQLException next = e.getNextException();
+        if ( next == null ) {
+            return isRowError(e);
+        }
+        for (; next != null; next = next.getNextException()) {
+            if ( ! isRowError(next) ) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * @param t - the exception thrown
+     * 
+     * @return true if a delete failed because other rows depend on the row
+     */
+    public static boolean isDeleteRestricted(Throwable t) {
+        return matches(t, DELETE_RESTRICTED_STATE, DELETE_RESTRICTED_CODE);
+    }
+    
+    /**
+     * Searches the causes, and the exceptions chained from each JDBC exception, for an error.
+     */
+    private static boolean matches(Throwable t, String sqlState, int sqlCode) {
+        for (Throwable cause = t; cause != null; cause = cause.getCause()) {
+            if ( cause instanceof SQLException ) {
+                for (SQLException e = (SQLException) cause; e != null; e = e.getNextException()) {
+                    if ( sqlState.equals(e.getSQLState()) || e.getErrorCode() == sqlCode ) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,335 @@
+/* Licensed Materials - Property of IBM                                   */
+/*                                                                        */
+/* SAMPLE                                                                 */
+/*                                                                        */
+/* (c) Copyright IBM Corp. 2018 All Rights Reserved                       */
+/*                                                                        */
+/* US Government Users Restricted Rights - Use, duplication or disclosure */
+/* restricted by GSA ADP Schedule Contract with IBM Corp                  */
+/*                                                                        */
+package com.ibm.cicsdev.employee.jdbc.tx;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import com.ibm.cics.server.InvalidRequestException;
+import com.ibm.cics.server.Task;
+import com.ibm.cicsdev.employee.jdbc.metrics.Metrics;
+
+/**
+ * Commits concurrent single-row changes together, in one unit of work.
+ * 
+ * Without JTA each change commits its own unit of work, and each commit waits
+ * for Db2 to write its log, which limits the rate of updates under a burst of
+ * writes. With group commit, the first change to arrive leads a group: it waits
+ * up to a short window for other changes to join, or until the group is full,
+ * then makes every change in the group on its own connection and commits once.
+ * The other callers wait for the leader to finish.
+ * 
+ * Each change is made after a savepoint, so a change that fails is rolled back
+ * alone and its caller receives its exception, while the other changes are still
+ * committed. If the commit fails, or Db2 rolls back the whole unit of work, as it
+ * does for a deadlock, every change in the group fails with the same exception.
+ * 
+ * The changes run on the leader's thread, and so in the leader's CICS task, which
+ * is syncpointed after the connection commits or rolls back. A change must therefore use only the
+ * connection it is given and resources in the same unit of work, such as a
+ * recoverable TSQ. As rolling back to a savepoint only backs out the database,
+ * such resources must be written after the change's statements have succeeded.
+ */
+public class GroupCommit
+{
+    /**
+     * A change made as part of a group.
+     * 
+     * @param <T> - the result of the change
+     */
+    public interface Change<T>
+    {
+        /**
+         * Makes the change, without committing it.
+         * 
+         * @param conn - the leader's connection, in manual commit mode
+         * 
+         * @return the result returned to the caller once the group has committed
+         * 
+         * @throws Exception if the change fails, which rolls back this change only
+         */
+        T execute(Connection conn) throws Exception;
+    }
+    
+    /**
+     * SQLState class of the errors after which Db2 has rolled back the whole unit of work.
+     */
+    private static final String ROLLED_BACK = "40";
+    
+    private final DataSource ds;
+    
+    private final Metrics metrics;
+    
+    /**
+     * How long the leader waits for changes to join its group, in nanoseconds.
+     */
+    private final long windowNanos;
+    
+    /**
+     * The most changes committed together.
+     */
+    private final int maxSize;
+    
+    /**
+     * The group that changes join, or null if a new change must lead a new group.
+     */
+    private Group open;
+    
+    
+    /**
+     * @param ds - the data source used by each leader
+     * @param metrics - records the size of each group and how long changes waited
+     * @param windowMillis - how long a leader waits for changes to join its group
+     * @param maxSize - the most changes committed together
+     */
+    public GroupCommit(DataSource ds, Metrics metrics, int windowMillis, int maxSize) {
+        this.ds = ds;
+        this.metrics = metrics;
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+        this.maxSize = Math.max(1, maxSize);
+    }
+    
+    /**
+     * Makes a change and waits for it to be committed.
+     * 
+     * @param change - the change
+     * 
+     * @return the result of the change
+     * 
+     * @throws Exception the exception thrown by the change, or by the commit of its group
+     */
+    public <T> T run(Change<T> change) throws Exception
+    {
+        // The change is visible to later reads in this request once committed
+        RequestConnection.updated();
+        
+        Member<T> member = new Member<>(change);
+        Group group;
+        boolean leader;
+        synchronized (this) {
+            group = this.open;
+            leader = group == null;
+            if ( leader ) {
+                group = new Group();
+                this.open = group;
+            }
+            group.members.add(member);
+            
+            // A full group is closed, and its leader woken
+            if ( group.members.size() >= this.maxSize ) {
+                this.open = null;
+                notifyAll();
+            }
+        }
+        
+        if ( leader ) {
+            close(group);
+            commit(group);
+        }
+        return member.await();
+    }
+    
+    
+    /*
+     * Leader methods.
+     */
+    
+    /**
+     * Waits until the window has passed or the group is full, then stops changes joining it.
+     */
+    private synchronized void close(Group group)
+    {
+        boolean interrupted = false;
+        long deadline = group.created + this.windowNanos;
+        long remaining;
+        while ( this.open == group && (remaining = deadline - System.nanoTime()) > 0 ) {
+            try {
+                TimeUnit.NANOSECONDS.timedWait(this, remaining);
+            }
+            catch (InterruptedException e) {
+                // The group must still be committed
+                interrupted = true;
+            }
+        }
+        if ( this.open == group ) {
+            this.open = null;
+        }
+        if ( interrupted ) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    /**
+     * Makes each change in a closed group and commits them, then releases the callers.
+     */
+    private void commit(Group group)
+    {
+        long started = System.nanoTime();
+        for (Member<?> member : group.members) {
+            this.metrics.groupWaited(started - member.arrived);
+        }
+        this.metrics.groupCommitted(group.members.size());
+        
+        Connection conn = null;
+        List<Member<?>> made = new ArrayList<>();
+        try {
+            conn = RequestConnection.getConnection(this.ds, this.metrics, false);
+            for (Member<?> member : group.members) {
+                Savepoint savepoint = conn.setSavepoint();
+                try {
+                    member.make(conn);
+                    made.add(member);
+                }
+                catch (Exception e) {
+                    if ( rolledBack(e) ) {
+                        throw e;
+                    }
+                    conn.rollback(savepoint);
+                    member.failure = e;
+                }
+            }
+            
+            if ( made.isEmpty() ) {
+                conn.rollback();
+                Task.getTask().rollback();
+            }
+            else {
+                conn.commit();
+                Task.getTask().commit();
+            }
+        }
+        catch (Throwable t) {
+            
+            // Every change that had not already failed fails with the group
+            for (Member<?> member : group.members) {
+                if ( member.failure == null ) {
+                    member.failure = t;
+                }
+            }
+            rollback(conn);
+        }
+        finally {
+            try {
+                RequestConnection.release(conn);
+            }
+            catch (SQLException e) {
+                e.printStackTrace(System.out);
+            }
+            for (Member<?> member : group.members) {
+                member.done.countDown();
+            }
+        }
+    }
+    
+    
+    /*
+     * Utility methods.
+     */
+    
+    /**
+     * @return true if the exception reports that Db2 has already rolled back the unit of work
+     */
+    private static boolean rolledBack(Exception e)
+    {
+        return e instanceof SQLException && ((SQLException) e).getSQLState() != null
+                && ((SQLException) e).getSQLState().startsWith(ROLLED_BACK);
+    }
+    
+    private static void rollback(Connection conn)
+    {
+        if ( conn == null ) {
+            return;
+        }
+        try {
+            conn.rollback();
+            Task.getTask().rollback();
+        }
+        catch (SQLException | InvalidRequestException e) {
+            e.printStackTrace(System.out);
+        }
+    }
+    
+    
+    /*
+     * Nested classes.
+     */
+    
+    /**
+     * The changes committed together, in the order they arrived.
+     */
+    private static class Group
+    {
+        final long created = System.nanoTime();
+        
+        final List<Member<?>> members = new ArrayList<>();
+    }
+    
+    /**
+     * A change waiting in a group, with its outcome once the group has been committed.
+     */
+    private static class Member<T>
+    {
+        final Change<T> change;
+        
+        final long arrived = System.nanoTime();
+        
+        final CountDownLatch done = new CountDownLatch(1);
+        
+        /*
+         * The outcome, published to the caller by the latch.
+         */
+        
+        T result;
+        
+        Throwable failure;
+        
+        Member(Change<T> change) {
+            this.change = change;
+        }
+        
+        void make(Connection conn) throws Exception {
+            this.result = this.change.execute(conn);
+        }
+        
+        /**
+         * Waits for the group to be committed. The change cannot be withdrawn once it has
+         * joined a group, so an interrupt only takes effect once the outcome is known.
+         */
+        T await() throws Exception {
+            boolean interrupted = false;
+            while ( true ) {
+                try {
+                    this.done.await();
+                    break;
+                }
+                catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if ( interrupted ) {
+                Thread.currentThread().interrupt();
+            }
+            if ( this.failure instanceof Error ) {
+                throw (Error) this.failure;
+            }
+            if ( this.failure != null ) {
+                throw (Exception) this.failure;
+            }
+            return this.result;
+        }
+    }
+}
@@ -0,0 +1,266 @@
+/* Licensed Materials - Property of IBM                                   */
+/*                                                                        */
+/* SAMPLE                                                                 */
+/*                                                                        */
+/* (c) Copyright IBM Corp. 2018 All Rights Reserved                       */
+/*                                                                        */
+/* US Government Users Restricted Rights - Use, duplication or disclosure */
+/* restricted by GSA ADP Schedule Contract with IBM Corp                  */
+/*                                                                        */
+package com.ibm.cicsdev.employee.jdbc.tx;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import com.ibm.cicsdev.employee.jdbc.metrics.Metrics;
+
+/**
+ * A database connection shared by every operation in one request.
+ * 
+ * A JSF action such as delete followed by reading the page again would otherwise
+ * take a connection from the pool, and return it, for each operation. While a
+ * request connection is open on a thread, {@link #getConnection(DataSource, Metrics, boolean)}
+ * returns the same connection to each operation, taking it from the pool on first
+ * use, and {@link #release(Connection)} leaves it open until the request ends.
+ * Each operation still commits its own unit of work. Under JTA the shared connections
+ * are closed when each global transaction begins, by {@link #transactionBegins()}, so
+ * the next operation takes a new handle inside the transaction and it is enlisted,
+ * rather than reusing a handle obtained outside it or in an earlier transaction.
+ * 
+ * A request is either read-only, which is set on the connection once when it is
+ * taken from the pool, or may also update the database. The number of connections
+ * each request takes from the pool is recorded in the {@link Metrics}; operations
+ * outside a request, such as those on background threads, are counted separately.
+ * 
+ * Searches may be sent to a separate read data source, such as a replica, which
+ * can lag behind the primary. A request records whether its reads must see the
+ * primary instead: because the user has changed the database recently, or because
+ * the request itself has updated it. One connection is shared for each data source
+ * the request uses.
+ * 
+ * The connection belongs to the thread that opened the request, as a Db2 type 2
+ * connection belongs to its CICS task, so the request must be ended on that thread.
+ */
+public class RequestConnection implements AutoCloseable
+{
+    /**
+     * The request open on each thread.
+     */
+    private static final ThreadLocal<RequestConnection> CURRENT = new ThreadLocal<>();
+    
+    private final Metrics metrics;
+    
+    private final boolean readOnly;
+    
+    /**
+     * True if reads must use the primary data source.
+     */
+    private boolean readPrimary;
+    
+    /**
+     * The shared connection for each data source used so far.
+     */
+    private final Map<DataSource, Connection> connections = new IdentityHashMap<>();
+    
+    /**
+     * Number of connections taken from the pool.
+     */
+    private int checkouts;
+    
+    private RequestConnection(Metrics metrics, boolean readOnly, boolean readPrimary) {
+        this.metrics = metrics;
+        this.readOnly = readOnly;
+        this.readPrimary = readPrimary;
+    }
+    
+    
+    /*
+     * Request lifecycle.
+     */
+    
+    /**
+     * Opens a request on the current thread.
+     * 
+     * @param metrics - records the checkouts made by the request
+     * @param readOnly - true if no operation in the request updates the database
+     * @param readPrimary - true if reads must see the primary data source, rather than a replica
+     * 
+     * @return the request, to be closed when the request ends
+     * 
+     * @throws IllegalStateException if a request is already open on this thread
+     */
+    public static RequestConnection begin(Metrics metrics, boolean readOnly, boolean readPrimary)
+    {
+        if ( CURRENT.get() != null ) {
+            throw new IllegalStateException("A request connection is already open on this thread");
+        }
+        RequestConnection request = new RequestConnection(metrics, readOnly, readPrimary);
+        CURRENT.set(request);
+        return request;
+    }
+    
+    /**
+     * Ends the request, returning its connections to the pool.
+     * 
+     * @throws SQLException if a connection cannot be closed
+     */
+    @Override
+    public void close() throws SQLException
+    {
+        CURRENT.remove();
+        this.metrics.requestEnded(this.checkouts);
+        closeConnections();
+    }
+    
+    /**
+     * Called before a JTA transaction begins on this thread, closing the connections of
+     * the request open on it, if any, so that the next operation takes a new handle from
+     * the data source inside the transaction.
+     * 
+     * @throws SQLException if a connection cannot be closed
+     */
+    public static void transactionBegins() throws SQLException
+    {
+        RequestConnection request = CURRENT.get();
+        if ( request != null ) {
+            request.closeConnections();
+        }
+    }
+    
+    /**
+     * Closes the shared connections, which are taken from the pool again if used.
+     */
+    private void closeConnections() throws SQLException
+    {
+        SQLException failure = null;
+        for (Connection conn : this.connections.values()) {
+            try {
+                conn.close();
+            }
+            catch (SQLException e) {
+                failure = e;
+            }
+        }
+        this.connections.clear();
+        if ( failure != null ) {
+            throw failure;
+        }
+    }
+    
+    /**
+     * @return true if a request is open on this thread and its reads must use the primary data source
+     */
+    public static boolean isReadPrimary()
+    {
+        RequestConnection request = CURRENT.get();
+        return request != null && request.readPrimary;
+    }
+    
+    /**
+     * Records that the request on this thread has changed the database through another
+     * thread's connection, as when its change is committed by a group, so that its
+     * later reads see the primary data source.
+     * 
+     * @throws SQLException if the request on this thread is read-only
+     */
+    public static void updated() throws SQLException
+    {
+        RequestConnection request = CURRENT.get();
+        if ( request != null ) {
+            if ( request.readOnly ) {
+                throw new SQLException("Update attempted in a read-only request");
+            }
+            request.readPrimary = true;
+        }
+    }
+    
+    
+    /*
+     * Connections for operations.
+     */
+    
+    /**
+     * Returns a connection for an operation, from the open request if there is one.
+     * 
+     * @param ds - the data source to use if there is no request open
+     * @param metrics - records the checkout if there is no request open
+     * @param autoCommit - true for an operation that reads, false for one that updates in a unit of work
+     * 
+     * @return the connection, to be passed to {@link #release(Connection)} at the end of the operation
+     * 
+     * @throws SQLException if a connection cannot be obtained, or an update is attempted in a read-only request
+     */
+    public static Connection getConnection(DataSource ds, Metrics metrics, boolean autoCommit) throws SQLException
+    {
+        RequestConnection request = CURRENT.get();
+        Connection conn;
+        if ( request != null ) {
+            conn = request.connection(ds, autoCommit);
+        }
+        else {
+            conn = ds.getConnection();
+            metrics.unscopedCheckout();
+        }
+        
+        // Only change the mode when needed, as the driver may send it to Db2
+        if ( conn.getAutoCommit() != autoCommit ) {
+            conn.setAutoCommit(autoCommit);
+        }
+        return conn;
+    }
+    
+    /**
+     * Ends an operation's use of a connection, closing it unless it belongs to the open request.
+     * 
+     * @param conn - the connection from {@link #getConnection(DataSource, Metrics, boolean)}, or null
+     * 
+     * @throws SQLException if the connection cannot be closed
+     */
+    public static void release(Connection conn) throws SQLException
+    {
+        if ( conn == null ) {
+            return;
+        }
+        RequestConnection request = CURRENT.get();
+        if ( request == null || ! request.connections.containsValue(conn) ) {
+            conn.close();
+        }
+    }
+    
+    /**
+     * Returns the shared connection for a data source, taking it from the pool on first use.
+     */
+    private Connection connection(DataSource ds, boolean autoCommit) throws SQLException
+    {
+        if ( ! autoCommit ) {
+            if ( this.readOnly ) {
+                throw new SQLException("Update attempted in a read-only request");
+            }
+            
+            // A replica may not have this change yet, so later reads must see the primary
+            this.readPrimary = true;
+        }
+        
+        Connection conn = this.connections.get(ds);
+        if ( conn == null || conn.isClosed() ) {
+            conn = ds.getConnection();
+            this.checkouts++;
+            if ( this.readOnly ) {
+                conn.setReadOnly(true);
+            }
+            this.connections.put(ds, conn);
+        }
+        return conn;
+    }
+    
+    /**
+     * @return the number of connections taken from the pool so far
+     */
+    public int getCheckouts() {
+        return this.checkouts;
+    }
+}
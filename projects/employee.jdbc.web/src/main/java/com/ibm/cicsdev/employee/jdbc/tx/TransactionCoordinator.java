@@ -0,0 +1,126 @@
+/* Licensed Materials - Property of IBM                                   */
+/*                                                                        */
+/* SAMPLE                                                                 */
+/*                                                                        */
+/* (c) Copyright IBM Corp. 2018 All Rights Reserved                       */
+/*                                                                        */
+/* US Government Users Restricted Rights - Use, duplication or disclosure */
+/* restricted by GSA ADP Schedule Contract with IBM Corp                  */
+/*                                                                        */
+package com.ibm.cicsdev.employee.jdbc.tx;
+
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.naming.InitialContext;
+import javax.naming.NamingException;
+import javax.transaction.NotSupportedException;
+import javax.transaction.SystemException;
+import javax.transaction.UserTransaction;
+
+import com.ibm.cicsdev.employee.jdbc.metrics.Histogram;
+
+/**
+ * Starts the units of work used by the update methods, and records how long each takes.
+ * 
+ * The JTA {@link UserTransaction} is looked up in JNDI the first time it is needed and
+ * then reused, as it is a thread-safe object that always acts on the transaction of
+ * the calling thread.
+ */
+public class TransactionCoordinator
+{
+    /**
+     * JNDI name of the JTA user transaction.
+     */
+    private static final String USER_TRANSACTION = "java:comp/UserTransaction";
+    
+    /**
+     * The user transaction, once it has been looked up.
+     */
+    private volatile UserTransaction utx;
+    
+    /**
+     * Begin to commit times, keyed by operation name.
+     */
+    private final ConcurrentMap<String, Histogram> latencies = new ConcurrentHashMap<>();
+    
+    
+    /**
+     * Starts a unit of work.
+     * 
+     * With JTA, a global transaction is started, which must be done before the
+     * database connection is obtained so that the connection is enlisted in it.
+     * Without JTA, the CICS unit of work is already active and the unit of work is
+     * committed or rolled back through the connection.
+     * 
+     * Any connection held by the request on this thread is closed before a global
+     * transaction begins, as described in {@link RequestConnection#transactionBegins()}.
+     * 
+     * @param operation - name of the operation, used to record latency
+     * @param useJta - use JTA to provide unit of work support, rather than the CICS unit of work support
+     * 
+     * @return the new unit of work
+     * 
+     * @throws NamingException if the JNDI lookup of the UserTransaction fails
+     * @throws NotSupportedException propagated from {@link UserTransaction#begin()}
+     * @throws SystemException propagated from {@link UserTransaction#begin()}
+     * @throws SQLException if the request's connection cannot be closed
+     */
+    public UnitOfWork begin(String operation, boolean useJta) throws NamingException, NotSupportedException, SystemException, SQLException
+    {
+        UserTransaction tx = null;
+        
+        // Transactions are started implictly in CICS, explicitly in JTA
+        if ( useJta ) {
+            tx = getUserTransaction();
+            RequestConnection.transactionBegins();
+            tx.begin();
+        }
+        
+        return new UnitOfWork(latency(operation), tx);
+    }
+    
+    /**
+     * Returns the user transaction, looking it up on first use.
+     */
+    private UserTransaction getUserTransaction() throws NamingException
+    {
+        UserTransaction tx = this.utx;
+        if ( tx == null ) {
+            tx = InitialContext.doLookup(USER_TRANSACTION);
+            this.utx = tx;
+        }
+        return tx;
+    }
+    
+    /**
+     * Returns the latency statistics for an operation, creating them on first use.
+     */
+    private Histogram latency(String operation)
+    {
+        Histogram latency = this.latencies.get(operation);
+        if ( latency == null ) {
+            Histogram created = new Histogram();
+            latency = this.latencies.putIfAbsent(operation, created);
+            if ( latency == null ) {
+                latency = created;
+            }
+        }
+        return latency;
+    }
+    
+    
+    /*
+     * Statistics, exposed for monitoring.
+     */
+    
+    /**
+     * @return the begin to commit latency of each operation, in operation name order
+     */
+    public Map<String, Histogram> getLatencies() {
+        return new TreeMap<>(this.latencies);
+    }
+}
@@ -0,0 +1,134 @@
+/* Licensed Materials - Property of IBM                                   */
+/*                                                                        */
+/* SAMPLE                                                                 */
+/*                                                                        */
+/* (c) Copyright IBM Corp. 2018 All Rights Reserved                       */
+/*                                                                        */
+/* US Government Users Restricted Rights - Use, duplication or disclosure */
+/* restricted by GSA ADP Schedule Contract with IBM Corp                  */
+/*                                                                        */
+package com.ibm.cicsdev.employee.jdbc.tx;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import javax.transaction.HeuristicMixedException;
+import javax.transaction.HeuristicRollbackException;
+import javax.transaction.RollbackException;
+import javax.transaction.SystemException;
+import javax.transaction.UserTransaction;
+
+import com.ibm.cics.server.InvalidRequestException;
+import com.ibm.cics.server.Task;
+import com.ibm.cicsdev.employee.jdbc.metrics.Histogram;
+
+/**
+ * A single unit of work started by the {@link TransactionCoordinator}.
+ * 
+ * The unit of work is either a JTA transaction, or the CICS unit of work
+ * controlled through the database connection. Callers enlist the connection
+ * used for the work, then call {@link #commit()}, or {@link #rollback()} if
+ * anything fails.
+ * 
+ * Without JTA, the CICS task is also syncpointed once the connection has committed
+ * or rolled back, so that other recoverable resources written in the unit of work,
+ * such as the audit TSQ, are not left pending on a pooled thread whose task
+ * outlives the request.
+ */
+public class UnitOfWork
+{
+    /**
+     * Begin to commit times of the operation this unit of work performs.
+     */
+    private final Histogram latency;
+    
+    /**
+     * The JTA transaction, if we're using one.
+     */
+    private final UserTransaction utx;
+    
+    /**
+     * The connection enlisted in the unit of work.
+     */
+    private Connection conn;
+    
+    /**
+     * Time the unit of work began.
+     */
+    private final long started = System.nanoTime();
+    
+    UnitOfWork(Histogram latency, UserTransaction utx) {
+        this.latency = latency;
+        this.utx = utx;
+    }
+    
+    /**
+     * Includes a connection in the unit of work.
+     * 
+     * @param connection - the connection used to update the database
+     * 
+     * @throws SQLException if the connection cannot be placed in manual commit mode
+     */
+    public void enlist(Connection connection) throws SQLException
+    {
+        connection.setAutoCommit(false);
+        this.conn = connection;
+    }
+    
+    /**
+     * @return true if this unit of work is a JTA transaction
+     */
+    public boolean isJta() {
+        return this.utx != null;
+    }
+    
+    /**
+     * Commits the unit of work.
+     * 
+     * @throws SQLException if a JDBC error occurs
+     * @throws InvalidRequestException if the CICS unit of work cannot be committed
+     * @throws RollbackException propagated from {@link UserTransaction#commit()}
+     * @throws HeuristicMixedException propagated from {@link UserTransaction#commit()}
+     * @throws HeuristicRollbackException propagated from {@link UserTransaction#commit()} 
+     * @throws SystemException propagated from {@link UserTransaction#commit()}
+     */
+    public void commit() throws SQLException, InvalidRequestException,
+            RollbackException, HeuristicMixedException, HeuristicRollbackException, SystemException
+    {
+        if ( this.utx != null ) {
+            
+            // Use the JTA API to commit the changes
+            this.utx.commit();
+        }
+        else if ( this.conn != null ) {
+            
+            // Use the connection to commit the changes, then the rest of the CICS unit of work
+            this.conn.commit();
+            Task.getTask().commit();
+        }
+        
+        this.latency.record(System.nanoTime() - this.started);
+    }
+    
+    /**
+     * Rolls back the unit of work.
+     * 
+     * @throws SQLException if a JDBC error occurs
+     * @throws InvalidRequestException if the CICS unit of work cannot be backed out
+     * @throws SystemException propagated from {@link UserTransaction#rollback()}
+     */
+    public void rollback() throws SQLException, InvalidRequestException, SystemException
+    {
+        if ( this.utx != null ) {
+            
+            // Use the JTA API to rollback the changes
+            this.utx.rollback();
+        }
+        else if ( this.conn != null ) {
+            
+            // Use the connection to rollback the changes, then the rest of the CICS unit of work
+            this.conn.rollback();
+            Task.getTask().rollback();
+        }
+    }
+}
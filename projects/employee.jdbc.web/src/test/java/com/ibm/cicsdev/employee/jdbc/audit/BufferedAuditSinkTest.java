@@ -0,0 +1,236 @@
+/* Licensed Materials - Property of IBM                                   */
+/*                                                                        */
+/* SAMPLE                                                                 */
+/*                                                                        */
+/* (c) Copyright IBM Corp. 2018 All Rights Reserved                       */
+/*                                                                        */
+/* US Government Users Restricted Rights - Use, duplication or disclosure */
+/* restricted by GSA ADP Schedule Contract with IBM Corp                  */
+/*                                                                        */
+package com.ibm.cicsdev.employee.jdbc.audit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.ibm.cics.server.CicsConditionException;
+import com.ibm.cics.server.TSQ;
+
+/**
+ * Tests {@link BufferedAuditSink} writing to the in-memory {@link TSQ}.
+ * 
+ * Most tests hold the flush tasks in a {@link ManualExecutor} and run them
+ * when the test chooses, so that the grouping of records is predictable.
+ */
+public class BufferedAuditSinkTest
+{
+    @After
+    public void deleteQueues() {
+        TSQ.deleteAll();
+    }
+    
+    @Test
+    public void writesAfterCommitInOrder()
+    {
+        ManualExecutor executor = new ManualExecutor();
+        BufferedAuditSink sink = new BufferedAuditSink(new TsqAuditWriter(), executor, 10, 10, 0);
+        
+        sink.beforeCommit("first");
+        assertTrue(TSQ.getItems(TsqAuditWriter.TSQ_NAME).isEmpty());
+        
+        sink.afterCommit("first");
+        sink.afterCommit("second");
+        assertTrue(TSQ.getItems(TsqAuditWriter.TSQ_NAME).isEmpty());
+        assertEquals(2, sink.getQueueDepth());
+        
+        executor.runAll();
+        assertEquals(Arrays.asList("first", "second"), TSQ.getItems(TsqAuditWriter.TSQ_NAME));
+        assertEquals(2, sink.getWritten());
+        assertEquals(0, sink.getQueueDepth());
+    }
+    
+    @Test
+    public void schedulesOneFlushAtATime()
+    {
+        ManualExecutor executor = new ManualExecutor();
+        BufferedAuditSink sink = new BufferedAuditSink(new TsqAuditWriter(), executor, 10, 10, 0);
+        
+        for (int i = 0; i < 5; i++) {
+            sink.afterCommit("record " + i);
+        }
+        assertEquals(1, executor.tasks.size());
+        
+        executor.runAll();
+        assertEquals(1, sink.getFlushes());
+        assertEquals(5, sink.getWritten());
+    }
+    
+    @Test
+    public void writesInGroupsOfTheMaximumSize()
+    {
+        ManualExecutor executor = new ManualExecutor();
+        RecordingWriter writer = new RecordingWriter();
+        BufferedAuditSink sink = new BufferedAuditSink(writer, executor, 10, 2, 0);
+        
+        for (int i = 0; i < 5; i++) {
+            sink.afterCommit("record " + i);
+        }
+        executor.runAll();
+        
+        assertEquals(Arrays.asList(2, 2, 1), writer.groupSizes);
+        assertEquals(3, sink.getFlushes());
+        assertEquals(5, sink.getWritten());
+    }
+    
+    @Test
+    public void dropsRecordsWhenFull()
+    {
+        ManualExecutor executor = new ManualExecutor();
+        BufferedAuditSink sink = new BufferedAuditSink(new TsqAuditWriter(), executor, 2, 10, 10);
+        
+        sink.afterCommit("first");
+        sink.afterCommit("second");
+        sink.afterCommit("third");
+        assertEquals(1, sink.getDropped());
+        assertEquals(2, sink.getQueueDepth());
+        
+        executor.runAll();
+        assertEquals(Arrays.asList("first", "second"), TSQ.getItems(TsqAuditWriter.TSQ_NAME));
+    }
+    
+    @Test
+    public void countsFailedWrites()
+    {
+        ManualExecutor executor = new ManualExecutor();
+        BufferedAuditSink sink = new BufferedAuditSink(new FailingWriter(), executor, 10, 10, 0);
+        
+        sink.afterCommit("first");
+        sink.afterCommit("second");
+        executor.runAll();
+        
+        assertEquals(2, sink.getFailed());
+        assertEquals(0, sink.getWritten());
+        assertEquals(0, sink.getQueueDepth());
+    }
+    
+    @Test
+    public void retriesWhenTheFlushIsRejected()
+    {
+        ManualExecutor executor = new ManualExecutor();
+        BufferedAuditSink sink = new BufferedAuditSink(new TsqAuditWriter(), executor, 10, 10, 0);
+        
+        executor.reject = true;
+        sink.afterCommit("first");
+        assertEquals(0, executor.tasks.size());
+        
+        executor.reject = false;
+        sink.afterCommit("second");
+        executor.runAll();
+        assertEquals(Arrays.asList("first", "second"), TSQ.getItems(TsqAuditWriter.TSQ_NAME));
+    }
+    
+    @Test
+    public void closeWritesQueuedRecords()
+    {
+        ManualExecutor executor = new ManualExecutor();
+        BufferedAuditSink sink = new BufferedAuditSink(new TsqAuditWriter(), executor, 10, 10, 0);
+        
+        sink.afterCommit("first");
+        sink.close();
+        assertEquals(Arrays.asList("first"), TSQ.getItems(TsqAuditWriter.TSQ_NAME));
+    }
+    
+    @Test
+    public void writesEveryRecordFromConcurrentCallers() throws InterruptedException
+    {
+        final int threads = 4;
+        final int records = 1000;
+        ExecutorService flusher = Executors.newSingleThreadExecutor();
+        final BufferedAuditSink sink = new BufferedAuditSink(new TsqAuditWriter(), flusher, 64, 16, 10000);
+        final CountDownLatch done = new CountDownLatch(threads);
+        
+        for (int t = 0; t < threads; t++) {
+            final int thread = t;
+            new Thread() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < records; i++) {
+                        sink.afterCommit(thread + ":" + i);
+                    }
+                    done.countDown();
+                }
+            }.start();
+        }
+        assertTrue(done.await(30, TimeUnit.SECONDS));
+        
+        flusher.shutdown();
+        assertTrue(flusher.awaitTermination(30, TimeUnit.SECONDS));
+        sink.close();
+        
+        assertEquals(0, sink.getDropped());
+        assertEquals(threads * records, sink.getWritten());
+        
+        // Each caller's records are written in the order it committed them
+        List<String> items = TSQ.getItems(TsqAuditWriter.TSQ_NAME);
+        assertEquals(threads * records, items.size());
+        int[] next = new int[threads];
+        for (String item : items) {
+            String[] parts = item.split(":");
+            int thread = Integer.parseInt(parts[0]);
+            assertEquals(next[thread]++, Integer.parseInt(parts[1]));
+        }
+    }
+    
+    
+    /**
+     * Holds tasks until {@link #runAll()} is called, or rejects them.
+     */
+    private static class ManualExecutor implements Executor
+    {
+        final List<Runnable> tasks = new ArrayList<>();
+        
+        boolean reject;
+        
+        @Override
+        public void execute(Runnable task) {
+            if ( this.reject ) {
+                throw new RejectedExecutionException();
+            }
+            this.tasks.add(task);
+        }
+        
+        /**
+         * Runs tasks, including those scheduled by other tasks, until none are left.
+         */
+        void runAll() {
+            while ( ! this.tasks.isEmpty() ) {
+                this.tasks.remove(0).run();
+            }
+        }
+    }
+    
+    /**
+     * Records the size of each group written, and writes nothing.
+     */
+    private static class RecordingWriter implements AuditWriter
+    {
+        final List<Integer> groupSizes = new ArrayList<>();
+        
+        @Override
+        public void write(List<String> records) throws CicsConditionException {
+            this.groupSizes.add(records.size());
+        }
+    }
+}
@@ -0,0 +1,25 @@
+/* Licensed Materials - Property of IBM                                   */
+/*                                                                        */
+/* SAMPLE                                                                 */
+/*                                                                        */
+/* (c) Copyright IBM Corp. 2018 All Rights Reserved                       */
+/*                                                                        */
+/* US Government Users Restricted Rights - Use, duplication or disclosure */
+/* restricted by GSA ADP Schedule Contract with IBM Corp                  */
+/*                                                                        */
+package com.ibm.cicsdev.employee.jdbc.audit;
+
+import java.util.List;
+
+import com.ibm.cics.server.CicsConditionException;
+
+/**
+ * An {@link AuditWriter} that fails every write, as a full or unavailable queue would.
+ */
+class FailingWriter implements AuditWriter
+{
+    @Override
+    public void write(List<String> records) throws CicsConditionException {
+        throw new CicsConditionException("NOSPACE");
+    }
+}
@@ -0,0 +1,78 @@
+/* Licensed Materials - Property of IBM                                   */
+/*                                                                        */
+/* SAMPLE                                                                 */
+/*                                                                        */
+/* (c) Copyright IBM Corp. 2018 All Rights Reserved                       */
+/*                                                                        */
+/* US Government Users Restricted Rights - Use, duplication or disclosure */
+/* restricted by GSA ADP Schedule Contract with IBM Corp                  */
+/*                                                                        */
+package com.ibm.cicsdev.employee.jdbc.audit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.ibm.cics.server.CicsConditionException;
+import com.ibm.cics.server.TSQ;
+
+/**
+ * Tests {@link TransactionalAuditSink} writing to the in-memory {@link TSQ}.
+ */
+public class TransactionalAuditSinkTest
+{
+    @After
+    public void deleteQueues() {
+        TSQ.deleteAll();
+    }
+    
+    @Test
+    public void writesInsideTheUnitOfWork() throws CicsConditionException
+    {
+        AuditSink sink = new TransactionalAuditSink(new TsqAuditWriter());
+        
+        sink.beforeCommit("first");
+        sink.beforeCommit("second");
+        assertEquals(Arrays.asList("first", "second"), TSQ.getItems(TsqAuditWriter.TSQ_NAME));
+    }
+    
+    @Test
+    public void doesNotWriteAfterCommit() throws CicsConditionException
+    {
+        AuditSink sink = new TransactionalAuditSink(new TsqAuditWriter());
+        
+        sink.beforeCommit("record");
+        sink.afterCommit("record");
+        sink.close();
+        assertEquals(Arrays.asList("record"), TSQ.getItems(TsqAuditWriter.TSQ_NAME));
+    }
+    
+    @Test
+    public void writesNonAsciiRecords() throws CicsConditionException
+    {
+        AuditSink sink = new TransactionalAuditSink(new TsqAuditWriter());
+        
+        sink.beforeCommit("Updated employee 000010 MÜLLER é€");
+        assertEquals(Arrays.asList("Updated employee 000010 MÜLLER é€"), TSQ.getItems(TsqAuditWriter.TSQ_NAME));
+    }
+    
+    @Test
+    public void propagatesWriteFailures()
+    {
+        AuditSink sink = new TransactionalAuditSink(new FailingWriter());
+        
+        try {
+            sink.beforeCommit("record");
+        }
+        catch (CicsConditionException e) {
+            // The caller rolls back the unit of work
+            assertTrue(TSQ.getItems(TsqAuditWriter.TSQ_NAME).isEmpty());
+            return;
+        }
+        throw new AssertionError("CicsConditionException expected");
+    }
+}
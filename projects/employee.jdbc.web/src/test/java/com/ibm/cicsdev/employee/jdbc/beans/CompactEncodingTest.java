@@ -0,0 +1,163 @@
+/* Licensed Materials - Property of IBM                                   */
+/*                                                                        */
+/* SAMPLE                                                                 */
+/*                                                                        */
+/* (c) Copyright IBM Corp. 2018 All Rights Reserved                       */
+/*                                                                        */
+/* US Government Users Restricted Rights - Use, duplication or disclosure */
+/* restricted by GSA ADP Schedule Contract with IBM Corp                  */
+/*                                                                        */
+package com.ibm.cicsdev.employee.jdbc.beans;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.TimeZone;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the encodings in {@link CompactEncoding} on their own.
+ */
+public class CompactEncodingTest
+{
+    /**
+     * Zones with unusual offsets, and with offsets that change at midnight or skip whole days.
+     */
+    private static final String[] ZONES = {
+        "UTC", "Europe/London", "America/New_York", "America/St_Johns", "Asia/Kolkata",
+        "America/Sao_Paulo", "Africa/Abidjan", "Africa/Casablanca", "Pacific/Apia", "Pacific/Kiritimati"
+    };
+    
+    private TimeZone defaultZone;
+    
+    @Before
+    public void saveZone() {
+        this.defaultZone = TimeZone.getDefault();
+    }
+    
+    @After
+    public void restoreZone() {
+        TimeZone.setDefault(this.defaultZone);
+    }
+    
+    @Test
+    public void datesReadBackAsJdbcReturnsThem() throws IOException
+    {
+        for (String zone : ZONES) {
+            TimeZone.setDefault(TimeZone.getTimeZone(zone));
+            for (LocalDate day = LocalDate.of(1900, 1, 1); day.getYear() < 2040; day = day.plusDays(1)) {
+                
+                // A DATE column is read as the start of the day in the default time zone
+                Date jdbc = Date.valueOf(day);
+                Date read = readDate(writeDate(jdbc));
+                assertEquals(zone + " " + day, jdbc.getTime(), read.getTime());
+            }
+        }
+    }
+    
+    @Test
+    public void datesAreWrittenAsTheLocalDay() throws IOException
+    {
+        for (String zone : ZONES) {
+            TimeZone.setDefault(TimeZone.getTimeZone(zone));
+            
+            // Any time in the day gives the same day number
+            Date noon = new Date(Date.valueOf("1965-06-30").getTime() + 12 * 3600 * 1000);
+            assertEquals(zone, LocalDate.of(1965, 6, 30).toEpochDay(), dayOf(writeDate(noon)));
+            assertEquals(zone, LocalDate.of(2020, 2, 29).toEpochDay(), dayOf(writeDate(Date.valueOf("2020-02-29"))));
+        }
+    }
+    
+    @Test
+    public void decimalsRoundTrip() throws IOException
+    {
+        String[] values = {
+            "0", "0.00", "52750.00", "-1.50", "9999999.99", "-9999999.99", "1E+3", "-2.5E+10",
+            "92233720368547758.07", "-92233720368547758.08", "123456789012345678901234567890.12"
+        };
+        for (String value : values) {
+            BigDecimal decimal = new BigDecimal(value);
+            BigDecimal read = readDecimal(writeDecimal(decimal));
+            
+            // The scale is kept as well as the value
+            assertEquals(value, decimal, read);
+        }
+    }
+    
+    @Test
+    public void moneyIsShort() throws IOException
+    {
+        // A scale byte and the unscaled value in seven bit groups
+        assertEquals(4, writeDecimal(new BigDecimal("527.50")).length);
+        assertEquals(5, writeDecimal(new BigDecimal("52750.00")).length);
+    }
+    
+    @Test
+    public void varLongsRoundTrip() throws IOException
+    {
+        long[] values = { 0, 1, -1, 63, -64, 64, Integer.MAX_VALUE, Integer.MIN_VALUE, Long.MAX_VALUE, Long.MIN_VALUE };
+        for (long value : values) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            CompactEncoding.writeVarLong(new DataOutputStream(bytes), value);
+            assertEquals(value, CompactEncoding.readVarLong(input(bytes.toByteArray())));
+        }
+    }
+    
+    @Test
+    public void stringsRoundTrip() throws IOException
+    {
+        String[] values = { "", "HAAS", "Müller", "Ødegård", "田中", "O'Brien, \"Jr\"", repeat('X', 254), repeat('X', 300) };
+        for (String value : values) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            CompactEncoding.writeString(new DataOutputStream(bytes), value);
+            assertEquals(value, CompactEncoding.readString(input(bytes.toByteArray())));
+        }
+    }
+    
+    
+    private static byte[] writeDate(java.util.Date value) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        CompactEncoding.writeDate(new DataOutputStream(bytes), value);
+        return bytes.toByteArray();
+    }
+    
+    private static Date readDate(byte[] bytes) throws IOException {
+        return CompactEncoding.readDate(input(bytes));
+    }
+    
+    private static int dayOf(byte[] bytes) throws IOException {
+        return input(bytes).readInt();
+    }
+    
+    private static byte[] writeDecimal(BigDecimal value) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        CompactEncoding.writeDecimal(new DataOutputStream(bytes), value);
+        return bytes.toByteArray();
+    }
+    
+    private static BigDecimal readDecimal(byte[] bytes) throws IOException {
+        return CompactEncoding.readDecimal(input(bytes));
+    }
+    
+    private static DataInputStream input(byte[] bytes) {
+        return new DataInputStream(new ByteArrayInputStream(bytes));
+    }
+    
+    private static String repeat(char c, int count) {
+        StringBuilder sb = new StringBuilder(count);
+        for (int i = 0; i < count; i++) {
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+}
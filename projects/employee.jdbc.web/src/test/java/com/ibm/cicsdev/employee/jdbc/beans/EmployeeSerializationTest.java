@@ -0,0 +1,266 @@
+/* Licensed Materials - Property of IBM                                   */
+/*                                                                        */
+/* SAMPLE                                                                 */
+/*                                                                        */
+/* (c) Copyright IBM Corp. 2018 All Rights Reserved                       */
+/*                                                                        */
+/* US Government Users Restricted Rights - Use, duplication or disclosure */
+/* restricted by GSA ADP Schedule Contract with IBM Corp                  */
+/*                                                                        */
+package com.ibm.cicsdev.employee.jdbc.beans;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.util.EnumSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * Tests the compact form {@link Employee} writes when a session is passivated or replicated.
+ */
+public class EmployeeSerializationTest
+{
+    @Test
+    public void allNullRoundTrips() throws Exception
+    {
+        Employee read = roundTrip(new Employee());
+        
+        assertNull(read.getEmpNo());
+        assertNull(read.getBirthDate());
+        assertNull(read.getBonus());
+        assertNull(read.getComm());
+        assertNull(read.getFirstName());
+        assertNull(read.getHireDate());
+        assertNull(read.getJob());
+        assertNull(read.getLastName());
+        assertNull(read.getMidInit());
+        assertNull(read.getPhoneNo());
+        assertNull(read.getSalary());
+        assertNull(read.getGender());
+        assertEquals(0, read.getEdLevel());
+        assertEquals(0, read.getRowChangeToken());
+        assertTrue(read.getDirtyColumns().isEmpty());
+    }
+    
+    @Test
+    public void fullWidthCharColumnsRoundTrip() throws Exception
+    {
+        Employee employee = employee();
+        assertSame(employee, roundTrip(employee));
+    }
+    
+    @Test
+    public void shortCharColumnsRoundTrip() throws Exception
+    {
+        // CHAR columns read from Db2 are padded, but values typed by the user may not be
+        Employee employee = employee();
+        employee.setJob("CLERK");
+        employee.setPhoneNo("12");
+        employee.setEmpNo("1");
+        employee.setMidInit("");
+        employee.setGender("");
+        assertSame(employee, roundTrip(employee));
+    }
+    
+    @Test
+    public void nonAsciiStringsRoundTrip() throws Exception
+    {
+        Employee employee = employee();
+        employee.setFirstName("Zoë");
+        employee.setLastName("Ødegård-田中");
+        employee.setJob("DESIGNÉR");
+        employee.setMidInit("É");
+        employee.setGender("♀");
+        assertSame(employee, roundTrip(employee));
+    }
+    
+    @Test
+    public void unusualDecimalsRoundTrip() throws Exception
+    {
+        Employee employee = employee();
+        employee.setSalary(new BigDecimal("5E+4"));
+        employee.setBonus(new BigDecimal("-250.00"));
+        employee.setComm(new BigDecimal("123456789012345678901234567890.12"));
+        assertSame(employee, roundTrip(employee));
+    }
+    
+    @Test
+    public void datesBeforeTheEpochRoundTrip() throws Exception
+    {
+        Employee employee = employee();
+        employee.setBirthDate(Date.valueOf("1901-12-31"));
+        employee.setHireDate(Date.valueOf("1969-12-31"));
+        assertSame(employee, roundTrip(employee));
+    }
+    
+    @Test
+    public void changedColumnsRoundTrip() throws Exception
+    {
+        Employee employee = employee();
+        employee.setSalary(new BigDecimal("60000.00"));
+        employee.setLastName("JONES");
+        Employee read = roundTrip(employee);
+        
+        assertEquals(EnumSet.of(EmployeeColumn.SALARY, EmployeeColumn.LASTNAME), read.getDirtyColumns());
+    }
+    
+    @Test
+    public void unknownVersionIsRejected() throws Exception
+    {
+        byte[] bytes = serialize(employee());
+        int version = indexOfVersion(bytes);
+        bytes[version] = 99;
+        try {
+            deserialize(bytes);
+            fail("InvalidObjectException expected");
+        }
+        catch (InvalidObjectException e) {
+            // Expected
+        }
+    }
+    
+    @Test
+    public void compactFormIsThreeTimesSmaller() throws Exception
+    {
+        Employee employee = employee();
+        int compact = serialize(employee).length;
+        int standard = serialize(new DefaultEmployee(employee)).length;
+        
+        assertTrue("compact " + compact + " bytes, default " + standard + " bytes", compact * 3 <= standard);
+    }
+    
+    
+    /**
+     * @return a fully populated employee, as read from the EMP table
+     */
+    static Employee employee()
+    {
+        Employee employee = new Employee();
+        employee.setEmpNo("000010");
+        employee.setFirstName("CHRISTINE");
+        employee.setMidInit("I");
+        employee.setLastName("HAAS");
+        employee.setPhoneNo("3978");
+        employee.setHireDate(Date.valueOf("1995-01-01"));
+        employee.setJob("PRES    ");
+        employee.setEdLevel((short) 18);
+        employee.setGender("F");
+        employee.setBirthDate(Date.valueOf("1963-08-24"));
+        employee.setSalary(new BigDecimal("152750.00"));
+        employee.setBonus(new BigDecimal("1000.00"));
+        employee.setComm(new BigDecimal("4220.00"));
+        employee.setRowChangeToken(74904229174734848L);
+        employee.clearDirty();
+        return employee;
+    }
+    
+    private static void assertSame(Employee expected, Employee actual)
+    {
+        assertEquals(expected.getEmpNo(), actual.getEmpNo());
+        assertEquals(expected.getBirthDate(), actual.getBirthDate());
+        assertEquals(expected.getBonus(), actual.getBonus());
+        assertEquals(expected.getComm(), actual.getComm());
+        assertEquals(expected.getEdLevel(), actual.getEdLevel());
+        assertEquals(expected.getFirstName(), actual.getFirstName());
+        assertEquals(expected.getHireDate(), actual.getHireDate());
+        assertEquals(expected.getJob(), actual.getJob());
+        assertEquals(expected.getLastName(), actual.getLastName());
+        assertEquals(expected.getMidInit(), actual.getMidInit());
+        assertEquals(expected.getPhoneNo(), actual.getPhoneNo());
+        assertEquals(expected.getSalary(), actual.getSalary());
+        assertEquals(expected.getGender(), actual.getGender());
+        assertEquals(expected.getRowChangeToken(), actual.getRowChangeToken());
+        assertEquals(expected.getDirtyColumns(), actual.getDirtyColumns());
+    }
+    
+    private static Employee roundTrip(Employee employee) throws Exception {
+        return (Employee) deserialize(serialize(employee));
+    }
+    
+    static byte[] serialize(Object value) throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try ( ObjectOutputStream out = new ObjectOutputStream(bytes) ) {
+            out.writeObject(value);
+        }
+        return bytes.toByteArray();
+    }
+    
+    static Object deserialize(byte[] bytes) throws IOException, ClassNotFoundException
+    {
+        try ( ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes)) ) {
+            return in.readObject();
+        }
+    }
+    
+    /**
+     * Finds the version byte written by Employee, at the start of its block data.
+     */
+    private static int indexOfVersion(byte[] bytes) throws IOException
+    {
+        // TC_BLOCKDATA, the block length, then the version
+        for (int i = 0; i < bytes.length - 2; i++) {
+            if ( bytes[i] == 0x77 && bytes[i + 2] == 1 ) {
+                return i + 2;
+            }
+        }
+        throw new AssertionError("No block data found");
+    }
+    
+    
+    /**
+     * The fields of Employee written with default serialization, as the bean was
+     * written before it had a compact form.
+     */
+    static class DefaultEmployee implements Serializable
+    {
+        private static final long serialVersionUID = 1L;
+        
+        String empNo;
+        java.util.Date birthDate;
+        BigDecimal bonus;
+        BigDecimal comm;
+        short edLevel;
+        String firstName;
+        java.util.Date hireDate;
+        String job;
+        String lastName;
+        String midInit;
+        String phoneNo;
+        BigDecimal salary;
+        String gender;
+        long rowChangeToken;
+        Set<EmployeeColumn> dirty;
+        
+        DefaultEmployee(Employee employee) {
+            this.empNo = employee.getEmpNo();
+            this.birthDate = new java.util.Date(employee.getBirthDate().getTime());
+            this.bonus = employee.getBonus();
+            this.comm = employee.getComm();
+            this.edLevel = employee.getEdLevel();
+            this.firstName = employee.getFirstName();
+            this.hireDate = new java.util.Date(employee.getHireDate().getTime());
+            this.job = employee.getJob();
+            this.lastName = employee.getLastName();
+            this.midInit = employee.getMidInit();
+            this.phoneNo = employee.getPhoneNo();
+            this.salary = employee.getSalary();
+            this.gender = employee.getGender();
+            this.rowChangeToken = employee.getRowChangeToken();
+            this.dirty = employee.getDirtyColumns();
+        }
+    }
+}
@@ -0,0 +1,213 @@
+/* Licensed Materials - Property of IBM                                   */
+/*                                                                        */
+/* SAMPLE                                                                 */
+/*                                                                        */
+/* (c) Copyright IBM Corp. 2018 All Rights Reserved                       */
+/*                                                                        */
+/* US Government Users Restricted Rights - Use, duplication or disclosure */
+/* restricted by GSA ADP Schedule Contract with IBM Corp                  */
+/*                                                                        */
+package com.ibm.cicsdev.employee.jdbc.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.junit.Test;
+
+import com.ibm.cicsdev.employee.jdbc.beans.Employee;
+import com.ibm.cicsdev.employee.jdbc.beans.EmployeePage;
+import com.ibm.cicsdev.employee.jdbc.beans.EmployeeSummary;
+
+/**
+ * Tests {@link EmployeeCache}, including its use from many threads at once.
+ */
+public class EmployeeCacheTest
+{
+    @Test
+    public void returnsCopiesOfEmployees()
+    {
+        EmployeeCache cache = new EmployeeCache(10, 60);
+        cache.putEmployee(cache.getGeneration(), employee("000010", "HAAS"));
+        
+        Employee found = cache.getEmployee("000010");
+        found.setLastName("CHANGED");
+        assertEquals("HAAS", cache.getEmployee("000010").getLastName());
+        assertEquals(2, cache.getHits());
+        
+        assertNull(cache.getEmployee("000020"));
+        assertEquals(1, cache.getMisses());
+    }
+    
+    @Test
+    public void refusesValuesReadBeforeAnInvalidation()
+    {
+        EmployeeCache cache = new EmployeeCache(10, 60);
+        long generation = cache.getGeneration();
+        cache.invalidate("000010", "HAAS");
+        
+        cache.putEmployee(generation, employee("000010", "HAAS"));
+        cache.putPage(generation, "HAAS", matcher("HAAS"), page("000010", "HAAS"));
+        assertNull(cache.getEmployee("000010"));
+        assertNull(cache.getPage("HAAS"));
+        assertEquals(0, cache.getSize());
+    }
+    
+    @Test
+    public void invalidatesPagesByEmployeeAndLastName()
+    {
+        EmployeeCache cache = new EmployeeCache(10, 60);
+        long generation = cache.getGeneration();
+        cache.putEmployee(generation, employee("000010", "HAAS"));
+        cache.putPage(generation, "HAAS", matcher("HAAS"), page("000010", "HAAS"));
+        cache.putPage(generation, "LEE", matcher("LEE"), page("000020", "LEE"));
+        cache.putPage(generation, "KWAN", matcher("KWAN"), page("000030", "KWAN"));
+        
+        // A deleted employee leaves the pages holding it and the searches matching its name
+        cache.invalidate("000010", "HAAS");
+        assertNull(cache.getEmployee("000010"));
+        assertNull(cache.getPage("HAAS"));
+        assertNotNull(cache.getPage("LEE"));
+        
+        // An employee added with a matching name belongs in the results
+        cache.invalidate("000040", "LEE");
+        assertNull(cache.getPage("LEE"));
+        assertNotNull(cache.getPage("KWAN"));
+    }
+    
+    @Test
+    public void invalidatesABatchInOnePass()
+    {
+        EmployeeCache cache = new EmployeeCache(10, 60);
+        long generation = cache.getGeneration();
+        cache.putPage(generation, "HAAS", matcher("HAAS"), page("000010", "HAAS"));
+        cache.putPage(generation, "LEE", matcher("LEE"), page("000020", "LEE"));
+        cache.putPage(generation, "KWAN", matcher("KWAN"), page("000030", "KWAN"));
+        cache.putPage(generation, "GEYER", matcher("GEYER"), page("000050", "GEYER"));
+        
+        cache.invalidate(Arrays.asList("000010", "000060"), Arrays.asList("KWAN"));
+        assertEquals(generation + 1, cache.getGeneration());
+        assertNull(cache.getPage("HAAS"));
+        assertNull(cache.getPage("KWAN"));
+        assertNotNull(cache.getPage("LEE"));
+        
+        // Changes that cannot move employees between searches only affect the pages holding them
+        cache.invalidate(Arrays.asList("000020"), Collections.<String>emptySet());
+        assertNull(cache.getPage("LEE"));
+        assertNotNull(cache.getPage("GEYER"));
+    }
+    
+    @Test
+    public void evictsTheLeastRecentlyUsed()
+    {
+        EmployeeCache cache = new EmployeeCache(8, 60);
+        for (int i = 0; i < 8; i++) {
+            cache.putEmployee(cache.getGeneration(), employee(empNo(i), "HAAS"));
+        }
+        
+        // Use the first employee, so the second is now the least recently used
+        assertNotNull(cache.getEmployee(empNo(0)));
+        cache.putEmployee(cache.getGeneration(), employee(empNo(8), "HAAS"));
+        
+        assertNotNull(cache.getEmployee(empNo(0)));
+        assertNull(cache.getEmployee(empNo(1)));
+        assertNotNull(cache.getEmployee(empNo(8)));
+        assertTrue(cache.getSize() <= 8);
+        assertEquals(9 - cache.getSize(), cache.getEvictions());
+    }
+    
+    @Test
+    public void holdsNothingWhenSizeIsZero()
+    {
+        EmployeeCache cache = new EmployeeCache(0, 60);
+        cache.putEmployee(cache.getGeneration(), employee("000010", "HAAS"));
+        assertNull(cache.getEmployee("000010"));
+        assertEquals(0, cache.getSize());
+    }
+    
+    @Test
+    public void staysBoundedAndConsistentUnderConcurrentUse() throws Exception
+    {
+        final EmployeeCache cache = new EmployeeCache(100, 60);
+        final int keys = 1000;
+        ExecutorService threads = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Void>> results = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                results.add(threads.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() {
+                        ThreadLocalRandom random = ThreadLocalRandom.current();
+                        for (int i = 0; i < 20_000; i++) {
+                            String empNo = empNo(random.nextInt(keys));
+                            int action = random.nextInt(10);
+                            if ( action == 0 ) {
+                                cache.invalidate(empNo, "HAAS");
+                            }
+                            else if ( action < 4 ) {
+                                cache.putEmployee(cache.getGeneration(), employee(empNo, "HAAS"));
+                            }
+                            else {
+                                Employee found = cache.getEmployee(empNo);
+                                if ( found != null && ! empNo.equals(found.getEmpNo()) ) {
+                                    throw new AssertionError("Found " + found.getEmpNo() + " for " + empNo);
+                                }
+                            }
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Void> result : results) {
+                result.get();
+            }
+        }
+        finally {
+            threads.shutdown();
+        }
+        
+        // Each thread that stored past the limit evicts, or leaves it to the one evicting
+        assertTrue("size " + cache.getSize(), cache.getSize() <= 100 + 8);
+    }
+    
+    
+    /*
+     * Utility methods.
+     */
+    
+    private static String empNo(int i) {
+        return String.format("%06d", i);
+    }
+    
+    private static Employee employee(String empNo, String lastName) {
+        Employee employee = new Employee();
+        employee.setEmpNo(empNo);
+        employee.setLastName(lastName);
+        return employee;
+    }
+    
+    private static EmployeePage page(String empNo, String lastName) {
+        EmployeeSummary summary = new EmployeeSummary(empNo, "A", lastName, "M", "1111", "CLERK");
+        return new EmployeePage(Collections.singletonList(summary), false, false);
+    }
+    
+    private static LastNameMatcher matcher(final String lastName) {
+        return new LastNameMatcher() {
+            @Override
+            public boolean matches(String name) {
+                return lastName.equals(name);
+            }
+        };
+    }
+}
@@ -0,0 +1,76 @@
+/* Licensed Materials - Property of IBM                                   */
+/*                                                                        */
+/* SAMPLE                                                                 */
+/*                                                                        */
+/* (c) Copyright IBM Corp. 2018 All Rights Reserved                       */
+/*                                                                        */
+/* US Government Users Restricted Rights - Use, duplication or disclosure */
+/* restricted by GSA ADP Schedule Contract with IBM Corp                  */
+/*                                                                        */
+package com.ibm.cicsdev.employee.jdbc.csv;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link CsvReader} against the forms {@link EmployeeCsv} writes.
+ */
+public class CsvReaderTest
+{
+    @Test
+    public void readsPlainFieldsAndLineEndings() throws IOException
+    {
+        CsvReader reader = reader("\uFEFFEMPNO,LASTNAME\r\n000010,HAAS\n000020,,\r000030,KWAN");
+        
+        assertEquals(Arrays.asList("EMPNO", "LASTNAME"), reader.readRecord());
+        assertEquals(Arrays.asList("000010", "HAAS"), reader.readRecord());
+        assertEquals(Arrays.asList("000020", "", ""), reader.readRecord());
+        assertEquals(3, reader.getLineNumber());
+        assertEquals(Arrays.asList("000030", "KWAN"), reader.readRecord());
+        assertNull(reader.readRecord());
+    }
+    
+    @Test
+    public void readsQuotedFields() throws IOException
+    {
+        CsvReader reader = reader("000010,\"O\"\"BRIEN, JR\",\"\",\"TWO\r\nLINES\"\r\n000020,\"a\"\"\"\r\n");
+        
+        assertEquals(Arrays.asList("000010", "O\"BRIEN, JR", "", "TWO\r\nLINES"), reader.readRecord());
+        assertEquals(1, reader.getLineNumber());
+        assertEquals(Arrays.asList("000020", "a\""), reader.readRecord());
+        assertEquals(3, reader.getLineNumber());
+        assertFalse(reader.isUnterminated());
+        assertNull(reader.readRecord());
+    }
+    
+    @Test
+    public void readsBlankLinesAsOneEmptyField() throws IOException
+    {
+        CsvReader reader = reader("\r\n000010\r\n");
+        
+        assertEquals(Arrays.asList(""), reader.readRecord());
+        assertEquals(Arrays.asList("000010"), reader.readRecord());
+        assertEquals(2, reader.getLineNumber());
+    }
+    
+    @Test
+    public void reportsAnUnclosedQuote() throws IOException
+    {
+        CsvReader reader = reader("000010,\"HAAS\r\n000020,KWAN\r\n");
+        
+        assertEquals(Arrays.asList("000010", "HAAS\r\n000020,KWAN\r\n"), reader.readRecord());
+        assertTrue(reader.isUnterminated());
+    }
+    
+    private static CsvReader reader(String text) {
+        return new CsvReader(new StringReader(text));
+    }
+}
@@ -0,0 +1,83 @@
+/* Licensed Materials - Property of IBM                                   */
+/*                                                                        */
+/* SAMPLE                                                                 */
+/*                                                                        */
+/* (c) Copyright IBM Corp. 2018 All Rights Reserved                       */
+/*                                                                        */
+/* US Government Users Restricted Rights - Use, duplication or disclosure */
+/* restricted by GSA ADP Schedule Contract with IBM Corp                  */
+/*                                                                        */
+package com.ibm.cicsdev.employee.jdbc.search;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import com.ibm.cicsdev.employee.jdbc.beans.SearchMode;
+
+/**
+ * Tests the predicates and arguments chosen by {@link SearchPlanner}.
+ */
+public class SearchPlannerTest
+{
+    @Test
+    public void escapesWildcardsInPrefixSearches() throws InvalidSearchException
+    {
+        SearchPlan plan = SearchPlanner.plan(SearchMode.PREFIX, " o_b%r\\ ");
+        
+        assertEquals(SearchPlanner.LIKE_PREDICATE, plan.getPredicate());
+        assertEquals("O_B%R\\", plan.getTerm());
+        assertEquals("O\\_B\\%R\\\\%", plan.getArgument());
+    }
+    
+    @Test
+    public void escapesWildcardsInContainsSearches() throws InvalidSearchException
+    {
+        SearchPlan plan = SearchPlanner.plan(SearchMode.CONTAINS, "%_\\");
+        
+        assertEquals(SearchPlanner.LIKE_PREDICATE, plan.getPredicate());
+        assertEquals("%\\%\\_\\\\%", plan.getArgument());
+    }
+    
+    @Test
+    public void leavesExactSearchesUnescaped() throws InvalidSearchException
+    {
+        SearchPlan plan = SearchPlanner.plan(SearchMode.EXACT, "o_b%r");
+        
+        assertEquals(SearchPlanner.EXACT_PREDICATE, plan.getPredicate());
+        assertEquals("O_B%R", plan.getArgument());
+    }
+    
+    @Test(expected = InvalidSearchException.class)
+    public void refusesAnEmptySearch() throws InvalidSearchException
+    {
+        SearchPlanner.plan(SearchMode.PREFIX, "");
+    }
+    
+    @Test(expected = InvalidSearchException.class)
+    public void refusesABlankSearch() throws InvalidSearchException
+    {
+        SearchPlanner.plan(SearchMode.EXACT, "   ");
+    }
+    
+    @Test(expected = InvalidSearchException.class)
+    public void refusesAMissingSearch() throws InvalidSearchException
+    {
+        SearchPlanner.plan(SearchMode.PHONETIC, null);
+    }
+    
+    @Test(expected = InvalidSearchException.class)
+    public void refusesAShortContainsSearch() throws InvalidSearchException
+    {
+        SearchPlanner.plan(SearchMode.CONTAINS, " ab ");
+    }
+    
+    @Test
+    public void acceptsAContainsSearchOfTheMinimumLength() throws InvalidSearchException
+    {
+        SearchPlan plan = SearchPlanner.plan(SearchMode.CONTAINS, "abc");
+        
+        assertEquals(SearchPlanner.MIN_CONTAINS_LENGTH, plan.getTerm().length());
+        assertEquals("%ABC%", plan.getArgument());
+    }
+}
@@ -0,0 +1,279 @@
+/* Licensed Materials - Property of IBM                                   */
+/*                                                                        */
+/* SAMPLE                                                                 */
+/*                                                                        */
+/* (c) Copyright IBM Corp. 2018 All Rights Reserved                       */
+/*                                                                        */
+/* US Government Users Restricted Rights - Use, duplication or disclosure */
+/* restricted by GSA ADP Schedule Contract with IBM Corp                  */
+/*                                                                        */
+package com.ibm.cicsdev.employee.jdbc.tx;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.ibm.cicsdev.employee.jdbc.metrics.Metrics;
+
+/**
+ * Tests {@link GroupCommit} making changes to a table in an in-memory H2 database.
+ * 
+ * Each test runs its changes on separate threads, as concurrent callers would,
+ * and sets the group size to the number of changes so that they all join one group.
+ */
+public class GroupCommitTest
+{
+    /**
+     * Names a separate database for each test.
+     */
+    private static final AtomicInteger DATABASES = new AtomicInteger();
+    
+    /**
+     * How long a test waits for a change before failing, in seconds.
+     */
+    private static final int TIMEOUT = 10;
+    
+    /**
+     * A window long enough that no test passes by waiting for it to end.
+     */
+    private static final int LONG_WINDOW = 60_000;
+    
+    private final JdbcDataSource ds = new JdbcDataSource();
+    
+    private final Metrics metrics = new Metrics();
+    
+    private ExecutorService callers;
+    
+    @Before
+    public void setUp() throws SQLException
+    {
+        this.ds.setURL("jdbc:h2:mem:group" + DATABASES.incrementAndGet() + ";DB_CLOSE_DELAY=-1");
+        try ( Connection conn = this.ds.getConnection(); Statement stmt = conn.createStatement() ) {
+            stmt.execute("CREATE TABLE T (ID INTEGER PRIMARY KEY)");
+        }
+        this.callers = Executors.newCachedThreadPool();
+    }
+    
+    @After
+    public void tearDown() throws SQLException
+    {
+        this.callers.shutdownNow();
+        try ( Connection conn = this.ds.getConnection(); Statement stmt = conn.createStatement() ) {
+            stmt.execute("SHUTDOWN");
+        }
+    }
+    
+    @Test
+    public void rollsBackAFailingChangeAlone() throws Exception
+    {
+        GroupCommit group = new GroupCommit(this.ds, this.metrics, LONG_WINDOW, 3);
+        SQLException failure = new SQLException("Refused", "23505");
+        
+        Future<Integer> first = submit(group, insert(1, null));
+        Future<Integer> failing = submit(group, insert(2, failure));
+        Future<Integer> third = submit(group, insert(3, null));
+        
+        assertEquals(Integer.valueOf(1), first.get(TIMEOUT, TimeUnit.SECONDS));
+        assertEquals(Integer.valueOf(3), third.get(TIMEOUT, TimeUnit.SECONDS));
+        assertSame(failure, failureOf(failing));
+        assertEquals(ids(1, 3), committedIds());
+        assertEquals(3, this.metrics.getGroupedChanges());
+    }
+    
+    @Test
+    public void failsEveryChangeWhenTheUnitOfWorkIsRolledBack() throws Exception
+    {
+        GroupCommit group = new GroupCommit(this.ds, this.metrics, LONG_WINDOW, 3);
+        SQLException deadlock = new SQLException("Deadlock", "40001");
+        
+        List<Future<Integer>> changes = new ArrayList<>();
+        changes.add(submit(group, insert(1, null)));
+        changes.add(submit(group, insert(2, deadlock)));
+        changes.add(submit(group, insert(3, null)));
+        
+        for (Future<Integer> change : changes) {
+            assertSame(deadlock, failureOf(change));
+        }
+        assertEquals(ids(), committedIds());
+    }
+    
+    @Test
+    public void commitsAFullGroupWithoutWaitingForTheWindow() throws Exception
+    {
+        GroupCommit group = new GroupCommit(this.ds, this.metrics, LONG_WINDOW, 2);
+        long started = System.nanoTime();
+        
+        Future<Integer> first = submit(group, insert(1, null));
+        Future<Integer> second = submit(group, insert(2, null));
+        
+        assertEquals(Integer.valueOf(1), first.get(TIMEOUT, TimeUnit.SECONDS));
+        assertEquals(Integer.valueOf(2), second.get(TIMEOUT, TimeUnit.SECONDS));
+        assertTrue(System.nanoTime() - started < TimeUnit.MILLISECONDS.toNanos(LONG_WINDOW));
+        assertEquals(ids(1, 2), committedIds());
+        assertEquals(2, this.metrics.getGroupedChanges());
+    }
+    
+    @Test
+    public void releasesEveryChangeWhenTheCommitFails() throws Exception
+    {
+        SQLException broken = new SQLException("Connection lost", "08006");
+        GroupCommit group = new GroupCommit(failingCommits(this.ds, broken), this.metrics, LONG_WINDOW, 3);
+        
+        List<Future<Integer>> changes = new ArrayList<>();
+        for (int id = 1; id <= 3; id++) {
+            changes.add(submit(group, insert(id, null)));
+        }
+        
+        for (Future<Integer> change : changes) {
+            assertSame(broken, failureOf(change));
+        }
+        assertEquals(ids(), committedIds());
+    }
+    
+    
+    /*
+     * Utility methods.
+     */
+    
+    /**
+     * Runs a change through the group on its own thread.
+     */
+    private <T> Future<T> submit(final GroupCommit group, final GroupCommit.Change<T> change)
+    {
+        return this.callers.submit(new Callable<T>() {
+            @Override
+            public T call() throws Exception {
+                return group.run(change);
+            }
+        });
+    }
+    
+    /**
+     * Builds a change that inserts a row, then throws an exception if one is given.
+     */
+    private static GroupCommit.Change<Integer> insert(final int id, final Exception failure)
+    {
+        return new GroupCommit.Change<Integer>() {
+            @Override
+            public Integer execute(Connection conn) throws Exception {
+                try ( PreparedStatement stmt = conn.prepareStatement("INSERT INTO T (ID) VALUES (?)") ) {
+                    stmt.setInt(1, id);
+                    stmt.executeUpdate();
+                }
+                if ( failure != null ) {
+                    throw failure;
+                }
+                return id;
+            }
+        };
+    }
+    
+    /**
+     * @return the exception a change failed with
+     */
+    private static Throwable failureOf(Future<?> change) throws Exception
+    {
+        try {
+            change.get(TIMEOUT, TimeUnit.SECONDS);
+        }
+        catch (ExecutionException e) {
+            return e.getCause();
+        }
+        fail("The change did not fail");
+        return null;
+    }
+    
+    /**
+     * @return the rows committed, read on a new connection
+     */
+    private List<Integer> committedIds() throws SQLException
+    {
+        List<Integer> ids = new ArrayList<>();
+        try ( Connection conn = this.ds.getConnection();
+              Statement stmt = conn.createStatement();
+              ResultSet rs = stmt.executeQuery("SELECT ID FROM T ORDER BY ID") ) {
+            while ( rs.next() ) {
+                ids.add(rs.getInt(1));
+            }
+        }
+        return ids;
+    }
+    
+    private static List<Integer> ids(Integer... ids)
+    {
+        List<Integer> list = new ArrayList<>();
+        for (Integer id : ids) {
+            list.add(id);
+        }
+        return list;
+    }
+    
+    /**
+     * Wraps a data source so that committing any of its connections fails, without committing.
+     */
+    private static DataSource failingCommits(final DataSource ds, final SQLException failure)
+    {
+        return (DataSource) Proxy.newProxyInstance(GroupCommitTest.class.getClassLoader(), new Class<?>[] { DataSource.class },
+                new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                        Object result = invokeOn(ds, method, args);
+                        if ( result instanceof Connection ) {
+                            return failingCommit((Connection) result, failure);
+                        }
+                        return result;
+                    }
+                });
+    }
+    
+    private static Connection failingCommit(final Connection conn, final SQLException failure)
+    {
+        return (Connection) Proxy.newProxyInstance(GroupCommitTest.class.getClassLoader(), new Class<?>[] { Connection.class },
+                new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                        if ( "commit".equals(method.getName()) ) {
+                            throw failure;
+                        }
+                        return invokeOn(conn, method, args);
+                    }
+                });
+    }
+    
+    private static Object invokeOn(Object target, Method method, Object[] args) throws Throwable
+    {
+        try {
+            return method.invoke(target, args);
+        }
+        catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/* Licensed Materials - Property of IBM                                   */
+/*                                                                        */
+/* SAMPLE                                                                 */
+/*                                                                        */
+/* (c) Copyright IBM Corp. 2018 All Rights Reserved                       */
+/*                                                                        */
+/* US Government Users Restricted Rights - Use, duplication or disclosure */
+/* restricted by GSA ADP Schedule Contract with IBM Corp                  */
+/*                                                                        */
+package com.ibm.cicsdev.employee.jdbc.tx;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.Test;
+
+import com.ibm.cicsdev.employee.jdbc.metrics.Metrics;
+
+/**
+ * Tests {@link RequestConnection} sharing connections from an in-memory H2 data source.
+ */
+public class RequestConnectionTest
+{
+    private final JdbcDataSource ds = new JdbcDataSource();
+    
+    private final Metrics metrics = new Metrics();
+    
+    public RequestConnectionTest() {
+        this.ds.setURL("jdbc:h2:mem:");
+    }
+    
+    @Test
+    public void sharesOneConnectionInARequest() throws SQLException
+    {
+        try ( RequestConnection request = RequestConnection.begin(this.metrics, false, false) ) {
+            Connection first = RequestConnection.getConnection(this.ds, this.metrics, true);
+            RequestConnection.release(first);
+            Connection second = RequestConnection.getConnection(this.ds, this.metrics, false);
+            RequestConnection.release(second);
+            
+            assertSame(first, second);
+            assertFalse(first.isClosed());
+            assertEquals(1, request.getCheckouts());
+        }
+        assertEquals(1, this.metrics.getCheckouts());
+    }
+    
+    @Test
+    public void takesANewHandleForEachTransaction() throws SQLException
+    {
+        Connection outside;
+        Connection first;
+        Connection second;
+        try ( RequestConnection request = RequestConnection.begin(this.metrics, false, false) ) {
+            
+            // A read outside any transaction, then two JTA updates
+            outside = RequestConnection.getConnection(this.ds, this.metrics, true);
+            RequestConnection.release(outside);
+            
+            RequestConnection.transactionBegins();
+            assertTrue(outside.isClosed());
+            first = RequestConnection.getConnection(this.ds, this.metrics, false);
+            RequestConnection.release(first);
+            
+            RequestConnection.transactionBegins();
+            assertTrue(first.isClosed());
+            second = RequestConnection.getConnection(this.ds, this.metrics, false);
+            RequestConnection.release(second);
+            
+            assertNotSame(outside, first);
+            assertNotSame(first, second);
+            assertEquals(3, request.getCheckouts());
+        }
+        assertTrue(second.isClosed());
+        assertEquals(3, this.metrics.getCheckouts());
+    }
+    
+    @Test
+    public void countsOperationsOutsideARequestSeparately() throws SQLException
+    {
+        Connection conn = RequestConnection.getConnection(this.ds, this.metrics, true);
+        RequestConnection.release(conn);
+        
+        assertTrue(conn.isClosed());
+        assertEquals(1, this.metrics.getUnscopedCheckouts());
+        assertEquals(0, this.metrics.getCheckouts());
+        
+        // Nothing to close outside a request
+        RequestConnection.transactionBegins();
+    }
+}